@@ -0,0 +1,51 @@
+/*
+ * This file is part of FemtoWeb.
+ * Copyright (c) 2015 QuarterCode <http://quartercode.com/>
+ *
+ * FemtoWeb is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * FemtoWeb is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with FemtoWeb. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.femtoweb.api;
+
+/**
+ * An action factory creates the {@link Action} instance which is executed for a request.
+ * Actions which are returned by other actions are not created by a factory since they are instantiated by the returning action itself.<br>
+ * <br>
+ * The default implementation injects services from a registry into the constructors and fields which are annotated with {@link Inject}.
+ * However, an external dependency injection container might supply its own implementation that creates actions through the container.
+ */
+public interface ActionFactory {
+
+    /**
+     * Prepares the creation of instances of the given {@link Action} class.
+     * For example, an implementation might precompute and cache the way dependencies are injected into the action.
+     * This method is called during the warm-up phase for each known action and may be called multiple times for the same class.
+     * Implementations without any per-class state can just leave it empty.
+     *
+     * @param actionClass The action class whose instantiation should be prepared.
+     * @throws Exception If the given action class can never be instantiated by this factory.
+     */
+    public void prepare(Class<? extends Action> actionClass) throws Exception;
+
+    /**
+     * Creates a new instance of the given {@link Action} class which is then used to handle a single request.
+     *
+     * @param actionClass The action class which should be instantiated.
+     * @param context The {@link Context} the new action will be executed in.
+     * @return The new action instance.
+     * @throws Exception Something goes wrong while creating the action.
+     */
+    public Action createAction(Class<? extends Action> actionClass, Context context) throws Exception;
+
+}
@@ -18,13 +18,21 @@
 
 package com.quartercode.femtoweb.api;
 
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.reflect.UndeclaredThrowableException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
-import javax.servlet.http.HttpSession;
 import org.apache.commons.lang3.ArrayUtils;
+import com.quartercode.femtoweb.api.methods.Delete;
+import com.quartercode.femtoweb.api.methods.Get;
+import com.quartercode.femtoweb.api.methods.Head;
+import com.quartercode.femtoweb.api.methods.MethodDispatchTable;
+import com.quartercode.femtoweb.api.methods.Post;
+import com.quartercode.femtoweb.api.methods.Put;
 import com.quartercode.femtoweb.api.resolutions.View;
 
 /**
@@ -68,7 +76,26 @@ public abstract class ActionSupport implements Action {
         this.response = response;
         this.context = context;
 
-        return doExecute();
+        // Invoke the handler method for the HTTP method of the request if the class declares any
+        MethodDispatchTable dispatchTable = MethodDispatchTable.of(getClass());
+        if (dispatchTable.isEmpty()) {
+            return doExecute();
+        }
+
+        MethodHandle handler = dispatchTable.getHandler(request.getMethod());
+        if (handler == null) {
+            response.setHeader("Allow", dispatchTable.getAllowedMethods());
+            response.sendError(405);
+            return null;
+        }
+
+        try {
+            return (Action) handler.invokeExact(this);
+        } catch (Exception | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new UndeclaredThrowableException(t);
+        }
     }
 
     /**
@@ -76,10 +103,19 @@ public abstract class ActionSupport implements Action {
      * The returned {@link Action} will be executed directly after this method finished in order to continue the fulfillment of the request.
      * In the most common case, a {@link View} action is returned in order to show a JSP page to the user.
      *
+     * Instead of overriding this method, subclasses may also declare separate handler methods for different HTTP methods
+     * by annotating them with {@link Get}, {@link Post}, {@link Put}, {@link Delete} or {@link Head}.
+     * If any such handler method exists, this method is never called and requests with other HTTP methods are rejected with {@code 405 Method Not Allowed}.
+     * See {@link MethodDispatchTable} for more details.
+     * Concrete subclasses which do neither are rejected when their dispatch table is built, i.e. before the first instance is created.
+     *
      * @return The next action which should be executed directly after this method finished.
      * @throws Exception If any exception occurred while this action executed its activities.
      */
-    protected abstract Action doExecute() throws Exception;
+    protected Action doExecute() throws Exception {
+
+        throw new UnsupportedOperationException("Action '" + getClass().getName() + "' neither overrides doExecute() nor declares any handler methods");
+    }
 
     // ----- Utilities -----
 
@@ -209,29 +245,94 @@ public abstract class ActionSupport implements Action {
     }
 
     /**
-     * Returns the object which is assigned to the given name in the {@link #request currently processed request's} {@link HttpSession session}.
-     * This method might return {@code null} if no object is assigned to the name, or if no session has yet been created in the first place.
+     * Returns the {@link Deadline} of the current {@link #request}, after which nobody waits for its response anymore.
+     * The remaining time should be passed on to expensive downstream calls (e.g. as a timeout), so that they don't outlast the request.
+     *
+     * @return The deadline of the current request, or {@code null} if the request doesn't have a deadline.
+     */
+    protected final Deadline getDeadline() {
+
+        return Deadline.get(request);
+    }
+
+    /**
+     * Removes all {@link CacheResponse cached responses} of the given {@link Action} class from the {@link Context#getCacheBackend() cache backend}.
+     * If the cache backend is shared by multiple nodes, the responses are removed on all of them.
+     * This method should be called whenever the data which is displayed by the given action changes.
+     *
+     * @param action The action class whose cached responses should be removed.
+     * @throws IOException If the cache backend cannot be reached.
+     */
+    protected final void invalidateCachedResponses(Class<? extends Action> action) throws IOException {
+
+        context.getCacheBackend().invalidatePrefix(CacheResponse.KEY_PREFIX + action.getName() + "\0");
+    }
+
+    /**
+     * Returns the full URL (including the context path) under which the given static asset is served.
+     * If the static assets have been fingerprinted at build time, the URL contains the fingerprinted name of the asset,
+     * which allows clients to cache the asset forever.
+     * See {@link Context#getAssetUri(String)} for more details.
+     *
+     * @param asset The logical name of the asset, relative to the static asset path (e.g. {@code css/main.css}).
+     * @return The URL of the asset.
+     */
+    protected final String getAssetUrl(String asset) {
+
+        return request.getContextPath() + context.getAssetUri(asset);
+    }
+
+    /**
+     * Creates a new empty {@link Model} with the given {@link ModelLayout} and pushes it as the request attribute {@link Model#ATTRIBUTE}.
+     * The returned model can then be filled by slot index, which avoids a separate request attribute for each value:
+     *
+     * <pre>
+     * Model model = pushModel(LAYOUT);
+     * model.set(TITLE, "Hello World");
+     * </pre>
+     *
+     * JSPs following this action can access the values of the model through the expression language (e.g. <code>${model.title}</code>).
+     *
+     * @param layout The model layout which defines the slots of the new model.
+     * @return The new model, which is already available to following JSPs.
+     */
+    protected final Model pushModel(ModelLayout layout) {
+
+        Model model = layout.newModel();
+        push(Model.ATTRIBUTE, model);
+        return model;
+    }
+
+    /**
+     * Returns the object which is assigned to the given name in the {@link #request currently processed request's} session.
+     * This method might return {@code null} if no object is assigned to the name, or if no session has yet been created in the first place.<br>
+     * <br>
+     * Internally, this method just redirects all calls to the {@link Context#getSessionStore() session store} of the {@link #context}.
+     * By default, that store uses the container's {@link javax.servlet.http.HttpSession}s.
      *
      * @param name The name of the session object which should be returned.
      * @return The session object with the given name.
      */
     protected final Object getSessionAttr(String name) {
 
-        HttpSession session = request.getSession(false);
-        return session == null ? null : session.getAttribute(name);
+        return context.getSessionStore().getAttribute(request, name);
     }
 
     /**
-     * Assigns the given object to the given name in the {@link #request currently processed request's} {@link HttpSession session}.
+     * Assigns the given object to the given name in the {@link #request currently processed request's} session.
      * If another object is already assigned to the same name, the old object is replaced with the given new one.
-     * That also means that a session attribute can be {@link HttpSession#removeAttribute(String) removed} by just passing a {@code null} value into this method.
+     * That also means that a session attribute can be removed by just passing a {@code null} value into this method.<br>
+     * <br>
+     * Internally, this method just redirects all calls to the {@link Context#getSessionStore() session store} of the {@link #context}.
+     * Note that some session stores only write out the changes after this action has returned.
+     * Therefore, session attributes should be set before any output is written to the {@link #response}.
      *
      * @param name The name the given object should be assigned to.
      * @param value The object which should be assigned to the given name.
      */
     protected final void setSessionAttr(String name, Object value) {
 
-        request.getSession().setAttribute(name, value);
+        context.getSessionStore().setAttribute(request, response, name, value);
     }
 
 }
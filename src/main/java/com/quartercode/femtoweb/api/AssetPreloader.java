@@ -0,0 +1,54 @@
+/*
+ * This file is part of FemtoWeb.
+ * Copyright (c) 2015 QuarterCode <http://quartercode.com/>
+ *
+ * FemtoWeb is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * FemtoWeb is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with FemtoWeb. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.femtoweb.api;
+
+import java.io.IOException;
+import java.util.Collection;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import com.quartercode.femtoweb.api.resolutions.View;
+
+/**
+ * An asset preloader tells the client which static assets a {@link View} is going to reference before the view is actually rendered.
+ * That way, the client can start fetching stylesheets, scripts etc. while the HTML is still being generated and transferred.
+ * It can be retrieved from {@link Context#getAssetPreloader()}.<br>
+ * <br>
+ * The default implementation sends {@code Link: rel=preload} headers and, if the container supports it, HTTP/2 server pushes or {@code 103 Early Hints}.
+ * Apart from the assets which are explicitly declared through {@link View#preload(String...)}, it can also learn the assets of a view from its first rendering.
+ */
+public interface AssetPreloader {
+
+    /**
+     * Announces the static assets of the view with the given path to the client.
+     * This method is called by a {@link View} right before it forwards the request to the dynamic resource with the given path.
+     * It returns the response the view should forward to.
+     * That might just be the given response, or a wrapper which observes the rendered output.
+     *
+     * @param request The request which is about to be forwarded to the view.
+     * @param response The response to the request. It must not be committed yet for the announcement to have any effect.
+     * @param context The {@link Context} the view is executed in.
+     * @param viewPath The full path of the dynamic resource the request is forwarded to.
+     * @param declaredAssets The assets which have been explicitly declared for the view, relative to the {@link Context#getStaticAssetPath() static asset path}.
+     * @return The response which should be passed on to the view.
+     * @throws IOException Something goes wrong while announcing the assets.
+     */
+    public HttpServletResponse preload(HttpServletRequest request, HttpServletResponse response, Context context, String viewPath, Collection<String> declaredAssets)
+            throws IOException;
+
+}
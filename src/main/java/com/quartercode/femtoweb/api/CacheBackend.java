@@ -0,0 +1,71 @@
+/*
+ * This file is part of FemtoWeb.
+ * Copyright (c) 2015 QuarterCode <http://quartercode.com/>
+ *
+ * FemtoWeb is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * FemtoWeb is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with FemtoWeb. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.femtoweb.api;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * A cache backend stores the cached data of the framework, for example the responses of {@link CacheResponse cached actions}.
+ * Entries are binary values which are identified by string keys and expire after a given time.
+ * A backend may be local to the JVM or shared by all nodes of a cluster.
+ * Shared backends must make sure that an invalidation on one node takes effect on all nodes, including any near caches the nodes keep.<br>
+ * <br>
+ * Since a cache is only an optimization, callers treat an {@link IOException} (e.g. an unreachable cache server) like a cache miss.
+ *
+ * @see Context#getCacheBackend()
+ */
+public interface CacheBackend extends Closeable {
+
+    /**
+     * Returns the value which is stored under the given key.
+     *
+     * @param key The key of the entry.
+     * @return The stored value, or {@code null} if there is no entry or the entry has expired.
+     * @throws IOException If the backend cannot be reached.
+     */
+    public byte[] get(String key) throws IOException;
+
+    /**
+     * Stores the given value under the given key, replacing any existing entry.
+     *
+     * @param key The key of the entry.
+     * @param value The value which should be stored. It must not be modified afterwards.
+     * @param ttl The amount of milliseconds after which the entry expires.
+     * @throws IOException If the backend cannot be reached.
+     */
+    public void put(String key, byte[] value, long ttl) throws IOException;
+
+    /**
+     * Removes the entry with the given key on all nodes.
+     *
+     * @param key The key of the entry which should be removed.
+     * @throws IOException If the backend cannot be reached.
+     */
+    public void invalidate(String key) throws IOException;
+
+    /**
+     * Removes all entries whose keys start with the given prefix on all nodes.
+     *
+     * @param prefix The key prefix of the entries which should be removed.
+     * @throws IOException If the backend cannot be reached.
+     */
+    public void invalidatePrefix(String prefix) throws IOException;
+
+}
@@ -0,0 +1,58 @@
+/*
+ * This file is part of FemtoWeb.
+ * Copyright (c) 2015 QuarterCode <http://quartercode.com/>
+ *
+ * FemtoWeb is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * FemtoWeb is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with FemtoWeb. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.femtoweb.api;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * By adding this annotation to any {@link Action} class, successful responses to {@code GET} requests to the action are stored in the {@link CacheBackend}
+ * of the {@link Context} and replayed to identical requests until they expire.
+ * If the cache backend is shared by multiple nodes, a response which has been produced by one node is served by all of them.<br>
+ * <br>
+ * Two requests are identical if they target the same action with the same values for all {@link #params() relevant parameters}.
+ * Note that the response must not depend on anything else, like the session or cookies of the user.
+ * Only responses with the status code {@code 200} which don't set any cookies are cached.
+ * When the underlying data changes, the cached responses of an action can be removed on all nodes with {@link ActionSupport#invalidateCachedResponses(Class)}.
+ */
+@Target (ElementType.TYPE)
+@Retention (RetentionPolicy.RUNTIME)
+public @interface CacheResponse {
+
+    /**
+     * The prefix of all cache keys which store responses.
+     * It is followed by the name of the action class, a {@code \0} character and the relevant parameters.
+     */
+    String KEY_PREFIX = "response:";
+
+    /**
+     * The amount of milliseconds after which a cached response expires.
+     */
+    long ttl() default 60000;
+
+    /**
+     * The names of the request parameters which influence the response.
+     * Requests which only differ in other parameters are treated as identical.
+     * By default, all parameters are relevant.
+     */
+    String[] params() default {};
+
+}
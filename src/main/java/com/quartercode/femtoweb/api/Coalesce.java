@@ -0,0 +1,54 @@
+/*
+ * This file is part of FemtoWeb.
+ * Copyright (c) 2015 QuarterCode <http://quartercode.com/>
+ *
+ * FemtoWeb is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * FemtoWeb is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with FemtoWeb. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.femtoweb.api;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * By adding this annotation to any {@link Action} class, concurrent identical {@code GET} requests to the action are coalesced.
+ * That means that only the first request actually executes the action (and any following actions, e.g. a view).
+ * All identical requests which arrive while that execution is still in flight wait for it and receive a replay of its buffered response.
+ * Such behavior can be useful for expensive pages which are requested by many clients at the same time, e.g. after a cache entry expired.<br>
+ * <br>
+ * Two requests are identical if they target the same action with the same values for all {@link #params() relevant parameters}.
+ * Note that the response must not depend on anything else, like the session or cookies of the user.
+ * As a safety measure, responses which set cookies are never replayed; waiting requests execute the action themselves in that case.
+ */
+@Target (ElementType.TYPE)
+@Retention (RetentionPolicy.RUNTIME)
+public @interface Coalesce {
+
+    /**
+     * The names of the request parameters which influence the response.
+     * Requests which only differ in other parameters are treated as identical.
+     * By default, all parameters are relevant.
+     */
+    String[] params() default {};
+
+    /**
+     * The maximum amount of milliseconds a request waits for an in-flight execution.
+     * If the execution takes longer, the waiting request executes the action itself.
+     * A request never waits beyond its {@link Deadline}; if that passes first, the request is ended with HTTP 503.
+     */
+    long timeout() default 10000;
+
+}
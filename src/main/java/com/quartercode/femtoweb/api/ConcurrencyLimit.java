@@ -0,0 +1,61 @@
+/*
+ * This file is part of FemtoWeb.
+ * Copyright (c) 2015 QuarterCode <http://quartercode.com/>
+ *
+ * FemtoWeb is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * FemtoWeb is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with FemtoWeb. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.femtoweb.api;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * By adding this annotation to any {@link Action} class, the amount of requests which execute the action at the same time is limited.
+ * Requests which exceed the limit wait in a small queue for a free slot.
+ * If that queue is full as well, or if no slot becomes free in time, the request is rejected with HTTP 503 and a {@code Retry-After} header.
+ * Such behavior can be useful for actions which depend on slow resources, since it keeps those actions from occupying all container threads.<br>
+ * <br>
+ * Limits can also be configured without this annotation through the {@code concurrencyLimits} init parameter of the filter.
+ */
+@Target (ElementType.TYPE)
+@Retention (RetentionPolicy.RUNTIME)
+public @interface ConcurrencyLimit {
+
+    /**
+     * The maximum amount of requests which may execute the action at the same time.
+     * If the limit is {@link #adaptive() adaptive}, this is the upper bound of the limit.
+     */
+    int value();
+
+    /**
+     * The maximum amount of requests which may wait for a free slot at the same time.
+     * By default, no request waits, which means that requests exceeding the limit are rejected immediately.
+     */
+    int maxQueued() default 0;
+
+    /**
+     * The maximum amount of milliseconds a queued request waits for a free slot before it is rejected.
+     */
+    long queueTimeout() default 1000;
+
+    /**
+     * Whether the limit automatically shrinks when the latency of the action rises, and grows back to the {@link #value() maximum} when the latency drops again.
+     * That way, less requests pile up in an action whose dependencies degrade.
+     */
+    boolean adaptive() default false;
+
+}
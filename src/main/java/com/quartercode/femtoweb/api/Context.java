@@ -18,6 +18,9 @@
 
 package com.quartercode.femtoweb.api;
 
+import javax.servlet.RequestDispatcher;
+import javax.servlet.http.HttpServletRequest;
+
 /**
  * A {@link Context} object is provided to {@link Action}s and provides some framework settings and methods which depend on those settings.
  */
@@ -56,6 +59,89 @@ public interface Context {
      */
     public String getIndexUri();
 
+    /**
+     * Returns the {@link SessionStore} which keeps the session data of all users.
+     * By default, it just uses the container's {@link javax.servlet.http.HttpSession}s.
+     *
+     * @return The session store.
+     */
+    public SessionStore getSessionStore();
+
+    /**
+     * Returns the {@link AssetPreloader} which announces the static assets of views before they are rendered.
+     * By default, it only announces the assets which are explicitly declared for a view.
+     *
+     * @return The asset preloader.
+     */
+    public AssetPreloader getAssetPreloader();
+
+    /**
+     * Returns the {@link FragmentExecutor} which renders the fragments of composite views concurrently.
+     *
+     * @return The fragment executor.
+     */
+    public FragmentExecutor getFragmentExecutor();
+
+    /**
+     * Returns the {@link CacheBackend} which stores the cached data of the framework (e.g. {@link CacheResponse cached responses}).
+     * By default, it is a cache which is local to this JVM.
+     *
+     * @return The cache backend.
+     */
+    public CacheBackend getCacheBackend();
+
+    /**
+     * Returns the {@link TemplateRenderer} which renders lightweight templates without going through JSP.
+     *
+     * @return The template renderer.
+     */
+    public TemplateRenderer getTemplateRenderer();
+
+    /**
+     * Returns the URI under which the given static asset is served.
+     * If the static assets have been fingerprinted at build time, the URI contains the fingerprinted name of the asset,
+     * which changes whenever the content of the asset changes (e.g. {@code css/main.css -> /static/css/main.3f2a9c1b0d.css}).
+     * Otherwise, the asset name is just appended to the {@link #getStaticAssetPath() static asset path}.<br>
+     * <br>
+     * Note that the returned URI is relative to the context path and always starts with {@code /}.
+     *
+     * @param asset The logical name of the asset, relative to the static asset path (e.g. {@code css/main.css}).
+     * @return The URI the asset is served under.
+     */
+    public String getAssetUri(String asset);
+
+    /**
+     * Returns the full path of the dynamic resource which is located under the given path, which is relative to the {@link #getDynamicAssetPath() dynamic asset path}.
+     * This is the path a {@link com.quartercode.femtoweb.api.resolutions.View} forwards to (e.g. {@code test/form.jsp -> /WEB-INF/dynamic/test/form.jsp}).
+     * The results are cached, so repeated calls with the same path don't compute anything.
+     *
+     * @param path The path of the dynamic resource relative to the dynamic asset path.
+     * @return The full path of the dynamic resource. It always starts with {@code /}.
+     */
+    public String getViewPath(String path);
+
+    /**
+     * Returns the full path of the dynamic resource with the given name, which is located in the URI "directory" of the given {@link Action} class.
+     * For example, the action class {@code test.package.SomeTestAction} and the name {@code testForm.jsp} result in the path
+     * {@code /WEB-INF/dynamic/test/package/testForm.jsp}.
+     * The results are cached, so repeated calls with the same action class and name don't compute anything.
+     *
+     * @param dir The action class whose URI "directory" contains the dynamic resource.
+     * @param name The name of the dynamic resource in that directory.
+     * @return The full path of the dynamic resource. It always starts with {@code /}.
+     */
+    public String getViewPath(Class<? extends Action> dir, String name);
+
+    /**
+     * Returns a {@link RequestDispatcher} which forwards the given request to the dynamic resource under the given full {@link #getViewPath(String) view path}.
+     * If the container allows it, dispatchers are created once per path and then reused for all requests.
+     *
+     * @param request The request which should be forwarded.
+     * @param viewPath The full path of the dynamic resource, as returned by {@link #getViewPath(String)}.
+     * @return The dispatcher for the dynamic resource, or {@code null} if the container cannot provide one for the path.
+     */
+    public RequestDispatcher getViewDispatcher(HttpServletRequest request, String viewPath);
+
     /**
      * Returns the URI the given {@link Action} class is mapped to.
      * That is possible because each action is automatically mapped to a certain URI (e.g {@code test.package.SomeTestAction -> /test/package/someTest}).
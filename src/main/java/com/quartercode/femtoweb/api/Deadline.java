@@ -0,0 +1,122 @@
+/*
+ * This file is part of FemtoWeb.
+ * Copyright (c) 2015 QuarterCode <http://quartercode.com/>
+ *
+ * FemtoWeb is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * FemtoWeb is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with FemtoWeb. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.femtoweb.api;
+
+import java.util.concurrent.TimeUnit;
+import javax.servlet.ServletRequest;
+
+/**
+ * The point in time after which nobody waits for the response to a request anymore, e.g. because the client or a load balancer has given up.
+ * The deadline of a request is derived from a configured default timeout, the {@link RequestTimeout} annotation of the responsible {@link Action},
+ * and optionally a header sent by the client.
+ * Before each step of the action chain, the framework checks whether the deadline has passed and, if so, ends the request.<br>
+ * <br>
+ * Actions can retrieve the deadline of the current request through {@link ActionSupport#getDeadline()} or {@link #get(ServletRequest)}
+ * and pass the remaining time on to downstream calls, for example as a socket timeout.
+ * Deadlines are immutable.
+ */
+public class Deadline {
+
+    /**
+     * The name of the request attribute the deadline of a request is stored under.
+     */
+    public static final String ATTRIBUTE = Deadline.class.getName();
+
+    private final long         expiryTime;
+
+    /**
+     * Returns the deadline of the given request.
+     *
+     * @param request The request whose deadline should be returned.
+     * @return The deadline of the request, or {@code null} if the request doesn't have a deadline.
+     */
+    public static Deadline get(ServletRequest request) {
+
+        return (Deadline) request.getAttribute(ATTRIBUTE);
+    }
+
+    /**
+     * Creates a new deadline which passes after the given amount of milliseconds from now.
+     *
+     * @param timeout The amount of milliseconds until the deadline passes.
+     * @return The new deadline.
+     */
+    public static Deadline after(long timeout) {
+
+        return new Deadline(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout));
+    }
+
+    private Deadline(long expiryTime) {
+
+        this.expiryTime = expiryTime;
+    }
+
+    /**
+     * Returns whether the deadline has already passed.
+     *
+     * @return Whether the deadline has passed.
+     */
+    public boolean isExpired() {
+
+        return System.nanoTime() - expiryTime >= 0;
+    }
+
+    /**
+     * Returns the amount of milliseconds which remain until the deadline passes.
+     *
+     * @return The remaining milliseconds, or {@code 0} if the deadline has already passed.
+     */
+    public long getRemainingMillis() {
+
+        return Math.max(TimeUnit.NANOSECONDS.toMillis(expiryTime - System.nanoTime()), 0);
+    }
+
+    /**
+     * Returns the amount of nanoseconds which remain until the deadline passes.
+     *
+     * @return The remaining nanoseconds, or {@code 0} if the deadline has already passed.
+     */
+    public long getRemainingNanos() {
+
+        return Math.max(expiryTime - System.nanoTime(), 0);
+    }
+
+    /**
+     * Limits the given timeout of a downstream call, so that the call doesn't outlast this deadline.
+     *
+     * @param timeout A timeout in milliseconds.
+     * @return The smaller value of the given timeout and the {@link #getRemainingMillis() remaining milliseconds}.
+     */
+    public long limit(long timeout) {
+
+        return Math.min(timeout, getRemainingMillis());
+    }
+
+    /**
+     * Returns the earlier of this deadline and the given one.
+     *
+     * @param other Another deadline; may be {@code null}.
+     * @return The earlier deadline.
+     */
+    public Deadline earliest(Deadline other) {
+
+        return other == null || expiryTime - other.expiryTime <= 0 ? this : other;
+    }
+
+}
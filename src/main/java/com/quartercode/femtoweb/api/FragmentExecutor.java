@@ -0,0 +1,53 @@
+/*
+ * This file is part of FemtoWeb.
+ * Copyright (c) 2015 QuarterCode <http://quartercode.com/>
+ *
+ * FemtoWeb is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * FemtoWeb is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with FemtoWeb. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.femtoweb.api;
+
+import java.util.List;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import com.quartercode.femtoweb.api.resolutions.CompositeView;
+
+/**
+ * A fragment executor runs multiple independent {@link Action}s of a single request concurrently and captures the output of each one.
+ * It is used by the {@link CompositeView} and can be retrieved from {@link Context#getFragmentExecutor()}.<br>
+ * <br>
+ * Each fragment action sees the attributes of the original request, but all attributes it sets itself are only visible to that fragment.
+ * Fragments should not modify the session since the session store might not support concurrent access by a single request.
+ */
+public interface FragmentExecutor {
+
+    /**
+     * Executes the given fragment {@link Action}s concurrently and returns their rendered output in the same order.
+     * Each fragment action is executed together with all actions it returns (e.g. a {@code View}) until no further action is returned.
+     * Since most containers don't allow request dispatchers to be used by other threads, views must be rendered by the calling thread.
+     * If a fragment fails, responds with a status other than 2xx, or doesn't finish within its timeout, its entry in the returned list is {@code null}.
+     * This method doesn't wait for fragments any longer than their timeouts.
+     *
+     * @param request The request the fragments are part of.
+     * @param response The response to the request. It is never written to by the fragments.
+     * @param context The {@link Context} the fragments are executed in.
+     * @param actions The fragment action classes which should be executed.
+     * @param timeouts The maximum amount of milliseconds each fragment may take, in the same order as the action classes.
+     * @return The rendered output of each fragment, or {@code null} for all fragments which haven't been rendered successfully.
+     * @throws InterruptedException The current thread is interrupted while waiting for the fragments.
+     */
+    public List<String> execute(HttpServletRequest request, HttpServletResponse response, Context context, List<Class<? extends Action>> actions, long[] timeouts)
+            throws InterruptedException;
+
+}
@@ -0,0 +1,37 @@
+/*
+ * This file is part of FemtoWeb.
+ * Copyright (c) 2015 QuarterCode <http://quartercode.com/>
+ *
+ * FemtoWeb is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * FemtoWeb is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with FemtoWeb. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.femtoweb.api;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a constructor or field of an {@link Action} class whose dependencies should be injected by the default {@link ActionFactory}.
+ * If a constructor is annotated, it is used for instantiating the action and all of its parameters are injected.
+ * Annotated fields are injected after construction and may be private.
+ * Dependencies are resolved by their declared type.
+ * Apart from registered services, the {@link Context} can always be injected.
+ */
+@Target ({ ElementType.CONSTRUCTOR, ElementType.FIELD })
+@Retention (RetentionPolicy.RUNTIME)
+public @interface Inject {
+
+}
@@ -0,0 +1,197 @@
+/*
+ * This file is part of FemtoWeb.
+ * Copyright (c) 2015 QuarterCode <http://quartercode.com/>
+ *
+ * FemtoWeb is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * FemtoWeb is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with FemtoWeb. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.femtoweb.api;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import javax.servlet.ServletRequest;
+import com.quartercode.femtoweb.api.resolutions.View;
+
+/**
+ * A typed model which carries the values an action passes on to a {@link View}.
+ * In contrast to pushing each value as a separate {@link ServletRequest#setAttribute(String, Object) request attribute},
+ * a model stores its values in a plain array whose slots are defined by a precomputed {@link ModelLayout}.
+ * Only the model itself is stored as a single request attribute under the name {@link #ATTRIBUTE}.<br>
+ * <br>
+ * Since a model is also a read-only {@link Map} from slot names to values, JSPs can access its values through the expression language,
+ * using the standard map resolution of the container (e.g. <code>${model.title}</code>).
+ * Slots which haven't been set (or have been set to {@code null}) are not contained in the map.
+ *
+ * @see ActionSupport#pushModel(ModelLayout)
+ * @see View#model(Model)
+ */
+public class Model extends AbstractMap<String, Object> {
+
+    /**
+     * The name of the request attribute the model of a request is stored under.
+     */
+    public static final String ATTRIBUTE = "model";
+
+    private final ModelLayout  layout;
+    private final Object[]     values;
+
+    /**
+     * Creates a new empty model with the given layout.
+     * Alternatively, {@link ModelLayout#newModel()} can be used.
+     *
+     * @param layout The {@link ModelLayout} which defines the slots of the new model.
+     */
+    public Model(ModelLayout layout) {
+
+        this.layout = layout;
+        values = new Object[layout.getSize()];
+    }
+
+    /**
+     * Returns the {@link ModelLayout} which defines the slots of this model.
+     *
+     * @return The model layout.
+     */
+    public ModelLayout getLayout() {
+
+        return layout;
+    }
+
+    /**
+     * Sets the value of the slot with the given index.
+     * This is the fastest way to fill a model.
+     *
+     * @param slot The index of the slot (see {@link ModelLayout#getSlot(String)}).
+     * @param value The new value of the slot.
+     * @return This model.
+     */
+    public Model set(int slot, Object value) {
+
+        values[slot] = value;
+        return this;
+    }
+
+    /**
+     * Sets the value of the slot with the given name.
+     *
+     * @param name The name of the slot.
+     * @param value The new value of the slot.
+     * @return This model.
+     * @throws IllegalArgumentException If the layout of this model has no slot with the given name.
+     */
+    public Model set(String name, Object value) {
+
+        int slot = layout.getSlot(name);
+        if (slot < 0) {
+            throw new IllegalArgumentException("Model layout has no slot named '" + name + "'");
+        }
+
+        values[slot] = value;
+        return this;
+    }
+
+    /**
+     * Returns the value of the slot with the given index.
+     *
+     * @param slot The index of the slot (see {@link ModelLayout#getSlot(String)}).
+     * @return The value of the slot.
+     */
+    public Object get(int slot) {
+
+        return values[slot];
+    }
+
+    @Override
+    public Object get(Object key) {
+
+        int slot = key instanceof String ? layout.getSlot((String) key) : -1;
+        return slot < 0 ? null : values[slot];
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+
+        return get(key) != null;
+    }
+
+    @Override
+    public Set<Map.Entry<String, Object>> entrySet() {
+
+        return new AbstractSet<Map.Entry<String, Object>>() {
+
+            @Override
+            public Iterator<Map.Entry<String, Object>> iterator() {
+
+                return new EntryIterator();
+            }
+
+            @Override
+            public int size() {
+
+                int size = 0;
+                for (Object value : values) {
+                    if (value != null) {
+                        size++;
+                    }
+                }
+                return size;
+            }
+
+        };
+    }
+
+    private class EntryIterator implements Iterator<Map.Entry<String, Object>> {
+
+        private int nextSlot = findSlot(0);
+
+        private int findSlot(int start) {
+
+            int slot = start;
+            while (slot < values.length && values[slot] == null) {
+                slot++;
+            }
+            return slot;
+        }
+
+        @Override
+        public boolean hasNext() {
+
+            return nextSlot < values.length;
+        }
+
+        @Override
+        public Map.Entry<String, Object> next() {
+
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+
+            Map.Entry<String, Object> entry = new SimpleImmutableEntry<>(layout.getName(nextSlot), values[nextSlot]);
+            nextSlot = findSlot(nextSlot + 1);
+            return entry;
+        }
+
+        @Override
+        public void remove() {
+
+            throw new UnsupportedOperationException("Models are read-only maps");
+        }
+
+    }
+
+}
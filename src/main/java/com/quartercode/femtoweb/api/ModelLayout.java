@@ -0,0 +1,112 @@
+/*
+ * This file is part of FemtoWeb.
+ * Copyright (c) 2015 QuarterCode <http://quartercode.com/>
+ *
+ * FemtoWeb is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * FemtoWeb is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with FemtoWeb. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.femtoweb.api;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import org.apache.commons.lang3.Validate;
+
+/**
+ * A fixed, precomputed set of named slots which make up a {@link Model}.
+ * A layout is typically created once per action class and stored in a {@code static final} field.
+ * Since the position of each name is known in advance, actions can fill the slots of a model by index, without any hashing.<br>
+ * <br>
+ * Example:
+ *
+ * <pre>
+ * private static final ModelLayout LAYOUT = ModelLayout.of("title", "items");
+ * private static final int         TITLE  = LAYOUT.getSlot("title");
+ * private static final int         ITEMS  = LAYOUT.getSlot("items");
+ * </pre>
+ *
+ * Layouts are immutable and can be shared between threads.
+ */
+public class ModelLayout {
+
+    private final String[]             names;
+    private final Map<String, Integer> slots;
+
+    /**
+     * Creates a new model layout with one slot for each of the given names.
+     * The slots are numbered in the order of the names, starting with {@code 0}.
+     *
+     * @param names The names of the slots.
+     * @return The new model layout.
+     */
+    public static ModelLayout of(String... names) {
+
+        return new ModelLayout(names);
+    }
+
+    private ModelLayout(String[] names) {
+
+        Validate.noNullElements(names, "Model slot names cannot be null");
+
+        this.names = Arrays.copyOf(names, names.length);
+        slots = new HashMap<>(names.length * 2);
+        for (int slot = 0; slot < names.length; slot++) {
+            Validate.isTrue(slots.put(names[slot], slot) == null, "Duplicate model slot name '%s'", names[slot]);
+        }
+    }
+
+    /**
+     * Returns the amount of slots in this layout.
+     *
+     * @return The slot count.
+     */
+    public int getSize() {
+
+        return names.length;
+    }
+
+    /**
+     * Returns the index of the slot with the given name.
+     *
+     * @param name The name of the slot.
+     * @return The index of the slot, or {@code -1} if there is no slot with the given name.
+     */
+    public int getSlot(String name) {
+
+        Integer slot = slots.get(name);
+        return slot == null ? -1 : slot;
+    }
+
+    /**
+     * Returns the name of the slot with the given index.
+     *
+     * @param slot The index of the slot.
+     * @return The name of the slot.
+     */
+    public String getName(int slot) {
+
+        return names[slot];
+    }
+
+    /**
+     * Creates a new empty {@link Model} which uses this layout.
+     *
+     * @return The new model.
+     */
+    public Model newModel() {
+
+        return new Model(this);
+    }
+
+}
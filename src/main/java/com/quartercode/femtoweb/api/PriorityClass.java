@@ -0,0 +1,58 @@
+/*
+ * This file is part of FemtoWeb.
+ * Copyright (c) 2015 QuarterCode <http://quartercode.com/>
+ *
+ * FemtoWeb is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * FemtoWeb is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with FemtoWeb. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.femtoweb.api;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * By adding this annotation to any {@link Action} class, the action is assigned to a named priority class.
+ * If scheduling is enabled through the {@code scheduling} init parameter of the filter, all actions share a fixed amount of execution slots.
+ * Requests which don't find a free slot wait in a bounded queue of their priority class, and the queues are served by weighted fair queuing.
+ * That way, a class with weight 8 gets eight times as many freed slots as a class with weight 1 while both are backlogged,
+ * but the lighter class still makes progress.<br>
+ * <br>
+ * Actions without this annotation belong to the {@link #DEFAULT default} class.
+ * The weights and queue sizes of all classes can also be configured through the {@code schedulerClasses} init parameter of the filter,
+ * which takes precedence over the weights declared by annotations.
+ */
+@Target (ElementType.TYPE)
+@Retention (RetentionPolicy.RUNTIME)
+public @interface PriorityClass {
+
+    /**
+     * The name of the priority class all actions without a {@link PriorityClass} annotation belong to.
+     */
+    public static final String DEFAULT = "default";
+
+    /**
+     * The name of the priority class the action belongs to (e.g. {@code interactive} or {@code export}).
+     */
+    String value();
+
+    /**
+     * The share of freed execution slots the priority class receives relative to the other classes while their queues are backlogged.
+     * It is only used if the class isn't configured through the filter; if multiple actions declare different weights for the same class,
+     * the weight of the action which is scheduled first wins.
+     */
+    int weight() default 1;
+
+}
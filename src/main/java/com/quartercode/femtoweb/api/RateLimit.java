@@ -0,0 +1,48 @@
+/*
+ * This file is part of FemtoWeb.
+ * Copyright (c) 2015 QuarterCode <http://quartercode.com/>
+ *
+ * FemtoWeb is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * FemtoWeb is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with FemtoWeb. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.femtoweb.api;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * By adding this annotation to any {@link Action} class, the rate at which each client may request the action is limited.
+ * Each client has its own token bucket, which holds up to {@link #burst()} tokens and is refilled with {@link #value()} tokens per second.
+ * Each request takes one token; if the bucket is empty, the request is rejected with HTTP 429 and a {@code Retry-After} header before the action is even created.<br>
+ * <br>
+ * Clients are identified by their remote address, or by the value of the header which is configured through the {@code rateLimitHeader} init parameter
+ * of the filter. Limits for whole URI prefixes can be configured through the {@code rateLimits} init parameter, which takes precedence over this annotation.
+ */
+@Target (ElementType.TYPE)
+@Retention (RetentionPolicy.RUNTIME)
+public @interface RateLimit {
+
+    /**
+     * The amount of requests per second each client may send in the long run.
+     */
+    double value();
+
+    /**
+     * The maximum amount of requests each client may send at once after it has been idle for a while.
+     */
+    int burst() default 10;
+
+}
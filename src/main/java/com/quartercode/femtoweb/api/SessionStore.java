@@ -0,0 +1,71 @@
+/*
+ * This file is part of FemtoWeb.
+ * Copyright (c) 2015 QuarterCode <http://quartercode.com/>
+ *
+ * FemtoWeb is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * FemtoWeb is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with FemtoWeb. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.femtoweb.api;
+
+import java.io.IOException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpSession;
+
+/**
+ * A session store keeps user-specific objects across multiple requests.
+ * It is used by {@link ActionSupport#getSessionAttr(String)} and {@link ActionSupport#setSessionAttr(String, Object)}
+ * and can be retrieved from {@link Context#getSessionStore()}.<br>
+ * <br>
+ * The default implementation just uses the container's {@link HttpSession}.
+ * However, other implementations might store the session data off-heap or even on the client.
+ * Those implementations may collect all changes which are made during a request and only write them out when {@link #commit(HttpServletRequest, HttpServletResponse)}
+ * is called. The framework calls that method after each {@link Action} of a request has been executed, before the response might be committed by the next one.
+ * Therefore, session changes should be made before any output is written to the response.
+ */
+public interface SessionStore {
+
+    /**
+     * Returns the object which is assigned to the given name in the session of the given request.
+     * This method returns {@code null} if no object is assigned to the name, or if no session exists for the request.
+     *
+     * @param request The request whose session should be accessed.
+     * @param name The name of the session object which should be returned.
+     * @return The session object with the given name.
+     */
+    public Object getAttribute(HttpServletRequest request, String name);
+
+    /**
+     * Assigns the given object to the given name in the session of the given request.
+     * A new session is created if necessary.
+     * If the given value is {@code null}, the object which is assigned to the name is removed.
+     *
+     * @param request The request whose session should be modified.
+     * @param response The response to the request. It might be used for transferring a session identifier or the session data itself.
+     * @param name The name the given object should be assigned to.
+     * @param value The object which should be assigned to the given name.
+     */
+    public void setAttribute(HttpServletRequest request, HttpServletResponse response, String name, Object value);
+
+    /**
+     * Writes out all session changes which have been made during the given request and haven't yet been committed.
+     * If there are no such changes, this method does nothing.
+     *
+     * @param request The request whose session changes should be written out.
+     * @param response The response to the request.
+     * @throws IOException If the session changes cannot be written out.
+     */
+    public void commit(HttpServletRequest request, HttpServletResponse response) throws IOException;
+
+}
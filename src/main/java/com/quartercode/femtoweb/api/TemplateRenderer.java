@@ -0,0 +1,51 @@
+/*
+ * This file is part of FemtoWeb.
+ * Copyright (c) 2015 QuarterCode <http://quartercode.com/>
+ *
+ * FemtoWeb is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * FemtoWeb is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with FemtoWeb. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.femtoweb.api;
+
+import java.io.IOException;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import com.quartercode.femtoweb.api.resolutions.Template;
+
+/**
+ * A template renderer writes lightweight templates directly to the output stream of a response, without going through the request dispatcher of the container.
+ * It is used by the {@link Template} view and can be retrieved from {@link Context#getTemplateRenderer()}.<br>
+ * <br>
+ * Templates are plain UTF-8 text files with placeholders in the form <code>${name}</code> or <code>${name.property.property}</code>.
+ * The first name of a placeholder refers to a request attribute (e.g. one {@link ActionSupport#push(String, Object) pushed} by an action),
+ * and each following property is looked up in the previous value, which might be a {@link Model}, any other {@link java.util.Map}, or a bean with getters.
+ * The values are HTML-escaped, unless the placeholder is written as <code>$!{name}</code> (e.g. for the rendered fragments of a composite view).
+ * Missing values are rendered as empty strings.
+ */
+public interface TemplateRenderer {
+
+    /**
+     * Renders the template which is located under the given full path to the output stream of the given response.
+     * If the response doesn't have a content type yet, {@code text/html;charset=UTF-8} is set.
+     *
+     * @param request The request whose attributes are used as the values of the placeholders.
+     * @param response The response the rendered template should be written to.
+     * @param path The full path of the template in the webapp (e.g. {@code /WEB-INF/dynamic/test/page.html}).
+     * @throws IOException If the template cannot be read or the response cannot be written.
+     * @throws ServletException If no template exists under the given path, or if the template is malformed.
+     */
+    public void render(HttpServletRequest request, HttpServletResponse response, String path) throws IOException, ServletException;
+
+}
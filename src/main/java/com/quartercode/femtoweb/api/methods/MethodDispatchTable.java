@@ -0,0 +1,212 @@
+/*
+ * This file is part of FemtoWeb.
+ * Copyright (c) 2015 QuarterCode <http://quartercode.com/>
+ *
+ * FemtoWeb is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * FemtoWeb is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with FemtoWeb. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.femtoweb.api.methods;
+
+import java.lang.annotation.Annotation;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import com.quartercode.femtoweb.api.Action;
+import com.quartercode.femtoweb.api.ActionSupport;
+
+/**
+ * A per-class table which maps HTTP methods to the handler methods of an {@link ActionSupport} subclass.
+ * Handler methods are annotated with {@link Get}, {@link Post}, {@link Put}, {@link Delete} or {@link Head}.
+ * They must be non-static, take no parameters and return an {@link Action} (or a subtype of it), just like {@link ActionSupport#doExecute()}.
+ * If there is no explicit {@link Head} handler, {@code HEAD} requests are handled by the {@link Get} handler.
+ * Handlers declared by a subclass take precedence over handlers for the same HTTP method which are declared by a superclass.<br>
+ * <br>
+ * Each table is built only once per class and compiles the handlers into {@link MethodHandle}s, so that dispatching a request doesn't require reflection.
+ * Since the table doesn't need an instance of the action, requests with an unsupported HTTP method can be rejected before the action is created.
+ * If a class doesn't declare any handler methods, its table is {@link #isEmpty() empty} and all HTTP methods are {@link #isAllowed(String) allowed}.
+ */
+public class MethodDispatchTable {
+
+    private static final Map<Class<? extends Annotation>, String> ANNOTATIONS;
+    private static final MethodType                               HANDLER_TYPE = MethodType.methodType(Action.class, ActionSupport.class);
+
+    static {
+        ANNOTATIONS = new LinkedHashMap<>();
+        ANNOTATIONS.put(Get.class, "GET");
+        ANNOTATIONS.put(Head.class, "HEAD");
+        ANNOTATIONS.put(Post.class, "POST");
+        ANNOTATIONS.put(Put.class, "PUT");
+        ANNOTATIONS.put(Delete.class, "DELETE");
+    }
+
+    private static final ClassValue<MethodDispatchTable> TABLES = new ClassValue<MethodDispatchTable>() {
+
+        @Override
+        protected MethodDispatchTable computeValue(Class<?> type) {
+
+            return new MethodDispatchTable(type);
+        }
+
+    };
+
+    /**
+     * Returns the dispatch table of the given class.
+     * The table is built when this method is called for the first time and then reused for every subsequent call.
+     *
+     * @param type The class whose dispatch table should be returned.
+     * @return The dispatch table of the given class.
+     * @throws IllegalArgumentException If the class declares an invalid handler method or multiple handlers for the same HTTP method,
+     *         or if it is a concrete {@link ActionSupport} subclass which neither declares any handler methods nor overrides {@link ActionSupport#doExecute()}.
+     */
+    public static MethodDispatchTable of(Class<?> type) {
+
+        return TABLES.get(type);
+    }
+
+    private final Map<String, MethodHandle> handlers = new HashMap<>();
+    private final String                    allowedMethods;
+
+    private MethodDispatchTable(Class<?> type) {
+
+        if (ActionSupport.class.isAssignableFrom(type)) {
+            for (Class<?> current = type; current != ActionSupport.class; current = current.getSuperclass()) {
+                collectHandlers(current);
+            }
+
+            if (handlers.containsKey("GET") && !handlers.containsKey("HEAD")) {
+                handlers.put("HEAD", handlers.get("GET"));
+            }
+
+            // Abstract base classes may leave the request handling to their subclasses
+            if (handlers.isEmpty() && !Modifier.isAbstract(type.getModifiers()) && !overridesDoExecute(type)) {
+                throw new IllegalArgumentException("Action '" + type.getName() + "' neither overrides doExecute() nor declares any handler methods");
+            }
+        }
+
+        StringBuilder allowed = new StringBuilder();
+        for (String httpMethod : ANNOTATIONS.values()) {
+            if (handlers.containsKey(httpMethod)) {
+                allowed.append(allowed.length() == 0 ? "" : ", ").append(httpMethod);
+            }
+        }
+        allowedMethods = allowed.toString();
+    }
+
+    private void collectHandlers(Class<?> type) {
+
+        Map<String, MethodHandle> declared = new HashMap<>();
+
+        for (Method method : type.getDeclaredMethods()) {
+            for (Map.Entry<Class<? extends Annotation>, String> annotation : ANNOTATIONS.entrySet()) {
+                if (method.isAnnotationPresent(annotation.getKey())) {
+                    String httpMethod = annotation.getValue();
+                    if (declared.put(httpMethod, compileHandler(method)) != null) {
+                        throw new IllegalArgumentException("Action '" + type.getName() + "' declares multiple handler methods for HTTP method " + httpMethod);
+                    }
+                }
+            }
+        }
+
+        // Handlers of subclasses have already been collected and override the ones of this class
+        for (Map.Entry<String, MethodHandle> handler : declared.entrySet()) {
+            if (!handlers.containsKey(handler.getKey())) {
+                handlers.put(handler.getKey(), handler.getValue());
+            }
+        }
+    }
+
+    private static boolean overridesDoExecute(Class<?> type) {
+
+        for (Class<?> current = type; current != ActionSupport.class; current = current.getSuperclass()) {
+            try {
+                current.getDeclaredMethod("doExecute");
+                return true;
+            } catch (NoSuchMethodException e) {
+                // Continue with the superclass
+            }
+        }
+
+        return false;
+    }
+
+    private static MethodHandle compileHandler(Method method) {
+
+        String name = method.getDeclaringClass().getName() + "." + method.getName() + "()";
+        if (Modifier.isStatic(method.getModifiers())) {
+            throw new IllegalArgumentException("Handler method '" + name + "' must not be static");
+        } else if (method.getParameterTypes().length != 0) {
+            throw new IllegalArgumentException("Handler method '" + name + "' must not take any parameters");
+        } else if (!Action.class.isAssignableFrom(method.getReturnType())) {
+            throw new IllegalArgumentException("Handler method '" + name + "' must return an Action");
+        }
+
+        method.setAccessible(true);
+        try {
+            return MethodHandles.lookup().unreflect(method).asType(HANDLER_TYPE);
+        } catch (IllegalAccessException e) {
+            throw new IllegalArgumentException("Cannot access handler method '" + name + "'", e);
+        }
+    }
+
+    /**
+     * Returns whether the class of this table doesn't declare any handler methods.
+     * In that case, {@link ActionSupport#doExecute()} handles all requests.
+     *
+     * @return Whether the table is empty.
+     */
+    public boolean isEmpty() {
+
+        return handlers.isEmpty();
+    }
+
+    /**
+     * Returns whether requests with the given HTTP method are handled by the class of this table.
+     * If the table is {@link #isEmpty() empty}, all HTTP methods are allowed.
+     *
+     * @param httpMethod The HTTP method (e.g. {@code GET}).
+     * @return Whether the HTTP method is allowed.
+     */
+    public boolean isAllowed(String httpMethod) {
+
+        return handlers.isEmpty() || handlers.containsKey(httpMethod);
+    }
+
+    /**
+     * Returns the handler for the given HTTP method.
+     * The returned {@link MethodHandle} has the type {@code (ActionSupport)Action} and can therefore be invoked with {@link MethodHandle#invokeExact(Object...)}.
+     *
+     * @param httpMethod The HTTP method (e.g. {@code GET}).
+     * @return The handler for the HTTP method, or {@code null} if there is none.
+     */
+    public MethodHandle getHandler(String httpMethod) {
+
+        return handlers.get(httpMethod);
+    }
+
+    /**
+     * Returns the HTTP methods which have a handler as a comma-separated list, as it is required by the {@code Allow} response header.
+     *
+     * @return The allowed HTTP methods (e.g. {@code GET, HEAD, POST}).
+     */
+    public String getAllowedMethods() {
+
+        return allowedMethods;
+    }
+
+}
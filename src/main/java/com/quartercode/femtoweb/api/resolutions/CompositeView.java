@@ -0,0 +1,224 @@
+/*
+ * This file is part of FemtoWeb.
+ * Copyright (c) 2015 QuarterCode <http://quartercode.com/>
+ *
+ * FemtoWeb is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * FemtoWeb is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with FemtoWeb. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.femtoweb.api.resolutions;
+
+import java.util.ArrayList;
+import java.util.List;
+import javax.servlet.ServletRequest;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.apache.commons.lang3.Validate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import com.quartercode.femtoweb.api.Action;
+import com.quartercode.femtoweb.api.ActionNotFoundException;
+import com.quartercode.femtoweb.api.Context;
+import com.quartercode.femtoweb.api.Deadline;
+import com.quartercode.femtoweb.api.FragmentExecutor;
+
+/**
+ * An {@link Action} which renders multiple independent fragment actions concurrently and then executes a layout action (usually a {@link View}) that assembles them.
+ * The output of each fragment is stored as a {@link ServletRequest#setAttribute(String, Object) request attribute} under the name of the fragment.
+ * If the layout is a JSP page, it can then just insert the fragments through the expression language (e.g. {@code ${newsWidget}}).<br>
+ * <br>
+ * All fragments are executed at the same time by the {@link Context#getFragmentExecutor() fragment executor} of the context.
+ * Therefore, the time it takes to render all fragments is about the time the slowest fragment takes, instead of the sum of all fragment times.
+ * If a fragment fails or doesn't finish within its timeout, its fallback content is used instead.
+ * See {@link FragmentExecutor} for restrictions that apply to fragment actions.
+ *
+ * @see Action
+ * @see FragmentExecutor
+ */
+public class CompositeView implements Action {
+
+    private static final Logger  LOGGER           = LoggerFactory.getLogger(CompositeView.class);
+
+    private static final long    DEFAULT_TIMEOUT  = 1000;
+    private static final String  DEFAULT_FALLBACK = "";
+
+    private final Action         layout;
+    private final List<Fragment> fragments        = new ArrayList<>();
+
+    private long                 timeout          = DEFAULT_TIMEOUT;
+    private String               fallback         = DEFAULT_FALLBACK;
+
+    /**
+     * Creates a new composite view which executes the given layout action after all fragments have been rendered.
+     *
+     * @param layout The action which assembles the fragments into the final page (usually a {@link View}).
+     */
+    public CompositeView(Action layout) {
+
+        Validate.notNull(layout, "Layout action cannot be null");
+
+        this.layout = layout;
+    }
+
+    /**
+     * Sets the timeout which is used for all fragments that don't define their own timeout.
+     * By default, fragments may take one second.
+     *
+     * @param timeout The maximum amount of milliseconds a fragment may take.
+     * @return This composite view.
+     */
+    public CompositeView timeout(long timeout) {
+
+        Validate.isTrue(timeout > 0, "Fragment timeout must be positive");
+
+        this.timeout = timeout;
+        return this;
+    }
+
+    /**
+     * Sets the fallback content which is used for all failed fragments that don't define their own fallback.
+     * By default, failed fragments are just left empty.
+     *
+     * @param fallback The content which replaces failed fragments.
+     * @return This composite view.
+     */
+    public CompositeView fallback(String fallback) {
+
+        Validate.notNull(fallback, "Fragment fallback cannot be null");
+
+        this.fallback = fallback;
+        return this;
+    }
+
+    /**
+     * Adds a fragment which is rendered by the given action class.
+     * The {@link #timeout(long) default timeout} and {@link #fallback(String) default fallback} are used for it.
+     *
+     * @param name The name of the request attribute the fragment is stored under.
+     * @param action The action class which renders the fragment.
+     * @return This composite view.
+     */
+    public CompositeView fragment(String name, Class<? extends Action> action) {
+
+        return fragment(name, action, -1, null);
+    }
+
+    /**
+     * Adds a fragment which is rendered by the given action class, using the given timeout and fallback content.
+     *
+     * @param name The name of the request attribute the fragment is stored under.
+     * @param action The action class which renders the fragment.
+     * @param timeout The maximum amount of milliseconds the fragment may take.
+     *        If this is not positive, the {@link #timeout(long) default timeout} is used.
+     * @param fallback The content which replaces the fragment if it fails.
+     *        If this is {@code null}, the {@link #fallback(String) default fallback} is used.
+     * @return This composite view.
+     */
+    public CompositeView fragment(String name, Class<? extends Action> action, long timeout, String fallback) {
+
+        Validate.notBlank(name, "Fragment name cannot be blank");
+        Validate.notNull(action, "Fragment action cannot be null");
+
+        fragments.add(new Fragment(name, action, null, timeout, fallback));
+        return this;
+    }
+
+    /**
+     * Adds a fragment which is rendered by the action that is mapped to the given URI.
+     * The {@link #timeout(long) default timeout} and {@link #fallback(String) default fallback} are used for it.
+     *
+     * @param name The name of the request attribute the fragment is stored under.
+     * @param uri The URI of the action which renders the fragment (e.g. {@code /widgets/news}).
+     * @return This composite view.
+     */
+    public CompositeView fragment(String name, String uri) {
+
+        return fragment(name, uri, -1, null);
+    }
+
+    /**
+     * Adds a fragment which is rendered by the action that is mapped to the given URI, using the given timeout and fallback content.
+     *
+     * @param name The name of the request attribute the fragment is stored under.
+     * @param uri The URI of the action which renders the fragment (e.g. {@code /widgets/news}).
+     * @param timeout The maximum amount of milliseconds the fragment may take.
+     *        If this is not positive, the {@link #timeout(long) default timeout} is used.
+     * @param fallback The content which replaces the fragment if it fails.
+     *        If this is {@code null}, the {@link #fallback(String) default fallback} is used.
+     * @return This composite view.
+     */
+    public CompositeView fragment(String name, String uri, long timeout, String fallback) {
+
+        Validate.notBlank(name, "Fragment name cannot be blank");
+        Validate.notBlank(uri, "Fragment URI cannot be blank");
+
+        fragments.add(new Fragment(name, null, uri, timeout, fallback));
+        return this;
+    }
+
+    @Override
+    public Action execute(HttpServletRequest request, HttpServletResponse response, Context context) throws ActionNotFoundException, InterruptedException {
+
+        // Fragments must not outlast the deadline of the request
+        Deadline deadline = Deadline.get(request);
+
+        List<Class<? extends Action>> actions = new ArrayList<>(fragments.size());
+        long[] timeouts = new long[fragments.size()];
+        for (int index = 0; index < timeouts.length; index++) {
+            Fragment fragment = fragments.get(index);
+            actions.add(fragment.action != null ? fragment.action : context.getAction(fragment.uri));
+            timeouts[index] = fragment.timeout > 0 ? fragment.timeout : timeout;
+            if (deadline != null) {
+                timeouts[index] = deadline.limit(timeouts[index]);
+            }
+        }
+
+        List<String> outputs = context.getFragmentExecutor().execute(request, response, context, actions, timeouts);
+
+        // Expose the fragments to the layout; failed fragments are replaced by their fallback content
+        for (int index = 0; index < outputs.size(); index++) {
+            Fragment fragment = fragments.get(index);
+            String output = outputs.get(index);
+
+            if (output == null) {
+                LOGGER.debug("Using fallback for failed fragment '{}' of composite view", fragment.name);
+                output = fragment.fallback != null ? fragment.fallback : fallback;
+            }
+
+            request.setAttribute(fragment.name, output);
+        }
+
+        return layout;
+    }
+
+    private static class Fragment {
+
+        private final String                  name;
+        // Either "action" or "uri" is set
+        private final Class<? extends Action> action;
+        private final String                  uri;
+        private final long                    timeout;
+        private final String                  fallback;
+
+        private Fragment(String name, Class<? extends Action> action, String uri, long timeout, String fallback) {
+
+            this.name = name;
+            this.action = action;
+            this.uri = uri;
+            this.timeout = timeout;
+            this.fallback = fallback;
+        }
+
+    }
+
+}
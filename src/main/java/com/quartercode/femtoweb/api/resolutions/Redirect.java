@@ -27,21 +27,28 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import com.quartercode.femtoweb.api.Action;
 import com.quartercode.femtoweb.api.Context;
+import com.quartercode.femtoweb.util.EventRecorder;
 import com.quartercode.femtoweb.util.RequestUtils;
+import com.quartercode.femtoweb.util.UrlUtils;
 
 /**
  * An {@link Action} which redirects the user's browser to another URI using HTTP 302 and executes no further actions.
  * Therefore, all request attributes and parameters will be disposed.
+ * All GET parameter names and values are URL-encoded with UTF-8.
+ * For redirects which are issued frequently, a precompiled {@link RedirectTemplate} avoids rebuilding the constant parts of the URL each time.
  *
  * @see Action
+ * @see RedirectTemplate
  */
 public class Redirect implements Action {
 
     private static final Logger           LOGGER = LoggerFactory.getLogger(Redirect.class);
+    private static final EventRecorder    EVENTS = EventRecorder.get();
 
-    // Either "URL" or "action" is set
+    // Either "URL", "action" or "template" is set
     private final String                  url;
     private final Class<? extends Action> action;
+    private final RedirectTemplate        template;
 
     private final String[]                parameters;
 
@@ -65,6 +72,7 @@ public class Redirect implements Action {
 
         this.url = url;
         action = null;
+        template = null;
 
         this.parameters = parameters;
     }
@@ -87,31 +95,33 @@ public class Redirect implements Action {
 
         url = null;
         this.action = action;
+        template = null;
 
         this.parameters = parameters.clone();
     }
 
+    /*
+     * Used by RedirectTemplate; the parameters are just the values of the template's variable parameters.
+     */
+    Redirect(RedirectTemplate template, String[] values) {
+
+        url = null;
+        action = null;
+        this.template = template;
+
+        parameters = values;
+    }
+
     @Override
     public Action execute(HttpServletRequest request, HttpServletResponse response, Context context) throws IOException, ServletException {
 
-        // Generate the actual target URL (depending on the invoked constructor, use the set URL or the URI of the set action)
+        // Generate the actual target URL (depending on the invoked constructor, use the template, the set URL or the URI of the set action)
         String actualUrl;
-        if (url != null) {
-            actualUrl = url;
+        if (template != null) {
+            actualUrl = template.getUrl(request.getContextPath(), context, parameters);
         } else {
-            actualUrl = request.getContextPath() + context.getUri(action);
-        }
-
-        // Add GET parameters to the URL (if any)
-        if (parameters.length != 0) {
-            StringBuffer parameterString = new StringBuffer("?");
-            for (int index = 0; index < parameters.length; index += 2) {
-                if (index != 0) {
-                    parameterString.append("&");
-                }
-                parameterString.append(parameters[index]).append("=").append(parameters[index + 1]);
-            }
-            actualUrl += parameterString;
+            String baseUrl = url != null ? url : request.getContextPath() + context.getUri(action);
+            actualUrl = parameters.length == 0 ? baseUrl : appendParameters(baseUrl);
         }
 
         if (LOGGER.isTraceEnabled()) {
@@ -119,10 +129,28 @@ public class Redirect implements Action {
         }
 
         // Actually do the redirect
-        response.sendRedirect(actualUrl);
+        Object event = EVENTS.beginResolution();
+        try {
+            response.sendRedirect(actualUrl);
+        } finally {
+            if (event != null) {
+                EVENTS.commitResolution(event, getClass(), actualUrl);
+            }
+        }
 
         // No further actions
         return null;
     }
 
+    private String appendParameters(String baseUrl) {
+
+        StringBuilder actualUrl = new StringBuilder(baseUrl.length() + 16 * parameters.length).append(baseUrl);
+        for (int index = 0; index < parameters.length; index += 2) {
+            actualUrl.append(index == 0 ? '?' : '&');
+            UrlUtils.appendEncoded(actualUrl, parameters[index]).append('=');
+            UrlUtils.appendEncoded(actualUrl, parameters[index + 1]);
+        }
+        return actualUrl.toString();
+    }
+
 }
@@ -0,0 +1,198 @@
+/*
+ * This file is part of FemtoWeb.
+ * Copyright (c) 2015 QuarterCode <http://quartercode.com/>
+ *
+ * FemtoWeb is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * FemtoWeb is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with FemtoWeb. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.femtoweb.api.resolutions;
+
+import java.util.Arrays;
+import org.apache.commons.lang3.Validate;
+import com.quartercode.femtoweb.api.Action;
+import com.quartercode.femtoweb.api.Context;
+import com.quartercode.femtoweb.util.UrlUtils;
+
+/**
+ * A precompiled redirect target, which consists of an {@link Action}, some fixed GET parameters and the names of some variable GET parameters.
+ * Templates are immutable and thread-safe, so they are meant to be created once and stored in constants:
+ *
+ * <pre>
+ * private static final RedirectTemplate SHOW_ITEM = RedirectTemplate.to(ItemAction.class).param("tab", "details").variable("id");
+ * ...
+ * return SHOW_ITEM.redirect(String.valueOf(item.getId()));
+ * </pre>
+ *
+ * All names and the fixed values are URL-encoded when the template is built.
+ * The URI of the action, the context path and the fixed parameters are joined once per context path and context.
+ * Therefore, each redirect only has to encode the variable values into a builder which already has the right size in most cases.
+ */
+public class RedirectTemplate {
+
+    private final Class<? extends Action> action;
+    private final String                  fixedQuery;
+    private final String[]                variableNames;
+    private final String[]                variableSegments;
+    private final int                     variableSegmentsLength;
+
+    private volatile Prefix               prefix;
+
+    /**
+     * Creates a new redirect template which redirects the user to the given {@link Action} without any parameters.
+     * Parameters can be added with {@link #param(String, String)} and {@link #variable(String)}.
+     *
+     * @param action The action the user should be redirected to.
+     * @return The new template.
+     */
+    public static RedirectTemplate to(Class<? extends Action> action) {
+
+        Validate.notNull(action, "Cannot redirect to null action");
+        return new RedirectTemplate(action, "", new String[0]);
+    }
+
+    private RedirectTemplate(Class<? extends Action> action, String fixedQuery, String[] variableNames) {
+
+        this.action = action;
+        this.fixedQuery = fixedQuery;
+        this.variableNames = variableNames;
+
+        // Precompute the encoded "?name=" or "&name=" segment which precedes each variable value
+        variableSegments = new String[variableNames.length];
+        int segmentsLength = 0;
+        for (int index = 0; index < variableNames.length; index++) {
+            char separator = index == 0 && fixedQuery.isEmpty() ? '?' : '&';
+            variableSegments[index] = separator + UrlUtils.encode(variableNames[index]) + "=";
+            segmentsLength += variableSegments[index].length();
+        }
+        variableSegmentsLength = segmentsLength;
+    }
+
+    /**
+     * Returns a copy of this template with an additional fixed GET parameter, which has the same value for each redirect.
+     * Fixed parameters always precede variable parameters in the generated URLs.
+     *
+     * @param name The name of the parameter.
+     * @param value The value of the parameter.
+     * @return The new template.
+     */
+    public RedirectTemplate param(String name, String value) {
+
+        Validate.notNull(name, "Cannot use a null parameter name for redirect");
+        Validate.notNull(value, "Cannot use a null parameter value for redirect");
+
+        String parameter = UrlUtils.encode(name) + "=" + UrlUtils.encode(value);
+        return new RedirectTemplate(action, fixedQuery.isEmpty() ? parameter : fixedQuery + "&" + parameter, variableNames);
+    }
+
+    /**
+     * Returns a copy of this template with an additional variable GET parameter, whose value is provided for each redirect.
+     * The values of all variable parameters must be passed to {@link #redirect(String...)} in the order the parameters were added.
+     *
+     * @param name The name of the parameter.
+     * @return The new template.
+     */
+    public RedirectTemplate variable(String name) {
+
+        Validate.notNull(name, "Cannot use a null parameter name for redirect");
+
+        String[] newVariableNames = Arrays.copyOf(variableNames, variableNames.length + 1);
+        newVariableNames[variableNames.length] = name;
+        return new RedirectTemplate(action, fixedQuery, newVariableNames);
+    }
+
+    /**
+     * Returns the {@link Action} the user is redirected to.
+     *
+     * @return The target action.
+     */
+    public Class<? extends Action> getAction() {
+
+        return action;
+    }
+
+    /**
+     * Creates a new {@link Redirect} action which redirects the user to the target of this template.
+     *
+     * @param values The values of the variable parameters in the order the parameters were added.
+     *        A {@code null} value results in an empty parameter value.
+     *        Note that the array is not copied, so it must not be modified afterwards.
+     * @return The new redirect action.
+     */
+    public Redirect redirect(String... values) {
+
+        Validate.isTrue(values.length == variableNames.length, "Redirect template expects %d parameter values, but %d were provided", variableNames.length, values.length);
+        return new Redirect(this, values);
+    }
+
+    /**
+     * Generates the URL of the target of this template, including the given context path.
+     *
+     * @param contextPath The context path of the web application (see {@link javax.servlet.http.HttpServletRequest#getContextPath()}).
+     * @param context The context which is used for retrieving the URI of the target action.
+     * @param values The values of the variable parameters in the order the parameters were added.
+     *        A {@code null} value results in an empty parameter value.
+     * @return The generated URL.
+     */
+    public String getUrl(String contextPath, Context context, String... values) {
+
+        Validate.isTrue(values.length == variableNames.length, "Redirect template expects %d parameter values, but %d were provided", variableNames.length, values.length);
+
+        String prefixValue = getPrefix(contextPath, context);
+        if (values.length == 0) {
+            return prefixValue;
+        }
+
+        int capacity = prefixValue.length() + variableSegmentsLength;
+        for (String value : values) {
+            capacity += value == null ? 0 : value.length();
+        }
+
+        StringBuilder url = new StringBuilder(capacity).append(prefixValue);
+        for (int index = 0; index < values.length; index++) {
+            url.append(variableSegments[index]);
+            if (values[index] != null) {
+                UrlUtils.appendEncoded(url, values[index]);
+            }
+        }
+        return url.toString();
+    }
+
+    private String getPrefix(String contextPath, Context context) {
+
+        // Most applications only ever see one context path and one context, so a single cached entry suffices
+        Prefix cached = prefix;
+        if (cached == null || cached.context != context || !cached.contextPath.equals(contextPath)) {
+            String value = contextPath + context.getUri(action) + (fixedQuery.isEmpty() ? "" : "?" + fixedQuery);
+            cached = new Prefix(contextPath, context, value);
+            prefix = cached;
+        }
+        return cached.value;
+    }
+
+    private static class Prefix {
+
+        private final String  contextPath;
+        private final Context context;
+        private final String  value;
+
+        private Prefix(String contextPath, Context context, String value) {
+
+            this.contextPath = contextPath;
+            this.context = context;
+            this.value = value;
+        }
+
+    }
+
+}
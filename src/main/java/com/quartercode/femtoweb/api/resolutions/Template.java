@@ -0,0 +1,71 @@
+/*
+ * This file is part of FemtoWeb.
+ * Copyright (c) 2015 QuarterCode <http://quartercode.com/>
+ *
+ * FemtoWeb is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * FemtoWeb is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with FemtoWeb. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.femtoweb.api.resolutions;
+
+import java.io.IOException;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import com.quartercode.femtoweb.api.Action;
+import com.quartercode.femtoweb.api.Context;
+import com.quartercode.femtoweb.api.TemplateRenderer;
+
+/**
+ * A {@link View} which renders a lightweight template through the {@link Context#getTemplateRenderer() template renderer} instead of forwarding the request to a JSP.
+ * Each template is compiled once on first use; afterwards, rendering it just writes precomputed UTF-8 chunks and the encoded values of its placeholders
+ * to the response.
+ * See {@link TemplateRenderer} for the template syntax.<br>
+ * <br>
+ * Just like with a normal view, the template is located under the {@link Context#getDynamicAssetPath() dynamic asset path},
+ * and {@link #model(com.quartercode.femtoweb.api.Model) models} and {@link #preload(String...) preloaded assets} are supported as well.
+ *
+ * @see TemplateRenderer
+ */
+public class Template extends View {
+
+    /**
+     * Creates a new template view which renders the template located under the given path.
+     * Note that the path is relative to the {@link Context#getDynamicAssetPath() dynamic asset path}.
+     *
+     * @param path The path to the template which should be rendered.
+     */
+    public Template(String path) {
+
+        super(path);
+    }
+
+    /**
+     * Creates a new template view which renders the template with the given name in the URI "directory" of the given {@link Action} class.
+     * See {@link View#View(Class, String)} for more details on how the final path is generated.
+     *
+     * @param dir The action class whose URI "directory" should be used as the directory of the final file path.
+     * @param name The name of the rendered template in the directory defined by the given action class.
+     */
+    public Template(Class<? extends Action> dir, String name) {
+
+        super(dir, name);
+    }
+
+    @Override
+    protected void render(HttpServletRequest request, HttpServletResponse response, Context context, String path) throws IOException, ServletException {
+
+        context.getTemplateRenderer().render(request, response, path);
+    }
+
+}
@@ -19,6 +19,10 @@
 package com.quartercode.femtoweb.api.resolutions;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import javax.servlet.RequestDispatcher;
 import javax.servlet.ServletException;
 import javax.servlet.ServletRequest;
 import javax.servlet.http.HttpServletRequest;
@@ -29,7 +33,10 @@ import org.apache.commons.lang3.Validate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import com.quartercode.femtoweb.api.Action;
+import com.quartercode.femtoweb.api.AssetPreloader;
 import com.quartercode.femtoweb.api.Context;
+import com.quartercode.femtoweb.api.Model;
+import com.quartercode.femtoweb.util.EventRecorder;
 import com.quartercode.femtoweb.util.RequestUtils;
 
 /**
@@ -37,13 +44,19 @@ import com.quartercode.femtoweb.util.RequestUtils;
  * Internally, this action forwards the request to that resource (e.g. a JSP page).
  * Therefore, all {@link ServletRequest#setAttribute(String, Object) request attributes}, {@link HttpSession#setAttribute(String, Object) session attributes} etc.
  * are also forwarded to the resource.
- * If the forwarding target is a JSP page, that page can then access those attributes (e.g. through the expression language).
+ * If the forwarding target is a JSP page, that page can then access those attributes (e.g. through the expression language).<br>
+ * <br>
+ * The full path of the resource is resolved through the {@link Context#getViewPath(String) context}, which caches it.
+ * Additionally, each view remembers the path it resolved last, so views which are stored in constants don't even need to look it up again.
+ * Views are immutable, so such constants can be shared by all requests: {@link #model(Model)} and {@link #preload(String...)} return new views
+ * and leave the original one untouched.
  *
  * @see Action
  */
-public class View implements Action {
+public class View implements Action, Cloneable {
 
     private static final Logger           LOGGER = LoggerFactory.getLogger(View.class);
+    private static final EventRecorder    EVENTS = EventRecorder.get();
 
     // Either "path" or "dir"&"action" is set
     private final String                  path;
@@ -51,6 +64,11 @@ public class View implements Action {
     private final Class<? extends Action> dir;
     private final String                  name;
 
+    private List<String>                  preloadedAssets;
+    private Model                         model;
+
+    private volatile ResolvedPath         resolvedPath;
+
     /**
      * Creates a new view action which displays the dynamic resource located under the given path.
      * Note that the path is relative to the {@link Context#getDynamicAssetPath() dynamic asset path}.
@@ -61,7 +79,7 @@ public class View implements Action {
 
         Validate.notBlank(path, "Cannot forward to blank path");
 
-        this.path = path;
+        this.path = StringUtils.stripStart(path, "/");
 
         dir = null;
         name = null;
@@ -90,29 +108,133 @@ public class View implements Action {
         this.name = StringUtils.stripStart(name, "/");
     }
 
+    /**
+     * Declares static assets which are referenced by the displayed resource, so that the client can start fetching them before the resource is rendered.
+     * The assets are announced through the {@link Context#getAssetPreloader() asset preloader} of the context.
+     * Note that the paths are relative to the {@link Context#getStaticAssetPath() static asset path}.
+     *
+     * @param assets The paths of the static assets which should be preloaded (e.g. {@code css/main.css}).
+     * @return A new view which is equal to this one, but additionally preloads the given assets. This view stays unchanged.
+     * @see AssetPreloader
+     */
+    public View preload(String... assets) {
+
+        Validate.noNullElements(assets, "Cannot preload null asset");
+
+        View copy = copy();
+        copy.preloadedAssets = new ArrayList<>( (preloadedAssets == null ? 0 : preloadedAssets.size()) + assets.length);
+        if (preloadedAssets != null) {
+            copy.preloadedAssets.addAll(preloadedAssets);
+        }
+        Collections.addAll(copy.preloadedAssets, assets);
+
+        return copy;
+    }
+
+    /**
+     * Passes the given {@link Model} on to the displayed resource.
+     * Before forwarding, the model is stored as the single request attribute {@link Model#ATTRIBUTE}, so that a JSP can access its values
+     * through the expression language (e.g. <code>${model.title}</code>).
+     *
+     * @param model The model which should be available to the displayed resource.
+     * @return A new view which is equal to this one, but passes on the given model. This view stays unchanged.
+     */
+    public View model(Model model) {
+
+        Validate.notNull(model, "Cannot pass null model to view");
+
+        View copy = copy();
+        copy.model = model;
+        return copy;
+    }
+
+    /*
+     * Cloning keeps the class of subclasses like Template, and the copy shares the immutable resolved path cache entry.
+     */
+    private View copy() {
+
+        try {
+            return (View) super.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException("View must be cloneable", e);
+        }
+    }
+
     @Override
     public Action execute(HttpServletRequest request, HttpServletResponse response, Context context) throws IOException, ServletException {
 
         // Generate the actual target path (depending on the invoked constructor, use the set path or combine the "directory" URI of the set action's URI with the set name)
-        String actualPath;
-        if (path != null) {
-            actualPath = path;
-        } else {
-            String dirUri = StringUtils.substringBeforeLast(context.getUri(dir), "/");
-            actualPath = dirUri + "/" + name;
-        }
-
-        // Add the path prefix to the directory containing dynamic content
-        actualPath = context.getDynamicAssetPath() + "/" + StringUtils.stripStart(actualPath, "/");
+        String actualPath = getPath(context);
 
         if (LOGGER.isTraceEnabled()) {
-            LOGGER.trace("Forwarding request to '{}' to '{}'", RequestUtils.getRequestUri(request), actualPath);
+            LOGGER.trace("Rendering view '{}' for request to '{}'", actualPath, RequestUtils.getRequestUri(request));
+        }
+
+        // Pass the model on to the view
+        if (model != null) {
+            request.setAttribute(Model.ATTRIBUTE, model);
         }
 
-        // Actually forward the request
-        request.getRequestDispatcher(actualPath).forward(request, response);
+        // Announce the static assets of the view before the view commits the response
+        List<String> declaredAssets = preloadedAssets != null ? preloadedAssets : Collections.<String> emptyList();
+        HttpServletResponse viewResponse = context.getAssetPreloader().preload(request, response, context, actualPath, declaredAssets);
+
+        // Actually render the resource
+        Object event = EVENTS.beginResolution();
+        try {
+            render(request, viewResponse, context, actualPath);
+        } finally {
+            if (event != null) {
+                EVENTS.commitResolution(event, getClass(), actualPath);
+            }
+        }
 
         return null;
     }
 
+    /**
+     * Sends the dynamic resource under the given full path to the user.
+     * By default, the request is forwarded to the resource through a {@link RequestDispatcher}.
+     * Subclasses may override this method in order to render the resource in another way.
+     *
+     * @param request The request which should be fulfilled.
+     * @param response The response the resource should be sent with.
+     * @param context The context the view is executed in.
+     * @param path The full path of the resource, as returned by {@link Context#getViewPath(String)}.
+     * @throws IOException If the resource cannot be sent.
+     * @throws ServletException If the resource cannot be found or fails.
+     */
+    protected void render(HttpServletRequest request, HttpServletResponse response, Context context, String path) throws IOException, ServletException {
+
+        RequestDispatcher dispatcher = context.getViewDispatcher(request, path);
+        if (dispatcher == null) {
+            throw new ServletException("Cannot forward request to '" + RequestUtils.getRequestUri(request) + "' to unknown view '" + path + "'");
+        }
+        dispatcher.forward(request, response);
+    }
+
+    private String getPath(Context context) {
+
+        // Views are usually executed with the same context over and over again, so a single cached entry suffices
+        ResolvedPath cached = resolvedPath;
+        if (cached == null || cached.context != context) {
+            cached = new ResolvedPath(context, path != null ? context.getViewPath(path) : context.getViewPath(dir, name));
+            resolvedPath = cached;
+        }
+        return cached.path;
+    }
+
+    private static class ResolvedPath {
+
+        private final Context context;
+        private final String  path;
+
+        private ResolvedPath(Context context, String path) {
+
+            this.context = context;
+            this.path = path;
+        }
+
+    }
+
 }
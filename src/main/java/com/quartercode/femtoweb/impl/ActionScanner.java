@@ -0,0 +1,184 @@
+/*
+ * This file is part of FemtoWeb.
+ * Copyright (c) 2015 QuarterCode <http://quartercode.com/>
+ *
+ * FemtoWeb is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * FemtoWeb is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with FemtoWeb. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.femtoweb.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Modifier;
+import java.net.JarURLConnection;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import javax.servlet.ServletContext;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import com.quartercode.femtoweb.api.Action;
+import com.quartercode.femtoweb.api.IgnoreAction;
+
+/**
+ * A class which finds all {@link Action} classes inside an action base package.
+ * Since actions are mapped to URIs by convention, the framework doesn't need to know them in advance.
+ * However, some features (e.g. the warm-up phase) benefit from knowing all actions at startup.<br>
+ * <br>
+ * The scanner looks for class files in all directories and JARs the given class loader provides for the base package.
+ * If the class loader doesn't provide any of those (e.g. because the webapp is not exploded), it falls back to the {@code /WEB-INF/classes} directory of the servlet context.
+ * Only classes which would also be found by {@link DefaultContext#getAction(String)} are returned.
+ */
+public class ActionScanner {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ActionScanner.class);
+
+    /**
+     * Returns all {@link Action} classes which are located in the given package or one of its subpackages.
+     * All returned classes are loaded and initialized.
+     *
+     * @param actionBasePackage The package which contains all actions.
+     * @param classLoader The class loader which should be used for finding and loading the classes.
+     * @param servletContext The servlet context which is used as a fallback for finding classes. May be {@code null}.
+     * @return All found action classes, sorted by their names.
+     */
+    public static List<Class<? extends Action>> scan(String actionBasePackage, ClassLoader classLoader, ServletContext servletContext) {
+
+        String basePath = actionBasePackage.replace('.', '/');
+        Set<String> classNames = new TreeSet<>();
+
+        try {
+            Enumeration<URL> roots = classLoader.getResources(basePath);
+            while (roots.hasMoreElements()) {
+                collectClassNames(roots.nextElement(), basePath, classNames);
+            }
+        } catch (IOException e) {
+            LOGGER.warn("Cannot list class path resources of action base package '{}'", actionBasePackage, e);
+        }
+
+        if (classNames.isEmpty() && servletContext != null) {
+            collectClassNames(servletContext, "/WEB-INF/classes/", basePath + "/", classNames);
+        }
+
+        List<Class<? extends Action>> actions = new ArrayList<>();
+        for (String className : classNames) {
+            Class<? extends Action> action = loadAction(className, classLoader);
+            if (action != null) {
+                actions.add(action);
+            }
+        }
+
+        return actions;
+    }
+
+    private static void collectClassNames(URL root, String basePath, Set<String> classNames) throws IOException {
+
+        if ("file".equals(root.getProtocol())) {
+            try {
+                collectClassNames(new File(root.toURI()), basePath, classNames);
+            } catch (URISyntaxException e) {
+                LOGGER.warn("Cannot scan invalid class path directory '{}'", root, e);
+            }
+        } else {
+            URLConnection connection = root.openConnection();
+            if (connection instanceof JarURLConnection) {
+                connection.setUseCaches(false);
+                try (JarFile jar = ((JarURLConnection) connection).getJarFile()) {
+                    Enumeration<JarEntry> entries = jar.entries();
+                    while (entries.hasMoreElements()) {
+                        String name = entries.nextElement().getName();
+                        if (name.startsWith(basePath + "/") && name.endsWith(".class")) {
+                            classNames.add(toClassName(name));
+                        }
+                    }
+                }
+            } else {
+                LOGGER.debug("Cannot scan class path resource '{}' with unsupported protocol", root);
+            }
+        }
+    }
+
+    private static void collectClassNames(File directory, String path, Set<String> classNames) {
+
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+
+        for (File file : files) {
+            if (file.isDirectory()) {
+                collectClassNames(file, path + "/" + file.getName(), classNames);
+            } else if (file.getName().endsWith(".class")) {
+                classNames.add(toClassName(path + "/" + file.getName()));
+            }
+        }
+    }
+
+    private static void collectClassNames(ServletContext servletContext, String classesRoot, String path, Set<String> classNames) {
+
+        Set<String> resources = servletContext.getResourcePaths(classesRoot + path);
+        if (resources == null) {
+            return;
+        }
+
+        for (String resource : resources) {
+            if (resource.endsWith("/")) {
+                collectClassNames(servletContext, classesRoot, resource.substring(classesRoot.length()), classNames);
+            } else if (resource.endsWith(".class")) {
+                classNames.add(toClassName(resource.substring(classesRoot.length())));
+            }
+        }
+    }
+
+    private static String toClassName(String classFilePath) {
+
+        return StringUtils.removeEnd(classFilePath, ".class").replace('/', '.');
+    }
+
+    @SuppressWarnings ("unchecked")
+    private static Class<? extends Action> loadAction(String className, ClassLoader classLoader) {
+
+        // Apply the same rules as the URI mapping without loading obviously irrelevant classes
+        if (className.contains("$") || !className.endsWith("Action") || className.endsWith(".Action")) {
+            return null;
+        }
+
+        Class<?> c;
+        try {
+            c = Class.forName(className, true, classLoader);
+        } catch (ClassNotFoundException | LinkageError e) {
+            LOGGER.warn("Cannot load potential action class '{}'", className, e);
+            return null;
+        }
+
+        if (!Action.class.isAssignableFrom(c) || c.isInterface() || Modifier.isAbstract(c.getModifiers()) || c.isAnnotationPresent(IgnoreAction.class)) {
+            return null;
+        }
+
+        return (Class<? extends Action>) c;
+    }
+
+    private ActionScanner() {
+
+    }
+
+}
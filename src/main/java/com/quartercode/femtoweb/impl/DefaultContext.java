@@ -18,34 +18,79 @@
 
 package com.quartercode.femtoweb.impl;
 
-import java.util.HashMap;
+import java.io.Closeable;
+import java.util.Collections;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import javax.servlet.RequestDispatcher;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletRequestWrapper;
+import javax.servlet.http.HttpServletRequest;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.Validate;
 import com.quartercode.femtoweb.api.Action;
+import com.quartercode.femtoweb.api.AssetPreloader;
 import com.quartercode.femtoweb.api.ActionNotFoundException;
+import com.quartercode.femtoweb.api.CacheBackend;
 import com.quartercode.femtoweb.api.Context;
+import com.quartercode.femtoweb.api.FragmentExecutor;
+import com.quartercode.femtoweb.api.SessionStore;
+import com.quartercode.femtoweb.api.TemplateRenderer;
+import com.quartercode.femtoweb.impl.cache.LocalCacheBackend;
+import com.quartercode.femtoweb.impl.fingerprint.AssetManifest;
+import com.quartercode.femtoweb.impl.fragment.DefaultFragmentExecutor;
+import com.quartercode.femtoweb.impl.injection.InjectingActionFactory;
+import com.quartercode.femtoweb.impl.injection.ServiceRegistry;
+import com.quartercode.femtoweb.impl.preload.DefaultAssetPreloader;
+import com.quartercode.femtoweb.impl.session.ContainerSessionStore;
+import com.quartercode.femtoweb.impl.synthetic.SyntheticRequest;
+import com.quartercode.femtoweb.impl.template.DefaultTemplateRenderer;
+import com.quartercode.femtoweb.util.EventRecorder;
 
 /**
  * The default implementation of the {@link Context} interface.
  * This class is used by the {@link FemtoWebFilter}.
+ * Contexts with custom services are created through a {@link Builder}.<br>
+ * <br>
+ * Services which are passed to the builder are owned by the caller, who must close them after the context is no longer used.
+ * If no {@link FragmentExecutor} or {@link CacheBackend} is passed, a default one is created on first use; those defaults are owned by the context
+ * and released by {@link #close()}.
  */
-public class DefaultContext implements Context {
+public class DefaultContext implements Context, Closeable {
 
-    private static final String                        DEFAULT_STATIC_ASSET_PATH  = "/static";
-    private static final String                        DEFAULT_DYNAMIC_ASSET_PATH = "/WEB-INF/dynamic";
-    private static final String                        DEFAULT_INDEX_URI          = "/index";
+    private static final String                                                         DEFAULT_STATIC_ASSET_PATH   = "/static";
+    private static final String                                                         DEFAULT_DYNAMIC_ASSET_PATH  = "/WEB-INF/dynamic";
+    private static final String                                                         DEFAULT_INDEX_URI           = "/index";
+    private static final int                                                            DEFAULT_FRAGMENT_QUEUE_SIZE = 256;
+    private static final int                                                            DEFAULT_CACHE_MAX_ENTRIES   = 10000;
+    private static final EventRecorder                                                  EVENTS                      = EventRecorder.get();
 
-    private final String                               actionBasePackage;
-    private final String                               staticAssetPath;
-    private final String                               dynamicAssetPath;
-    private final String                               indexUri;
+    private final String                                                                actionBasePackage;
+    private final String                                                                staticAssetPath;
+    private final String                                                                dynamicAssetPath;
+    private final String                                                                indexUri;
+    private final SessionStore                                                          sessionStore;
+    private final AssetPreloader                                                        assetPreloader;
+    private final FragmentExecutor                                                      fragmentExecutor;
+    private final AssetManifest                                                         assetManifest;
+    private final CacheBackend                                                          cacheBackend;
+    private final TemplateRenderer                                                      templateRenderer            = new DefaultTemplateRenderer();
 
-    private final Map<Class<? extends Action>, String> actionsToUris              = new HashMap<>();
-    private final Map<String, Class<? extends Action>> urisToActions              = new HashMap<>();
+    // Created on first use if no service has been passed to the builder; owned by this context
+    private final Object                                                                defaultsLock                = new Object();
+    private volatile DefaultFragmentExecutor                                            defaultFragmentExecutor;
+    private volatile LocalCacheBackend                                                  defaultCacheBackend;
+
+    private final Map<Class<? extends Action>, String>                                  actionsToUris               = new ConcurrentHashMap<>();
+    private final Map<String, Class<? extends Action>>                                  urisToActions               = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, String>                                         viewPaths                   = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Class<? extends Action>, ConcurrentMap<String, String>> actionViewPaths             = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, RequestDispatcher>                              dispatchers;
 
     /**
      * Creates a new default context implementation with the given framework settings.
+     * All services use their defaults; use a {@link Builder} in order to configure them.
      *
      * @param actionBasePackage The package which contains all {@link Action}s and action subpackages.
      *        Note that this also functions as a package prefix which is removed from all action packages before they are mapped to URIs.
@@ -59,13 +104,24 @@ public class DefaultContext implements Context {
      */
     public DefaultContext(String actionBasePackage, String staticAssetPath, String dynamicAssetPath, String indexUri) {
 
-        Validate.notBlank(actionBasePackage, "Action base package cannot be blank");
-        Validate.isTrue(!isClassExistent(actionBasePackage), "Provided action base package name ('%s') is a class and not a package", actionBasePackage);
+        this(new Builder(actionBasePackage).staticAssetPath(staticAssetPath).dynamicAssetPath(dynamicAssetPath).indexUri(indexUri));
+    }
+
+    private DefaultContext(Builder builder) {
+
+        Validate.notBlank(builder.actionBasePackage, "Action base package cannot be blank");
+        Validate.isTrue(!isClassExistent(builder.actionBasePackage), "Provided action base package name ('%s') is a class and not a package", builder.actionBasePackage);
 
-        this.actionBasePackage = actionBasePackage;
-        this.staticAssetPath = !StringUtils.isBlank(staticAssetPath) ? preparePath(staticAssetPath) : DEFAULT_STATIC_ASSET_PATH;
-        this.dynamicAssetPath = !StringUtils.isBlank(dynamicAssetPath) ? preparePath(dynamicAssetPath) : DEFAULT_DYNAMIC_ASSET_PATH;
-        this.indexUri = !StringUtils.isBlank(indexUri) ? preparePath(indexUri) : DEFAULT_INDEX_URI;
+        actionBasePackage = builder.actionBasePackage;
+        staticAssetPath = !StringUtils.isBlank(builder.staticAssetPath) ? preparePath(builder.staticAssetPath) : DEFAULT_STATIC_ASSET_PATH;
+        dynamicAssetPath = !StringUtils.isBlank(builder.dynamicAssetPath) ? preparePath(builder.dynamicAssetPath) : DEFAULT_DYNAMIC_ASSET_PATH;
+        indexUri = !StringUtils.isBlank(builder.indexUri) ? preparePath(builder.indexUri) : DEFAULT_INDEX_URI;
+        sessionStore = builder.sessionStore != null ? builder.sessionStore : new ContainerSessionStore();
+        assetPreloader = builder.assetPreloader != null ? builder.assetPreloader : new DefaultAssetPreloader(false, false, false);
+        fragmentExecutor = builder.fragmentExecutor;
+        assetManifest = builder.assetManifest != null ? builder.assetManifest : new AssetManifest(Collections.<String, String> emptyMap());
+        cacheBackend = builder.cacheBackend;
+        dispatchers = builder.cacheDispatchers ? new ConcurrentHashMap<String, RequestDispatcher>() : null;
     }
 
     private boolean isClassExistent(String className) {
@@ -101,6 +157,149 @@ public class DefaultContext implements Context {
         return indexUri;
     }
 
+    @Override
+    public SessionStore getSessionStore() {
+
+        return sessionStore;
+    }
+
+    @Override
+    public AssetPreloader getAssetPreloader() {
+
+        return assetPreloader;
+    }
+
+    @Override
+    public FragmentExecutor getFragmentExecutor() {
+
+        if (fragmentExecutor != null) {
+            return fragmentExecutor;
+        }
+
+        // Only start the fragment threads if composite views are actually used
+        if (defaultFragmentExecutor == null) {
+            synchronized (defaultsLock) {
+                if (defaultFragmentExecutor == null) {
+                    defaultFragmentExecutor = new DefaultFragmentExecutor(new InjectingActionFactory(new ServiceRegistry()),
+                            Runtime.getRuntime().availableProcessors() * 2, DEFAULT_FRAGMENT_QUEUE_SIZE);
+                }
+            }
+        }
+        return defaultFragmentExecutor;
+    }
+
+    @Override
+    public CacheBackend getCacheBackend() {
+
+        if (cacheBackend != null) {
+            return cacheBackend;
+        }
+
+        if (defaultCacheBackend == null) {
+            synchronized (defaultsLock) {
+                if (defaultCacheBackend == null) {
+                    defaultCacheBackend = new LocalCacheBackend(DEFAULT_CACHE_MAX_ENTRIES);
+                }
+            }
+        }
+        return defaultCacheBackend;
+    }
+
+    /**
+     * Releases the default {@link FragmentExecutor} and the default {@link CacheBackend} if they have been created by this context.
+     * Services which have been passed to the {@link Builder} are not closed, since they are owned by the caller.
+     */
+    @Override
+    public void close() {
+
+        synchronized (defaultsLock) {
+            if (defaultFragmentExecutor != null) {
+                defaultFragmentExecutor.close();
+                defaultFragmentExecutor = null;
+            }
+
+            if (defaultCacheBackend != null) {
+                defaultCacheBackend.close();
+                defaultCacheBackend = null;
+            }
+        }
+    }
+
+    @Override
+    public TemplateRenderer getTemplateRenderer() {
+
+        return templateRenderer;
+    }
+
+    @Override
+    public String getAssetUri(String asset) {
+
+        return staticAssetPath + "/" + assetManifest.getFingerprintedPath(asset);
+    }
+
+    @Override
+    public String getViewPath(String path) {
+
+        String viewPath = viewPaths.get(path);
+
+        if (viewPath == null) {
+            viewPath = dynamicAssetPath + "/" + StringUtils.stripStart(path, "/");
+            viewPaths.putIfAbsent(path, viewPath);
+        }
+
+        return viewPath;
+    }
+
+    @Override
+    public String getViewPath(Class<? extends Action> dir, String name) {
+
+        ConcurrentMap<String, String> dirViewPaths = actionViewPaths.get(dir);
+        if (dirViewPaths == null) {
+            dirViewPaths = new ConcurrentHashMap<>();
+            ConcurrentMap<String, String> existing = actionViewPaths.putIfAbsent(dir, dirViewPaths);
+            dirViewPaths = existing != null ? existing : dirViewPaths;
+        }
+
+        String viewPath = dirViewPaths.get(name);
+
+        if (viewPath == null) {
+            String dirUri = StringUtils.substringBeforeLast(getUri(dir), "/");
+            viewPath = getViewPath(dirUri + "/" + StringUtils.stripStart(name, "/"));
+            dirViewPaths.putIfAbsent(name, viewPath);
+        }
+
+        return viewPath;
+    }
+
+    @Override
+    public RequestDispatcher getViewDispatcher(HttpServletRequest request, String viewPath) {
+
+        // The dispatchers of synthetic requests are bound to the request they were obtained for
+        if (dispatchers == null || isSynthetic(request)) {
+            return request.getRequestDispatcher(viewPath);
+        }
+
+        RequestDispatcher dispatcher = dispatchers.get(viewPath);
+
+        if (dispatcher == null) {
+            dispatcher = request.getServletContext().getRequestDispatcher(viewPath);
+            if (dispatcher != null) {
+                dispatchers.putIfAbsent(viewPath, dispatcher);
+            }
+        }
+
+        return dispatcher;
+    }
+
+    private boolean isSynthetic(ServletRequest request) {
+
+        ServletRequest current = request;
+        while (current instanceof ServletRequestWrapper) {
+            current = ((ServletRequestWrapper) current).getRequest();
+        }
+        return current instanceof SyntheticRequest;
+    }
+
     @Override
     public String getUri(Class<? extends Action> action) {
 
@@ -114,14 +313,29 @@ public class DefaultContext implements Context {
     @Override
     public Class<? extends Action> getAction(String uri) throws ActionNotFoundException {
 
+        Object event = EVENTS.beginRouteLookup();
+
         // By doing this, you are no longer able to flood the cache by requesting the same action with different amounts of repeated "/" at the end
         String effectiveUri = "/" + StringUtils.strip(uri, "/");
 
+        String result = "hit";
         if (!urisToActions.containsKey(effectiveUri)) {
-            insertActionUriPair(ActionUriResolver.getAction(actionBasePackage, effectiveUri), effectiveUri);
+            try {
+                insertActionUriPair(ActionUriResolver.getAction(actionBasePackage, effectiveUri), effectiveUri);
+                result = "miss";
+            } catch (ActionNotFoundException e) {
+                if (event != null) {
+                    EVENTS.commitRouteLookup(event, effectiveUri, null, "notFound");
+                }
+                throw e;
+            }
         }
 
-        return urisToActions.get(effectiveUri);
+        Class<? extends Action> action = urisToActions.get(effectiveUri);
+        if (event != null) {
+            EVENTS.commitRouteLookup(event, effectiveUri, action, result);
+        }
+        return action;
     }
 
     private void insertActionUriPair(Class<? extends Action> action, String uri) {
@@ -130,4 +344,163 @@ public class DefaultContext implements Context {
         urisToActions.put(uri, action);
     }
 
+    /**
+     * A builder for {@link DefaultContext}s with custom framework settings and services.
+     * All settings are optional except for the action base package; settings which aren't set use their defaults.
+     */
+    public static class Builder {
+
+        private final String     actionBasePackage;
+        private String           staticAssetPath;
+        private String           dynamicAssetPath;
+        private String           indexUri;
+        private SessionStore     sessionStore;
+        private AssetPreloader   assetPreloader;
+        private FragmentExecutor fragmentExecutor;
+        private AssetManifest    assetManifest;
+        private CacheBackend     cacheBackend;
+        private boolean          cacheDispatchers;
+
+        /**
+         * Creates a new builder for contexts with the given action base package.
+         *
+         * @param actionBasePackage The package which contains all {@link Action}s and action subpackages.
+         *        Note that this also functions as a package prefix which is removed from all action packages before they are mapped to URIs.
+         *        Thereby, package names like {@code com.quartercode.femtowebtest.actions} are not included in URIs.
+         */
+        public Builder(String actionBasePackage) {
+
+            this.actionBasePackage = actionBasePackage;
+        }
+
+        /**
+         * Sets the {@link Context#getStaticAssetPath() static asset path}.
+         * If this is blank, a default value is used.
+         *
+         * @param staticAssetPath The static asset path.
+         * @return This builder.
+         */
+        public Builder staticAssetPath(String staticAssetPath) {
+
+            this.staticAssetPath = staticAssetPath;
+            return this;
+        }
+
+        /**
+         * Sets the {@link Context#getDynamicAssetPath() dynamic asset path}.
+         * If this is blank, a default value is used.
+         *
+         * @param dynamicAssetPath The dynamic asset path.
+         * @return This builder.
+         */
+        public Builder dynamicAssetPath(String dynamicAssetPath) {
+
+            this.dynamicAssetPath = dynamicAssetPath;
+            return this;
+        }
+
+        /**
+         * Sets the {@link Context#getIndexUri() index URI}.
+         * If this is blank, a default value is used.
+         *
+         * @param indexUri The index URI.
+         * @return This builder.
+         */
+        public Builder indexUri(String indexUri) {
+
+            this.indexUri = indexUri;
+            return this;
+        }
+
+        /**
+         * Sets the {@link Context#getSessionStore() session store}.
+         * If this is {@code null}, a {@link ContainerSessionStore} is used.
+         *
+         * @param sessionStore The session store.
+         * @return This builder.
+         */
+        public Builder sessionStore(SessionStore sessionStore) {
+
+            this.sessionStore = sessionStore;
+            return this;
+        }
+
+        /**
+         * Sets the {@link Context#getAssetPreloader() asset preloader}.
+         * If this is {@code null}, a {@link DefaultAssetPreloader} which only announces declared assets is used.
+         *
+         * @param assetPreloader The asset preloader.
+         * @return This builder.
+         */
+        public Builder assetPreloader(AssetPreloader assetPreloader) {
+
+            this.assetPreloader = assetPreloader;
+            return this;
+        }
+
+        /**
+         * Sets the {@link Context#getFragmentExecutor() fragment executor}.
+         * If this is {@code null}, a {@link DefaultFragmentExecutor} which creates actions through their no-arg constructors is started on first use.
+         *
+         * @param fragmentExecutor The fragment executor.
+         * @return This builder.
+         */
+        public Builder fragmentExecutor(FragmentExecutor fragmentExecutor) {
+
+            this.fragmentExecutor = fragmentExecutor;
+            return this;
+        }
+
+        /**
+         * Sets the {@link AssetManifest} which is used for looking up the {@link Context#getAssetUri(String) URIs of fingerprinted static assets}.
+         * If this is {@code null}, no assets are fingerprinted.
+         *
+         * @param assetManifest The asset manifest.
+         * @return This builder.
+         */
+        public Builder assetManifest(AssetManifest assetManifest) {
+
+            this.assetManifest = assetManifest;
+            return this;
+        }
+
+        /**
+         * Sets the {@link Context#getCacheBackend() cache backend}.
+         * If this is {@code null}, a {@link LocalCacheBackend} is created on first use.
+         *
+         * @param cacheBackend The cache backend.
+         * @return This builder.
+         */
+        public Builder cacheBackend(CacheBackend cacheBackend) {
+
+            this.cacheBackend = cacheBackend;
+            return this;
+        }
+
+        /**
+         * Sets whether the {@link Context#getViewDispatcher(HttpServletRequest, String) view dispatchers} are obtained from the servlet context once per path
+         * and then reused. Only enable this if the container's dispatchers are thread-safe and independent of the request they were obtained for.
+         * By default, dispatchers are not cached.
+         *
+         * @param cacheDispatchers Whether view dispatchers are cached.
+         * @return This builder.
+         */
+        public Builder cacheDispatchers(boolean cacheDispatchers) {
+
+            this.cacheDispatchers = cacheDispatchers;
+            return this;
+        }
+
+        /**
+         * Creates a new {@link DefaultContext} with the settings of this builder.
+         *
+         * @return The new context.
+         */
+        public DefaultContext build() {
+
+            return new DefaultContext(this);
+        }
+
+    }
+
 }
@@ -19,9 +19,21 @@
 package com.quartercode.femtoweb.impl;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Paths;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.InvocationTargetException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.Deflater;
+import javax.management.JMException;
+import javax.management.ObjectName;
 import javax.servlet.Filter;
 import javax.servlet.FilterChain;
 import javax.servlet.FilterConfig;
+import javax.servlet.ServletContext;
 import javax.servlet.ServletException;
 import javax.servlet.ServletRequest;
 import javax.servlet.ServletResponse;
@@ -31,34 +43,564 @@ import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import com.quartercode.femtoweb.api.Action;
+import com.quartercode.femtoweb.api.ActionFactory;
 import com.quartercode.femtoweb.api.ActionNotFoundException;
+import com.quartercode.femtoweb.api.AssetPreloader;
+import com.quartercode.femtoweb.api.CacheBackend;
+import com.quartercode.femtoweb.api.CacheResponse;
+import com.quartercode.femtoweb.api.Coalesce;
 import com.quartercode.femtoweb.api.Context;
+import com.quartercode.femtoweb.api.Deadline;
+import com.quartercode.femtoweb.api.FragmentExecutor;
+import com.quartercode.femtoweb.api.PriorityClass;
+import com.quartercode.femtoweb.api.RequestTimeout;
+import com.quartercode.femtoweb.api.SessionStore;
+import com.quartercode.femtoweb.api.methods.MethodDispatchTable;
+import com.quartercode.femtoweb.impl.accesslog.AccessLog;
+import com.quartercode.femtoweb.impl.accesslog.AccessLogRecord;
+import com.quartercode.femtoweb.impl.buffering.BufferPool;
+import com.quartercode.femtoweb.impl.buffering.BufferingResponseWrapper;
+import com.quartercode.femtoweb.impl.cache.CacheDaemon;
+import com.quartercode.femtoweb.impl.cache.LocalCacheBackend;
+import com.quartercode.femtoweb.impl.cache.RemoteCacheBackend;
+import com.quartercode.femtoweb.impl.cache.ResponseCache;
+import com.quartercode.femtoweb.impl.coalescing.RequestCoalescer;
+import com.quartercode.femtoweb.impl.coalescing.RequestCoalescer.Execution;
+import com.quartercode.femtoweb.impl.compression.CompressingResponseWrapper;
+import com.quartercode.femtoweb.impl.compression.ResponseCompressor;
+import com.quartercode.femtoweb.impl.concurrency.ConcurrencyLimiter;
+import com.quartercode.femtoweb.impl.concurrency.ConcurrencyLimiterRegistry;
+import com.quartercode.femtoweb.impl.deadline.DeadlineResolver;
+import com.quartercode.femtoweb.impl.fingerprint.AssetFingerprinter;
+import com.quartercode.femtoweb.impl.fingerprint.AssetManifest;
+import com.quartercode.femtoweb.impl.fragment.DefaultFragmentExecutor;
+import com.quartercode.femtoweb.impl.injection.InjectingActionFactory;
+import com.quartercode.femtoweb.impl.injection.ServiceRegistry;
+import com.quartercode.femtoweb.impl.preload.DefaultAssetPreloader;
+import com.quartercode.femtoweb.impl.ratelimit.RateLimiter;
+import com.quartercode.femtoweb.impl.ratelimit.RateLimiterRegistry;
+import com.quartercode.femtoweb.impl.scheduling.FairScheduler;
+import com.quartercode.femtoweb.impl.session.ContainerSessionStore;
+import com.quartercode.femtoweb.impl.session.OffHeapSessionStore;
+import com.quartercode.femtoweb.impl.session.SignedCookieSessionStore;
+import com.quartercode.femtoweb.impl.taglib.UrlTable;
+import com.quartercode.femtoweb.util.EventRecorder;
+import com.quartercode.femtoweb.util.FilterConfigUtils;
 import com.quartercode.femtoweb.util.RequestUtils;
 
 /**
- * The internal {@link Filter} which calls the appropriate {@link Action}s for all dynamic requests.
+ * The internal {@link Filter} which calls the appropriate {@link Action}s for all dynamic requests.<br>
+ * <br>
+ * Apart from the basic framework settings, the filter supports the following optional init parameters:
+ *
+ * <ul>
+ * <li>{@code compression}: Whether action and view output is compressed with GZIP or deflate if the client supports it (default: {@code false}).</li>
+ * <li>{@code compressionMinSize}: The minimum body size in bytes a response must have in order to be compressed (default: {@code 1024}).</li>
+ * <li>{@code compressionMimeTypes}: A comma-separated list of compressible content types; wildcards like {@code text/*} are allowed
+ * (default: common text, JSON, XML and JavaScript types).</li>
+ * <li>{@code compressionLevel}: The deflate compression level from 0 to 9 (default: zlib's default level).</li>
+ * <li>{@code compressionPoolSize}: The maximum amount of idle deflaters which are pooled per encoding (default: {@code 32}).</li>
+ * <li>{@code sessionStore}: The {@link SessionStore} used by actions; either {@code container} (default), {@code offHeap}, {@code signedCookie}
+ * or the fully qualified name of a custom implementation with a no-arg constructor.</li>
+ * <li>{@code sessionCookieName}: The name of the cookie used by the off-heap and signed cookie stores (default: {@code FWSESSION}).</li>
+ * <li>{@code sessionCookieSecure}: Whether that cookie is only sent over HTTPS (default: {@code false}).</li>
+ * <li>{@code sessionTimeout}: The amount of seconds after which an idle (off-heap) or unchanged (signed cookie) session expires (default: {@code 1800}).</li>
+ * <li>{@code sessionMaxCount}: The maximum amount of sessions in the off-heap store (default: {@code 100000}).</li>
+ * <li>{@code sessionMaxSize}: The maximum serialized size of a single session in the off-heap store in bytes (default: {@code 16384}).</li>
+ * <li>{@code sessionMaxTotalSize}: The maximum serialized size of all sessions in the off-heap store in bytes, which is allocated as one direct buffer
+ * on startup (default: {@code 268435456}).</li>
+ * <li>{@code sessionSecret}: The secret of the signed cookie store; at least 32 characters which must be the same on all nodes (required for that store).</li>
+ * <li>{@code sessionEncrypt}: Whether the signed cookie store encrypts the session data in addition to signing it (default: {@code false}).</li>
+ * <li>{@code responseBuffering}: Whether the output of actions and views is collected in pooled buffers and sent with an exact {@code Content-Length}
+ * and a single flush (default: {@code false}). If compression is enabled as well, the compressed output is buffered.</li>
+ * <li>{@code responseBufferChunkSize}: The size of each pooled buffer chunk in bytes (default: {@code 8192}).</li>
+ * <li>{@code responseBufferMaxSize}: The maximum amount of bytes which are buffered per response; larger responses are streamed (default: {@code 1048576}).</li>
+ * <li>{@code responseBufferPoolSize}: The maximum amount of idle buffer chunks which are kept for reuse (default: {@code 256}).</li>
+ * <li>{@code concurrencyLimits}: A comma-separated list of per-action concurrency limits in the format {@code uri=maxConcurrent[/maxQueued]}.
+ * Actions can also be limited with the {@link com.quartercode.femtoweb.api.ConcurrencyLimit} annotation.</li>
+ * <li>{@code concurrencyQueueTimeout}: The amount of milliseconds a request waits for a free slot of a configured limit (default: {@code 1000}).</li>
+ * <li>{@code concurrencyAdaptive}: Whether configured limits adapt themselves to the observed latency (default: {@code false}).</li>
+ * <li>{@code concurrencyRetryAfter}: The amount of seconds sent in the {@code Retry-After} header of rejected requests (default: {@code 1}).</li>
+ * <li>{@code rateLimits}: A comma-separated list of per-client rate limits for URI prefixes in the format {@code uriPrefix=permitsPerSecond[/burst]}
+ * (e.g. {@code /api=20/40}). Actions can also be limited with the {@link com.quartercode.femtoweb.api.RateLimit} annotation.
+ * Requests which exceed their limit are rejected with HTTP 429 before the action is created.</li>
+ * <li>{@code rateLimitHeader}: The name of a request header (e.g. {@code X-Forwarded-For}) whose value identifies the client
+ * (default: none, i.e. the remote address is used).</li>
+ * <li>{@code rateLimitTrustedHops}: The amount of trusted proxies which append to that header if it contains a comma-separated list.
+ * The entry appended by the outermost trusted proxy is used, since all entries before it can be forged by the client (default: {@code 1}, i.e. the last entry).</li>
+ * <li>{@code rateLimitMaxClients}: The maximum amount of clients each rate limit keeps track of; clients beyond that share a few overflow buckets
+ * (default: {@code 100000}).</li>
+ * <li>{@code scheduling}: Whether all actions share a fixed amount of execution slots which are assigned to the {@link PriorityClass priority classes}
+ * by weighted fair queuing (default: {@code false}).</li>
+ * <li>{@code schedulerSlots}: The amount of actions which may execute at the same time if scheduling is enabled (default: twice the amount of processors).</li>
+ * <li>{@code schedulerClasses}: A comma-separated list of priority class weights in the format {@code name=weight[/maxQueued]}
+ * (e.g. {@code default=8,export=1/10}); unconfigured classes use the weight of their annotation.</li>
+ * <li>{@code schedulerQueueSize}: The maximum amount of requests which wait for a slot per priority class, unless configured otherwise (default: {@code 100}).</li>
+ * <li>{@code schedulerQueueTimeout}: The amount of milliseconds a request waits for a free execution slot (default: {@code 5000}).</li>
+ * <li>{@code requestTimeout}: The amount of milliseconds after which the {@link Deadline} of a request passes (default: {@code 0}, i.e. no deadline).
+ * Actions can override it with the {@link RequestTimeout} annotation. Requests whose deadline has passed are ended with HTTP 503 if the action hasn't started yet
+ * and with HTTP 504 otherwise.</li>
+ * <li>{@code deadlineHeader}: The name of a request header (e.g. {@code X-Request-Timeout}) which contains the amount of milliseconds the client or load balancer
+ * still waits for the response. It can only shorten the deadline (disabled by default).</li>
+ * <li>{@code dispatcherCaching}: Whether the request dispatchers of views are obtained once per view path and then reused.
+ * Only enable this if the dispatchers of the container are thread-safe and don't depend on the request they were obtained for
+ * (default: {@code false}).</li>
+ * <li>{@code preloadLearning}: Whether the static assets of each view are learned from its first rendering and announced through {@code Link: rel=preload}
+ * headers for all following requests to the view (default: {@code false}). Assets which are declared through {@code View.preload()} are always announced.</li>
+ * <li>{@code serverPush}: Whether announced assets are also pushed if the container supports HTTP/2 server push (default: {@code false}).</li>
+ * <li>{@code earlyHints}: Whether announced assets are also sent in a {@code 103 Early Hints} response if the container supports it (default: {@code false}).</li>
+ * <li>{@code actionFactory}: The fully qualified name of a custom {@link ActionFactory} class with a no-arg constructor.
+ * Alternatively, an action factory instance can be stored as the servlet context attribute with the name of the {@link ActionFactory} interface.
+ * By default, an {@link InjectingActionFactory} is used, which takes its services from the {@link ServiceRegistry} in the servlet context.</li>
+ * <li>{@code fragmentThreads}: The maximum amount of composite view fragments which are rendered at the same time (default: twice the amount of processors).</li>
+ * <li>{@code fragmentQueueSize}: The maximum amount of fragments which wait for a free fragment thread.
+ * If the queue is full, fragments are rendered by the requesting thread (default: {@code 256}).</li>
+ * <li>{@code assetManifest}: The webapp path of the {@link AssetManifest} which is written by the {@link AssetFingerprinter} at build time
+ * (default: {@code /WEB-INF/asset-manifest.properties}). If it exists, {@link Context#getAssetUri(String)} and the servlet context attribute {@code assets}
+ * resolve logical asset names to fingerprinted URLs.</li>
+ * <li>{@code assetCacheMaxAge}: The amount of seconds fingerprinted static assets may be cached by clients; they are served with
+ * {@code Cache-Control: immutable} (default: {@code 31536000}).</li>
+ * <li>{@code cacheBackend}: The {@link CacheBackend} which stores the responses of {@link CacheResponse cached actions}; either {@code local} (default),
+ * {@code remote} for a {@link CacheDaemon} shared by all nodes, or the fully qualified name of a custom implementation with a no-arg constructor.</li>
+ * <li>{@code cacheMaxEntries}: The maximum amount of entries in the local cache (default: {@code 10000}).</li>
+ * <li>{@code cacheHost}: The host the cache daemon runs on (default: {@code localhost}).</li>
+ * <li>{@code cachePort}: The port the cache daemon listens on (default: {@code 11311}).</li>
+ * <li>{@code cacheTimeout}: The connect and read timeout for the cache daemon in milliseconds (default: {@code 1000}).</li>
+ * <li>{@code cacheNearCacheSize}: The maximum amount of remote entries which are also kept on this node. The near cache is kept consistent through
+ * the invalidations the daemon broadcasts to all nodes; {@code 0} disables it (default: {@code 1000}).</li>
+ * <li>{@code warmup}: Whether all actions are preloaded and synthetic requests are sent through the filter before it reports readiness (default: {@code false}).</li>
+ * <li>{@code warmupIterations}: The amount of rounds of synthetic requests sent during the warm-up (default: {@code 1000}).</li>
+ * <li>{@code warmupUris}: A comma-separated list of additional URIs which are requested in each warm-up round.
+ * Note that the actions behind those URIs are actually executed, so they must be free of side effects.</li>
+ * <li>{@code warmupAsync}: Whether the warm-up runs in a background thread instead of blocking the filter initialization (default: {@code false}).</li>
+ * <li>{@code readinessUri}: A URI which responds with HTTP 200 once the filter is ready and HTTP 503 before and during the shutdown
+ * (e.g. {@code /ready}; disabled by default).</li>
+ * <li>{@code accessLog}: The path of a file into which one line per request is written by a background thread
+ * (disabled by default). Each line contains the URI, the resolved action class, the status, the length of the action chain and the timings.</li>
+ * <li>{@code accessLogBufferSize}: The amount of records which may wait for the background thread; further records are dropped and counted (default: {@code 8192}).</li>
+ * <li>{@code accessLogMaxFileSize}: The size in bytes at which the access log file is rotated (default: {@code 104857600}).</li>
+ * <li>{@code accessLogMaxFiles}: The maximum amount of access log files, including the current one, which are kept (default: {@code 10}).</li>
+ * <li>{@code drainTimeout}: The maximum amount of milliseconds the shutdown waits for in-flight requests to finish (default: {@code 10000}).</li>
+ * </ul>
+ *
+ * Everything that is derived from the routing parameters (the {@link Context}, the URL table of the tag library and the {@link AssetManifest}) is kept
+ * in an immutable snapshot which can be {@link #reload() reloaded} at runtime without blocking requests.
+ * Each request keeps using the snapshot it started with.
+ * On shutdown, new requests are rejected with HTTP 503, and the filter waits for the in-flight requests before it releases its resources.<br>
+ * <br>
+ * Readiness, warm-up and scheduling statistics as well as the reload operation are also exposed through the {@link FemtoWebMXBean}.
  */
 public class FemtoWebFilter implements Filter {
 
-    private static final Logger LOGGER = LoggerFactory.getLogger(FemtoWebFilter.class);
+    private static final Logger        LOGGER                         = LoggerFactory.getLogger(FemtoWebFilter.class);
+    private static final EventRecorder EVENTS                         = EventRecorder.get();
+
+    private static final String[]      DEFAULT_COMPRESSION_MIME_TYPES = { "text/html", "text/plain", "text/css", "text/xml", "text/javascript", "application/javascript",
+            "application/json", "application/xml", "application/xhtml+xml", "image/svg+xml" };
+
+    private FilterConfig               filterConfig;
+    private volatile Routes            routes;
+    private ResponseCompressor         compressor;
+    private BufferPool                 bufferPool;
+    private int                        bufferMaxSize;
+    private ConcurrencyLimiterRegistry concurrencyLimiters;
+    private String                     concurrencyRetryAfter;
+    private RateLimiterRegistry        rateLimiters;
+    private FairScheduler              scheduler;
+    private RequestCoalescer           coalescer;
+    private ResponseCache              responseCache;
+    private DeadlineResolver           deadlines;
+    private ActionFactory              actionFactory;
+    private DefaultFragmentExecutor    fragmentExecutor;
+    private String                     assetCacheControl;
+    private AccessLog                  accessLog;
 
-    private Context             context;
+    private String                     readinessUri;
+    private volatile boolean           ready;
+    private Warmup                     warmup;
+    private Thread                     warmupThread;
+    private ObjectName                 managementName;
+
+    private final AtomicInteger        inFlight                       = new AtomicInteger();
+    private volatile boolean           draining;
+    private long                       drainTimeout;
 
     @Override
     public void init(FilterConfig filterConfig) throws ServletException {
 
+        this.filterConfig = filterConfig;
+
+        DefaultAssetPreloader assetPreloader = new DefaultAssetPreloader(FilterConfigUtils.getBoolean(filterConfig, "preloadLearning", false),
+                FilterConfigUtils.getBoolean(filterConfig, "serverPush", false), FilterConfigUtils.getBoolean(filterConfig, "earlyHints", false));
+        actionFactory = createActionFactory(filterConfig);
+        fragmentExecutor = new DefaultFragmentExecutor(actionFactory, FilterConfigUtils.getInt(filterConfig, "fragmentThreads", Runtime.getRuntime().availableProcessors() * 2),
+                FilterConfigUtils.getInt(filterConfig, "fragmentQueueSize", 256));
+        assetCacheControl = "public, max-age=" + FilterConfigUtils.getLong(filterConfig, "assetCacheMaxAge", 31536000) + ", immutable";
+        CacheBackend cacheBackend = createCacheBackend(filterConfig);
+        routes = createRoutes(createSessionStore(filterConfig), assetPreloader, fragmentExecutor, cacheBackend);
+        responseCache = new ResponseCache(cacheBackend);
+
+        if (FilterConfigUtils.getBoolean(filterConfig, "compression", false)) {
+            compressor = new ResponseCompressor(FilterConfigUtils.getInt(filterConfig, "compressionMinSize", 1024),
+                    FilterConfigUtils.getList(filterConfig, "compressionMimeTypes", DEFAULT_COMPRESSION_MIME_TYPES),
+                    FilterConfigUtils.getInt(filterConfig, "compressionLevel", Deflater.DEFAULT_COMPRESSION),
+                    FilterConfigUtils.getInt(filterConfig, "compressionPoolSize", 32));
+        }
+
+        if (FilterConfigUtils.getBoolean(filterConfig, "responseBuffering", false)) {
+            bufferPool = new BufferPool(FilterConfigUtils.getInt(filterConfig, "responseBufferChunkSize", 8192),
+                    FilterConfigUtils.getInt(filterConfig, "responseBufferPoolSize", 256));
+            bufferMaxSize = FilterConfigUtils.getInt(filterConfig, "responseBufferMaxSize", 1024 * 1024);
+        }
+
+        concurrencyLimiters = new ConcurrencyLimiterRegistry(FilterConfigUtils.getList(filterConfig, "concurrencyLimits"),
+                FilterConfigUtils.getLong(filterConfig, "concurrencyQueueTimeout", 1000), FilterConfigUtils.getBoolean(filterConfig, "concurrencyAdaptive", false));
+        concurrencyRetryAfter = String.valueOf(FilterConfigUtils.getInt(filterConfig, "concurrencyRetryAfter", 1));
+        rateLimiters = new RateLimiterRegistry(FilterConfigUtils.getList(filterConfig, "rateLimits"), FilterConfigUtils.getString(filterConfig, "rateLimitHeader", null),
+                FilterConfigUtils.getInt(filterConfig, "rateLimitTrustedHops", 1), FilterConfigUtils.getInt(filterConfig, "rateLimitMaxClients", 100000));
+
+        if (FilterConfigUtils.getBoolean(filterConfig, "scheduling", false)) {
+            scheduler = new FairScheduler(FilterConfigUtils.getInt(filterConfig, "schedulerSlots", Runtime.getRuntime().availableProcessors() * 2),
+                    FilterConfigUtils.getList(filterConfig, "schedulerClasses"), FilterConfigUtils.getInt(filterConfig, "schedulerQueueSize", 100),
+                    FilterConfigUtils.getLong(filterConfig, "schedulerQueueTimeout", 5000));
+        }
+
+        coalescer = new RequestCoalescer();
+
+        String accessLogFile = FilterConfigUtils.getString(filterConfig, "accessLog", null);
+        if (accessLogFile != null) {
+            try {
+                accessLog = new AccessLog(Paths.get(accessLogFile), FilterConfigUtils.getInt(filterConfig, "accessLogBufferSize", 8192),
+                        FilterConfigUtils.getLong(filterConfig, "accessLogMaxFileSize", 100 * 1024 * 1024), FilterConfigUtils.getInt(filterConfig, "accessLogMaxFiles", 10));
+            } catch (IOException e) {
+                throw new ServletException("Cannot open access log file '" + accessLogFile + "'", e);
+            }
+        }
+        deadlines = new DeadlineResolver(FilterConfigUtils.getLong(filterConfig, "requestTimeout", 0), FilterConfigUtils.getString(filterConfig, "deadlineHeader", null));
+
+        String readinessUriParam = FilterConfigUtils.getString(filterConfig, "readinessUri", null);
+        readinessUri = readinessUriParam == null ? null : "/" + StringUtils.strip(readinessUriParam, "/");
+        drainTimeout = FilterConfigUtils.getLong(filterConfig, "drainTimeout", 10000);
+        registerManagementBean(filterConfig);
+
+        if (FilterConfigUtils.getBoolean(filterConfig, "warmup", false)) {
+            warmup = new Warmup(this, filterConfig.getInitParameter("actionBasePackage"), filterConfig.getServletContext(),
+                    FilterConfigUtils.getInt(filterConfig, "warmupIterations", 1000), FilterConfigUtils.getList(filterConfig, "warmupUris"));
+            startWarmup(FilterConfigUtils.getBoolean(filterConfig, "warmupAsync", false));
+        } else {
+            ready = true;
+        }
+    }
+
+    private Routes createRoutes(SessionStore sessionStore, AssetPreloader assetPreloader, FragmentExecutor fragmentExecutor, CacheBackend cacheBackend)
+            throws ServletException {
+
         String actionBasePackage = filterConfig.getInitParameter("actionBasePackage");
         String staticAssetPath = filterConfig.getInitParameter("staticAssetPath");
         String dynamicAssetPath = filterConfig.getInitParameter("dynamicAssetPath");
         String indexUri = filterConfig.getInitParameter("indexUri");
 
-        context = new DefaultContext(actionBasePackage, staticAssetPath, dynamicAssetPath, indexUri);
+        AssetManifest assetManifest = loadAssetManifest(filterConfig);
+        // All services are owned by the filter, which closes them on destroy
+        Context context = new DefaultContext.Builder(actionBasePackage).staticAssetPath(staticAssetPath).dynamicAssetPath(dynamicAssetPath).indexUri(indexUri)
+                .sessionStore(sessionStore).assetPreloader(assetPreloader).fragmentExecutor(fragmentExecutor).assetManifest(assetManifest).cacheBackend(cacheBackend)
+                .cacheDispatchers(FilterConfigUtils.getBoolean(filterConfig, "dispatcherCaching", false)).build();
+        UrlTable urlTable = new UrlTable(context, actionBasePackage, filterConfig.getServletContext() == null ? "" : filterConfig.getServletContext().getContextPath());
+
+        // Allow JSPs to look up fingerprinted asset URLs through the expression language
+        ServletContext servletContext = filterConfig.getServletContext();
+        if (servletContext != null) {
+            servletContext.setAttribute(AssetManifest.ATTRIBUTE, assetManifest.getUrls(servletContext.getContextPath() + context.getStaticAssetPath() + "/"));
+        }
+
+        return new Routes(context, urlTable, assetManifest);
+    }
+
+    private AssetManifest loadAssetManifest(FilterConfig filterConfig) throws ServletException {
+
+        String path = FilterConfigUtils.getString(filterConfig, "assetManifest", "/WEB-INF/asset-manifest.properties");
+        InputStream input = filterConfig.getServletContext() == null ? null : filterConfig.getServletContext().getResourceAsStream(path);
+        if (input == null) {
+            LOGGER.debug("No asset manifest found at '{}'; static assets are served without fingerprints", path);
+            return new AssetManifest(Collections.<String, String> emptyMap());
+        }
+
+        try {
+            return AssetManifest.read(input);
+        } catch (IOException e) {
+            throw new ServletException("Cannot read asset manifest '" + path + "'", e);
+        } finally {
+            try {
+                input.close();
+            } catch (IOException e) {
+                LOGGER.warn("Cannot close asset manifest '{}'", path, e);
+            }
+        }
+    }
+
+    private SessionStore createSessionStore(FilterConfig filterConfig) throws ServletException {
+
+        String type = FilterConfigUtils.getString(filterConfig, "sessionStore", "container");
+        String cookieName = FilterConfigUtils.getString(filterConfig, "sessionCookieName", "FWSESSION");
+        boolean cookieSecure = FilterConfigUtils.getBoolean(filterConfig, "sessionCookieSecure", false);
+        int timeout = FilterConfigUtils.getInt(filterConfig, "sessionTimeout", 1800);
+
+        switch (type) {
+            case "container":
+                return new ContainerSessionStore();
+            case "offHeap":
+                return new OffHeapSessionStore(cookieName, cookieSecure, timeout, FilterConfigUtils.getInt(filterConfig, "sessionMaxCount", 100000),
+                        FilterConfigUtils.getInt(filterConfig, "sessionMaxSize", 16384), FilterConfigUtils.getLong(filterConfig, "sessionMaxTotalSize", 256L * 1024 * 1024));
+            case "signedCookie":
+                return new SignedCookieSessionStore(cookieName, cookieSecure, timeout, filterConfig.getInitParameter("sessionSecret"),
+                        FilterConfigUtils.getBoolean(filterConfig, "sessionEncrypt", false));
+            default:
+                try {
+                    return Class.forName(type).asSubclass(SessionStore.class).getDeclaredConstructor().newInstance();
+                } catch (InvocationTargetException e) {
+                    throw new ServletException("Unable to construct custom session store '" + type + "'", e.getCause());
+                } catch (ClassNotFoundException | ClassCastException | NoSuchMethodException | InstantiationException | IllegalAccessException e) {
+                    throw new ServletException("Unable to construct custom session store '" + type + "'", e);
+                }
+        }
+    }
+
+    private CacheBackend createCacheBackend(FilterConfig filterConfig) throws ServletException {
+
+        String type = FilterConfigUtils.getString(filterConfig, "cacheBackend", "local");
+
+        switch (type) {
+            case "local":
+                return new LocalCacheBackend(FilterConfigUtils.getInt(filterConfig, "cacheMaxEntries", 10000));
+            case "remote":
+                return new RemoteCacheBackend(FilterConfigUtils.getString(filterConfig, "cacheHost", "localhost"),
+                        FilterConfigUtils.getInt(filterConfig, "cachePort", CacheDaemon.DEFAULT_PORT), FilterConfigUtils.getInt(filterConfig, "cacheTimeout", 1000),
+                        FilterConfigUtils.getInt(filterConfig, "cacheNearCacheSize", 1000));
+            default:
+                try {
+                    return Class.forName(type).asSubclass(CacheBackend.class).getDeclaredConstructor().newInstance();
+                } catch (InvocationTargetException e) {
+                    throw new ServletException("Unable to construct custom cache backend '" + type + "'", e.getCause());
+                } catch (ClassNotFoundException | ClassCastException | NoSuchMethodException | InstantiationException | IllegalAccessException e) {
+                    throw new ServletException("Unable to construct custom cache backend '" + type + "'", e);
+                }
+        }
+    }
+
+    private ActionFactory createActionFactory(FilterConfig filterConfig) throws ServletException {
+
+        String type = filterConfig.getInitParameter("actionFactory");
+        if (!StringUtils.isBlank(type)) {
+            try {
+                return Class.forName(type).asSubclass(ActionFactory.class).getDeclaredConstructor().newInstance();
+            } catch (InvocationTargetException e) {
+                throw new ServletException("Unable to construct custom action factory '" + type + "'", e.getCause());
+            } catch (ClassNotFoundException | ClassCastException | NoSuchMethodException | InstantiationException | IllegalAccessException e) {
+                throw new ServletException("Unable to construct custom action factory '" + type + "'", e);
+            }
+        }
+
+        ServletContext servletContext = filterConfig.getServletContext();
+        if (servletContext == null) {
+            return new InjectingActionFactory(new ServiceRegistry());
+        }
+
+        Object externalFactory = servletContext.getAttribute(ActionFactory.class.getName());
+        if (externalFactory instanceof ActionFactory) {
+            return (ActionFactory) externalFactory;
+        }
+
+        // Reuse a registry which might have been filled by a servlet context listener
+        ServiceRegistry registry = (ServiceRegistry) servletContext.getAttribute(ServiceRegistry.ATTRIBUTE);
+        if (registry == null) {
+            registry = new ServiceRegistry();
+            servletContext.setAttribute(ServiceRegistry.ATTRIBUTE, registry);
+        }
+        return new InjectingActionFactory(registry);
+    }
+
+    private void registerManagementBean(FilterConfig filterConfig) {
+
+        String contextPath = filterConfig.getServletContext() == null ? "" : filterConfig.getServletContext().getContextPath();
+        String filterName = StringUtils.defaultIfBlank(filterConfig.getFilterName(), FemtoWebFilter.class.getSimpleName());
+
+        try {
+            managementName = new ObjectName("com.quartercode.femtoweb:type=FemtoWebFilter,context=" + ObjectName.quote(contextPath) + ",name=" + ObjectName.quote(filterName));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(new Management(), managementName);
+        } catch (JMException e) {
+            LOGGER.warn("Cannot register management bean for filter '{}'", filterName, e);
+            managementName = null;
+        }
+    }
+
+    private void startWarmup(boolean async) {
+
+        Runnable warmupRunnable = new Runnable() {
+
+            @Override
+            public void run() {
+
+                try {
+                    warmup.run();
+                } finally {
+                    ready = true;
+                }
+            }
+
+        };
+
+        if (async) {
+            warmupThread = new Thread(warmupRunnable, "FemtoWeb warm-up");
+            warmupThread.setDaemon(true);
+            warmupThread.start();
+        } else {
+            warmupRunnable.run();
+        }
+    }
+
+    /*
+     * Called by the warm-up for each action class, so that all per-class data is computed before the first real request arrives.
+     */
+    void prepareAction(Class<? extends Action> actionClass) {
+
+        Routes current = routes;
+        concurrencyLimiters.getLimiter(actionClass, current.context);
+        rateLimiters.getLimiter(actionClass, current.context);
+        if (scheduler != null) {
+            scheduler.prepare(actionClass);
+        }
+        coalescer.prepare(actionClass);
+        responseCache.prepare(actionClass);
+        deadlines.prepare(actionClass);
+        current.urlTable.getActionUrl(actionClass);
+
+        try {
+            MethodDispatchTable.of(actionClass);
+        } catch (IllegalArgumentException e) {
+            LOGGER.warn("Action '{}' has invalid or missing handler methods", actionClass.getName(), e);
+        }
+
+        try {
+            actionFactory.prepare(actionClass);
+        } catch (Exception e) {
+            LOGGER.warn("Action factory cannot prepare the instantiation of action '{}'", actionClass.getName(), e);
+        }
+    }
+
+    Context getContext() {
+
+        return routes.context;
+    }
+
+    /**
+     * Rebuilds the {@link Context} and everything else that is derived from the routing parameters, including the {@link AssetManifest}, which is read again.
+     * The new snapshot replaces the old one atomically, so requests are never blocked and never see a partially built snapshot.
+     * Requests which are already running finish with the old snapshot.
+     * The session store, the asset preloader, the fragment executor and the cache backend are reused, so no state is lost.
+     *
+     * @throws ServletException If the filter isn't initialized, or if the new snapshot cannot be built (e.g. because the asset manifest is unreadable).
+     *         In that case, the old snapshot stays active.
+     */
+    public synchronized void reload() throws ServletException {
+
+        Routes current = routes;
+        if (current == null || draining) {
+            throw new ServletException("Cannot reload the routes of a filter which isn't running");
+        }
+
+        Context context = current.context;
+        routes = createRoutes(context.getSessionStore(), context.getAssetPreloader(), context.getFragmentExecutor(), context.getCacheBackend());
+        LOGGER.info("Reloaded routes of filter '{}'", filterConfig.getFilterName());
+    }
+
+    /**
+     * Returns the amount of requests which are currently processed by the filter.
+     *
+     * @return The in-flight request count.
+     */
+    public int getInFlightRequests() {
+
+        return inFlight.get();
+    }
+
+    /**
+     * Returns whether the filter is ready to serve real traffic.
+     * If the warm-up phase is enabled, this is {@code false} until the warm-up has finished.
+     *
+     * @return Whether the filter is ready.
+     */
+    public boolean isReady() {
+
+        return ready;
     }
 
     @Override
     public void destroy() {
 
-        context = null;
+        if (warmupThread != null) {
+            warmupThread.interrupt();
+            warmupThread = null;
+        }
+
+        // Turn away new requests and give the running ones a chance to finish before their resources are released
+        draining = true;
+        drain();
+
+        if (managementName != null) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(managementName);
+            } catch (JMException e) {
+                LOGGER.warn("Cannot unregister management bean '{}'", managementName, e);
+            }
+            managementName = null;
+        }
+
+        if (accessLog != null) {
+            accessLog.close();
+            accessLog = null;
+        }
+
+        // Requests which outlived the drain timeout might still use the compressor and the fragment executor, so both stay referenced;
+        // deflaters released into the closed compressor are ended right away
+        if (compressor != null) {
+            compressor.close();
+        }
+
+        if (fragmentExecutor != null) {
+            fragmentExecutor.close();
+        }
+
+        // Requests which outlived the drain timeout keep their own reference to the routes
+        if (routes != null) {
+            try {
+                routes.context.getCacheBackend().close();
+            } catch (IOException e) {
+                LOGGER.warn("Cannot close cache backend", e);
+            }
+            routes = null;
+        }
+    }
+
+    private void drain() {
+
+        long end = System.currentTimeMillis() + drainTimeout;
+
+        synchronized (inFlight) {
+            long remaining = drainTimeout;
+            while (inFlight.get() > 0 && remaining > 0) {
+                try {
+                    inFlight.wait(remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+                remaining = end - System.currentTimeMillis();
+            }
+        }
+
+        if (inFlight.get() > 0) {
+            LOGGER.warn("{} requests were still in flight after the drain timeout of {} ms", inFlight.get(), drainTimeout);
+        }
     }
 
     @Override
@@ -70,6 +612,54 @@ public class FemtoWebFilter implements Filter {
         // Retrieve the requested URI
         String uri = RequestUtils.getRequestUri(request);
 
+        // If the readiness is requested, report whether the warm-up has finished and the filter isn't shutting down
+        if (uri.equals(readinessUri)) {
+            response.setStatus(ready && !draining ? 200 : 503);
+            response.setContentType("text/plain");
+            response.getWriter().write(draining ? "SHUTTING DOWN" : ready ? "READY" : "WARMING UP");
+            return;
+        }
+
+        // Count the request before checking for a shutdown, so that the shutdown either waits for the request or the request is rejected
+        inFlight.incrementAndGet();
+        try {
+            if (draining) {
+                LOGGER.debug("Rejecting request to '{}' because the filter is shutting down", uri);
+                response.setHeader("Connection", "close");
+                response.sendError(503);
+                return;
+            }
+
+            // Use the same routes for the whole request, even if they are reloaded in the meantime
+            // Synthetic warm-up requests would just flood the access log
+            AccessLog accessLog = this.accessLog;
+            if (accessLog == null || Warmup.isWarmupRequest(request)) {
+                filterRequest(request, response, chain, uri, routes);
+                return;
+            }
+
+            AccessLogRecord record = accessLog.begin(request, request.getMethod(), uri);
+            boolean completed = false;
+            try {
+                filterRequest(request, response, chain, uri, routes);
+                completed = true;
+            } finally {
+                accessLog.log(record, completed ? response.getStatus() : 500);
+            }
+        } finally {
+            if (inFlight.decrementAndGet() == 0 && draining) {
+                synchronized (inFlight) {
+                    inFlight.notifyAll();
+                }
+            }
+        }
+    }
+
+    private void filterRequest(HttpServletRequest request, HttpServletResponse response, FilterChain chain, String uri, Routes routes) throws IOException,
+            ServletException {
+
+        Context context = routes.context;
+
         // If no specific action is specified (empty URI, e.g. "/"), redirect to the index URI (by default "/index")
         if (StringUtils.remove(uri, '/').isEmpty()) {
             response.sendRedirect(request.getContextPath() + context.getIndexUri());
@@ -79,15 +669,27 @@ public class FemtoWebFilter implements Filter {
         // If the static content is requested, directly forward to that static content
         if (uri.startsWith(context.getStaticAssetPath())) {
             LOGGER.trace("Allowing direct access to static content '{}'", uri);
+
+            // The content behind a fingerprinted name never changes, so it can be cached forever
+            int assetStart = context.getStaticAssetPath().length() + 1;
+            if (uri.length() > assetStart && routes.assetManifest.isFingerprinted(uri.substring(assetStart))) {
+                response.setHeader("Cache-Control", assetCacheControl);
+            }
             chain.doFilter(request, response);
             return;
         }
 
         // If the request is no special case, retrieve and execute the action responsible for the requested URI
-        processAction(request, response, uri);
+        // While the request is processed, the URL table is available to the EL functions of the tag library
+        UrlTable previousUrlTable = UrlTable.bind(routes.urlTable);
+        try {
+            processAction(request, response, uri, context);
+        } finally {
+            UrlTable.restore(previousUrlTable);
+        }
     }
 
-    private void processAction(HttpServletRequest request, HttpServletResponse response, String uri) throws IOException, ServletException {
+    private void processAction(HttpServletRequest request, HttpServletResponse response, String uri, Context context) throws IOException, ServletException {
 
         // Get the action which is responsible for the requested URI
         Class<? extends Action> actionClass;
@@ -99,26 +701,328 @@ public class FemtoWebFilter implements Filter {
             return;
         }
 
+        AccessLogRecord accessLogRecord = accessLog == null ? null : AccessLogRecord.get(request);
+        if (accessLogRecord != null) {
+            accessLogRecord.setActionClass(actionClass);
+        }
+
+        // Reject HTTP methods the action has no handler for before the action is even created
+        MethodDispatchTable dispatchTable = MethodDispatchTable.of(actionClass);
+        if (!dispatchTable.isAllowed(request.getMethod())) {
+            LOGGER.trace("Action '{}' has no handler for HTTP method {} of request to '{}'", actionClass.getName(), request.getMethod(), uri);
+            response.setHeader("Allow", dispatchTable.getAllowedMethods());
+            response.sendError(405);
+            return;
+        }
+
+        // Reject clients which exceed the rate limit of the action before the action is even created; synthetic warm-up requests aren't limited
+        RateLimiter rateLimiter = Warmup.isWarmupRequest(request) ? null : rateLimiters.getLimiter(actionClass, context);
+        if (rateLimiter != null) {
+            long wait = rateLimiter.acquire(rateLimiters.getClientKey(request));
+            if (wait > 0) {
+                LOGGER.trace("Rate limit of action '{}' exceeded by request to '{}'", actionClass.getName(), uri);
+                response.setHeader("Retry-After", String.valueOf(1 + TimeUnit.NANOSECONDS.toSeconds(wait - 1)));
+                response.sendError(429);
+                return;
+            }
+        }
+
+        // Give the request a deadline after which nobody waits for its response anymore
+        Deadline deadline = deadlines.resolve(request, actionClass);
+        if (deadline != null) {
+            request.setAttribute(Deadline.ATTRIBUTE, deadline);
+        }
+
+        // Buffer the (possibly compressed) output in order to send it with an exact length and a single flush
+        BufferingResponseWrapper bufferingResponse = bufferPool == null ? null : new BufferingResponseWrapper(response, bufferPool, bufferMaxSize);
+        HttpServletResponse bufferedResponse = bufferingResponse == null ? response : bufferingResponse;
+
+        // Compress the output of the action and any following view if the client supports it
+        ResponseCompressor compressor = this.compressor;
+        CompressingResponseWrapper compressingResponse = compressor == null ? null : compressor.wrap(request, bufferedResponse);
+        HttpServletResponse actionResponse = compressingResponse == null ? bufferedResponse : compressingResponse;
+
+        if (bufferingResponse == null && compressingResponse == null) {
+            dispatchAction(request, response, uri, actionClass, context);
+            return;
+        }
+
+        boolean completed = false;
+        try {
+            dispatchAction(request, actionResponse, uri, actionClass, context);
+            completed = true;
+        } finally {
+            // A failed request must not be completed, so that the container can still send its error page
+            if (compressingResponse != null) {
+                if (completed) {
+                    compressingResponse.finish();
+                } else {
+                    compressingResponse.discard();
+                }
+            }
+            if (bufferingResponse != null) {
+                if (completed) {
+                    bufferingResponse.finish();
+                } else {
+                    bufferingResponse.discard();
+                }
+            }
+        }
+    }
+
+    private void dispatchAction(final HttpServletRequest request, HttpServletResponse response, final String uri, final Class<? extends Action> actionClass,
+            final Context context) throws IOException, ServletException {
+
+        // Serve cached actions from the cache backend if possible; synthetic warm-up requests must not fill the cache with their responses
+        CacheResponse cacheResponse = Warmup.isWarmupRequest(request) ? null : responseCache.getSettings(request, actionClass);
+        if (cacheResponse != null) {
+            responseCache.execute(request, response, actionClass, cacheResponse, new Execution() {
+
+                @Override
+                public void execute(HttpServletResponse executionResponse) throws IOException, ServletException {
+
+                    coalesceAction(request, executionResponse, uri, actionClass, context);
+                }
+
+            });
+        } else {
+            coalesceAction(request, response, uri, actionClass, context);
+        }
+    }
+
+    private void coalesceAction(final HttpServletRequest request, HttpServletResponse response, final String uri, final Class<? extends Action> actionClass,
+            final Context context) throws IOException, ServletException {
+
+        // Let identical concurrent requests to coalesced actions share a single execution
+        Coalesce coalesce = coalescer.getSettings(request, actionClass);
+        if (coalesce == null) {
+            executeLimitedAction(request, response, uri, actionClass, context);
+        } else {
+            coalescer.execute(request, response, actionClass, coalesce, new Execution() {
+
+                @Override
+                public void execute(HttpServletResponse executionResponse) throws IOException, ServletException {
+
+                    executeLimitedAction(request, executionResponse, uri, actionClass, context);
+                }
+
+            });
+        }
+    }
+
+    private void executeLimitedAction(HttpServletRequest request, HttpServletResponse response, String uri, Class<? extends Action> actionClass, Context context)
+            throws IOException, ServletException {
+
+        // Shed the request if the action is already executed by too many other requests; synthetic warm-up requests must neither take slots
+        // nor feed their (cold) latencies into adaptive limits
+        Deadline deadline = Deadline.get(request);
+        ConcurrencyLimiter limiter = Warmup.isWarmupRequest(request) ? null : concurrencyLimiters.getLimiter(actionClass, context);
+        if (limiter != null && !acquireSlot(limiter, deadline)) {
+            LOGGER.debug("Rejecting request to '{}' because the concurrency limit of action '{}' is exhausted", uri, actionClass.getName());
+            response.setHeader("Retry-After", concurrencyRetryAfter);
+            response.sendError(503);
+            return;
+        }
+
+        long startTime = System.nanoTime();
+        try {
+            executeScheduledAction(request, response, uri, actionClass, context, deadline);
+        } finally {
+            if (limiter != null) {
+                limiter.release(System.nanoTime() - startTime);
+            }
+        }
+    }
+
+    private void executeScheduledAction(HttpServletRequest request, HttpServletResponse response, String uri, Class<? extends Action> actionClass, Context context,
+            Deadline deadline) throws IOException, ServletException {
+
+        // Wait for one of the execution slots which are shared fairly between all priority classes; synthetic warm-up requests don't take a slot
+        FairScheduler scheduler = Warmup.isWarmupRequest(request) ? null : this.scheduler;
+        if (scheduler != null && !acquireScheduledSlot(scheduler, actionClass, deadline)) {
+            LOGGER.debug("Rejecting request to '{}' because the queue of the priority class of action '{}' is exhausted", uri, actionClass.getName());
+            response.setHeader("Retry-After", concurrencyRetryAfter);
+            response.sendError(503);
+            return;
+        }
+
+        try {
+            // Don't even start the action if the deadline has passed while the request was waiting
+            if (deadline != null && deadline.isExpired()) {
+                LOGGER.debug("Rejecting request to '{}' because its deadline passed before action '{}' started", uri, actionClass.getName());
+                response.sendError(503);
+                return;
+            }
+
+            executeAction(request, response, uri, actionClass, context);
+        } finally {
+            if (scheduler != null) {
+                scheduler.release();
+            }
+        }
+    }
+
+    private boolean acquireSlot(ConcurrencyLimiter limiter, Deadline deadline) {
+
+        try {
+            return deadline == null ? limiter.acquire() : limiter.acquire(deadline.getRemainingNanos());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private boolean acquireScheduledSlot(FairScheduler scheduler, Class<? extends Action> actionClass, Deadline deadline) {
+
+        try {
+            return scheduler.acquire(actionClass, deadline == null ? Long.MAX_VALUE : deadline.getRemainingNanos());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void executeAction(HttpServletRequest request, HttpServletResponse response, String uri, Class<? extends Action> actionClass, Context context)
+            throws IOException, ServletException {
+
         // Create a new instance of the responsible action
         Action action;
+        Object event = EVENTS.beginActionInstantiation();
         try {
-            action = actionClass.newInstance();
-        } catch (InstantiationException | IllegalAccessException e) {
+            action = actionFactory.createAction(actionClass, context);
+        } catch (Exception e) {
             throw new ServletException("Unable to construct new instance of requested action '" + actionClass.getName() + "'  for request to '" + uri + "')", e);
         }
+        if (event != null) {
+            EVENTS.commitActionInstantiation(event, actionClass);
+        }
 
         LOGGER.trace("Executing action '{}' for request to '{}'", actionClass.getName(), uri);
 
+        executeActionChain(request, response, uri, actionClass, action, context);
+    }
+
+    private void executeActionChain(HttpServletRequest request, HttpServletResponse response, String uri, Class<? extends Action> actionClass, Action action,
+            Context context) throws IOException, ServletException {
+
         // Execute the action and recursively execute any returned action (and their actions as well ...)
+        Deadline deadline = Deadline.get(request);
+        AccessLogRecord accessLogRecord = accessLog == null ? null : AccessLogRecord.get(request);
         Action currentAction = action;
+        int chainIndex = 0;
         while (currentAction != null) {
+            // Stop wasting capacity on a response nobody waits for anymore
+            if (deadline != null && deadline.isExpired()) {
+                LOGGER.debug("Deadline of request to '{}' passed before action '{}' could be executed", uri, currentAction.getClass().getName());
+                if (!response.isCommitted()) {
+                    response.sendError(504);
+                }
+                return;
+            }
+
+            if (accessLogRecord != null) {
+                accessLogRecord.actionStarted();
+            }
+
+            Object event = EVENTS.beginActionExecution();
+            Class<? extends Action> currentActionClass = currentAction.getClass();
             try {
                 currentAction = currentAction.execute(request, response, context);
+
+                // Write out session changes before the next action (e.g. a view) might commit the response
+                context.getSessionStore().commit(request, response);
             } catch (Exception e) {
-                throw new ServletException("Error while calling action '" + currentAction.getClass().getName() + "; first action was '" + actionClass.getName()
+                throw new ServletException("Error while calling action '" + currentActionClass.getName() + "; first action was '" + actionClass.getName()
                         + ", request URI is '" + uri + "')", e);
+            } finally {
+                if (event != null) {
+                    EVENTS.commitActionExecution(event, currentActionClass, uri, chainIndex);
+                }
             }
+            chainIndex++;
         }
     }
 
+    /*
+     * An immutable snapshot of everything that is derived from the routing parameters; it is replaced as a whole on reload.
+     */
+    private static class Routes {
+
+        private final Context       context;
+        private final UrlTable      urlTable;
+        private final AssetManifest assetManifest;
+
+        private Routes(Context context, UrlTable urlTable, AssetManifest assetManifest) {
+
+            this.context = context;
+            this.urlTable = urlTable;
+            this.assetManifest = assetManifest;
+        }
+
+    }
+
+    private class Management implements FemtoWebMXBean {
+
+        @Override
+        public boolean isReady() {
+
+            return ready;
+        }
+
+        @Override
+        public int getWarmupActions() {
+
+            return warmup == null ? 0 : warmup.getPreloadedActions();
+        }
+
+        @Override
+        public long getWarmupRequests() {
+
+            return warmup == null ? 0 : warmup.getSentRequests();
+        }
+
+        @Override
+        public long getWarmupMillis() {
+
+            return warmup == null ? 0 : warmup.getDuration();
+        }
+
+        @Override
+        public int getSchedulerActiveCount() {
+
+            return scheduler == null ? 0 : scheduler.getActiveCount();
+        }
+
+        @Override
+        public Map<String, Integer> getSchedulerQueueDepths() {
+
+            return scheduler == null ? Collections.<String, Integer> emptyMap() : scheduler.getQueueDepths();
+        }
+
+        @Override
+        public int getInFlightRequests() {
+
+            return inFlight.get();
+        }
+
+        @Override
+        public long getAccessLogDroppedRecords() {
+
+            AccessLog currentAccessLog = accessLog;
+            return currentAccessLog == null ? 0 : currentAccessLog.getDroppedRecords();
+        }
+
+        @Override
+        public void reload() {
+
+            try {
+                FemtoWebFilter.this.reload();
+            } catch (ServletException e) {
+                // Management clients don't necessarily have the servlet API on their classpath
+                throw new IllegalStateException("Cannot reload routes: " + e.getMessage());
+            }
+        }
+
+    }
+
 }
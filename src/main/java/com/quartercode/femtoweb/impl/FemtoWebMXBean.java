@@ -0,0 +1,98 @@
+/*
+ * This file is part of FemtoWeb.
+ * Copyright (c) 2015 QuarterCode <http://quartercode.com/>
+ *
+ * FemtoWeb is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * FemtoWeb is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with FemtoWeb. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.femtoweb.impl;
+
+import java.util.Map;
+
+/**
+ * The management interface each {@link FemtoWebFilter} registers with the platform MBean server.
+ * The object name is {@code com.quartercode.femtoweb:type=FemtoWebFilter,context=<context path>,name=<filter name>}.
+ * Load balancers and deployment tools can use it for checking whether the filter has finished its warm-up phase,
+ * for reloading the routes, and for watching the in-flight requests during a shutdown.
+ */
+public interface FemtoWebMXBean {
+
+    /**
+     * Returns whether the filter is ready to serve real traffic.
+     * If the warm-up phase is enabled, this is {@code false} until the warm-up has finished.
+     *
+     * @return Whether the filter is ready.
+     */
+    public boolean isReady();
+
+    /**
+     * Returns the amount of {@link com.quartercode.femtoweb.api.Action} classes which have been preloaded during the warm-up phase.
+     *
+     * @return The preloaded action count.
+     */
+    public int getWarmupActions();
+
+    /**
+     * Returns the amount of synthetic requests which have been sent through the filter during the warm-up phase.
+     *
+     * @return The synthetic request count.
+     */
+    public long getWarmupRequests();
+
+    /**
+     * Returns how many milliseconds the warm-up phase took.
+     *
+     * @return The warm-up duration, or {@code -1} if the warm-up hasn't finished yet.
+     */
+    public long getWarmupMillis();
+
+    /**
+     * Returns the amount of actions which currently hold one of the execution slots of the fair scheduler.
+     *
+     * @return The active execution count, or {@code 0} if scheduling is disabled.
+     */
+    public int getSchedulerActiveCount();
+
+    /**
+     * Returns the amount of requests which currently wait for an execution slot, mapped by the names of their {@link com.quartercode.femtoweb.api.PriorityClass
+     * priority classes}.
+     *
+     * @return The current queue depths, or an empty map if scheduling is disabled.
+     */
+    public Map<String, Integer> getSchedulerQueueDepths();
+
+    /**
+     * Returns the amount of requests which are currently processed by the filter.
+     * During the shutdown, this is the amount of requests the filter is still waiting for.
+     *
+     * @return The in-flight request count.
+     */
+    public int getInFlightRequests();
+
+    /**
+     * Returns the amount of access log records which have been dropped because the background writer thread couldn't keep up.
+     *
+     * @return The dropped record count, or {@code 0} if the access log is disabled.
+     */
+    public long getAccessLogDroppedRecords();
+
+    /**
+     * Rebuilds the routes of the filter, including the asset manifest, and swaps them in atomically without blocking requests.
+     *
+     * @throws IllegalStateException If the filter isn't running or the new routes cannot be built; the old routes stay active in that case.
+     * @see FemtoWebFilter#reload()
+     */
+    public void reload();
+
+}
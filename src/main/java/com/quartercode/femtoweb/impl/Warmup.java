@@ -0,0 +1,174 @@
+/*
+ * This file is part of FemtoWeb.
+ * Copyright (c) 2015 QuarterCode <http://quartercode.com/>
+ *
+ * FemtoWeb is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * FemtoWeb is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with FemtoWeb. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.femtoweb.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletContext;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import com.quartercode.femtoweb.api.Action;
+import com.quartercode.femtoweb.api.ActionNotFoundException;
+import com.quartercode.femtoweb.api.Context;
+import com.quartercode.femtoweb.impl.synthetic.SyntheticRequest;
+import com.quartercode.femtoweb.impl.synthetic.SyntheticResponse;
+
+/**
+ * An internal class used by {@link FemtoWebFilter} for warming up the dispatch path before real traffic arrives.
+ * The warm-up consists of two steps:
+ *
+ * <ol>
+ * <li>All {@link Action} classes in the action base package are loaded, linked and initialized, and their route entries are put into the {@link Context} caches.</li>
+ * <li>A configurable amount of rounds of {@link SyntheticRequest}s is sent through the filter, so that the JIT compiles the dispatch path.
+ * By default, each round covers the index redirect, a static asset and a missing action.
+ * Additional URIs can be configured; note that the actions behind those URIs are actually executed.</li>
+ * </ol>
+ *
+ * The synthetic requests carry the {@link #ATTRIBUTE warm-up attribute}, so that they neither appear in the access log nor fill the response cache.
+ * Moreover, they bypass the rate limiters, the concurrency limiters and the scheduler, so that they neither use up the budgets of real clients
+ * nor distort adaptive concurrency limits with the latencies of a cold JVM.
+ */
+class Warmup {
+
+    /**
+     * The name of the request attribute which marks the synthetic requests sent by the warm-up.
+     */
+    static final String              ATTRIBUTE   = Warmup.class.getName();
+
+    private static final Logger      LOGGER      = LoggerFactory.getLogger(Warmup.class);
+
+    private static final FilterChain NO_OP_CHAIN = new NoOpFilterChain();
+
+    private final FemtoWebFilter     filter;
+    private final String             actionBasePackage;
+    private final ServletContext     servletContext;
+    private final int                iterations;
+    private final List<String>       uris;
+
+    private volatile int             preloadedActions;
+    private volatile long            sentRequests;
+    private volatile long            duration    = -1;
+
+    Warmup(FemtoWebFilter filter, String actionBasePackage, ServletContext servletContext, int iterations, List<String> additionalUris) {
+
+        this.filter = filter;
+        this.actionBasePackage = actionBasePackage;
+        this.servletContext = servletContext;
+        this.iterations = iterations;
+
+        uris = new ArrayList<>();
+        uris.add("/");
+        uris.add(filter.getContext().getStaticAssetPath() + "/femtoweb-warmup.css");
+        uris.add("/femtoweb/warmupProbe");
+        uris.addAll(additionalUris);
+    }
+
+    /**
+     * Returns whether the given request is one of the synthetic requests sent by a warm-up.
+     *
+     * @param request The request which should be checked.
+     * @return Whether the request has been sent by a warm-up.
+     */
+    static boolean isWarmupRequest(ServletRequest request) {
+
+        return request.getAttribute(ATTRIBUTE) != null;
+    }
+
+    int getPreloadedActions() {
+
+        return preloadedActions;
+    }
+
+    long getSentRequests() {
+
+        return sentRequests;
+    }
+
+    long getDuration() {
+
+        return duration;
+    }
+
+    void run() {
+
+        long startTime = System.nanoTime();
+
+        preloadActions();
+        sendSyntheticRequests();
+
+        duration = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+        LOGGER.info("Warm-up finished after {} ms; preloaded {} actions and sent {} synthetic requests", duration, preloadedActions, sentRequests);
+    }
+
+    private void preloadActions() {
+
+        ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+        if (classLoader == null) {
+            classLoader = Warmup.class.getClassLoader();
+        }
+
+        Context context = filter.getContext();
+        for (Class<? extends Action> action : ActionScanner.scan(actionBasePackage, classLoader, servletContext)) {
+            try {
+                // Fill both directions of the route caches
+                context.getAction(context.getUri(action));
+                filter.prepareAction(action);
+                preloadedActions++;
+            } catch (ActionNotFoundException | RuntimeException e) {
+                LOGGER.warn("Cannot preload action '{}'", action.getName(), e);
+            }
+        }
+    }
+
+    private void sendSyntheticRequests() {
+
+        String contextPath = servletContext == null ? "" : servletContext.getContextPath();
+
+        for (int iteration = 0; iteration < iterations; iteration++) {
+            for (String uri : uris) {
+                try {
+                    SyntheticRequest request = new SyntheticRequest(servletContext, "GET", contextPath, uri);
+                    request.setAttribute(ATTRIBUTE, Boolean.TRUE);
+                    filter.doFilter(request, new SyntheticResponse(), NO_OP_CHAIN);
+                } catch (Exception e) {
+                    // Only log the first failure of each URI in order to avoid flooding the log
+                    if (iteration == 0) {
+                        LOGGER.warn("Synthetic warm-up request to '{}' failed", uri, e);
+                    }
+                }
+                sentRequests++;
+            }
+        }
+    }
+
+    private static class NoOpFilterChain implements FilterChain {
+
+        @Override
+        public void doFilter(ServletRequest request, ServletResponse response) {
+
+            // Static assets produce no output during the warm-up
+        }
+
+    }
+
+}
@@ -0,0 +1,377 @@
+/*
+ * This file is part of FemtoWeb.
+ * Copyright (c) 2015 QuarterCode <http://quartercode.com/>
+ *
+ * FemtoWeb is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * FemtoWeb is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with FemtoWeb. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.femtoweb.impl.accesslog;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+import javax.servlet.ServletRequest;
+import org.apache.commons.lang3.Validate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An access log which writes one line per request into a file, without ever blocking the request threads.
+ * Request threads just put their {@link AccessLogRecord}s into a bounded lock-free ring buffer.
+ * A background thread takes the records out of the buffer in batches, formats them into a direct byte buffer,
+ * and writes each batch through a {@link FileChannel}.
+ * If the background thread falls behind and the ring buffer is full, new records are dropped and counted instead.<br>
+ * <br>
+ * Once the log file would exceed the maximum size, it is rotated: {@code access.log} becomes {@code access.log.1},
+ * {@code access.log.1} becomes {@code access.log.2}, and so on, until the maximum amount of files is reached.
+ * Each line has the following format (the durations are microseconds):
+ *
+ * <pre>
+ * 2015-06-01T12:00:00.000Z "GET /shop/cart" 200 com.example.actions.shop.CartAction chainLength=2 total=1250 wait=40
+ * </pre>
+ *
+ * Requests which didn't resolve an action (e.g. static assets) are logged with {@code -} as action.
+ */
+public class AccessLog {
+
+    private static final Logger                         LOGGER          = LoggerFactory.getLogger(AccessLog.class);
+
+    private static final long                           FLUSH_INTERVAL  = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final int                            WRITE_BUFFER    = 64 * 1024;
+
+    private final Path                                  file;
+    private final long                                  maxFileSize;
+    private final int                                   maxFiles;
+
+    private final AtomicReferenceArray<AccessLogRecord> slots;
+    private final int                                   mask;
+    private final AtomicLong                            head            = new AtomicLong();
+    private final AtomicLong                            tail            = new AtomicLong();
+    private final AtomicLong                            dropped         = new AtomicLong();
+
+    private final Thread                                writerThread;
+    private volatile boolean                            closed;
+
+    // Only accessed by the writer thread
+    private final ByteBuffer                            buffer          = ByteBuffer.allocateDirect(WRITE_BUFFER);
+    private final CharsetEncoder                        encoder         = StandardCharsets.UTF_8.newEncoder();
+    private final StringBuilder                         line            = new StringBuilder(256);
+    private final SimpleDateFormat                      secondFormat    = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss");
+    private long                                        formattedSecond = -1;
+    private String                                      formattedPrefix;
+    private FileChannel                                 channel;
+    private long                                        fileSize;
+
+    /**
+     * Creates a new access log and starts its background writer thread.
+     *
+     * @param file The file the log is written to. Rotated files are put next to it.
+     * @param bufferSize The amount of records the ring buffer can hold; it is rounded up to the next power of two.
+     * @param maxFileSize The maximum size of the log file in bytes before it is rotated.
+     * @param maxFiles The maximum amount of files, including the current log file, which are kept.
+     * @throws IOException The log file cannot be opened.
+     */
+    public AccessLog(Path file, int bufferSize, long maxFileSize, int maxFiles) throws IOException {
+
+        Validate.isTrue(bufferSize > 0 && bufferSize <= 1 << 30, "Access log buffer size must be between 1 and 2^30");
+        Validate.isTrue(maxFileSize > 0, "Maximum access log file size must be positive");
+        Validate.isTrue(maxFiles > 0, "Maximum amount of access log files must be positive");
+
+        this.file = file.toAbsolutePath();
+        this.maxFileSize = maxFileSize;
+        this.maxFiles = maxFiles;
+
+        int capacity = Integer.highestOneBit(bufferSize);
+        capacity = capacity == bufferSize ? capacity : capacity << 1;
+        slots = new AtomicReferenceArray<>(capacity);
+        mask = capacity - 1;
+
+        secondFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
+        openFile();
+
+        writerThread = new Thread("FemtoWeb access log writer") {
+
+            @Override
+            public void run() {
+
+                writeRecords();
+            }
+
+        };
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    /**
+     * Starts an access log record for the given request and stores it as a request attribute.
+     *
+     * @param request The request which should be logged.
+     * @param method The HTTP method of the request.
+     * @param uri The requested URI.
+     * @return The new record.
+     */
+    public AccessLogRecord begin(ServletRequest request, String method, String uri) {
+
+        AccessLogRecord record = new AccessLogRecord(method, uri);
+        request.setAttribute(AccessLogRecord.ATTRIBUTE, record);
+        return record;
+    }
+
+    /**
+     * Finishes the given record and hands it over to the background writer thread.
+     * If the ring buffer is full, the record is dropped and counted instead of waiting for free space.
+     *
+     * @param record The record of the finished request.
+     * @param status The HTTP status code the request has been answered with.
+     */
+    public void log(AccessLogRecord record, int status) {
+
+        record.endTime = System.nanoTime();
+        record.status = status;
+
+        while (true) {
+            long index = tail.get();
+            if (index - head.get() >= slots.length()) {
+                dropped.incrementAndGet();
+                return;
+            } else if (tail.compareAndSet(index, index + 1)) {
+                // The writer thread waits for the slot to be filled if it sees the claimed index before the record
+                slots.lazySet((int) index & mask, record);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Returns the amount of records which have been dropped because the ring buffer was full.
+     *
+     * @return The dropped record count.
+     */
+    public long getDroppedRecords() {
+
+        return dropped.get();
+    }
+
+    /**
+     * Stops the background writer thread after it has written all remaining records, and closes the log file.
+     */
+    public void close() {
+
+        closed = true;
+        LockSupport.unpark(writerThread);
+
+        try {
+            writerThread.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void writeRecords() {
+
+        try {
+            while (true) {
+                // Read the flag before draining, so that no record which was logged before the close can be missed
+                boolean closing = closed;
+                if (!writeBatch()) {
+                    if (closing) {
+                        break;
+                    }
+                    LockSupport.parkNanos(this, FLUSH_INTERVAL);
+                }
+            }
+        } finally {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                LOGGER.warn("Cannot close access log file '{}'", file, e);
+            }
+        }
+    }
+
+    private boolean writeBatch() {
+
+        boolean wroteRecords = false;
+
+        try {
+            // Reopen the log file if that failed after the last rotation
+            if (!channel.isOpen()) {
+                openFile();
+            }
+
+            AccessLogRecord record;
+            while ( (record = poll()) != null) {
+                format(record);
+                encode();
+                wroteRecords = true;
+            }
+
+            flush();
+        } catch (IOException e) {
+            LOGGER.warn("Cannot write to access log file '{}'", file, e);
+            buffer.clear();
+        }
+
+        return wroteRecords;
+    }
+
+    private AccessLogRecord poll() {
+
+        long index = head.get();
+        if (index == tail.get()) {
+            return null;
+        }
+
+        int slot = (int) index & mask;
+        AccessLogRecord record = slots.get(slot);
+        while (record == null) {
+            // The index has been claimed, but the record hasn't been stored yet
+            Thread.yield();
+            record = slots.get(slot);
+        }
+
+        slots.lazySet(slot, null);
+        head.lazySet(index + 1);
+        return record;
+    }
+
+    private void format(AccessLogRecord record) {
+
+        line.setLength(0);
+
+        long second = record.timestamp / 1000;
+        if (second != formattedSecond) {
+            formattedPrefix = secondFormat.format(new Date(second * 1000));
+            formattedSecond = second;
+        }
+        int millis = (int) (record.timestamp % 1000);
+        line.append(formattedPrefix).append('.').append((char) ('0' + millis / 100)).append((char) ('0' + millis / 10 % 10)).append((char) ('0' + millis % 10));
+
+        line.append("Z \"").append(record.method).append(' ');
+        appendEscaped(record.uri);
+        line.append("\" ").append(record.status).append(' ');
+        line.append(record.actionClass == null ? "-" : record.actionClass.getName());
+        line.append(" chainLength=").append(record.chainLength);
+        line.append(" total=").append(TimeUnit.NANOSECONDS.toMicros(record.endTime - record.startTime));
+        line.append(" wait=");
+        if (record.chainLength == 0) {
+            line.append('-');
+        } else {
+            line.append(TimeUnit.NANOSECONDS.toMicros(record.actionStartTime - record.startTime));
+        }
+        line.append('\n');
+    }
+
+    private void appendEscaped(String value) {
+
+        // Escape everything which could break the line format or forge additional lines
+        for (int index = 0; index < value.length(); index++) {
+            char character = value.charAt(index);
+            if (character < 0x20 || character == 0x7F || character == '"' || character == '\\') {
+                line.append("\\x").append(Character.forDigit(character >> 4 & 0xF, 16)).append(Character.forDigit(character & 0xF, 16));
+            } else {
+                line.append(character);
+            }
+        }
+    }
+
+    private void encode() throws IOException {
+
+        // Rotate before a line which would exceed the maximum file size, so that a rotation never splits a line
+        // Nearly all characters are ASCII, so the line length is a good estimate of the encoded size
+        if (fileSize + buffer.position() + line.length() > maxFileSize && fileSize + buffer.position() > 0) {
+            flush();
+            rotate();
+        } else if (buffer.remaining() < line.length() * 3) {
+            flush();
+        }
+
+        CharBuffer chars = CharBuffer.wrap(line);
+        encoder.reset();
+        while (true) {
+            CoderResult result = encoder.encode(chars, buffer, true);
+            if (result.isOverflow()) {
+                flush();
+            } else {
+                break;
+            }
+        }
+    }
+
+    private void flush() throws IOException {
+
+        buffer.flip();
+        if (!buffer.hasRemaining()) {
+            buffer.clear();
+            return;
+        }
+
+        while (buffer.hasRemaining()) {
+            fileSize += channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private void openFile() throws IOException {
+
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        fileSize = channel.size();
+    }
+
+    private void rotate() throws IOException {
+
+        // Some platforms can't move open files, so the channel must be closed first
+        channel.close();
+
+        try {
+            Files.deleteIfExists(getRotatedFile(maxFiles - 1));
+            for (int index = maxFiles - 2; index >= 0; index--) {
+                Path source = getRotatedFile(index);
+                if (Files.exists(source)) {
+                    Files.move(source, getRotatedFile(index + 1), StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
+        } catch (IOException e) {
+            // Rather keep appending to the current file than lose records; the rotation is retried before the next line
+            LOGGER.warn("Cannot rotate access log file '{}'", file, e);
+        } finally {
+            openFile();
+        }
+    }
+
+    private Path getRotatedFile(int index) {
+
+        return index == 0 ? file : file.resolveSibling(file.getFileName() + "." + index);
+    }
+
+}
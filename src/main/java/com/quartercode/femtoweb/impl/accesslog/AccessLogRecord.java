@@ -0,0 +1,86 @@
+/*
+ * This file is part of FemtoWeb.
+ * Copyright (c) 2015 QuarterCode <http://quartercode.com/>
+ *
+ * FemtoWeb is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * FemtoWeb is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with FemtoWeb. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.femtoweb.impl.accesslog;
+
+import javax.servlet.ServletRequest;
+import com.quartercode.femtoweb.api.Action;
+
+/**
+ * The access log record of a single request, which collects the details of the request while it is processed.
+ * It is stored as a request attribute, so that each processing step can fill in what it knows.
+ * Once the request has finished, the record is handed over to the {@link AccessLog}.
+ */
+public class AccessLogRecord {
+
+    /**
+     * The name of the request attribute which stores the record of a request.
+     */
+    public static final String ATTRIBUTE = AccessLogRecord.class.getName();
+
+    final long                 timestamp;
+    final long                 startTime;
+    final String               method;
+    final String               uri;
+    Class<? extends Action>         actionClass;
+    int                             chainLength;
+    long                            actionStartTime;
+    long                            endTime;
+    int                             status;
+
+    AccessLogRecord(String method, String uri) {
+
+        timestamp = System.currentTimeMillis();
+        startTime = System.nanoTime();
+        this.method = method;
+        this.uri = uri;
+    }
+
+    /**
+     * Returns the access log record of the given request.
+     *
+     * @param request The request whose record should be returned.
+     * @return The record of the request, or {@code null} if the request isn't logged.
+     */
+    public static AccessLogRecord get(ServletRequest request) {
+
+        return (AccessLogRecord) request.getAttribute(ATTRIBUTE);
+    }
+
+    /**
+     * Records the {@link Action} class which has been resolved for the request URI.
+     *
+     * @param actionClass The resolved action class.
+     */
+    public void setActionClass(Class<? extends Action> actionClass) {
+
+        this.actionClass = actionClass;
+    }
+
+    /**
+     * Records that the next action of the action chain is about to be executed.
+     * The time at which the first action starts is remembered, so that the time the request spent waiting (e.g. for a free execution slot) can be logged.
+     */
+    public void actionStarted() {
+
+        if (chainLength++ == 0) {
+            actionStartTime = System.nanoTime();
+        }
+    }
+
+}
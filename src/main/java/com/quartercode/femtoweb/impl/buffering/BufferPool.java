@@ -0,0 +1,97 @@
+/*
+ * This file is part of FemtoWeb.
+ * Copyright (c) 2015 QuarterCode <http://quartercode.com/>
+ *
+ * FemtoWeb is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * FemtoWeb is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with FemtoWeb. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.femtoweb.impl.buffering;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import org.apache.commons.lang3.Validate;
+
+/**
+ * A bounded pool of equally sized byte arrays which are used as response buffer chunks.
+ * By reusing chunks across requests, buffering a response of a few kilobytes doesn't allocate any new memory once the pool is warm.<br>
+ * <br>
+ * If the pool is empty when a chunk is {@link #borrow() borrowed}, a new one is allocated.
+ * If the pool is full when a chunk is {@link #release(byte[]) released}, that chunk is left to the garbage collector.
+ * That way, the amount of idle memory is bounded by the pool size times the chunk size.
+ */
+public class BufferPool {
+
+    private final int                   chunkSize;
+    private final BlockingQueue<byte[]> idle;
+
+    /**
+     * Creates a new buffer pool.
+     *
+     * @param chunkSize The size of each pooled chunk in bytes.
+     * @param maxIdle The maximum amount of idle chunks that are kept in the pool.
+     */
+    public BufferPool(int chunkSize, int maxIdle) {
+
+        Validate.isTrue(chunkSize > 0, "Buffer chunk size must be positive");
+        Validate.isTrue(maxIdle > 0, "Buffer pool size must be positive");
+
+        this.chunkSize = chunkSize;
+        idle = new ArrayBlockingQueue<>(maxIdle);
+    }
+
+    /**
+     * Returns the size of each chunk which is handed out by this pool.
+     *
+     * @return The chunk size in bytes.
+     */
+    public int getChunkSize() {
+
+        return chunkSize;
+    }
+
+    /**
+     * Returns an idle chunk from the pool, or allocates a new one if the pool is empty.
+     * The returned chunk must be {@link #release(byte[]) released} after use, even if an exception occurred.
+     * Note that the chunk might still contain data from its previous use.
+     *
+     * @return A chunk with the size {@link #getChunkSize()}.
+     */
+    public byte[] borrow() {
+
+        byte[] chunk = idle.poll();
+        return chunk != null ? chunk : new byte[chunkSize];
+    }
+
+    /**
+     * Puts the given chunk back into the pool.
+     * If the pool is already full, the chunk is dropped.
+     *
+     * @param chunk The chunk which has previously been {@link #borrow() borrowed} from this pool.
+     */
+    public void release(byte[] chunk) {
+
+        idle.offer(chunk);
+    }
+
+    /**
+     * Returns the amount of chunks which are currently idle in the pool.
+     *
+     * @return The idle chunk count.
+     */
+    public int getIdleCount() {
+
+        return idle.size();
+    }
+
+}
@@ -0,0 +1,368 @@
+/*
+ * This file is part of FemtoWeb.
+ * Copyright (c) 2015 QuarterCode <http://quartercode.com/>
+ *
+ * FemtoWeb is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * FemtoWeb is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with FemtoWeb. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.femtoweb.impl.buffering;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import org.apache.commons.lang3.Validate;
+
+/**
+ * A response wrapper which collects the whole body in chunks from a {@link BufferPool} instead of passing it on piece by piece.
+ * Explicit flushes are ignored, so the response isn't committed while the body is produced.
+ * When the response is {@link #finish() finished}, the exact {@code Content-Length} is set, the container buffer is enlarged to fit the body,
+ * and all chunks are written out at once.
+ * That way, the container doesn't need chunked transfer encoding and sends the response with a single flush.<br>
+ * <br>
+ * If the body exceeds the maximum buffer size, all buffered chunks are written out and the rest of the body is passed through unchanged.
+ * Error pages and redirects bypass the buffer.
+ */
+public class BufferingResponseWrapper extends HttpServletResponseWrapper {
+
+    private final BufferPool    pool;
+    private final int           maxSize;
+    private final List<byte[]>  chunks = new ArrayList<>();
+
+    private ServletOutputStream outputStream;
+    private PrintWriter         writer;
+
+    private int                 size;
+    // Set once the body is streamed to the wrapped response instead of being buffered
+    private OutputStream        target;
+    private boolean             bypassed;
+    private boolean             finished;
+
+    /**
+     * Creates a new buffering response wrapper.
+     *
+     * @param response The response which should receive the buffered body.
+     * @param pool The {@link BufferPool} which provides the buffer chunks.
+     * @param maxSize The maximum amount of bytes which are buffered before the body is passed through.
+     */
+    public BufferingResponseWrapper(HttpServletResponse response, BufferPool pool, int maxSize) {
+
+        super(response);
+
+        Validate.isTrue(maxSize > 0, "Maximum buffer size must be positive");
+
+        this.pool = pool;
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Returns the amount of bytes which are currently held in the buffer.
+     *
+     * @return The buffered body size.
+     */
+    public int getBufferedSize() {
+
+        return size;
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() throws IOException {
+
+        if (writer != null) {
+            throw new IllegalStateException("getWriter() has already been called on this response");
+        }
+
+        if (outputStream == null) {
+            outputStream = new BufferingOutputStream();
+        }
+        return outputStream;
+    }
+
+    @Override
+    public PrintWriter getWriter() throws IOException {
+
+        if (writer == null) {
+            if (outputStream != null) {
+                throw new IllegalStateException("getOutputStream() has already been called on this response");
+            }
+
+            outputStream = new BufferingOutputStream();
+            writer = new PrintWriter(new OutputStreamWriter(outputStream, getCharacterEncoding()));
+        }
+        return writer;
+    }
+
+    // ----- Content length -----
+
+    @Override
+    public void setContentLength(int len) {
+
+        // The exact length is set when the buffer is written out
+        if (target != null) {
+            super.setContentLength(len);
+        }
+    }
+
+    @Override
+    public void setContentLengthLong(long len) {
+
+        if (target != null) {
+            super.setContentLengthLong(len);
+        }
+    }
+
+    @Override
+    public void setHeader(String name, String value) {
+
+        if (target != null || !"Content-Length".equalsIgnoreCase(name)) {
+            super.setHeader(name, value);
+        }
+    }
+
+    @Override
+    public void addHeader(String name, String value) {
+
+        if (target != null || !"Content-Length".equalsIgnoreCase(name)) {
+            super.addHeader(name, value);
+        }
+    }
+
+    // ----- Buffer control -----
+
+    @Override
+    public boolean isCommitted() {
+
+        return target != null || bypassed || super.isCommitted();
+    }
+
+    @Override
+    public void flushBuffer() throws IOException {
+
+        // Flushes would commit the response in small pieces; the buffer is only written out once it is finished
+        if (writer != null) {
+            writer.flush();
+        }
+        if (target != null) {
+            target.flush();
+        }
+    }
+
+    @Override
+    public void resetBuffer() {
+
+        if (target == null) {
+            discardBody();
+        }
+        super.resetBuffer();
+    }
+
+    @Override
+    public void reset() {
+
+        if (target == null) {
+            discardBody();
+        }
+        super.reset();
+    }
+
+    private void discardBody() {
+
+        // Push any chars which are still buffered by the writer into the buffer so they are discarded as well
+        if (writer != null) {
+            writer.flush();
+        }
+
+        releaseChunks();
+    }
+
+    @Override
+    public void sendError(int sc) throws IOException {
+
+        bypass();
+        super.sendError(sc);
+    }
+
+    @Override
+    public void sendError(int sc, String msg) throws IOException {
+
+        bypass();
+        super.sendError(sc, msg);
+    }
+
+    @Override
+    public void sendRedirect(String location) throws IOException {
+
+        bypass();
+        super.sendRedirect(location);
+    }
+
+    private void bypass() {
+
+        bypassed = true;
+        releaseChunks();
+    }
+
+    // ----- Body processing -----
+
+    private void write(byte[] b, int off, int len) throws IOException {
+
+        if (bypassed || finished) {
+            return;
+        }
+
+        if (target == null && size + len > maxSize) {
+            // The body is too large to be buffered; stream it without a length instead
+            target = super.getOutputStream();
+            writeChunks(target);
+        }
+
+        if (target != null) {
+            target.write(b, off, len);
+            return;
+        }
+
+        int offset = off;
+        int remaining = len;
+        int chunkSize = pool.getChunkSize();
+        while (remaining > 0) {
+            int chunkOffset = size % chunkSize;
+            if (chunkOffset == 0 && size / chunkSize == chunks.size()) {
+                chunks.add(pool.borrow());
+            }
+
+            int count = Math.min(remaining, chunkSize - chunkOffset);
+            System.arraycopy(b, offset, chunks.get(size / chunkSize), chunkOffset, count);
+            size += count;
+            offset += count;
+            remaining -= count;
+        }
+    }
+
+    private void writeChunks(OutputStream out) throws IOException {
+
+        int chunkSize = pool.getChunkSize();
+        for (int index = 0; index < chunks.size(); index++) {
+            out.write(chunks.get(index), 0, Math.min(chunkSize, size - index * chunkSize));
+        }
+        releaseChunks();
+    }
+
+    private void releaseChunks() {
+
+        for (byte[] chunk : chunks) {
+            pool.release(chunk);
+        }
+        chunks.clear();
+        size = 0;
+    }
+
+    /**
+     * Writes out the buffered body with an exact {@code Content-Length} and returns all chunks to the pool.
+     * If the body has already been passed through because it was too large, the remaining data is just flushed.
+     * Calling this method more than once has no effect.
+     *
+     * @throws IOException If the buffered body cannot be written to the wrapped response.
+     */
+    public void finish() throws IOException {
+
+        if (finished) {
+            return;
+        }
+
+        try {
+            if (writer != null) {
+                writer.flush();
+            }
+
+            if (bypassed) {
+                return;
+            }
+
+            if (target == null && !super.isCommitted()) {
+                super.setContentLength(size);
+                if (size > super.getBufferSize()) {
+                    super.setBufferSize(size);
+                }
+                if (size > 0) {
+                    writeChunks(super.getOutputStream());
+                }
+            } else if (target == null) {
+                // Someone else has committed the response in the meantime; just append the body
+                writeChunks(super.getOutputStream());
+            }
+        } finally {
+            finished = true;
+            releaseChunks();
+        }
+    }
+
+    /**
+     * Drops the buffered body without writing it out and returns all chunks to the pool.
+     * This should be called instead of {@link #finish()} if the response failed, so that the container can still send an error page.
+     */
+    public void discard() {
+
+        finished = true;
+        releaseChunks();
+    }
+
+    private class BufferingOutputStream extends ServletOutputStream {
+
+        @Override
+        public void write(int b) throws IOException {
+
+            BufferingResponseWrapper.this.write(new byte[] { (byte) b }, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+
+            BufferingResponseWrapper.this.write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+
+            if (target != null && !finished) {
+                target.flush();
+            }
+        }
+
+        @Override
+        public void close() {
+
+            // Containers close the response after a forward; the buffer is only written out when the response is finished
+        }
+
+        @Override
+        public boolean isReady() {
+
+            return true;
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+
+            throw new UnsupportedOperationException("Non-blocking IO is not supported by buffered responses");
+        }
+
+    }
+
+}
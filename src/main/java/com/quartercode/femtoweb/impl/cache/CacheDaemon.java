@@ -0,0 +1,272 @@
+/*
+ * This file is part of FemtoWeb.
+ * Copyright (c) 2015 QuarterCode <http://quartercode.com/>
+ *
+ * FemtoWeb is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * FemtoWeb is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with FemtoWeb. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.femtoweb.impl.cache;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A simple cache server which is shared by the {@link RemoteCacheBackend}s of multiple nodes.
+ * It keeps all entries in a {@link LocalCacheBackend} and serves each client connection in its own thread.
+ * Every modification (a put or an invalidation) is broadcast to all subscribed clients, so that they can remove the entry from their near caches.<br>
+ * <br>
+ * The daemon can be started as a standalone process:
+ *
+ * <pre>
+ * java com.quartercode.femtoweb.impl.cache.CacheDaemon [port] [max entries] [bind address]
+ * </pre>
+ *
+ * It can also be embedded, e.g. as a local stand-in for tests.
+ */
+public class CacheDaemon implements Closeable {
+
+    private static final Logger         LOGGER       = LoggerFactory.getLogger(CacheDaemon.class);
+
+    /**
+     * The port the daemon listens on by default.
+     */
+    public static final int             DEFAULT_PORT = 11311;
+
+    private final LocalCacheBackend     store;
+    private final ServerSocket          serverSocket;
+    private final Set<Socket>           clients      = Collections.newSetFromMap(new ConcurrentHashMap<Socket, Boolean>());
+    private final Set<DataOutputStream> subscribers  = Collections.newSetFromMap(new ConcurrentHashMap<DataOutputStream, Boolean>());
+
+    private volatile boolean            closed;
+
+    /**
+     * Starts the daemon with the port, the maximum entry count and the bind address given as optional command line arguments.
+     *
+     * @param args The command line arguments.
+     * @throws IOException If the server socket cannot be bound.
+     * @throws InterruptedException If the main thread is interrupted.
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        int maxEntries = args.length > 1 ? Integer.parseInt(args[1]) : 100000;
+        InetAddress bindAddress = args.length > 2 ? InetAddress.getByName(args[2]) : InetAddress.getLoopbackAddress();
+
+        CacheDaemon daemon = new CacheDaemon(bindAddress, port, maxEntries);
+        System.out.println("Cache daemon listening on " + bindAddress.getHostAddress() + ":" + daemon.getPort());
+
+        // All daemon threads are background threads, so the main thread keeps the process alive until it's terminated
+        Thread.currentThread().join();
+    }
+
+    /**
+     * Creates a new cache daemon and immediately starts accepting connections in a background thread.
+     *
+     * @param bindAddress The address the server socket is bound to.
+     * @param port The port the server socket is bound to, or {@code 0} for an arbitrary free port.
+     * @param maxEntries The maximum amount of entries which are kept at the same time.
+     * @throws IOException If the server socket cannot be bound.
+     */
+    public CacheDaemon(InetAddress bindAddress, int port, int maxEntries) throws IOException {
+
+        store = new LocalCacheBackend(maxEntries);
+        serverSocket = new ServerSocket(port, 50, bindAddress);
+
+        Thread acceptThread = new Thread(new Runnable() {
+
+            @Override
+            public void run() {
+
+                acceptConnections();
+            }
+
+        }, "FemtoWeb cache daemon");
+        acceptThread.setDaemon(true);
+        acceptThread.start();
+    }
+
+    /**
+     * Returns the port the daemon listens on.
+     *
+     * @return The local port.
+     */
+    public int getPort() {
+
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Returns the amount of clients which currently receive invalidation broadcasts.
+     *
+     * @return The subscriber count.
+     */
+    public int getSubscriberCount() {
+
+        return subscribers.size();
+    }
+
+    private void acceptConnections() {
+
+        while (!closed) {
+            final Socket socket;
+            try {
+                socket = serverSocket.accept();
+            } catch (IOException e) {
+                if (!closed) {
+                    LOGGER.error("Cache daemon cannot accept connection", e);
+                }
+                continue;
+            }
+
+            clients.add(socket);
+            Thread connectionThread = new Thread(new Runnable() {
+
+                @Override
+                public void run() {
+
+                    serve(socket);
+                }
+
+            }, "FemtoWeb cache daemon connection " + socket.getRemoteSocketAddress());
+            connectionThread.setDaemon(true);
+            connectionThread.start();
+        }
+    }
+
+    private void serve(Socket socket) {
+
+        DataOutputStream output = null;
+        try {
+            socket.setTcpNoDelay(true);
+            DataInputStream input = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            output = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+
+            while (true) {
+                byte operation = input.readByte();
+                if (operation == CacheProtocol.SUBSCRIBE) {
+                    synchronized (output) {
+                        output.writeByte(CacheProtocol.OK);
+                        output.flush();
+                    }
+                    subscribers.add(output);
+                } else {
+                    handle(operation, input, output);
+                }
+            }
+        } catch (EOFException | SocketException e) {
+            // The client has closed the connection
+        } catch (IOException e) {
+            LOGGER.warn("Cache daemon connection to {} failed", socket.getRemoteSocketAddress(), e);
+        } finally {
+            if (output != null) {
+                subscribers.remove(output);
+            }
+            clients.remove(socket);
+            closeQuietly(socket);
+        }
+    }
+
+    private void handle(byte operation, DataInputStream input, DataOutputStream output) throws IOException {
+
+        String key = CacheProtocol.readString(input);
+
+        switch (operation) {
+            case CacheProtocol.GET:
+                long remainingTtl = store.getRemainingTtl(key);
+                byte[] value = remainingTtl > 0 ? store.get(key) : null;
+                if (value == null) {
+                    output.writeByte(CacheProtocol.MISS);
+                } else {
+                    output.writeByte(CacheProtocol.HIT);
+                    output.writeLong(remainingTtl);
+                    CacheProtocol.writeBytes(output, value);
+                }
+                break;
+            case CacheProtocol.PUT:
+                long ttl = input.readLong();
+                store.put(key, CacheProtocol.readBytes(input), ttl);
+                broadcast(CacheProtocol.INVALIDATE, key);
+                output.writeByte(CacheProtocol.OK);
+                break;
+            case CacheProtocol.INVALIDATE:
+                store.invalidate(key);
+                broadcast(CacheProtocol.INVALIDATE, key);
+                output.writeByte(CacheProtocol.OK);
+                break;
+            case CacheProtocol.INVALIDATE_PREFIX:
+                store.invalidatePrefix(key);
+                broadcast(CacheProtocol.INVALIDATE_PREFIX, key);
+                output.writeByte(CacheProtocol.OK);
+                break;
+            default:
+                throw new IOException("Unknown cache operation " + operation);
+        }
+
+        output.flush();
+    }
+
+    private void broadcast(byte operation, String key) {
+
+        for (DataOutputStream subscriber : subscribers) {
+            try {
+                synchronized (subscriber) {
+                    subscriber.writeByte(operation);
+                    CacheProtocol.writeString(subscriber, key);
+                    subscriber.flush();
+                }
+            } catch (IOException e) {
+                // The connection thread of the subscriber removes it as soon as it notices the broken connection
+                subscribers.remove(subscriber);
+            }
+        }
+    }
+
+    /**
+     * Stops accepting connections and closes all client connections.
+     */
+    @Override
+    public void close() {
+
+        closed = true;
+        closeQuietly(serverSocket);
+        for (Socket client : clients) {
+            closeQuietly(client);
+        }
+        store.close();
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+
+        try {
+            closeable.close();
+        } catch (IOException e) {
+            LOGGER.debug("Cannot close cache daemon socket", e);
+        }
+    }
+
+}
@@ -0,0 +1,78 @@
+/*
+ * This file is part of FemtoWeb.
+ * Copyright (c) 2015 QuarterCode <http://quartercode.com/>
+ *
+ * FemtoWeb is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * FemtoWeb is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with FemtoWeb. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.femtoweb.impl.cache;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The binary protocol spoken between the {@link RemoteCacheBackend} and the {@link CacheDaemon}.
+ * Each request consists of an operation byte and its arguments; strings and values are sent with a length prefix.
+ * After a {@link #SUBSCRIBE} request, the connection is only used by the daemon for broadcasting invalidations,
+ * each of which consists of an invalidation operation byte and the invalidated key or prefix.
+ */
+class CacheProtocol {
+
+    static final byte GET               = 1;
+    static final byte PUT               = 2;
+    static final byte INVALIDATE        = 3;
+    static final byte INVALIDATE_PREFIX = 4;
+    static final byte SUBSCRIBE         = 5;
+
+    static final byte OK                = 0;
+    static final byte HIT               = 1;
+    static final byte MISS              = 2;
+
+    static final int  MAX_VALUE_SIZE    = 64 * 1024 * 1024;
+
+    static void writeString(DataOutputStream output, String value) throws IOException {
+
+        writeBytes(output, value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static String readString(DataInputStream input) throws IOException {
+
+        return new String(readBytes(input), StandardCharsets.UTF_8);
+    }
+
+    static void writeBytes(DataOutputStream output, byte[] value) throws IOException {
+
+        output.writeInt(value.length);
+        output.write(value);
+    }
+
+    static byte[] readBytes(DataInputStream input) throws IOException {
+
+        int length = input.readInt();
+        if (length < 0 || length > MAX_VALUE_SIZE) {
+            throw new IOException("Invalid cache value length " + length);
+        }
+
+        byte[] value = new byte[length];
+        input.readFully(value);
+        return value;
+    }
+
+    private CacheProtocol() {
+
+    }
+
+}
@@ -0,0 +1,164 @@
+/*
+ * This file is part of FemtoWeb.
+ * Copyright (c) 2015 QuarterCode <http://quartercode.com/>
+ *
+ * FemtoWeb is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * FemtoWeb is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with FemtoWeb. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.femtoweb.impl.cache;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import org.apache.commons.lang3.Validate;
+import com.quartercode.femtoweb.api.CacheBackend;
+
+/**
+ * A {@link CacheBackend} which keeps all entries in the heap of this JVM.
+ * It is the default backend and is also used by the {@link CacheDaemon} and as the near cache of the {@link RemoteCacheBackend}.
+ * If the maximum amount of entries is reached, expired entries are removed first; if there are none, an arbitrary entry is evicted.
+ */
+public class LocalCacheBackend implements CacheBackend {
+
+    private final int                         maxEntries;
+    private final ConcurrentMap<String, Item> items = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a new local cache backend.
+     *
+     * @param maxEntries The maximum amount of entries which are kept at the same time.
+     */
+    public LocalCacheBackend(int maxEntries) {
+
+        Validate.isTrue(maxEntries > 0, "Maximum cache entry count must be positive");
+
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * Returns the amount of entries which are currently stored, including expired ones which haven't been removed yet.
+     *
+     * @return The entry count.
+     */
+    public int getSize() {
+
+        return items.size();
+    }
+
+    @Override
+    public byte[] get(String key) {
+
+        Item item = items.get(key);
+        if (item == null) {
+            return null;
+        } else if (item.isExpired(System.currentTimeMillis())) {
+            items.remove(key, item);
+            return null;
+        } else {
+            return item.value;
+        }
+    }
+
+    /**
+     * Returns the amount of milliseconds after which the entry with the given key expires.
+     *
+     * @param key The key of the entry.
+     * @return The remaining time to live, or {@code 0} if there is no entry or the entry has already expired.
+     */
+    public long getRemainingTtl(String key) {
+
+        Item item = items.get(key);
+        return item == null ? 0 : Math.max(item.expiryTime - System.currentTimeMillis(), 0);
+    }
+
+    @Override
+    public void put(String key, byte[] value, long ttl) {
+
+        if (items.size() >= maxEntries && !items.containsKey(key)) {
+            evict();
+        }
+
+        items.put(key, new Item(value, System.currentTimeMillis() + ttl));
+    }
+
+    private void evict() {
+
+        long now = System.currentTimeMillis();
+        boolean evicted = false;
+        for (Iterator<Item> iterator = items.values().iterator(); iterator.hasNext();) {
+            if (iterator.next().isExpired(now)) {
+                iterator.remove();
+                evicted = true;
+            }
+        }
+
+        if (!evicted) {
+            Iterator<String> iterator = items.keySet().iterator();
+            if (iterator.hasNext()) {
+                iterator.next();
+                iterator.remove();
+            }
+        }
+    }
+
+    @Override
+    public void invalidate(String key) {
+
+        items.remove(key);
+    }
+
+    @Override
+    public void invalidatePrefix(String prefix) {
+
+        for (Iterator<Map.Entry<String, Item>> iterator = items.entrySet().iterator(); iterator.hasNext();) {
+            if (iterator.next().getKey().startsWith(prefix)) {
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Removes all entries.
+     */
+    public void clear() {
+
+        items.clear();
+    }
+
+    @Override
+    public void close() {
+
+        items.clear();
+    }
+
+    private static class Item {
+
+        private final byte[] value;
+        private final long   expiryTime;
+
+        private Item(byte[] value, long expiryTime) {
+
+            this.value = value;
+            this.expiryTime = expiryTime;
+        }
+
+        private boolean isExpired(long now) {
+
+            return now >= expiryTime;
+        }
+
+    }
+
+}
@@ -0,0 +1,335 @@
+/*
+ * This file is part of FemtoWeb.
+ * Copyright (c) 2015 QuarterCode <http://quartercode.com/>
+ *
+ * FemtoWeb is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * FemtoWeb is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with FemtoWeb. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.femtoweb.impl.cache;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import com.quartercode.femtoweb.api.CacheBackend;
+
+/**
+ * A {@link CacheBackend} which stores all entries in a {@link CacheDaemon} that is shared by all nodes.
+ * Requests are sent over a small pool of reused socket connections.<br>
+ * <br>
+ * Optionally, the most recently read entries are also kept in a near cache on this node, so that repeated reads don't need a round trip.
+ * In order to keep the near cache consistent, the backend subscribes to the invalidations the daemon broadcasts on every modification.
+ * While that subscription is down, the near cache is cleared and bypassed.
+ */
+public class RemoteCacheBackend implements CacheBackend {
+
+    private static final Logger     LOGGER          = LoggerFactory.getLogger(RemoteCacheBackend.class);
+    private static final long       RECONNECT_DELAY = 1000;
+
+    private final InetSocketAddress address;
+    private final int               timeout;
+    private final LocalCacheBackend nearCache;
+    private final AtomicLong        invalidations   = new AtomicLong();
+    private final Queue<Connection> idleConnections = new ConcurrentLinkedQueue<>();
+
+    private final Thread            subscriptionThread;
+    private volatile Socket         subscriptionSocket;
+    private volatile boolean        subscribed;
+    private volatile boolean        closed;
+
+    /**
+     * Creates a new remote cache backend which connects to the {@link CacheDaemon} at the given address.
+     * Connections are established lazily, so the daemon doesn't need to be available yet.
+     *
+     * @param host The host the cache daemon runs on.
+     * @param port The port the cache daemon listens on.
+     * @param timeout The connect and read timeout in milliseconds.
+     * @param nearCacheSize The maximum amount of entries which are kept in the near cache; {@code 0} disables the near cache.
+     */
+    public RemoteCacheBackend(String host, int port, int timeout, int nearCacheSize) {
+
+        address = new InetSocketAddress(host, port);
+        this.timeout = timeout;
+
+        if (nearCacheSize > 0) {
+            nearCache = new LocalCacheBackend(nearCacheSize);
+            subscriptionThread = new Thread(new Runnable() {
+
+                @Override
+                public void run() {
+
+                    subscribe();
+                }
+
+            }, "FemtoWeb cache invalidation subscriber");
+            subscriptionThread.setDaemon(true);
+            subscriptionThread.start();
+        } else {
+            nearCache = null;
+            subscriptionThread = null;
+        }
+    }
+
+    /**
+     * Returns whether this backend currently receives the invalidation broadcasts of the daemon and therefore uses its near cache.
+     *
+     * @return Whether the near cache is active.
+     */
+    public boolean isSubscribed() {
+
+        return subscribed;
+    }
+
+    @Override
+    public byte[] get(String key) throws IOException {
+
+        if (subscribed) {
+            byte[] value = nearCache.get(key);
+            if (value != null) {
+                return value;
+            }
+        }
+
+        long invalidationsBefore = invalidations.get();
+        boolean cacheable = subscribed;
+
+        Connection connection = borrowConnection();
+        boolean success = false;
+        byte[] value = null;
+        long remainingTtl = 0;
+        try {
+            connection.output.writeByte(CacheProtocol.GET);
+            CacheProtocol.writeString(connection.output, key);
+            connection.output.flush();
+
+            if (connection.input.readByte() == CacheProtocol.HIT) {
+                remainingTtl = connection.input.readLong();
+                value = CacheProtocol.readBytes(connection.input);
+            }
+            success = true;
+        } finally {
+            releaseConnection(connection, success);
+        }
+
+        // Only keep the value if no invalidation arrived in the meantime; otherwise, it might already be stale
+        if (value != null && cacheable) {
+            nearCache.put(key, value, remainingTtl);
+            if (invalidations.get() != invalidationsBefore) {
+                nearCache.invalidate(key);
+            }
+        }
+
+        return value;
+    }
+
+    @Override
+    public void put(String key, byte[] value, long ttl) throws IOException {
+
+        Connection connection = borrowConnection();
+        boolean success = false;
+        try {
+            connection.output.writeByte(CacheProtocol.PUT);
+            CacheProtocol.writeString(connection.output, key);
+            connection.output.writeLong(ttl);
+            CacheProtocol.writeBytes(connection.output, value);
+            connection.output.flush();
+
+            expectOk(connection);
+            success = true;
+        } finally {
+            releaseConnection(connection, success);
+        }
+    }
+
+    @Override
+    public void invalidate(String key) throws IOException {
+
+        sendInvalidation(CacheProtocol.INVALIDATE, key);
+        if (nearCache != null) {
+            nearCache.invalidate(key);
+        }
+    }
+
+    @Override
+    public void invalidatePrefix(String prefix) throws IOException {
+
+        sendInvalidation(CacheProtocol.INVALIDATE_PREFIX, prefix);
+        if (nearCache != null) {
+            nearCache.invalidatePrefix(prefix);
+        }
+    }
+
+    private void sendInvalidation(byte operation, String key) throws IOException {
+
+        Connection connection = borrowConnection();
+        boolean success = false;
+        try {
+            connection.output.writeByte(operation);
+            CacheProtocol.writeString(connection.output, key);
+            connection.output.flush();
+
+            expectOk(connection);
+            success = true;
+        } finally {
+            releaseConnection(connection, success);
+        }
+    }
+
+    private void expectOk(Connection connection) throws IOException {
+
+        byte status = connection.input.readByte();
+        if (status != CacheProtocol.OK) {
+            throw new IOException("Cache daemon responded with unexpected status " + status);
+        }
+    }
+
+    private Connection borrowConnection() throws IOException {
+
+        if (closed) {
+            throw new IOException("Remote cache backend has been closed");
+        }
+
+        Connection connection = idleConnections.poll();
+        return connection != null ? connection : new Connection(connect());
+    }
+
+    private void releaseConnection(Connection connection, boolean reusable) {
+
+        if (reusable && !closed) {
+            idleConnections.offer(connection);
+        } else {
+            closeQuietly(connection.socket);
+        }
+    }
+
+    private Socket connect() throws IOException {
+
+        Socket socket = new Socket();
+        try {
+            socket.connect(address, timeout);
+            socket.setSoTimeout(timeout);
+            socket.setTcpNoDelay(true);
+            return socket;
+        } catch (IOException e) {
+            closeQuietly(socket);
+            throw e;
+        }
+    }
+
+    private void subscribe() {
+
+        while (!closed) {
+            try {
+                Socket socket = connect();
+                subscriptionSocket = socket;
+                socket.setSoTimeout(0);
+
+                DataInputStream input = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+                DataOutputStream output = new DataOutputStream(socket.getOutputStream());
+                output.writeByte(CacheProtocol.SUBSCRIBE);
+                output.flush();
+                if (input.readByte() != CacheProtocol.OK) {
+                    throw new IOException("Cache daemon rejected subscription");
+                }
+
+                // Entries might have been modified while the subscription was down
+                nearCache.clear();
+                subscribed = true;
+
+                while (true) {
+                    byte operation = input.readByte();
+                    String key = CacheProtocol.readString(input);
+
+                    // Count the invalidation before applying it, so that concurrent reads can detect that their value might be stale
+                    invalidations.incrementAndGet();
+                    if (operation == CacheProtocol.INVALIDATE_PREFIX) {
+                        nearCache.invalidatePrefix(key);
+                    } else {
+                        nearCache.invalidate(key);
+                    }
+                }
+            } catch (IOException e) {
+                subscribed = false;
+                invalidations.incrementAndGet();
+                nearCache.clear();
+                closeQuietly(subscriptionSocket);
+
+                if (!closed) {
+                    LOGGER.warn("Lost cache invalidation subscription to {}; near cache is bypassed until it is restored", address, e);
+                    try {
+                        Thread.sleep(RECONNECT_DELAY);
+                    } catch (InterruptedException ie) {
+                        return;
+                    }
+                }
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+
+        closed = true;
+        subscribed = false;
+
+        if (subscriptionThread != null) {
+            subscriptionThread.interrupt();
+            closeQuietly(subscriptionSocket);
+        }
+
+        Connection connection;
+        while ( (connection = idleConnections.poll()) != null) {
+            closeQuietly(connection.socket);
+        }
+
+        if (nearCache != null) {
+            nearCache.close();
+        }
+    }
+
+    private static void closeQuietly(Socket socket) {
+
+        if (socket != null) {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                LOGGER.debug("Cannot close cache connection", e);
+            }
+        }
+    }
+
+    private static class Connection {
+
+        private final Socket           socket;
+        private final DataInputStream  input;
+        private final DataOutputStream output;
+
+        private Connection(Socket socket) throws IOException {
+
+            this.socket = socket;
+            input = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            output = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        }
+
+    }
+
+}
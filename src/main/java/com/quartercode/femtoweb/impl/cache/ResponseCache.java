@@ -0,0 +1,146 @@
+/*
+ * This file is part of FemtoWeb.
+ * Copyright (c) 2015 QuarterCode <http://quartercode.com/>
+ *
+ * FemtoWeb is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * FemtoWeb is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with FemtoWeb. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.femtoweb.impl.cache;
+
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import com.quartercode.femtoweb.api.Action;
+import com.quartercode.femtoweb.api.CacheBackend;
+import com.quartercode.femtoweb.api.CacheResponse;
+import com.quartercode.femtoweb.impl.coalescing.RequestCoalescer.Execution;
+import com.quartercode.femtoweb.impl.response.CapturedResponse;
+import com.quartercode.femtoweb.impl.response.CapturingResponseWrapper;
+import com.quartercode.femtoweb.impl.response.RequestKeys;
+
+/**
+ * The response cache stores the responses of {@link CacheResponse cached} {@link Action}s in a {@link CacheBackend} and replays them to identical {@code GET} requests.
+ * On a miss, the action is executed into a {@link CapturingResponseWrapper} and the captured response is stored if it is cacheable
+ * (status {@code 200} and no cookies).
+ * Any failure of the backend is treated like a miss, so that an unreachable cache never breaks requests.
+ */
+public class ResponseCache {
+
+    private static final Logger                                         LOGGER     = LoggerFactory.getLogger(ResponseCache.class);
+
+    private static final CacheResponse                                  NOT_CACHED = NotCached.class.getAnnotation(CacheResponse.class);
+
+    private final CacheBackend                                          backend;
+    private final ConcurrentMap<Class<? extends Action>, CacheResponse> settings   = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a new response cache.
+     *
+     * @param backend The cache backend the responses are stored in.
+     */
+    public ResponseCache(CacheBackend backend) {
+
+        this.backend = backend;
+    }
+
+    /**
+     * Returns the {@link CacheResponse} settings of the given {@link Action} class if the response to the given request should be cached.
+     * Responses are only cached if the request uses the {@code GET} method and the action class carries the annotation.
+     *
+     * @param request The request whose response might be cached.
+     * @param actionClass The action class which is responsible for the request.
+     * @return The caching settings, or {@code null} if the response should not be cached.
+     */
+    public CacheResponse getSettings(HttpServletRequest request, Class<? extends Action> actionClass) {
+
+        if (!"GET".equals(request.getMethod())) {
+            return null;
+        }
+
+        CacheResponse cacheResponse = settings.get(actionClass);
+        if (cacheResponse == null) {
+            prepare(actionClass);
+            cacheResponse = settings.get(actionClass);
+        }
+
+        return cacheResponse == NOT_CACHED ? null : cacheResponse;
+    }
+
+    /**
+     * Reads and caches the {@link CacheResponse} settings of the given {@link Action} class, so that the first request to the action doesn't need to do it.
+     *
+     * @param actionClass The action class whose caching settings should be cached.
+     */
+    public void prepare(Class<? extends Action> actionClass) {
+
+        CacheResponse cacheResponse = actionClass.getAnnotation(CacheResponse.class);
+        settings.putIfAbsent(actionClass, cacheResponse == null ? NOT_CACHED : cacheResponse);
+    }
+
+    /**
+     * Replays the cached response for the given request, or executes the given execution and caches its response.
+     *
+     * @param request The request which should be fulfilled.
+     * @param response The response the result should be sent to.
+     * @param actionClass The action class which is responsible for the request.
+     * @param cacheResponse The {@link #getSettings(HttpServletRequest, Class) caching settings} of the action class.
+     * @param execution The execution which actually executes the action for the request.
+     * @throws IOException If an IO error occurs during the execution or the replay.
+     * @throws ServletException If any other error occurs during the execution.
+     */
+    public void execute(HttpServletRequest request, HttpServletResponse response, Class<? extends Action> actionClass, CacheResponse cacheResponse, Execution execution)
+            throws IOException, ServletException {
+
+        // The prefix allows to invalidate all responses of the action at once
+        String key = RequestKeys.build(CacheResponse.KEY_PREFIX + actionClass.getName() + '\0', request, cacheResponse.params());
+
+        byte[] cached = null;
+        try {
+            cached = backend.get(key);
+        } catch (IOException e) {
+            LOGGER.warn("Cannot read cached response for request key '{}'; executing the action", key, e);
+        }
+
+        if (cached != null) {
+            LOGGER.trace("Replaying cached response for request key '{}'", key);
+            CapturedResponse.fromBytes(cached).replay(response);
+            return;
+        }
+
+        CapturingResponseWrapper capturingResponse = new CapturingResponseWrapper(response);
+        execution.execute(capturingResponse);
+        CapturedResponse result = capturingResponse.toCapturedResponse();
+
+        if (result.getStatus() == HttpServletResponse.SC_OK && !result.isCookiesSet()) {
+            try {
+                backend.put(key, result.toBytes(), cacheResponse.ttl());
+            } catch (IOException e) {
+                LOGGER.warn("Cannot store response for request key '{}' in cache", key, e);
+            }
+        }
+
+        result.replay(response);
+    }
+
+    @CacheResponse
+    private static class NotCached {
+
+    }
+
+}
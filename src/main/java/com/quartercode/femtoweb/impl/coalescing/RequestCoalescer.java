@@ -0,0 +1,195 @@
+/*
+ * This file is part of FemtoWeb.
+ * Copyright (c) 2015 QuarterCode <http://quartercode.com/>
+ *
+ * FemtoWeb is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * FemtoWeb is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with FemtoWeb. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.femtoweb.impl.coalescing;
+
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import com.quartercode.femtoweb.api.Action;
+import com.quartercode.femtoweb.api.Coalesce;
+import com.quartercode.femtoweb.api.Deadline;
+import com.quartercode.femtoweb.impl.response.CapturedResponse;
+import com.quartercode.femtoweb.impl.response.CapturingResponseWrapper;
+import com.quartercode.femtoweb.impl.response.RequestKeys;
+
+/**
+ * The request coalescer makes sure that only one of several identical concurrent {@code GET} requests to a {@link Coalesce coalesced} {@link Action} is executed.
+ * The first request (the leader) executes the action into a {@link CapturingResponseWrapper}.
+ * All identical requests which arrive while the leader is still in flight (the followers) wait for it and then receive a replay of the captured response.
+ * If the leader fails, takes too long, or produces a user-specific response (one that sets cookies), the followers execute the action themselves.
+ * However, followers never wait beyond the {@link Deadline} of their request.
+ * If the deadline passes before a response can be replayed, the follower is ended with HTTP 503 instead of executing the action for nobody.
+ */
+public class RequestCoalescer {
+
+    private static final Logger                                    LOGGER        = LoggerFactory.getLogger(RequestCoalescer.class);
+
+    private static final Coalesce                                  NOT_COALESCED = NotCoalesced.class.getAnnotation(Coalesce.class);
+
+    private final ConcurrentMap<Class<? extends Action>, Coalesce> settings      = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Flight>                    flights       = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the {@link Coalesce} settings of the given {@link Action} class if requests to it should be coalesced.
+     * Requests are only coalesced if they use the {@code GET} method and the action class carries the annotation.
+     *
+     * @param request The request which might be coalesced.
+     * @param actionClass The action class which is responsible for the request.
+     * @return The coalescing settings, or {@code null} if the request should not be coalesced.
+     */
+    public Coalesce getSettings(HttpServletRequest request, Class<? extends Action> actionClass) {
+
+        if (!"GET".equals(request.getMethod())) {
+            return null;
+        }
+
+        Coalesce coalesce = settings.get(actionClass);
+        if (coalesce == null) {
+            prepare(actionClass);
+            coalesce = settings.get(actionClass);
+        }
+
+        return coalesce == NOT_COALESCED ? null : coalesce;
+    }
+
+    /**
+     * Reads and caches the {@link Coalesce} settings of the given {@link Action} class, so that the first request to the action doesn't need to do it.
+     *
+     * @param actionClass The action class whose coalescing settings should be cached.
+     */
+    public void prepare(Class<? extends Action> actionClass) {
+
+        Coalesce coalesce = actionClass.getAnnotation(Coalesce.class);
+        settings.putIfAbsent(actionClass, coalesce == null ? NOT_COALESCED : coalesce);
+    }
+
+    /**
+     * Executes the given execution for the given request, or waits for an identical in-flight execution and replays its response.
+     *
+     * @param request The request which should be fulfilled.
+     * @param response The response the result should be sent to.
+     * @param actionClass The action class which is responsible for the request.
+     * @param coalesce The {@link #getSettings(HttpServletRequest, Class) coalescing settings} of the action class.
+     * @param execution The execution which actually executes the action for the request.
+     * @throws IOException If an IO error occurs during the execution or the replay.
+     * @throws ServletException If any other error occurs during the execution.
+     */
+    public void execute(HttpServletRequest request, HttpServletResponse response, Class<? extends Action> actionClass, Coalesce coalesce, Execution execution)
+            throws IOException, ServletException {
+
+        String key = RequestKeys.build(actionClass.getName(), request, coalesce.params());
+
+        Flight flight = new Flight();
+        Flight inFlight = flights.putIfAbsent(key, flight);
+
+        if (inFlight == null) {
+            // This request is the leader
+            CapturedResponse result = null;
+            try {
+                CapturingResponseWrapper capturingResponse = new CapturingResponseWrapper(response);
+                execution.execute(capturingResponse);
+                result = capturingResponse.toCapturedResponse();
+            } finally {
+                flights.remove(key, flight);
+                flight.complete(result);
+            }
+
+            result.replay(response);
+        } else {
+            // This request is a follower
+            // Wait in nanoseconds, so that the wait doesn't end just short of the deadline
+            Deadline deadline = Deadline.get(request);
+            long timeout = TimeUnit.MILLISECONDS.toNanos(coalesce.timeout());
+            CapturedResponse result = inFlight.await(deadline == null ? timeout : Math.min(timeout, deadline.getRemainingNanos()));
+
+            if (result != null && !result.isCookiesSet()) {
+                LOGGER.trace("Replaying coalesced response for request key '{}'", key);
+                result.replay(response);
+            } else if (deadline != null && deadline.isExpired()) {
+                LOGGER.debug("Deadline of follower passed while waiting for coalesced execution for request key '{}'", key);
+                response.sendError(503);
+            } else {
+                LOGGER.debug("Coalesced execution for request key '{}' cannot be replayed; executing it again", key);
+                execution.execute(response);
+            }
+        }
+    }
+
+    /**
+     * Returns the amount of executions which are currently in flight.
+     *
+     * @return The in-flight execution count.
+     */
+    public int getInFlightCount() {
+
+        return flights.size();
+    }
+
+    /**
+     * An execution actually executes the {@link Action} (and all following actions) for a request.
+     */
+    public static interface Execution {
+
+        /**
+         * Executes the action for the request and sends the result to the given response.
+         *
+         * @param response The response the result should be sent to. It might be a capturing wrapper.
+         * @throws IOException If an IO error occurs.
+         * @throws ServletException If any other error occurs.
+         */
+        public void execute(HttpServletResponse response) throws IOException, ServletException;
+
+    }
+
+    private static class Flight {
+
+        private final CountDownLatch      done = new CountDownLatch(1);
+        private volatile CapturedResponse result;
+
+        private void complete(CapturedResponse result) {
+
+            this.result = result;
+            done.countDown();
+        }
+
+        private CapturedResponse await(long timeout) {
+
+            try {
+                return done.await(timeout, TimeUnit.NANOSECONDS) ? result : null;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+        }
+
+    }
+
+    @Coalesce
+    private static class NotCoalesced {
+
+    }
+
+}
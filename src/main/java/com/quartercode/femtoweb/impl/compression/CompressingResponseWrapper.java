@@ -0,0 +1,422 @@
+/*
+ * This file is part of FemtoWeb.
+ * Copyright (c) 2015 QuarterCode <http://quartercode.com/>
+ *
+ * FemtoWeb is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * FemtoWeb is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with FemtoWeb. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.femtoweb.impl.compression;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+
+/**
+ * A response wrapper which compresses the response body with a negotiated content encoding if the body is large enough and has a compressible content type.
+ * The first {@link ResponseCompressor#getMinSize() minimum size} bytes of the body are buffered.
+ * As soon as the body exceeds that size, the wrapper decides whether it compresses the body, and from then on streams all data to the wrapped response.
+ * If the body never exceeds the minimum size, it is sent uncompressed with an exact {@code Content-Length} once the wrapper is {@link #finish() finished}.<br>
+ * <br>
+ * The {@link Deflater} used for compression is borrowed from a {@link DeflaterPool} and returned as soon as the body is complete.
+ * Therefore, either {@link #finish()} or, if an exception occurred, {@link #discard()} must always be called after the request has been processed.
+ *
+ * @see ResponseCompressor
+ */
+public class CompressingResponseWrapper extends HttpServletResponseWrapper {
+
+    private static final int            STREAM_BUFFER_SIZE = 8192;
+
+    private final ResponseCompressor    compressor;
+    private final String                encoding;
+    private final ByteArrayOutputStream buffer;
+
+    private ServletOutputStream         outputStream;
+    private PrintWriter                 writer;
+
+    // Null while the first bytes are still buffered; afterwards either the compressing stream or the wrapped response's stream
+    private OutputStream                target;
+    private DeflaterOutputStream        compressingStream;
+    private Deflater                    deflater;
+
+    private long                        contentLength      = -1;
+    private boolean                     bypassed;
+    private boolean                     finished;
+    private boolean                     discarding;
+
+    // The headers this wrapper has set itself; they survive a buffer reset, but not a full reset
+    private boolean                     encodingSet;
+    private boolean                     varySet;
+
+    CompressingResponseWrapper(HttpServletResponse response, ResponseCompressor compressor, String encoding) {
+
+        super(response);
+
+        this.compressor = compressor;
+        this.encoding = encoding;
+        buffer = new ByteArrayOutputStream(Math.min(compressor.getMinSize(), STREAM_BUFFER_SIZE) + 1);
+    }
+
+    /**
+     * Returns whether the response body is actually being compressed.
+     * Before the body exceeded the minimum size, this method always returns {@code false}.
+     *
+     * @return Whether the body is compressed.
+     */
+    public boolean isCompressing() {
+
+        return compressingStream != null;
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() throws IOException {
+
+        if (writer != null) {
+            throw new IllegalStateException("getWriter() has already been called on this response");
+        }
+
+        if (outputStream == null) {
+            outputStream = new CompressingOutputStream();
+        }
+        return outputStream;
+    }
+
+    @Override
+    public PrintWriter getWriter() throws IOException {
+
+        if (writer == null) {
+            if (outputStream != null) {
+                throw new IllegalStateException("getOutputStream() has already been called on this response");
+            }
+
+            outputStream = new CompressingOutputStream();
+            writer = new PrintWriter(new OutputStreamWriter(outputStream, getCharacterEncoding()));
+        }
+        return writer;
+    }
+
+    // ----- Content length -----
+
+    @Override
+    public void setContentLength(int len) {
+
+        setContentLengthLong(len);
+    }
+
+    @Override
+    public void setContentLengthLong(long len) {
+
+        // The length of a compressed body is unknown in advance; therefore, the length is only passed on if the body is sent uncompressed
+        contentLength = len;
+        if (target != null && !isCompressing()) {
+            super.setContentLengthLong(len);
+        }
+    }
+
+    @Override
+    public void setHeader(String name, String value) {
+
+        if ("Content-Length".equalsIgnoreCase(name)) {
+            setContentLengthLong(Long.parseLong(value));
+        } else {
+            super.setHeader(name, value);
+        }
+    }
+
+    @Override
+    public void addHeader(String name, String value) {
+
+        if ("Content-Length".equalsIgnoreCase(name)) {
+            setContentLengthLong(Long.parseLong(value));
+        } else {
+            super.addHeader(name, value);
+        }
+    }
+
+    @Override
+    public void setIntHeader(String name, int value) {
+
+        if ("Content-Length".equalsIgnoreCase(name)) {
+            setContentLengthLong(value);
+        } else {
+            super.setIntHeader(name, value);
+        }
+    }
+
+    @Override
+    public void addIntHeader(String name, int value) {
+
+        if ("Content-Length".equalsIgnoreCase(name)) {
+            setContentLengthLong(value);
+        } else {
+            super.addIntHeader(name, value);
+        }
+    }
+
+    // ----- Buffer management -----
+
+    @Override
+    public void flushBuffer() throws IOException {
+
+        if (writer != null) {
+            writer.flush();
+        }
+
+        // While the first bytes are still buffered, flushing is deferred since the compression decision hasn't been made yet
+        if (target != null) {
+            target.flush();
+            super.flushBuffer();
+        }
+    }
+
+    @Override
+    public void resetBuffer() {
+
+        // Drop the body first, so that nothing of it reaches the wrapped buffer after that buffer has been reset
+        discardBody();
+        super.resetBuffer();
+    }
+
+    @Override
+    public void reset() {
+
+        discardBody();
+        super.reset();
+
+        // The wrapped response has lost all headers, including the ones this wrapper set
+        contentLength = -1;
+        encodingSet = false;
+        varySet = false;
+    }
+
+    private void discardBody() {
+
+        // Drop any chars which are still buffered by the writer as well
+        if (writer != null) {
+            discarding = true;
+            try {
+                writer.flush();
+            } finally {
+                discarding = false;
+            }
+        }
+
+        buffer.reset();
+        target = null;
+        compressingStream = null;
+        releaseDeflater();
+    }
+
+    @Override
+    public void sendError(int sc) throws IOException {
+
+        bypass();
+        super.sendError(sc);
+    }
+
+    @Override
+    public void sendError(int sc, String msg) throws IOException {
+
+        bypass();
+        super.sendError(sc, msg);
+    }
+
+    @Override
+    public void sendRedirect(String location) throws IOException {
+
+        bypass();
+        super.sendRedirect(location);
+    }
+
+    private void bypass() {
+
+        bypassed = true;
+        buffer.reset();
+        releaseDeflater();
+    }
+
+    // ----- Body processing -----
+
+    private void write(byte[] b, int off, int len) throws IOException {
+
+        if (bypassed || finished || discarding) {
+            return;
+        }
+
+        if (target == null) {
+            if (buffer.size() + len <= compressor.getMinSize()) {
+                buffer.write(b, off, len);
+                return;
+            }
+            startBody();
+        }
+
+        target.write(b, off, len);
+    }
+
+    private void startBody() throws IOException {
+
+        String contentType = getContentType();
+        boolean compressibleType = compressor.isCompressible(contentType);
+
+        // Caches must store compressed and uncompressed variants separately
+        if (compressibleType && !varySet) {
+            super.addHeader("Vary", "Accept-Encoding");
+            varySet = true;
+        }
+
+        // Once this wrapper has announced its encoding, every new body after a buffer reset must be compressed as well, since the header cannot be removed
+        if (encodingSet || compressibleType && !containsHeader("Content-Encoding")) {
+            if (!encodingSet) {
+                super.setHeader("Content-Encoding", encoding);
+                encodingSet = true;
+            }
+
+            deflater = compressor.getPool(encoding).borrow();
+            OutputStream out = super.getOutputStream();
+            if (ResponseCompressor.GZIP.equals(encoding)) {
+                compressingStream = new PooledGzipOutputStream(out, deflater, STREAM_BUFFER_SIZE);
+            } else {
+                compressingStream = new DeflaterOutputStream(out, deflater, STREAM_BUFFER_SIZE);
+            }
+            target = compressingStream;
+        } else {
+            if (contentLength >= 0) {
+                super.setContentLengthLong(contentLength);
+            }
+            target = super.getOutputStream();
+        }
+
+        buffer.writeTo(target);
+        buffer.reset();
+    }
+
+    /**
+     * Completes the response body and returns the borrowed {@link Deflater} to its pool.
+     * If the body never exceeded the minimum size, it is written uncompressed with an exact {@code Content-Length}.
+     * If the body is compressed, the remaining compressed data and any trailer are written.
+     * Calling this method more than once has no effect.
+     *
+     * @throws IOException If the remaining body cannot be written to the wrapped response.
+     */
+    public void finish() throws IOException {
+
+        if (finished) {
+            return;
+        }
+
+        if (writer != null) {
+            writer.flush();
+        }
+        finished = true;
+
+        try {
+            if (bypassed || outputStream == null) {
+                return;
+            }
+
+            if (target == null && encodingSet) {
+                // A body which restarted after a buffer reset must be compressed, even if it is small
+                startBody();
+                compressingStream.finish();
+            } else if (target == null) {
+                super.setContentLength(buffer.size());
+                if (buffer.size() != 0) {
+                    buffer.writeTo(super.getOutputStream());
+                }
+            } else if (compressingStream != null) {
+                compressingStream.finish();
+            }
+        } finally {
+            releaseDeflater();
+        }
+    }
+
+    /**
+     * Drops any buffered body and returns the borrowed {@link Deflater} to its pool, without writing anything to the wrapped response.
+     * This method must be called instead of {@link #finish()} if the request processing failed, so that the wrapped response stays uncommitted
+     * (unless parts of the body have already been streamed) and the container can still send an error page.
+     * Calling this method after the wrapper has been finished or discarded has no effect.
+     */
+    public void discard() {
+
+        if (finished) {
+            return;
+        }
+
+        discardBody();
+        finished = true;
+    }
+
+    private void releaseDeflater() {
+
+        if (deflater != null) {
+            compressor.getPool(encoding).release(deflater);
+            deflater = null;
+        }
+    }
+
+    private class CompressingOutputStream extends ServletOutputStream {
+
+        @Override
+        public void write(int b) throws IOException {
+
+            CompressingResponseWrapper.this.write(new byte[] { (byte) b }, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+
+            CompressingResponseWrapper.this.write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+
+            // Flushing the discarded chars out of the writer must not commit the wrapped response
+            if (target != null && !finished && !discarding) {
+                target.flush();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+
+            // Some containers close the response after a forward; the body is complete at that point
+            finish();
+            CompressingResponseWrapper.super.getOutputStream().close();
+        }
+
+        @Override
+        public boolean isReady() {
+
+            return true;
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+
+            throw new UnsupportedOperationException("Non-blocking IO is not supported by compressed responses");
+        }
+
+    }
+
+}
@@ -0,0 +1,115 @@
+/*
+ * This file is part of FemtoWeb.
+ * Copyright (c) 2015 QuarterCode <http://quartercode.com/>
+ *
+ * FemtoWeb is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * FemtoWeb is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with FemtoWeb. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.femtoweb.impl.compression;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.Deflater;
+import org.apache.commons.lang3.Validate;
+
+/**
+ * A bounded pool of {@link Deflater} instances which all use the same compression level and wrapping mode.
+ * Each deflater holds native zlib state, which is only freed when {@link Deflater#end()} is called or the deflater is finalized.
+ * By reusing deflaters across requests, that native memory is allocated once instead of on every compressed response.<br>
+ * <br>
+ * If the pool is empty when a deflater is {@link #borrow() borrowed}, a new one is created.
+ * If the pool is full when a deflater is {@link #release(Deflater) released}, that deflater is {@link Deflater#end() ended} immediately.
+ * That way, the amount of idle native memory is bounded by the pool size.
+ */
+public class DeflaterPool {
+
+    private final int                     level;
+    private final boolean                 nowrap;
+    private final BlockingQueue<Deflater> idle;
+
+    private volatile boolean              closed;
+
+    /**
+     * Creates a new deflater pool.
+     *
+     * @param level The compression level all pooled deflaters use (0-9 or {@link Deflater#DEFAULT_COMPRESSION}).
+     * @param nowrap Whether the pooled deflaters omit the zlib header and checksum.
+     *        This must be {@code true} for producing GZIP data and {@code false} for producing HTTP {@code deflate} (zlib) data.
+     * @param maxIdle The maximum amount of idle deflaters that are kept in the pool.
+     */
+    public DeflaterPool(int level, boolean nowrap, int maxIdle) {
+
+        Validate.isTrue(level == Deflater.DEFAULT_COMPRESSION || level >= 0 && level <= 9, "Invalid deflater compression level %d", level);
+        Validate.isTrue(maxIdle > 0, "Deflater pool size must be positive");
+
+        this.level = level;
+        this.nowrap = nowrap;
+        idle = new ArrayBlockingQueue<>(maxIdle);
+    }
+
+    /**
+     * Returns an idle deflater from the pool, or creates a new one if the pool is empty.
+     * The returned deflater must be {@link #release(Deflater) released} after use, even if an exception occurred.
+     *
+     * @return A deflater which is ready to be used.
+     */
+    public Deflater borrow() {
+
+        Deflater deflater = idle.poll();
+        return deflater != null ? deflater : new Deflater(level, nowrap);
+    }
+
+    /**
+     * Resets the given deflater and puts it back into the pool.
+     * If the pool is already full or {@link #close() closed}, the deflater is ended instead.
+     *
+     * @param deflater The deflater which has previously been {@link #borrow() borrowed} from this pool.
+     */
+    public void release(Deflater deflater) {
+
+        if (closed) {
+            deflater.end();
+            return;
+        }
+
+        deflater.reset();
+        if (!idle.offer(deflater)) {
+            deflater.end();
+        }
+    }
+
+    /**
+     * Returns the amount of deflaters which are currently idle in the pool.
+     *
+     * @return The idle deflater count.
+     */
+    public int getIdleCount() {
+
+        return idle.size();
+    }
+
+    /**
+     * Ends all idle deflaters and makes sure that all deflaters which are released in the future are ended as well.
+     */
+    public void close() {
+
+        closed = true;
+
+        Deflater deflater;
+        while ( (deflater = idle.poll()) != null) {
+            deflater.end();
+        }
+    }
+
+}
@@ -0,0 +1,76 @@
+/*
+ * This file is part of FemtoWeb.
+ * Copyright (c) 2015 QuarterCode <http://quartercode.com/>
+ *
+ * FemtoWeb is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * FemtoWeb is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with FemtoWeb. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.femtoweb.impl.compression;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A {@link DeflaterOutputStream} which writes the GZIP format using a provided {@link Deflater}.
+ * In contrast to the {@link GZIPOutputStream}, which always creates its own deflater, this stream is able to use deflaters from a {@link DeflaterPool}.
+ * Note that the provided deflater must have been created with {@code nowrap = true}.
+ * Also note that {@link #finish()} must be called in order to write the GZIP trailer.
+ */
+class PooledGzipOutputStream extends DeflaterOutputStream {
+
+    private static final byte[] HEADER = { 0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff };
+
+    private final CRC32         crc    = new CRC32();
+
+    PooledGzipOutputStream(OutputStream out, Deflater deflater, int bufferSize) throws IOException {
+
+        super(out, deflater, bufferSize);
+
+        out.write(HEADER);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+
+        super.write(b, off, len);
+        crc.update(b, off, len);
+    }
+
+    @Override
+    public void finish() throws IOException {
+
+        if (!def.finished()) {
+            super.finish();
+
+            byte[] trailer = new byte[8];
+            writeInt((int) crc.getValue(), trailer, 0);
+            writeInt(def.getTotalIn(), trailer, 4);
+            out.write(trailer);
+        }
+    }
+
+    private static void writeInt(int value, byte[] buffer, int offset) {
+
+        // GZIP uses little endian byte order
+        buffer[offset] = (byte) value;
+        buffer[offset + 1] = (byte) (value >> 8);
+        buffer[offset + 2] = (byte) (value >> 16);
+        buffer[offset + 3] = (byte) (value >> 24);
+    }
+
+}
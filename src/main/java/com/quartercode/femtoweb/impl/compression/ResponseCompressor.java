@@ -0,0 +1,195 @@
+/*
+ * This file is part of FemtoWeb.
+ * Copyright (c) 2015 QuarterCode <http://quartercode.com/>
+ *
+ * FemtoWeb is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * FemtoWeb is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with FemtoWeb. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.femtoweb.impl.compression;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.Validate;
+
+/**
+ * The response compressor negotiates a content encoding with the client and wraps responses into {@link CompressingResponseWrapper}s.
+ * It also holds one {@link DeflaterPool} per supported encoding, so that all compressed responses share the same bounded set of native zlib states.<br>
+ * <br>
+ * Compression is only applied to responses whose content type is {@link #isCompressible(String) allowed} and whose body is larger than the set minimum size.
+ * Smaller responses would barely shrink, while still paying for the compression and the additional headers.
+ */
+public class ResponseCompressor {
+
+    static final String        GZIP    = "gzip";
+    static final String        DEFLATE = "deflate";
+
+    private final int          minSize;
+    private final List<String> mimeTypes;
+
+    private final DeflaterPool gzipPool;
+    private final DeflaterPool deflatePool;
+
+    /**
+     * Creates a new response compressor.
+     *
+     * @param minSize The minimum amount of bytes a response body must have in order to be compressed.
+     *        Up to that amount of bytes is buffered for each response before the decision is made.
+     * @param mimeTypes The content types which may be compressed (e.g. {@code text/html}).
+     *        Wildcard subtypes like {@code text/*} are allowed.
+     * @param level The compression level all deflaters use (0-9 or {@link java.util.zip.Deflater#DEFAULT_COMPRESSION}).
+     * @param poolSize The maximum amount of idle deflaters which are kept per encoding.
+     */
+    public ResponseCompressor(int minSize, Collection<String> mimeTypes, int level, int poolSize) {
+
+        Validate.isTrue(minSize >= 0, "Minimum compression size cannot be negative");
+        Validate.noNullElements(mimeTypes, "Compressible mime types cannot contain null");
+
+        this.minSize = minSize;
+        this.mimeTypes = new ArrayList<>();
+        for (String mimeType : mimeTypes) {
+            this.mimeTypes.add(mimeType.trim().toLowerCase());
+        }
+
+        gzipPool = new DeflaterPool(level, true, poolSize);
+        deflatePool = new DeflaterPool(level, false, poolSize);
+    }
+
+    /**
+     * Wraps the given response into a {@link CompressingResponseWrapper} if the given request accepts a supported content encoding.
+     * If the client doesn't accept any of the supported encodings, {@code null} is returned.
+     * The returned wrapper must be {@link CompressingResponseWrapper#finish() finished} after the request has been processed.
+     *
+     * @param request The request whose {@code Accept-Encoding} header is used for negotiating the content encoding.
+     * @param response The response which should be wrapped.
+     * @return The compressing wrapper, or {@code null} if the response cannot be compressed for the client.
+     */
+    public CompressingResponseWrapper wrap(HttpServletRequest request, HttpServletResponse response) {
+
+        String encoding = negotiateEncoding(request.getHeader("Accept-Encoding"));
+        if (encoding == null) {
+            return null;
+        }
+
+        return new CompressingResponseWrapper(response, this, encoding);
+    }
+
+    int getMinSize() {
+
+        return minSize;
+    }
+
+    DeflaterPool getPool(String encoding) {
+
+        return GZIP.equals(encoding) ? gzipPool : deflatePool;
+    }
+
+    /**
+     * Returns whether responses with the given content type (e.g. {@code text/html; charset=UTF-8}) may be compressed.
+     *
+     * @param contentType The full content type of a response. Any parameters (e.g. the charset) are ignored.
+     * @return Whether the content type is compressible.
+     */
+    public boolean isCompressible(String contentType) {
+
+        if (contentType == null) {
+            return false;
+        }
+
+        String mimeType = StringUtils.substringBefore(contentType, ";").trim().toLowerCase();
+        for (String allowed : mimeTypes) {
+            if (allowed.equals(mimeType) || allowed.endsWith("/*") && mimeType.startsWith(allowed.substring(0, allowed.length() - 1))) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Selects the best supported content encoding from the given {@code Accept-Encoding} header value.
+     * GZIP is preferred over deflate if both have the same quality value, since some browsers wrongly expect raw deflate data for the latter.
+     * Encodings with a quality value of {@code 0} are never selected.
+     *
+     * @param acceptEncoding The value of the {@code Accept-Encoding} header. May be {@code null}.
+     * @return The selected encoding ({@code gzip} or {@code deflate}), or {@code null} if none of them is accepted.
+     */
+    public static String negotiateEncoding(String acceptEncoding) {
+
+        if (StringUtils.isBlank(acceptEncoding)) {
+            return null;
+        }
+
+        float gzipQuality = -1;
+        float deflateQuality = -1;
+        float wildcardQuality = -1;
+
+        for (String token : StringUtils.split(acceptEncoding, ',')) {
+            String coding = StringUtils.substringBefore(token, ";").trim().toLowerCase();
+            float quality = parseQuality(StringUtils.substringAfter(token, ";"));
+
+            if (coding.equals(GZIP) || coding.equals("x-gzip")) {
+                gzipQuality = Math.max(gzipQuality, quality);
+            } else if (coding.equals(DEFLATE)) {
+                deflateQuality = Math.max(deflateQuality, quality);
+            } else if (coding.equals("*")) {
+                wildcardQuality = quality;
+            }
+        }
+
+        // Encodings which are not explicitly mentioned take the quality of the wildcard
+        if (gzipQuality < 0) {
+            gzipQuality = wildcardQuality;
+        }
+        if (deflateQuality < 0) {
+            deflateQuality = wildcardQuality;
+        }
+
+        if (gzipQuality > 0 && gzipQuality >= deflateQuality) {
+            return GZIP;
+        } else if (deflateQuality > 0) {
+            return DEFLATE;
+        } else {
+            return null;
+        }
+    }
+
+    private static float parseQuality(String parameters) {
+
+        String value = StringUtils.substringAfter(StringUtils.deleteWhitespace(parameters).toLowerCase(), "q=");
+        if (value.isEmpty()) {
+            return 1;
+        }
+
+        try {
+            return Float.parseFloat(StringUtils.substringBefore(value, ";"));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Ends all pooled deflaters.
+     * This method should be called when the compressor is no longer used.
+     */
+    public void close() {
+
+        gzipPool.close();
+        deflatePool.close();
+    }
+
+}
@@ -0,0 +1,75 @@
+/*
+ * This file is part of FemtoWeb.
+ * Copyright (c) 2015 QuarterCode <http://quartercode.com/>
+ *
+ * FemtoWeb is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * FemtoWeb is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with FemtoWeb. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.femtoweb.impl.concurrency;
+
+/**
+ * A concurrency limit which adapts itself to the observed latency, based on the gradient between a long-term and a short-term latency average.
+ * While the short-term latency stays close to the long-term latency, the limit grows up to the set maximum.
+ * If the short-term latency rises (e.g. because a dependency degrades), the gradient drops below 1 and the limit shrinks accordingly.
+ * The limit never drops below 1.
+ */
+class AdaptiveLimit {
+
+    private static final double SHORT_WEIGHT = 0.1;
+    private static final double LONG_WEIGHT  = 0.002;
+    private static final double TOLERANCE    = 1.5;
+    private static final double SMOOTHING    = 0.2;
+
+    private final int           maxLimit;
+
+    private double              limit;
+    private double              shortLatency;
+    private double              longLatency;
+
+    AdaptiveLimit(int maxLimit) {
+
+        this.maxLimit = maxLimit;
+        limit = maxLimit;
+    }
+
+    /**
+     * Records the latency of one request and returns the new limit.
+     *
+     * @param latency The time the request took in nanoseconds.
+     * @return The new concurrency limit.
+     */
+    synchronized int update(long latency) {
+
+        if (longLatency == 0) {
+            shortLatency = latency;
+            longLatency = latency;
+            return (int) limit;
+        }
+
+        shortLatency += (latency - shortLatency) * SHORT_WEIGHT;
+        longLatency += (latency - longLatency) * LONG_WEIGHT;
+
+        // If the latency improved a lot, let the long-term average catch up faster so the limit can grow again
+        if (longLatency > shortLatency * 2) {
+            longLatency = longLatency * 0.95 + shortLatency * 0.05;
+        }
+
+        double gradient = Math.max(0.5, Math.min(1, TOLERANCE * longLatency / shortLatency));
+        double newLimit = limit * gradient + Math.sqrt(limit);
+        limit = Math.max(1, Math.min(maxLimit, limit * (1 - SMOOTHING) + newLimit * SMOOTHING));
+
+        return (int) limit;
+    }
+
+}
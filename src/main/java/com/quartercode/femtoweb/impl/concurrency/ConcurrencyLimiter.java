@@ -0,0 +1,188 @@
+/*
+ * This file is part of FemtoWeb.
+ * Copyright (c) 2015 QuarterCode <http://quartercode.com/>
+ *
+ * FemtoWeb is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * FemtoWeb is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with FemtoWeb. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.femtoweb.impl.concurrency;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import org.apache.commons.lang3.Validate;
+
+/**
+ * A limiter which restricts the amount of concurrent executions of one action.
+ * Acquiring a free slot is a single compare-and-set operation.
+ * Only if no slot is free, the acquiring thread is put into a small bounded queue, where it waits for a slot until a timeout elapses.
+ * If the queue is full, the acquisition fails immediately, so the request can be shed instead of occupying a container thread.<br>
+ * <br>
+ * Optionally, the limit adapts itself to the latency of the executions (see {@link AdaptiveLimit}).
+ */
+public class ConcurrencyLimiter {
+
+    private final int           maxQueued;
+    private final long          queueTimeout;
+    private final AdaptiveLimit adaptiveLimit;
+
+    private volatile int        limit;
+    private final AtomicInteger inFlight  = new AtomicInteger();
+    private final AtomicInteger queued    = new AtomicInteger();
+
+    private final ReentrantLock lock      = new ReentrantLock();
+    private final Condition     available = lock.newCondition();
+
+    /**
+     * Creates a new concurrency limiter.
+     *
+     * @param maxConcurrent The maximum amount of concurrent executions. If the limit is adaptive, this is its upper bound.
+     * @param maxQueued The maximum amount of threads which may wait for a free slot at the same time.
+     * @param queueTimeout The maximum amount of milliseconds a thread waits for a free slot.
+     * @param adaptive Whether the limit adapts itself to the observed latency.
+     */
+    public ConcurrencyLimiter(int maxConcurrent, int maxQueued, long queueTimeout, boolean adaptive) {
+
+        Validate.isTrue(maxConcurrent > 0, "Concurrency limit must be positive");
+        Validate.isTrue(maxQueued >= 0, "Concurrency queue size cannot be negative");
+        Validate.isTrue(queueTimeout >= 0, "Concurrency queue timeout cannot be negative");
+
+        this.maxQueued = maxQueued;
+        this.queueTimeout = TimeUnit.MILLISECONDS.toNanos(queueTimeout);
+        adaptiveLimit = adaptive ? new AdaptiveLimit(maxConcurrent) : null;
+        limit = maxConcurrent;
+    }
+
+    /**
+     * Returns the current concurrency limit.
+     *
+     * @return The current limit.
+     */
+    public int getLimit() {
+
+        return limit;
+    }
+
+    /**
+     * Returns the amount of executions which currently hold a slot.
+     *
+     * @return The current in-flight count.
+     */
+    public int getInFlight() {
+
+        return inFlight.get();
+    }
+
+    /**
+     * Returns the amount of threads which are currently waiting for a free slot.
+     *
+     * @return The current queue size.
+     */
+    public int getQueued() {
+
+        return queued.get();
+    }
+
+    /**
+     * Tries to acquire a slot for an execution.
+     * If no slot is free, the calling thread waits in the queue for up to the set timeout.
+     * If the queue is full, this method returns {@code false} immediately.
+     * Each successful acquisition must be followed by a {@link #release(long)} call.
+     *
+     * @return Whether a slot has been acquired.
+     * @throws InterruptedException If the thread is interrupted while waiting in the queue.
+     */
+    public boolean acquire() throws InterruptedException {
+
+        return acquire(Long.MAX_VALUE);
+    }
+
+    /**
+     * Tries to acquire a slot for an execution like {@link #acquire()}, but waits in the queue for at most the given time.
+     * The set queue timeout still applies if it is shorter.
+     *
+     * @param maxWait The maximum amount of nanoseconds the calling thread may wait in the queue, e.g. until the deadline of its request.
+     * @return Whether a slot has been acquired.
+     * @throws InterruptedException If the thread is interrupted while waiting in the queue.
+     */
+    public boolean acquire(long maxWait) throws InterruptedException {
+
+        if (tryAcquire()) {
+            return true;
+        } else if (maxQueued == 0) {
+            return false;
+        }
+
+        lock.lockInterruptibly();
+        try {
+            if (queued.get() >= maxQueued) {
+                return false;
+            }
+
+            queued.incrementAndGet();
+            try {
+                long remaining = Math.min(queueTimeout, maxWait);
+                while (!tryAcquire()) {
+                    if (remaining <= 0) {
+                        return false;
+                    }
+                    remaining = available.awaitNanos(remaining);
+                }
+                return true;
+            } finally {
+                queued.decrementAndGet();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean tryAcquire() {
+
+        while (true) {
+            int current = inFlight.get();
+            if (current >= limit) {
+                return false;
+            } else if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Releases a slot which has previously been {@link #acquire() acquired}, so that a queued thread can take it.
+     *
+     * @param latency The time the execution took in nanoseconds. It is used for adapting the limit if the limit is adaptive.
+     */
+    public void release(long latency) {
+
+        inFlight.decrementAndGet();
+
+        if (adaptiveLimit != null) {
+            limit = adaptiveLimit.update(latency);
+        }
+
+        // The queue counter is incremented before waiting threads check for a free slot, so no wakeup can be missed here
+        if (queued.get() > 0) {
+            lock.lock();
+            try {
+                available.signal();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+}
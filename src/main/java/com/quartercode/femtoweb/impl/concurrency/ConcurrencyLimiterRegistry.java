@@ -0,0 +1,111 @@
+/*
+ * This file is part of FemtoWeb.
+ * Copyright (c) 2015 QuarterCode <http://quartercode.com/>
+ *
+ * FemtoWeb is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * FemtoWeb is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with FemtoWeb. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.femtoweb.impl.concurrency;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.Validate;
+import com.quartercode.femtoweb.api.Action;
+import com.quartercode.femtoweb.api.ConcurrencyLimit;
+import com.quartercode.femtoweb.api.Context;
+
+/**
+ * The registry which creates and holds the {@link ConcurrencyLimiter}s of all {@link Action} classes.
+ * A limiter is created the first time an action class is requested, either from a {@link ConcurrencyLimit} annotation on the class,
+ * or from a configured limit for the action's {@link Context#getUri(Class) URI}.
+ * Configured limits take precedence over annotations.
+ * Action classes without any limit are remembered as well, so that each lookup is just a single map access.
+ */
+public class ConcurrencyLimiterRegistry {
+
+    private static final ConcurrencyLimiter                                  UNLIMITED = new ConcurrencyLimiter(1, 0, 0, false);
+
+    private final Map<String, int[]>                                         configuredLimits;
+    private final long                                                       queueTimeout;
+    private final boolean                                                    adaptive;
+
+    private final ConcurrentMap<Class<? extends Action>, ConcurrencyLimiter> limiters  = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a new concurrency limiter registry.
+     *
+     * @param configuredLimits A list of limit definitions in the format {@code uri=maxConcurrent} or {@code uri=maxConcurrent/maxQueued}
+     *        (e.g. {@code /shop/export=4/10}).
+     *        The URIs are action URIs like the ones returned by {@link Context#getUri(Class)}.
+     * @param queueTimeout The maximum amount of milliseconds a request waits for a free slot of a configured limit.
+     * @param adaptive Whether configured limits adapt themselves to the observed latency.
+     */
+    public ConcurrencyLimiterRegistry(List<String> configuredLimits, long queueTimeout, boolean adaptive) {
+
+        this.configuredLimits = new HashMap<>();
+        for (String definition : configuredLimits) {
+            String uri = StringUtils.substringBefore(definition, "=").trim();
+            String[] values = StringUtils.split(StringUtils.substringAfter(definition, "="), '/');
+            Validate.isTrue(!uri.isEmpty() && values.length >= 1 && values.length <= 2, "Invalid concurrency limit definition '%s'; expected 'uri=maxConcurrent[/maxQueued]'",
+                    definition);
+
+            int maxConcurrent = Integer.parseInt(values[0].trim());
+            int maxQueued = values.length == 2 ? Integer.parseInt(values[1].trim()) : 0;
+            this.configuredLimits.put("/" + StringUtils.strip(uri, "/"), new int[] { maxConcurrent, maxQueued });
+        }
+
+        this.queueTimeout = queueTimeout;
+        this.adaptive = adaptive;
+    }
+
+    /**
+     * Returns the {@link ConcurrencyLimiter} which is responsible for the given {@link Action} class.
+     *
+     * @param actionClass The action class whose limiter should be returned.
+     * @param context The context which is used for retrieving the URI of the action class.
+     * @return The limiter for the action class, or {@code null} if the action class isn't limited.
+     */
+    public ConcurrencyLimiter getLimiter(Class<? extends Action> actionClass, Context context) {
+
+        ConcurrencyLimiter limiter = limiters.get(actionClass);
+
+        if (limiter == null) {
+            limiter = createLimiter(actionClass, context);
+            ConcurrencyLimiter existing = limiters.putIfAbsent(actionClass, limiter);
+            limiter = existing != null ? existing : limiter;
+        }
+
+        return limiter == UNLIMITED ? null : limiter;
+    }
+
+    private ConcurrencyLimiter createLimiter(Class<? extends Action> actionClass, Context context) {
+
+        int[] configuredLimit = configuredLimits.isEmpty() ? null : configuredLimits.get(context.getUri(actionClass));
+        if (configuredLimit != null) {
+            return new ConcurrencyLimiter(configuredLimit[0], configuredLimit[1], queueTimeout, adaptive);
+        }
+
+        ConcurrencyLimit annotation = actionClass.getAnnotation(ConcurrencyLimit.class);
+        if (annotation != null) {
+            return new ConcurrencyLimiter(annotation.value(), annotation.maxQueued(), annotation.queueTimeout(), annotation.adaptive());
+        }
+
+        return UNLIMITED;
+    }
+
+}
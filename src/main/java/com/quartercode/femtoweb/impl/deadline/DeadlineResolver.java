@@ -0,0 +1,100 @@
+/*
+ * This file is part of FemtoWeb.
+ * Copyright (c) 2015 QuarterCode <http://quartercode.com/>
+ *
+ * FemtoWeb is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * FemtoWeb is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with FemtoWeb. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.femtoweb.impl.deadline;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import javax.servlet.http.HttpServletRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import com.quartercode.femtoweb.api.Action;
+import com.quartercode.femtoweb.api.Deadline;
+import com.quartercode.femtoweb.api.RequestTimeout;
+
+/**
+ * The deadline resolver derives the {@link Deadline} of a request from the default request timeout, the {@link RequestTimeout} annotation of the responsible
+ * {@link Action} and an optional header which contains the amount of milliseconds the client is still willing to wait.
+ * The annotation overrides the default timeout, while the header can only shorten the resulting timeout.
+ */
+public class DeadlineResolver {
+
+    private static final Logger                                LOGGER        = LoggerFactory.getLogger(DeadlineResolver.class);
+
+    private static final Long                                  NOT_ANNOTATED = -1L;
+
+    private final long                                         defaultTimeout;
+    private final String                                       header;
+    private final ConcurrentMap<Class<? extends Action>, Long> timeouts      = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a new deadline resolver.
+     *
+     * @param defaultTimeout The request timeout in milliseconds which is used for actions without a {@link RequestTimeout} annotation; {@code 0} means no timeout.
+     * @param header The name of the request header which contains the amount of milliseconds the client is still willing to wait, or {@code null} to ignore any such header.
+     */
+    public DeadlineResolver(long defaultTimeout, String header) {
+
+        this.defaultTimeout = defaultTimeout;
+        this.header = header;
+    }
+
+    /**
+     * Reads and caches the {@link RequestTimeout} annotation of the given {@link Action} class, so that the first request to the action doesn't need to do it.
+     *
+     * @param actionClass The action class whose timeout should be cached.
+     */
+    public void prepare(Class<? extends Action> actionClass) {
+
+        RequestTimeout requestTimeout = actionClass.getAnnotation(RequestTimeout.class);
+        timeouts.putIfAbsent(actionClass, requestTimeout == null ? NOT_ANNOTATED : requestTimeout.value());
+    }
+
+    /**
+     * Returns the deadline of the given request to the given {@link Action} class.
+     *
+     * @param request The request whose deadline should be returned.
+     * @param actionClass The action class which is responsible for the request.
+     * @return The deadline of the request, or {@code null} if the request doesn't have a deadline.
+     */
+    public Deadline resolve(HttpServletRequest request, Class<? extends Action> actionClass) {
+
+        Long annotatedTimeout = timeouts.get(actionClass);
+        if (annotatedTimeout == null) {
+            prepare(actionClass);
+            annotatedTimeout = timeouts.get(actionClass);
+        }
+
+        long timeout = annotatedTimeout < 0 ? defaultTimeout : annotatedTimeout;
+        Deadline deadline = timeout > 0 ? Deadline.after(timeout) : null;
+
+        if (header != null) {
+            String clientTimeout = request.getHeader(header);
+            if (clientTimeout != null) {
+                try {
+                    deadline = Deadline.after(Math.max(Long.parseLong(clientTimeout.trim()), 0)).earliest(deadline);
+                } catch (NumberFormatException e) {
+                    LOGGER.debug("Ignoring invalid deadline header value '{}'", clientTimeout);
+                }
+            }
+        }
+
+        return deadline;
+    }
+
+}
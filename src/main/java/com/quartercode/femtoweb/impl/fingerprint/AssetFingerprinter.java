@@ -0,0 +1,168 @@
+/*
+ * This file is part of FemtoWeb.
+ * Copyright (c) 2015 QuarterCode <http://quartercode.com/>
+ *
+ * FemtoWeb is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * FemtoWeb is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with FemtoWeb. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.femtoweb.impl.fingerprint;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * A build step which copies each static asset to a fingerprinted name that contains a hash of its content (e.g. {@code css/main.css} to {@code css/main.3f2a9c1b0d.css})
+ * and writes an {@link AssetManifest} which maps the logical names to the fingerprinted ones.
+ * Since the content behind a fingerprinted name never changes, the filter serves such assets with an {@code immutable} cache header.<br>
+ * <br>
+ * The fingerprinter is meant to be run on the exploded webapp before it is packaged, e.g. through the {@code exec-maven-plugin}:
+ *
+ * <pre>
+ * java com.quartercode.femtoweb.impl.fingerprint.AssetFingerprinter &lt;static asset directory&gt; &lt;manifest file&gt;
+ * </pre>
+ *
+ * If the manifest file already exists, the fingerprinted copies listed in it are removed before the directory is fingerprinted again.
+ */
+public class AssetFingerprinter {
+
+    private static final int HASH_LENGTH = 10;
+
+    /**
+     * Fingerprints the static asset directory which is specified by the first argument and writes the manifest to the file specified by the second argument.
+     *
+     * @param args The command line arguments.
+     * @throws IOException If an asset or the manifest cannot be read or written.
+     */
+    public static void main(String[] args) throws IOException {
+
+        if (args.length != 2) {
+            System.err.println("Usage: java " + AssetFingerprinter.class.getName() + " <static asset directory> <manifest file>");
+            System.exit(1);
+        }
+
+        AssetManifest manifest = fingerprint(Paths.get(args[0]), Paths.get(args[1]));
+        System.out.println("Fingerprinted " + manifest.getFingerprints().size() + " static assets in '" + args[0] + "'");
+    }
+
+    /**
+     * Copies each file in the given static asset directory to its fingerprinted name and writes the resulting manifest to the given file.
+     *
+     * @param directory The static asset directory.
+     * @param manifestFile The file the {@link AssetManifest} should be written to. It is excluded from fingerprinting if it's located inside the directory.
+     * @return The written manifest.
+     * @throws IOException If an asset or the manifest cannot be read or written.
+     */
+    public static AssetManifest fingerprint(Path directory, Path manifestFile) throws IOException {
+
+        // Remove the fingerprinted copies of a previous run
+        if (Files.exists(manifestFile)) {
+            try (InputStream input = Files.newInputStream(manifestFile)) {
+                for (String fingerprinted : AssetManifest.read(input).getFingerprints().values()) {
+                    Files.deleteIfExists(directory.resolve(fingerprinted));
+                }
+            }
+        }
+
+        final Path excluded = manifestFile.toAbsolutePath().normalize();
+        final List<Path> assets = new ArrayList<>();
+        Files.walkFileTree(directory, new SimpleFileVisitor<Path>() {
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+
+                if (attributes.isRegularFile() && !file.toAbsolutePath().normalize().equals(excluded)) {
+                    assets.add(file);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+        });
+
+        Map<String, String> fingerprints = new HashMap<>();
+        for (Path asset : assets) {
+            String name = directory.relativize(asset).toString().replace('\\', '/');
+            String fingerprinted = getFingerprintedName(name, hash(Files.readAllBytes(asset)));
+
+            Files.copy(asset, directory.resolve(fingerprinted), StandardCopyOption.REPLACE_EXISTING);
+            fingerprints.put(name, fingerprinted);
+        }
+
+        AssetManifest manifest = new AssetManifest(fingerprints);
+        if (manifestFile.toAbsolutePath().getParent() != null) {
+            Files.createDirectories(manifestFile.toAbsolutePath().getParent());
+        }
+        try (OutputStream output = Files.newOutputStream(manifestFile)) {
+            manifest.write(output);
+        }
+        return manifest;
+    }
+
+    /**
+     * Inserts the given hash in front of the extension of the file name of the given asset path.
+     * For example, {@code css/main.css} becomes {@code css/main.<hash>.css}.
+     *
+     * @param asset The asset path.
+     * @param hash The content hash which should be inserted.
+     * @return The fingerprinted asset path.
+     */
+    public static String getFingerprintedName(String asset, String hash) {
+
+        int nameStart = asset.lastIndexOf('/') + 1;
+        int extensionStart = asset.lastIndexOf('.');
+        if (extensionStart <= nameStart) {
+            return asset + "." + hash;
+        } else {
+            return asset.substring(0, extensionStart) + "." + hash + asset.substring(extensionStart);
+        }
+    }
+
+    private static String hash(byte[] content) {
+
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported by this JVM", e);
+        }
+
+        StringBuilder hash = new StringBuilder(HASH_LENGTH);
+        for (byte value : digest.digest(content)) {
+            hash.append(StringUtils.leftPad(Integer.toHexString(value & 0xff), 2, '0'));
+            if (hash.length() >= HASH_LENGTH) {
+                break;
+            }
+        }
+        return hash.substring(0, HASH_LENGTH);
+    }
+
+    private AssetFingerprinter() {
+
+    }
+
+}
@@ -0,0 +1,231 @@
+/*
+ * This file is part of FemtoWeb.
+ * Copyright (c) 2015 QuarterCode <http://quartercode.com/>
+ *
+ * FemtoWeb is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * FemtoWeb is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with FemtoWeb. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.femtoweb.impl.fingerprint;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * A mapping from the logical names of static assets (e.g. {@code css/main.css}) to their fingerprinted names (e.g. {@code css/main.3f2a9c1b0d.css}).
+ * All names are relative to the {@link com.quartercode.femtoweb.api.Context#getStaticAssetPath() static asset path}.
+ * Manifests are created by the {@link AssetFingerprinter} at build time and stored as properties files.
+ * Assets which are not listed in the manifest keep their logical names.
+ */
+public class AssetManifest {
+
+    /**
+     * The name of the servlet context attribute which stores the {@link #getUrls(String) URL map} of the manifest, so that JSPs can look up
+     * fingerprinted URLs through the expression language (e.g. <code>${assets['css/main.css']}</code>).
+     */
+    public static final String        ATTRIBUTE = "assets";
+
+    private final Map<String, String> fingerprints;
+    private final Set<String>         fingerprintedPaths;
+
+    /**
+     * Reads the manifest from the given properties stream.
+     *
+     * @param input The stream which provides the manifest properties.
+     * @return The read manifest.
+     * @throws IOException If the manifest cannot be read.
+     */
+    public static AssetManifest read(InputStream input) throws IOException {
+
+        Properties properties = new Properties();
+        properties.load(input);
+
+        Map<String, String> fingerprints = new HashMap<>();
+        for (String asset : properties.stringPropertyNames()) {
+            fingerprints.put(asset, properties.getProperty(asset));
+        }
+        return new AssetManifest(fingerprints);
+    }
+
+    /**
+     * Creates a new asset manifest with the given mapping.
+     *
+     * @param fingerprints A map which maps the logical names of assets to their fingerprinted names.
+     */
+    public AssetManifest(Map<String, String> fingerprints) {
+
+        this.fingerprints = Collections.unmodifiableMap(new HashMap<>(fingerprints));
+        fingerprintedPaths = Collections.unmodifiableSet(new HashSet<>(fingerprints.values()));
+    }
+
+    /**
+     * Returns the whole mapping from logical asset names to fingerprinted names.
+     *
+     * @return The unmodifiable fingerprint map.
+     */
+    public Map<String, String> getFingerprints() {
+
+        return fingerprints;
+    }
+
+    /**
+     * Returns the fingerprinted name of the given asset.
+     *
+     * @param asset The logical name of the asset (e.g. {@code css/main.css}).
+     * @return The fingerprinted name, or the logical name if the asset is not listed in the manifest.
+     */
+    public String getFingerprintedPath(String asset) {
+
+        String path = StringUtils.stripStart(asset, "/");
+        String fingerprinted = fingerprints.get(path);
+        return fingerprinted != null ? fingerprinted : path;
+    }
+
+    /**
+     * Returns whether the given path is the fingerprinted name of a listed asset.
+     * Since the content of such a path never changes, it can be cached forever.
+     *
+     * @param path The path relative to the static asset path.
+     * @return Whether the path is fingerprinted.
+     */
+    public boolean isFingerprinted(String path) {
+
+        return fingerprintedPaths.contains(path);
+    }
+
+    /**
+     * Returns a read-only map view which maps any logical asset name to the full URL of its {@link #getFingerprintedPath(String) fingerprinted name}.
+     * Apart from the listed assets, the map also resolves unlisted assets to their unchanged URLs.
+     *
+     * @param prefix The prefix which is put in front of each fingerprinted name (e.g. the context path followed by the static asset path and a slash).
+     * @return The URL map view.
+     */
+    public Map<String, String> getUrls(String prefix) {
+
+        return new UrlMap(prefix);
+    }
+
+    /**
+     * Writes this manifest as a properties file whose entries are sorted by the logical asset names.
+     *
+     * @param output The stream the manifest should be written to.
+     * @throws IOException If the manifest cannot be written.
+     */
+    public void write(OutputStream output) throws IOException {
+
+        Writer writer = new OutputStreamWriter(output, StandardCharsets.ISO_8859_1);
+        writer.write("# Generated by " + AssetFingerprinter.class.getName() + "\n");
+        for (Map.Entry<String, String> entry : new TreeMap<>(fingerprints).entrySet()) {
+            writer.write(escape(entry.getKey()) + "=" + escape(entry.getValue()) + "\n");
+        }
+        writer.flush();
+    }
+
+    private static String escape(String value) {
+
+        StringBuilder escaped = new StringBuilder(value.length());
+        for (int index = 0; index < value.length(); index++) {
+            char character = value.charAt(index);
+            if (character > 0x7e || character < 0x20) {
+                escaped.append(String.format("\\u%04x", (int) character));
+            } else {
+                if ("\\=:#! ".indexOf(character) >= 0) {
+                    escaped.append('\\');
+                }
+                escaped.append(character);
+            }
+        }
+        return escaped.toString();
+    }
+
+    private class UrlMap extends AbstractMap<String, String> {
+
+        private final String prefix;
+
+        private UrlMap(String prefix) {
+
+            this.prefix = prefix;
+        }
+
+        @Override
+        public String get(Object key) {
+
+            return key instanceof String ? prefix + getFingerprintedPath((String) key) : null;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+
+            return key instanceof String;
+        }
+
+        @Override
+        public Set<Map.Entry<String, String>> entrySet() {
+
+            return new AbstractSet<Map.Entry<String, String>>() {
+
+                @Override
+                public Iterator<Map.Entry<String, String>> iterator() {
+
+                    final Iterator<Map.Entry<String, String>> fingerprintIterator = fingerprints.entrySet().iterator();
+                    return new Iterator<Map.Entry<String, String>>() {
+
+                        @Override
+                        public boolean hasNext() {
+
+                            return fingerprintIterator.hasNext();
+                        }
+
+                        @Override
+                        public Map.Entry<String, String> next() {
+
+                            Map.Entry<String, String> fingerprint = fingerprintIterator.next();
+                            return new SimpleImmutableEntry<>(fingerprint.getKey(), prefix + fingerprint.getValue());
+                        }
+
+                        @Override
+                        public void remove() {
+
+                            throw new UnsupportedOperationException();
+                        }
+
+                    };
+                }
+
+                @Override
+                public int size() {
+
+                    return fingerprints.size();
+                }
+
+            };
+        }
+
+    }
+
+}
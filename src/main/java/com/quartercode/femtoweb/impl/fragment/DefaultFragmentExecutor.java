@@ -0,0 +1,306 @@
+/*
+ * This file is part of FemtoWeb.
+ * Copyright (c) 2015 QuarterCode <http://quartercode.com/>
+ *
+ * FemtoWeb is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * FemtoWeb is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with FemtoWeb. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.femtoweb.impl.fragment;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.apache.commons.lang3.Validate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import com.quartercode.femtoweb.api.Action;
+import com.quartercode.femtoweb.api.ActionFactory;
+import com.quartercode.femtoweb.api.Context;
+import com.quartercode.femtoweb.api.Deadline;
+import com.quartercode.femtoweb.api.FragmentExecutor;
+import com.quartercode.femtoweb.api.resolutions.View;
+import com.quartercode.femtoweb.impl.response.CapturedResponse;
+import com.quartercode.femtoweb.impl.response.CapturingResponseWrapper;
+import com.quartercode.femtoweb.impl.taglib.UrlTable;
+import com.quartercode.femtoweb.util.EventRecorder;
+import com.quartercode.femtoweb.util.RequestUtils;
+
+/**
+ * The default {@link FragmentExecutor} which runs fragments on a bounded pool of daemon threads.
+ * Idle threads are terminated after a minute, so an unused executor doesn't hold any threads.
+ * If all threads are busy and the queue is full, the requesting thread waits for free space in the queue, but not beyond the timeout of the fragment.
+ * Fragments which don't get a place in time are given up, just like fragments which exceed their timeout.<br>
+ * <br>
+ * Only the fragment actions run on the pool threads.
+ * As soon as a fragment action returns a {@link View}, that view and all further actions are executed by the requesting thread after all fragment actions have finished,
+ * since request dispatchers of most containers must not be used outside of the thread which processes the request.
+ * The output of each fragment is recorded by a {@link CapturingResponseWrapper}.
+ * Since the request is shared by several threads, the fragments read the request parameters from a snapshot and create at most one session.
+ * Fragments which exceed their timeout are interrupted and detached from the original request, so that they cannot access it after the request has finished.<br>
+ * <br>
+ * Like the actions of a request, fragment actions are not executed anymore once the {@link Deadline} of the request has passed,
+ * and session changes made by fragments are written out to the response of the request.
+ * However, fragments are no requests of their own: HTTP method checks, rate limits, concurrency limits and the scheduler only apply to the request which
+ * renders the composite view, and the access log only contains that request.
+ */
+public class DefaultFragmentExecutor implements FragmentExecutor {
+
+    private static final Logger        LOGGER = LoggerFactory.getLogger(DefaultFragmentExecutor.class);
+    private static final EventRecorder EVENTS = EventRecorder.get();
+
+    private final ActionFactory        actionFactory;
+    private final ThreadPoolExecutor   executor;
+
+    /**
+     * Creates a new default fragment executor.
+     *
+     * @param actionFactory The {@link ActionFactory} which creates the fragment actions.
+     * @param threads The maximum amount of fragments which can be executed at the same time.
+     * @param queueSize The maximum amount of fragments which can wait for a free thread.
+     */
+    public DefaultFragmentExecutor(ActionFactory actionFactory, int threads, int queueSize) {
+
+        Validate.notNull(actionFactory, "Action factory cannot be null");
+        Validate.isTrue(threads > 0, "Fragment thread count must be positive");
+        Validate.isTrue(queueSize > 0, "Fragment queue size must be positive");
+
+        this.actionFactory = actionFactory;
+
+        executor = new ThreadPoolExecutor(threads, threads, 1, TimeUnit.MINUTES, new ArrayBlockingQueue<Runnable>(queueSize), new FragmentThreadFactory());
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    @Override
+    public List<String> execute(HttpServletRequest request, HttpServletResponse response, Context context, List<Class<? extends Action>> actions, long[] timeouts)
+            throws InterruptedException {
+
+        Validate.isTrue(actions.size() == timeouts.length, "There must be exactly one timeout per fragment action");
+
+        long startTime = System.nanoTime();
+
+        // Parse the parameters and look up the session while only this thread uses the request
+        FragmentRequestWrapper.SharedState sharedState = new FragmentRequestWrapper.SharedState(request);
+
+        List<FragmentRequestWrapper> fragmentRequests = new ArrayList<>(actions.size());
+        List<FutureTask<FragmentTask>> futures = new ArrayList<>(actions.size());
+        List<FragmentTask> tasks = new ArrayList<>(actions.size());
+        try {
+            for (int index = 0; index < actions.size(); index++) {
+                FragmentRequestWrapper fragmentRequest = new FragmentRequestWrapper(request, sharedState);
+                FutureTask<FragmentTask> future = new FutureTask<>(new FragmentTask(actions.get(index), fragmentRequest, response, context));
+                fragmentRequests.add(fragmentRequest);
+                futures.add(future);
+                submit(future, startTime + TimeUnit.MILLISECONDS.toNanos(timeouts[index]), actions.get(index));
+            }
+
+            for (int index = 0; index < futures.size(); index++) {
+                tasks.add(await(futures.get(index), startTime + TimeUnit.MILLISECONDS.toNanos(timeouts[index]), actions.get(index)));
+            }
+        } finally {
+            // Fragments which are still running must not touch the request anymore since it might be recycled by the container
+            for (int index = 0; index < futures.size(); index++) {
+                if (!futures.get(index).isDone()) {
+                    futures.get(index).cancel(true);
+                    fragmentRequests.get(index).detach();
+                }
+            }
+        }
+
+        // Render the views of the fragments on the requesting thread, one after another
+        List<String> outputs = new ArrayList<>(tasks.size());
+        for (FragmentTask task : tasks) {
+            outputs.add(task == null ? null : task.render());
+        }
+
+        return outputs;
+    }
+
+    private void submit(FutureTask<FragmentTask> future, long deadline, Class<? extends Action> action) throws InterruptedException {
+
+        try {
+            executor.execute(future);
+        } catch (RejectedExecutionException e) {
+            // All threads are busy and the queue is full; the fragment must not run on this thread, since its timeout couldn't be enforced there
+            if (executor.isShutdown() || !executor.getQueue().offer(future, Math.max(deadline - System.nanoTime(), 0), TimeUnit.NANOSECONDS)) {
+                LOGGER.warn("Fragment action '{}' didn't get a place in the fragment queue before its timeout", action.getName());
+                future.cancel(false);
+            }
+        }
+    }
+
+    private FragmentTask await(Future<FragmentTask> future, long deadline, Class<? extends Action> action) throws InterruptedException {
+
+        try {
+            return future.get(Math.max(deadline - System.nanoTime(), 0), TimeUnit.NANOSECONDS);
+        } catch (CancellationException e) {
+            // The fragment has been rejected
+        } catch (TimeoutException e) {
+            LOGGER.warn("Fragment action '{}' exceeded its timeout", action.getName());
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof DeadlineExpiredException) {
+                LOGGER.debug("Deadline of request passed before fragment action '{}' could be executed", action.getName());
+            } else {
+                LOGGER.warn("Fragment action '{}' failed", action.getName(), e.getCause());
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Stops all fragment threads.
+     * Fragments which are still running are interrupted.
+     */
+    public void close() {
+
+        executor.shutdownNow();
+    }
+
+    /*
+     * Executes the fragment actions on a pool thread and afterwards renders the fragment on the requesting thread.
+     */
+    private class FragmentTask implements Callable<FragmentTask> {
+
+        private final Class<? extends Action> action;
+        private final HttpServletRequest      request;
+        private final HttpServletResponse     response;
+        private final Context                 context;
+        private final UrlTable                urlTable;
+
+        // Set by the pool thread; read by the requesting thread after the future has completed
+        private CapturingResponseWrapper      capturingResponse;
+        private Action                        remainingAction;
+        private int                           chainIndex;
+
+        private FragmentTask(Class<? extends Action> action, HttpServletRequest request, HttpServletResponse response, Context context) {
+
+            this.action = action;
+            this.request = request;
+            this.response = response;
+            this.context = context;
+            urlTable = UrlTable.getCurrentOrNull();
+        }
+
+        @Override
+        public FragmentTask call() throws Exception {
+
+            capturingResponse = new CapturingResponseWrapper(response);
+
+            // Make the URL table of the requesting thread available to the EL functions used by the fragment actions
+            UrlTable previousUrlTable = UrlTable.bind(urlTable);
+            try {
+                Object event = EVENTS.beginActionInstantiation();
+                Action currentAction = actionFactory.createAction(action, context);
+                if (event != null) {
+                    EVENTS.commitActionInstantiation(event, action);
+                }
+
+                // Stop as soon as the fragment is going to be rendered
+                while (currentAction != null && ! (currentAction instanceof View)) {
+                    currentAction = executeAction(currentAction);
+                }
+                remainingAction = currentAction;
+            } finally {
+                UrlTable.restore(previousUrlTable);
+            }
+
+            return this;
+        }
+
+        private String render() {
+
+            try {
+                Action currentAction = remainingAction;
+                while (currentAction != null) {
+                    currentAction = executeAction(currentAction);
+                }
+
+                // Write out the session changes of the fragment before the layout commits the response
+                context.getSessionStore().commit(request, response);
+
+                CapturedResponse captured = capturingResponse.toCapturedResponse();
+                if (captured.getStatus() < 200 || captured.getStatus() >= 300) {
+                    LOGGER.debug("Fragment action '{}' responded with status {}", action.getName(), captured.getStatus());
+                    return null;
+                }
+                return captured.getBodyAsString();
+            } catch (DeadlineExpiredException e) {
+                LOGGER.debug("Deadline of request passed before fragment action '{}' could be rendered", action.getName());
+                return null;
+            } catch (Exception e) {
+                LOGGER.warn("Fragment action '{}' failed", action.getName(), e);
+                return null;
+            }
+        }
+
+        private Action executeAction(Action currentAction) throws Exception {
+
+            // Stop wasting capacity on a fragment nobody waits for anymore
+            Deadline deadline = Deadline.get(request);
+            if (deadline != null && deadline.isExpired()) {
+                throw new DeadlineExpiredException();
+            }
+
+            Object event = EVENTS.beginActionExecution();
+            try {
+                return currentAction.execute(request, capturingResponse, context);
+            } finally {
+                if (event != null) {
+                    EVENTS.commitActionExecution(event, currentAction.getClass(), RequestUtils.getRequestUri(request), chainIndex);
+                }
+                chainIndex++;
+            }
+        }
+
+    }
+
+    private static class DeadlineExpiredException extends Exception {
+
+        private static final long serialVersionUID = 1L;
+
+        private DeadlineExpiredException() {
+
+            super(null, null, false, false);
+        }
+
+    }
+
+    private static class FragmentThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger threadNumber = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+
+            Thread thread = new Thread(runnable, "FemtoWeb fragment " + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+
+    }
+
+}
@@ -0,0 +1,157 @@
+/*
+ * This file is part of FemtoWeb.
+ * Copyright (c) 2015 QuarterCode <http://quartercode.com/>
+ *
+ * FemtoWeb is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * FemtoWeb is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with FemtoWeb. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.femtoweb.impl.fragment;
+
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import javax.servlet.http.HttpSession;
+import com.quartercode.femtoweb.impl.synthetic.SyntheticRequest;
+
+/*
+ * Gives a fragment its own request attributes on top of the attributes of the original request.
+ * Since containers don't allow concurrent access to the parameters and the session of a request, the fragments of a request read the parameters
+ * from a snapshot and share one session, which is created at most once.
+ * After the fragment has been given up, the original request is replaced by an empty synthetic request.
+ */
+class FragmentRequestWrapper extends HttpServletRequestWrapper {
+
+    private static final Object       REMOVED    = new Object();
+
+    private final SharedState         shared;
+    private final Map<String, Object> attributes = new HashMap<>();
+
+    FragmentRequestWrapper(HttpServletRequest request, SharedState shared) {
+
+        super(request);
+
+        this.shared = shared;
+    }
+
+    synchronized void detach() {
+
+        HttpServletRequest request = (HttpServletRequest) getRequest();
+        setRequest(new SyntheticRequest(request.getServletContext(), request.getMethod(), request.getContextPath(), request.getRequestURI()));
+    }
+
+    @Override
+    public String getParameter(String name) {
+
+        String[] values = shared.parameters.get(name);
+        return values == null || values.length == 0 ? null : values[0];
+    }
+
+    @Override
+    public String[] getParameterValues(String name) {
+
+        String[] values = shared.parameters.get(name);
+        return values == null ? null : values.clone();
+    }
+
+    @Override
+    public Enumeration<String> getParameterNames() {
+
+        return Collections.enumeration(shared.parameters.keySet());
+    }
+
+    @Override
+    public Map<String, String[]> getParameterMap() {
+
+        return shared.parameters;
+    }
+
+    @Override
+    public HttpSession getSession() {
+
+        return getSession(true);
+    }
+
+    @Override
+    public HttpSession getSession(boolean create) {
+
+        synchronized (shared) {
+            if (shared.session == null && create) {
+                shared.session = super.getSession(true);
+            }
+            return shared.session;
+        }
+    }
+
+    @Override
+    public synchronized Object getAttribute(String name) {
+
+        Object value = attributes.get(name);
+        if (value == null) {
+            return super.getAttribute(name);
+        } else {
+            return value == REMOVED ? null : value;
+        }
+    }
+
+    @Override
+    public synchronized Enumeration<String> getAttributeNames() {
+
+        Set<String> names = new LinkedHashSet<>(Collections.list(super.getAttributeNames()));
+        for (Map.Entry<String, Object> attribute : attributes.entrySet()) {
+            if (attribute.getValue() == REMOVED) {
+                names.remove(attribute.getKey());
+            } else {
+                names.add(attribute.getKey());
+            }
+        }
+        return Collections.enumeration(names);
+    }
+
+    @Override
+    public synchronized void setAttribute(String name, Object value) {
+
+        attributes.put(name, value == null ? REMOVED : value);
+    }
+
+    @Override
+    public synchronized void removeAttribute(String name) {
+
+        attributes.put(name, REMOVED);
+    }
+
+    /*
+     * The state which all fragments of a request share.
+     * It must be created by the requesting thread before the first fragment is started.
+     */
+    static class SharedState {
+
+        private final Map<String, String[]> parameters;
+        // Guarded by this
+        private HttpSession                 session;
+
+        SharedState(HttpServletRequest request) {
+
+            parameters = Collections.unmodifiableMap(new LinkedHashMap<>(request.getParameterMap()));
+            session = request.getSession(false);
+        }
+
+    }
+
+}
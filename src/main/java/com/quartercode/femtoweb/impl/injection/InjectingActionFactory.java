@@ -0,0 +1,86 @@
+/*
+ * This file is part of FemtoWeb.
+ * Copyright (c) 2015 QuarterCode <http://quartercode.com/>
+ *
+ * FemtoWeb is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * FemtoWeb is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with FemtoWeb. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.femtoweb.impl.injection;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import org.apache.commons.lang3.Validate;
+import com.quartercode.femtoweb.api.Action;
+import com.quartercode.femtoweb.api.ActionFactory;
+import com.quartercode.femtoweb.api.Context;
+import com.quartercode.femtoweb.api.Inject;
+
+/**
+ * The default {@link ActionFactory} which injects services from a {@link ServiceRegistry} into the constructors and fields that are annotated with {@link Inject}.
+ * Actions without any such annotations just need a no-arg constructor, which doesn't need to be public.<br>
+ * <br>
+ * For each action class, an injection plan is computed on first use (or during the warm-up) and cached afterwards.
+ * That plan contains precomputed method handles for the constructor and all injected fields, so no reflective lookups are done per request.
+ */
+public class InjectingActionFactory implements ActionFactory {
+
+    private final ServiceRegistry                                       registry;
+    private final ConcurrentMap<Class<? extends Action>, InjectionPlan> plans = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a new injecting action factory which takes the injected services from the given {@link ServiceRegistry}.
+     *
+     * @param registry The registry which provides all injected services.
+     */
+    public InjectingActionFactory(ServiceRegistry registry) {
+
+        Validate.notNull(registry, "Service registry cannot be null");
+        this.registry = registry;
+    }
+
+    /**
+     * Returns the {@link ServiceRegistry} which provides all services that are injected by this factory.
+     *
+     * @return The used service registry.
+     */
+    public ServiceRegistry getRegistry() {
+
+        return registry;
+    }
+
+    @Override
+    public void prepare(Class<? extends Action> actionClass) throws IllegalAccessException {
+
+        getPlan(actionClass);
+    }
+
+    @Override
+    public Action createAction(Class<? extends Action> actionClass, Context context) throws Exception {
+
+        return getPlan(actionClass).createAction(registry, context);
+    }
+
+    private InjectionPlan getPlan(Class<? extends Action> actionClass) throws IllegalAccessException {
+
+        InjectionPlan plan = plans.get(actionClass);
+
+        if (plan == null) {
+            plan = InjectionPlan.compute(actionClass);
+            plans.putIfAbsent(actionClass, plan);
+        }
+
+        return plan;
+    }
+
+}
@@ -0,0 +1,149 @@
+/*
+ * This file is part of FemtoWeb.
+ * Copyright (c) 2015 QuarterCode <http://quartercode.com/>
+ *
+ * FemtoWeb is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * FemtoWeb is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with FemtoWeb. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.femtoweb.impl.injection;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodHandles.Lookup;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.UndeclaredThrowableException;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.commons.lang3.Validate;
+import com.quartercode.femtoweb.api.Action;
+import com.quartercode.femtoweb.api.Context;
+import com.quartercode.femtoweb.api.Inject;
+
+/*
+ * Describes how instances of a specific action class are created and which dependencies are injected into them.
+ * All reflective lookups are done once when the plan is computed; creating an action afterwards only invokes precomputed method handles.
+ */
+class InjectionPlan {
+
+    private static final MethodType       CONSTRUCTOR_TYPE = MethodType.methodType(Object.class, Object[].class);
+    private static final MethodType       SETTER_TYPE      = MethodType.methodType(void.class, Object.class, Object.class);
+
+    private final Class<? extends Action> actionClass;
+    private final MethodHandle            constructor;
+    private final Class<?>[]              constructorDependencies;
+    private final MethodHandle[]          fieldSetters;
+    private final Class<?>[]              fieldDependencies;
+
+    static InjectionPlan compute(Class<? extends Action> actionClass) throws IllegalAccessException {
+
+        Validate.isTrue(!actionClass.isInterface() && !Modifier.isAbstract(actionClass.getModifiers()), "Action class '%s' cannot be instantiated", actionClass.getName());
+
+        Lookup lookup = MethodHandles.lookup();
+
+        Constructor<?> constructor = findConstructor(actionClass);
+        constructor.setAccessible(true);
+        Class<?>[] constructorDependencies = constructor.getParameterTypes();
+        MethodHandle constructorHandle = lookup.unreflectConstructor(constructor).asSpreader(Object[].class, constructorDependencies.length).asType(CONSTRUCTOR_TYPE);
+
+        List<MethodHandle> fieldSetters = new ArrayList<>();
+        List<Class<?>> fieldDependencies = new ArrayList<>();
+        for (Class<?> type = actionClass; type != Object.class; type = type.getSuperclass()) {
+            for (Field field : type.getDeclaredFields()) {
+                if (field.isAnnotationPresent(Inject.class)) {
+                    Validate.isTrue(!Modifier.isStatic(field.getModifiers()) && !Modifier.isFinal(field.getModifiers()),
+                            "Injected field '%s' of action class '%s' cannot be static or final", field.getName(), actionClass.getName());
+
+                    field.setAccessible(true);
+                    fieldSetters.add(lookup.unreflectSetter(field).asType(SETTER_TYPE));
+                    fieldDependencies.add(field.getType());
+                }
+            }
+        }
+
+        return new InjectionPlan(actionClass, constructorHandle, constructorDependencies, fieldSetters.toArray(new MethodHandle[fieldSetters.size()]),
+                fieldDependencies.toArray(new Class<?>[fieldDependencies.size()]));
+    }
+
+    private static Constructor<?> findConstructor(Class<? extends Action> actionClass) {
+
+        Constructor<?> injectConstructor = null;
+        for (Constructor<?> constructor : actionClass.getDeclaredConstructors()) {
+            if (constructor.isAnnotationPresent(Inject.class)) {
+                Validate.isTrue(injectConstructor == null, "Action class '%s' has more than one constructor annotated with @Inject", actionClass.getName());
+                injectConstructor = constructor;
+            }
+        }
+
+        if (injectConstructor != null) {
+            return injectConstructor;
+        }
+
+        try {
+            return actionClass.getDeclaredConstructor();
+        } catch (NoSuchMethodException e) {
+            throw new IllegalArgumentException("Action class '" + actionClass.getName() + "' has neither a constructor annotated with @Inject nor a no-arg constructor");
+        }
+    }
+
+    private InjectionPlan(Class<? extends Action> actionClass, MethodHandle constructor, Class<?>[] constructorDependencies, MethodHandle[] fieldSetters,
+            Class<?>[] fieldDependencies) {
+
+        this.actionClass = actionClass;
+        this.constructor = constructor;
+        this.constructorDependencies = constructorDependencies;
+        this.fieldSetters = fieldSetters;
+        this.fieldDependencies = fieldDependencies;
+    }
+
+    Action createAction(ServiceRegistry registry, Context context) throws Exception {
+
+        Object[] arguments = new Object[constructorDependencies.length];
+        for (int index = 0; index < arguments.length; index++) {
+            arguments[index] = resolve(constructorDependencies[index], registry, context);
+        }
+
+        try {
+            Object action = (Object) constructor.invokeExact(arguments);
+
+            for (int index = 0; index < fieldSetters.length; index++) {
+                fieldSetters[index].invokeExact(action, resolve(fieldDependencies[index], registry, context));
+            }
+
+            return (Action) action;
+        } catch (Exception | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new UndeclaredThrowableException(t);
+        }
+    }
+
+    private Object resolve(Class<?> type, ServiceRegistry registry, Context context) {
+
+        if (type == Context.class) {
+            return context;
+        } else if (type == ServiceRegistry.class) {
+            return registry;
+        }
+
+        Object service = registry.get(type);
+        if (service == null) {
+            throw new IllegalStateException("No service of type '" + type.getName() + "' is registered, but action '" + actionClass.getName() + "' requires one");
+        }
+        return service;
+    }
+
+}
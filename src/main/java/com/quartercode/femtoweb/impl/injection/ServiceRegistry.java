@@ -0,0 +1,80 @@
+/*
+ * This file is part of FemtoWeb.
+ * Copyright (c) 2015 QuarterCode <http://quartercode.com/>
+ *
+ * FemtoWeb is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * FemtoWeb is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with FemtoWeb. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.femtoweb.impl.injection;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.servlet.ServletContext;
+import org.apache.commons.lang3.Validate;
+import com.quartercode.femtoweb.api.Inject;
+
+/**
+ * A simple registry of services which can be {@link Inject injected} into actions by the {@link InjectingActionFactory}.
+ * Each service is registered under a type, which is matched exactly against the declared type of injected parameters and fields.<br>
+ * <br>
+ * The registry which is used by the filter is stored as a {@link ServletContext} attribute under the name {@link #ATTRIBUTE}.
+ * If a registry already exists under that name when the filter is initialized (e.g. because a servlet context listener has created it), that registry is used.
+ * Services may be registered at any time since they are only looked up when an action is created.
+ */
+public class ServiceRegistry {
+
+    /**
+     * The name of the {@link ServletContext} attribute which holds the registry that is used by the filter.
+     */
+    public static final String          ATTRIBUTE = ServiceRegistry.class.getName();
+
+    private final Map<Class<?>, Object> services  = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the service which is registered under the given type.
+     * If no such service exists, {@code null} is returned.
+     *
+     * @param type The type the requested service is registered under.
+     * @return The service that is registered under the given type.
+     */
+    public <T> T get(Class<T> type) {
+
+        return type.cast(services.get(type));
+    }
+
+    /**
+     * Registers the given service under the given type, replacing any service that was previously registered under that type.
+     *
+     * @param type The type the service should be registered under.
+     * @param service The service which should be registered.
+     */
+    public <T> void register(Class<T> type, T service) {
+
+        Validate.notNull(type, "Service type cannot be null");
+        Validate.notNull(service, "Service cannot be null");
+        services.put(type, service);
+    }
+
+    /**
+     * Removes the service which is registered under the given type.
+     * If no such service exists, nothing happens.
+     *
+     * @param type The type whose service should be removed.
+     */
+    public void unregister(Class<?> type) {
+
+        services.remove(type);
+    }
+
+}
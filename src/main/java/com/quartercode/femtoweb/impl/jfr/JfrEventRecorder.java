@@ -0,0 +1,122 @@
+/*
+ * This file is part of FemtoWeb.
+ * Copyright (c) 2015 QuarterCode <http://quartercode.com/>
+ *
+ * FemtoWeb is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * FemtoWeb is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with FemtoWeb. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.femtoweb.impl.jfr;
+
+import jdk.jfr.EventType;
+import com.quartercode.femtoweb.util.EventRecorder;
+
+/**
+ * The {@link EventRecorder} which actually emits JDK Flight Recorder events.
+ * Before creating an event, it checks whether the event type is enabled in any running recording, so disabled events don't allocate anything.
+ * This class is only compiled on Java 11 and newer and is loaded by name through {@link EventRecorder#get()}.
+ */
+public class JfrEventRecorder extends EventRecorder {
+
+    // Getting the event types also registers them, so that they show up in the recording settings before they are emitted for the first time
+    private final EventType routeLookupType         = EventType.getEventType(RouteLookupEvent.class);
+    private final EventType actionInstantiationType = EventType.getEventType(ActionInstantiationEvent.class);
+    private final EventType actionExecutionType     = EventType.getEventType(ActionExecutionEvent.class);
+    private final EventType resolutionType          = EventType.getEventType(ResolutionEvent.class);
+
+    @Override
+    public Object beginRouteLookup() {
+
+        if (!routeLookupType.isEnabled()) {
+            return null;
+        }
+
+        RouteLookupEvent event = new RouteLookupEvent();
+        event.begin();
+        return event;
+    }
+
+    @Override
+    public void commitRouteLookup(Object event, String uri, Class<?> actionClass, String result) {
+
+        RouteLookupEvent routeLookup = (RouteLookupEvent) event;
+        routeLookup.uri = uri;
+        routeLookup.actionClass = actionClass;
+        routeLookup.result = result;
+        routeLookup.commit();
+    }
+
+    @Override
+    public Object beginActionInstantiation() {
+
+        if (!actionInstantiationType.isEnabled()) {
+            return null;
+        }
+
+        ActionInstantiationEvent event = new ActionInstantiationEvent();
+        event.begin();
+        return event;
+    }
+
+    @Override
+    public void commitActionInstantiation(Object event, Class<?> actionClass) {
+
+        ActionInstantiationEvent actionInstantiation = (ActionInstantiationEvent) event;
+        actionInstantiation.actionClass = actionClass;
+        actionInstantiation.commit();
+    }
+
+    @Override
+    public Object beginActionExecution() {
+
+        if (!actionExecutionType.isEnabled()) {
+            return null;
+        }
+
+        ActionExecutionEvent event = new ActionExecutionEvent();
+        event.begin();
+        return event;
+    }
+
+    @Override
+    public void commitActionExecution(Object event, Class<?> actionClass, String uri, int chainIndex) {
+
+        ActionExecutionEvent actionExecution = (ActionExecutionEvent) event;
+        actionExecution.actionClass = actionClass;
+        actionExecution.uri = uri;
+        actionExecution.chainIndex = chainIndex;
+        actionExecution.commit();
+    }
+
+    @Override
+    public Object beginResolution() {
+
+        if (!resolutionType.isEnabled()) {
+            return null;
+        }
+
+        ResolutionEvent event = new ResolutionEvent();
+        event.begin();
+        return event;
+    }
+
+    @Override
+    public void commitResolution(Object event, Class<?> resolutionClass, String target) {
+
+        ResolutionEvent resolution = (ResolutionEvent) event;
+        resolution.resolutionClass = resolutionClass;
+        resolution.target = target;
+        resolution.commit();
+    }
+
+}
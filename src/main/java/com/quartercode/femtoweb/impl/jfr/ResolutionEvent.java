@@ -0,0 +1,47 @@
+/*
+ * This file is part of FemtoWeb.
+ * Copyright (c) 2015 QuarterCode <http://quartercode.com/>
+ *
+ * FemtoWeb is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * FemtoWeb is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with FemtoWeb. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.femtoweb.impl.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * The flight recorder event which is emitted for each view that is rendered and each redirect that is sent.
+ *
+ * @see JfrEventRecorder
+ */
+@Name ("com.quartercode.femtoweb.Resolution")
+@Label ("Resolution")
+@Description ("Rendering of a view or redirect of the client")
+@Category ("FemtoWeb")
+@StackTrace (false)
+class ResolutionEvent extends Event {
+
+    @Label ("Resolution Class")
+    Class<?> resolutionClass;
+
+    @Label ("Target")
+    @Description ("Path of the rendered view or URL the client has been redirected to")
+    String   target;
+
+}
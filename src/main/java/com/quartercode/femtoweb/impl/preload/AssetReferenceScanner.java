@@ -0,0 +1,78 @@
+/*
+ * This file is part of FemtoWeb.
+ * Copyright (c) 2015 QuarterCode <http://quartercode.com/>
+ *
+ * FemtoWeb is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * FemtoWeb is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with FemtoWeb. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.femtoweb.impl.preload;
+
+import java.util.Set;
+
+/*
+ * Finds quoted references which start with a given prefix (e.g. "/app/static/") in a stream of characters.
+ * Since asset paths are ASCII, bytes can be fed as well without decoding them.
+ */
+class AssetReferenceScanner {
+
+    private static final int    MAX_REFERENCE_LENGTH = 512;
+
+    private final String        prefix;
+    private final Set<String>   references;
+    private final int           maxReferences;
+
+    private final StringBuilder reference            = new StringBuilder();
+    // -1 while waiting for an opening quote, the amount of matched prefix characters afterwards
+    private int                 matched              = -1;
+    private boolean             capturing;
+
+    AssetReferenceScanner(String prefix, Set<String> references, int maxReferences) {
+
+        this.prefix = prefix;
+        this.references = references;
+        this.maxReferences = maxReferences;
+    }
+
+    void feed(char c) {
+
+        if (capturing) {
+            if (c == '"' || c == '\'') {
+                if (reference.length() > prefix.length() && references.size() < maxReferences) {
+                    references.add(reference.toString());
+                }
+                capturing = false;
+                matched = -1;
+            } else if (Character.isWhitespace(c) || c == '<' || c == '>' || reference.length() >= MAX_REFERENCE_LENGTH) {
+                capturing = false;
+                matched = -1;
+            } else {
+                reference.append(c);
+            }
+        } else if (c == '"' || c == '\'') {
+            matched = 0;
+        } else if (matched >= 0) {
+            if (c == prefix.charAt(matched)) {
+                matched++;
+                if (matched == prefix.length()) {
+                    capturing = true;
+                    reference.setLength(0);
+                    reference.append(prefix);
+                }
+            } else {
+                matched = -1;
+            }
+        }
+    }
+
+}
@@ -0,0 +1,156 @@
+/*
+ * This file is part of FemtoWeb.
+ * Copyright (c) 2015 QuarterCode <http://quartercode.com/>
+ *
+ * FemtoWeb is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * FemtoWeb is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with FemtoWeb. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.femtoweb.impl.preload;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+
+/*
+ * Passes all output through to the wrapped response while feeding it into an asset reference scanner.
+ */
+class AssetScanningResponseWrapper extends HttpServletResponseWrapper {
+
+    private final AssetReferenceScanner scanner;
+
+    private ServletOutputStream         outputStream;
+    private PrintWriter                 writer;
+
+    AssetScanningResponseWrapper(HttpServletResponse response, AssetReferenceScanner scanner) {
+
+        super(response);
+
+        this.scanner = scanner;
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() throws IOException {
+
+        if (outputStream == null) {
+            outputStream = new ScanningOutputStream(super.getOutputStream());
+        }
+        return outputStream;
+    }
+
+    @Override
+    public PrintWriter getWriter() throws IOException {
+
+        if (writer == null) {
+            writer = new PrintWriter(new ScanningWriter(super.getWriter()));
+        }
+        return writer;
+    }
+
+    private class ScanningOutputStream extends ServletOutputStream {
+
+        private final ServletOutputStream delegate;
+
+        private ScanningOutputStream(ServletOutputStream delegate) {
+
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+
+            scanner.feed((char) (b & 0xFF));
+            delegate.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+
+            for (int index = off; index < off + len; index++) {
+                scanner.feed((char) (b[index] & 0xFF));
+            }
+            delegate.write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+
+            delegate.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+
+            delegate.close();
+        }
+
+        @Override
+        public boolean isReady() {
+
+            return delegate.isReady();
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+
+            delegate.setWriteListener(writeListener);
+        }
+
+    }
+
+    private class ScanningWriter extends Writer {
+
+        private final Writer delegate;
+
+        private ScanningWriter(Writer delegate) {
+
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void write(char[] cbuf, int off, int len) throws IOException {
+
+            for (int index = off; index < off + len; index++) {
+                scanner.feed(cbuf[index]);
+            }
+            delegate.write(cbuf, off, len);
+        }
+
+        @Override
+        public void write(String str, int off, int len) throws IOException {
+
+            for (int index = off; index < off + len; index++) {
+                scanner.feed(str.charAt(index));
+            }
+            delegate.write(str, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+
+            delegate.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+
+            delegate.close();
+        }
+
+    }
+
+}
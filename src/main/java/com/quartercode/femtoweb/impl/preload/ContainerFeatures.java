@@ -0,0 +1,139 @@
+/*
+ * This file is part of FemtoWeb.
+ * Copyright (c) 2015 QuarterCode <http://quartercode.com/>
+ *
+ * FemtoWeb is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * FemtoWeb is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with FemtoWeb. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.femtoweb.impl.preload;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import javax.servlet.ServletResponse;
+import javax.servlet.ServletResponseWrapper;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/*
+ * Accesses HTTP/2 server push (servlet 4.0) and 103 Early Hints (container-specific) through reflection since the framework is compiled against servlet 3.1.
+ * All methods are looked up once; if a feature is not available, the corresponding call just does nothing.
+ */
+class ContainerFeatures {
+
+    private static final Logger                          LOGGER              = LoggerFactory.getLogger(ContainerFeatures.class);
+
+    private static final Method                          NEW_PUSH_BUILDER;
+    private static final Method                          PUSH_BUILDER_PATH;
+    private static final Method                          PUSH_BUILDER_PUSH;
+
+    private static final Method                          NO_METHOD;
+    private static final ConcurrentMap<Class<?>, Method> EARLY_HINTS_METHODS = new ConcurrentHashMap<>();
+
+    static {
+        Method newPushBuilder = null;
+        Method pushBuilderPath = null;
+        Method pushBuilderPush = null;
+        try {
+            newPushBuilder = HttpServletRequest.class.getMethod("newPushBuilder");
+            pushBuilderPath = newPushBuilder.getReturnType().getMethod("path", String.class);
+            pushBuilderPush = newPushBuilder.getReturnType().getMethod("push");
+        } catch (NoSuchMethodException e) {
+            // The servlet API of the container doesn't support server push
+            newPushBuilder = null;
+        }
+        NEW_PUSH_BUILDER = newPushBuilder;
+        PUSH_BUILDER_PATH = pushBuilderPath;
+        PUSH_BUILDER_PUSH = pushBuilderPush;
+
+        try {
+            NO_METHOD = ContainerFeatures.class.getDeclaredMethod("noMethod");
+        } catch (NoSuchMethodException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    static void push(HttpServletRequest request, Collection<String> uris) {
+
+        if (NEW_PUSH_BUILDER == null || uris.isEmpty()) {
+            return;
+        }
+
+        try {
+            // The push builder is null if the client doesn't accept pushes
+            Object pushBuilder = NEW_PUSH_BUILDER.invoke(request);
+            if (pushBuilder != null) {
+                for (String uri : uris) {
+                    PUSH_BUILDER_PATH.invoke(pushBuilder, uri);
+                    PUSH_BUILDER_PUSH.invoke(pushBuilder);
+                }
+            }
+        } catch (IllegalAccessException | InvocationTargetException e) {
+            LOGGER.debug("Cannot push assets for request to '{}'", request.getRequestURI(), e);
+        }
+    }
+
+    static void sendEarlyHints(HttpServletResponse response) {
+
+        // Find the container response since only that one might provide early hints; wrappers are unwrapped
+        ServletResponse current = response;
+        Method sendEarlyHints = getEarlyHintsMethod(current.getClass());
+        while (sendEarlyHints == null && current instanceof ServletResponseWrapper) {
+            current = ((ServletResponseWrapper) current).getResponse();
+            sendEarlyHints = getEarlyHintsMethod(current.getClass());
+        }
+
+        // Detached wrappers might not pass on the announcement; in that case, there is nothing to hint at
+        if (sendEarlyHints == null || ((HttpServletResponse) current).getHeader("Link") == null) {
+            return;
+        }
+
+        try {
+            sendEarlyHints.invoke(current);
+        } catch (IllegalAccessException | InvocationTargetException e) {
+            LOGGER.debug("Cannot send early hints", e);
+        }
+    }
+
+    private static Method getEarlyHintsMethod(Class<?> responseClass) {
+
+        Method method = EARLY_HINTS_METHODS.get(responseClass);
+
+        if (method == null) {
+            try {
+                method = responseClass.getMethod("sendEarlyHints");
+            } catch (NoSuchMethodException e) {
+                method = NO_METHOD;
+            }
+            EARLY_HINTS_METHODS.putIfAbsent(responseClass, method);
+        }
+
+        return method == NO_METHOD ? null : method;
+    }
+
+    @SuppressWarnings ("unused")
+    private static void noMethod() {
+
+        // Used as sentinel for response classes without early hints support
+    }
+
+    private ContainerFeatures() {
+
+    }
+
+}
@@ -0,0 +1,179 @@
+/*
+ * This file is part of FemtoWeb.
+ * Copyright (c) 2015 QuarterCode <http://quartercode.com/>
+ *
+ * FemtoWeb is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * FemtoWeb is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with FemtoWeb. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.femtoweb.impl.preload;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.apache.commons.lang3.StringUtils;
+import com.quartercode.femtoweb.api.AssetPreloader;
+import com.quartercode.femtoweb.api.Context;
+import com.quartercode.femtoweb.api.resolutions.View;
+
+/**
+ * The default {@link AssetPreloader} which announces assets through a {@code Link} header with one {@code rel=preload} entry per asset.
+ * Assets whose type cannot be derived from their file extension are not announced since browsers ignore preloads without a destination type.<br>
+ * <br>
+ * If learning is enabled, the output of the first rendering of each view is scanned for quoted references to the {@link Context#getStaticAssetPath() static asset path}.
+ * All found assets are added to the manifest of that view and announced for every following request to the view.
+ * Optionally, the announced assets can also be pushed through HTTP/2 server push or sent in a {@code 103 Early Hints} response.
+ * Both features are only used if the container supports them; otherwise, only the {@code Link} header is sent.
+ */
+public class DefaultAssetPreloader implements AssetPreloader {
+
+    private static final int                         MAX_LEARNED_ASSETS = 32;
+
+    private final boolean                            learning;
+    private final boolean                            serverPush;
+    private final boolean                            earlyHints;
+
+    private final ConcurrentMap<String, Set<String>> learnedAssets      = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a new default asset preloader.
+     *
+     * @param learning Whether the assets of each view should be learned from its first rendering.
+     * @param serverPush Whether announced assets should also be pushed if the container supports HTTP/2 server push.
+     * @param earlyHints Whether the {@code Link} header should be sent in a {@code 103 Early Hints} response if the container supports it.
+     */
+    public DefaultAssetPreloader(boolean learning, boolean serverPush, boolean earlyHints) {
+
+        this.learning = learning;
+        this.serverPush = serverPush;
+        this.earlyHints = earlyHints;
+    }
+
+    /**
+     * Returns the assets which have been learned for the view with the given path.
+     * The returned URIs already contain the context path.
+     *
+     * @param viewPath The full path of the view whose learned assets should be returned.
+     * @return The learned assets of the given view.
+     */
+    public Set<String> getLearnedAssets(String viewPath) {
+
+        Set<String> assets = learnedAssets.get(viewPath);
+        return assets == null ? Collections.<String> emptySet() : Collections.unmodifiableSet(assets);
+    }
+
+    @Override
+    public HttpServletResponse preload(HttpServletRequest request, HttpServletResponse response, Context context, String viewPath, Collection<String> declaredAssets)
+            throws IOException {
+
+        String assetPrefix = request.getContextPath() + context.getStaticAssetPath() + "/";
+
+        // The first request to a view claims the learning of its assets
+        Set<String> learned = learnedAssets.get(viewPath);
+        boolean learn = false;
+        if (learned == null && learning) {
+            Set<String> newLearned = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+            learned = learnedAssets.putIfAbsent(viewPath, newLearned);
+            if (learned == null) {
+                learned = newLearned;
+                learn = true;
+            }
+        }
+
+        if (!response.isCommitted() && (!declaredAssets.isEmpty() || learned != null && !learned.isEmpty())) {
+            Set<String> assets = new LinkedHashSet<>();
+            for (String declaredAsset : declaredAssets) {
+                assets.add(request.getContextPath() + context.getAssetUri(declaredAsset));
+            }
+            if (learned != null) {
+                assets.addAll(learned);
+            }
+
+            announce(request, response, assets);
+        }
+
+        return learn ? new AssetScanningResponseWrapper(response, new AssetReferenceScanner(assetPrefix, learned, MAX_LEARNED_ASSETS)) : response;
+    }
+
+    private void announce(HttpServletRequest request, HttpServletResponse response, Set<String> assets) {
+
+        StringBuilder link = new StringBuilder();
+        Collection<String> announced = serverPush ? new LinkedHashSet<String>() : null;
+
+        for (String asset : assets) {
+            String destination = getDestination(asset);
+            if (destination != null) {
+                if (link.length() != 0) {
+                    link.append(", ");
+                }
+                link.append('<').append(asset).append(">; rel=preload; as=").append(destination);
+                if (destination.equals("font")) {
+                    link.append("; crossorigin");
+                }
+
+                if (announced != null) {
+                    announced.add(asset);
+                }
+            }
+        }
+
+        if (link.length() == 0) {
+            return;
+        }
+
+        response.addHeader("Link", link.toString());
+
+        if (serverPush) {
+            ContainerFeatures.push(request, announced);
+        }
+        if (earlyHints) {
+            ContainerFeatures.sendEarlyHints(response);
+        }
+    }
+
+    private String getDestination(String asset) {
+
+        String path = StringUtils.substringBefore(StringUtils.substringBefore(asset, "?"), "#");
+        String extension = StringUtils.substringAfterLast(path, ".").toLowerCase();
+
+        switch (extension) {
+            case "css":
+                return "style";
+            case "js":
+            case "mjs":
+                return "script";
+            case "woff":
+            case "woff2":
+            case "ttf":
+            case "otf":
+                return "font";
+            case "png":
+            case "jpg":
+            case "jpeg":
+            case "gif":
+            case "svg":
+            case "webp":
+            case "ico":
+                return "image";
+            default:
+                return null;
+        }
+    }
+
+}
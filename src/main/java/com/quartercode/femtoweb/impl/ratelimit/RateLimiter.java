@@ -0,0 +1,187 @@
+/*
+ * This file is part of FemtoWeb.
+ * Copyright (c) 2015 QuarterCode <http://quartercode.com/>
+ *
+ * FemtoWeb is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * FemtoWeb is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with FemtoWeb. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.femtoweb.impl.ratelimit;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.commons.lang3.Validate;
+
+/**
+ * A rate limiter which keeps one token bucket per client key.
+ * Each bucket is a single {@link AtomicLong} which stores the time at which the bucket will be full again
+ * (the "theoretical arrival time" of the generic cell rate algorithm, which behaves exactly like a token bucket).
+ * Taking a token is a single compare-and-set operation, so no locks are involved.<br>
+ * <br>
+ * The buckets are spread over independent stripes, and each stripe holds a bounded amount of buckets.
+ * Since a bucket which is full again is no different from a new bucket, such idle buckets can be evicted without losing any information.
+ * A stripe evicts its idle buckets whenever it hasn't been swept for a second, or when it is full and one of its buckets might be idle by now.
+ * If a stripe is still full afterwards, all new clients of that stripe share a single overflow bucket until space becomes free again,
+ * so flooding the limiter with random keys neither exhausts the memory nor bypasses the limit.
+ */
+public class RateLimiter {
+
+    private static final int  STRIPES        = 32;
+    private static final long SWEEP_INTERVAL = TimeUnit.SECONDS.toNanos(1);
+    private static final long EVICTED        = Long.MIN_VALUE;
+
+    private final long        interval;
+    private final long        tolerance;
+    private final int         stripeCapacity;
+    private final Stripe[]    stripes        = new Stripe[STRIPES];
+
+    /**
+     * Creates a new rate limiter.
+     *
+     * @param permitsPerSecond The amount of tokens each bucket is refilled with per second.
+     * @param burst The maximum amount of tokens each bucket can hold.
+     * @param maxClients The maximum amount of buckets which are kept at the same time.
+     */
+    public RateLimiter(double permitsPerSecond, int burst, int maxClients) {
+
+        Validate.isTrue(permitsPerSecond > 0, "Rate limit must be positive");
+        Validate.isTrue(burst > 0, "Rate limit burst must be positive");
+        Validate.isTrue(maxClients > 0, "Maximum amount of rate limited clients must be positive");
+
+        interval = Math.max(1, (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond));
+        tolerance = interval * burst;
+        stripeCapacity = Math.max(1, maxClients / STRIPES);
+
+        for (int index = 0; index < STRIPES; index++) {
+            stripes[index] = new Stripe();
+        }
+    }
+
+    /**
+     * Returns the amount of client buckets which are currently kept.
+     *
+     * @return The current client count.
+     */
+    public int getClientCount() {
+
+        int count = 0;
+        for (Stripe stripe : stripes) {
+            count += stripe.size.get();
+        }
+        return count;
+    }
+
+    /**
+     * Tries to take a token from the bucket of the client with the given key.
+     *
+     * @param key The key which identifies the client (e.g. its address).
+     * @return {@code 0} if a token has been taken, or otherwise the amount of nanoseconds after which the next token will be available.
+     */
+    public long acquire(String key) {
+
+        long now = System.nanoTime();
+        AtomicLong bucket = getBucket(key, now);
+
+        while (true) {
+            long fullTime = bucket.get();
+            if (fullTime == EVICTED) {
+                // The bucket has been evicted in the meantime, which means that it was full
+                bucket = getBucket(key, now);
+                continue;
+            }
+
+            long newFullTime = Math.max(fullTime, now) + interval;
+
+            // The bucket would overflow if the time until it is full again exceeded the time it takes to refill all tokens
+            long excess = newFullTime - now - tolerance;
+            if (excess > 0) {
+                return excess;
+            } else if (bucket.compareAndSet(fullTime, newFullTime)) {
+                return 0;
+            }
+        }
+    }
+
+    private AtomicLong getBucket(String key, long now) {
+
+        int hash = key.hashCode();
+        Stripe stripe = stripes[ (hash ^ hash >>> 16) & STRIPES - 1];
+
+        AtomicLong bucket = stripe.buckets.get(key);
+        if (bucket != null) {
+            return bucket;
+        }
+
+        // A full stripe isn't swept again before the first of its buckets can be idle, so that a flood of new clients doesn't cause a sweep per request
+        if (now - stripe.lastSweep.get() >= SWEEP_INTERVAL || stripe.size.get() >= stripeCapacity && now - stripe.nextIdleTime >= 0) {
+            stripe.sweep(now);
+        }
+
+        // Clients which don't fit into the stripe anymore share the overflow bucket
+        if (stripe.size.incrementAndGet() > stripeCapacity) {
+            stripe.size.decrementAndGet();
+            return stripe.overflow;
+        }
+
+        // A new bucket is full, which means that it is full at the current time
+        bucket = new AtomicLong(now);
+        AtomicLong existing = stripe.buckets.putIfAbsent(key, bucket);
+        if (existing != null) {
+            stripe.size.decrementAndGet();
+            return existing;
+        }
+        return bucket;
+    }
+
+    private static class Stripe {
+
+        private final ConcurrentMap<String, AtomicLong> buckets      = new ConcurrentHashMap<>();
+        private final AtomicInteger                     size         = new AtomicInteger();
+        private final AtomicLong                        lastSweep    = new AtomicLong(System.nanoTime());
+        private final AtomicLong                        overflow     = new AtomicLong(System.nanoTime());
+
+        // The earliest time at which one of the buckets which survived the last sweep will be idle; only written by the sweeping thread
+        private volatile long                           nextIdleTime = System.nanoTime();
+
+        private void sweep(long now) {
+
+            // Only one thread sweeps a stripe at the same time; the others just go on
+            long last = lastSweep.get();
+            if (!lastSweep.compareAndSet(last, now)) {
+                return;
+            }
+
+            // A bucket is marked as evicted before it is removed, so that no token which is taken concurrently can get lost
+            long nextIdle = now + SWEEP_INTERVAL;
+            for (Iterator<AtomicLong> iterator = buckets.values().iterator(); iterator.hasNext();) {
+                AtomicLong bucket = iterator.next();
+                long fullTime = bucket.get();
+                if (fullTime == EVICTED) {
+                    continue;
+                } else if (fullTime - now <= 0 && bucket.compareAndSet(fullTime, EVICTED)) {
+                    iterator.remove();
+                    size.decrementAndGet();
+                } else if (fullTime - nextIdle < 0) {
+                    nextIdle = fullTime;
+                }
+            }
+            nextIdleTime = nextIdle;
+        }
+
+    }
+
+}
@@ -0,0 +1,182 @@
+/*
+ * This file is part of FemtoWeb.
+ * Copyright (c) 2015 QuarterCode <http://quartercode.com/>
+ *
+ * FemtoWeb is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * FemtoWeb is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with FemtoWeb. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.femtoweb.impl.ratelimit;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import javax.servlet.http.HttpServletRequest;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.Validate;
+import com.quartercode.femtoweb.api.Action;
+import com.quartercode.femtoweb.api.Context;
+import com.quartercode.femtoweb.api.RateLimit;
+
+/**
+ * The registry which creates and holds the {@link RateLimiter}s of all {@link Action} classes.
+ * A limiter is looked up the first time an action class is requested, either from a configured limit for the longest URI prefix
+ * which matches the action's {@link Context#getUri(Class) URI}, or from a {@link RateLimit} annotation on the class.
+ * All actions below a configured URI prefix share the same limiter, while each annotated action class gets its own one.
+ * Configured limits take precedence over annotations.
+ * Action classes without any limit are remembered as well, so that each lookup is just a single map access.
+ */
+public class RateLimiterRegistry {
+
+    private static final RateLimiter                                  UNLIMITED = new RateLimiter(1, 1, 1);
+
+    private final List<PrefixLimiter>                                 prefixLimiters;
+    private final String                                              keyHeader;
+    private final int                                                 trustedHops;
+    private final int                                                 maxClients;
+
+    private final ConcurrentMap<Class<? extends Action>, RateLimiter> limiters  = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a new rate limiter registry.
+     *
+     * @param configuredLimits A list of limit definitions in the format {@code uriPrefix=permitsPerSecond} or {@code uriPrefix=permitsPerSecond/burst}
+     *        (e.g. {@code /shop/export=0.5/5}).
+     *        The URI prefixes are matched against action URIs like the ones returned by {@link Context#getUri(Class)}.
+     * @param keyHeader The name of the request header whose value identifies the client, or {@code null} if the remote address should be used.
+     * @param trustedHops The amount of trusted proxies which append an entry to the key header if it contains a comma-separated list (like {@code X-Forwarded-For}).
+     *        The client key is the entry which has been appended by the first trusted proxy, i.e. the entry at that position from the right.
+     * @param maxClients The maximum amount of clients each limiter keeps a token bucket for.
+     */
+    public RateLimiterRegistry(List<String> configuredLimits, String keyHeader, int trustedHops, int maxClients) {
+
+        Validate.isTrue(trustedHops > 0, "Amount of trusted rate limit hops must be positive");
+
+        prefixLimiters = new ArrayList<>();
+        for (String definition : configuredLimits) {
+            String prefix = StringUtils.substringBefore(definition, "=").trim();
+            String[] values = StringUtils.split(StringUtils.substringAfter(definition, "="), '/');
+            Validate.isTrue(!prefix.isEmpty() && values.length >= 1 && values.length <= 2, "Invalid rate limit definition '%s'; expected 'uriPrefix=permitsPerSecond[/burst]'",
+                    definition);
+
+            double permitsPerSecond = Double.parseDouble(values[0].trim());
+            int burst = values.length == 2 ? Integer.parseInt(values[1].trim()) : Math.max(1, (int) Math.ceil(permitsPerSecond));
+            String normalizedPrefix = StringUtils.stripEnd("/" + StringUtils.strip(prefix, "/"), "/");
+            prefixLimiters.add(new PrefixLimiter(normalizedPrefix, new RateLimiter(permitsPerSecond, burst, maxClients)));
+        }
+
+        // Longer prefixes are more specific and therefore checked first
+        Collections.sort(prefixLimiters, new Comparator<PrefixLimiter>() {
+
+            @Override
+            public int compare(PrefixLimiter limiter1, PrefixLimiter limiter2) {
+
+                return Integer.compare(limiter2.prefix.length(), limiter1.prefix.length());
+            }
+
+        });
+
+        this.keyHeader = StringUtils.trimToNull(keyHeader);
+        this.trustedHops = trustedHops;
+        this.maxClients = maxClients;
+    }
+
+    /**
+     * Returns the {@link RateLimiter} which is responsible for the given {@link Action} class.
+     *
+     * @param actionClass The action class whose limiter should be returned.
+     * @param context The context which is used for retrieving the URI of the action class.
+     * @return The limiter for the action class, or {@code null} if the action class isn't limited.
+     */
+    public RateLimiter getLimiter(Class<? extends Action> actionClass, Context context) {
+
+        RateLimiter limiter = limiters.get(actionClass);
+
+        if (limiter == null) {
+            limiter = createLimiter(actionClass, context);
+            RateLimiter existing = limiters.putIfAbsent(actionClass, limiter);
+            limiter = existing != null ? existing : limiter;
+        }
+
+        return limiter == UNLIMITED ? null : limiter;
+    }
+
+    /**
+     * Returns the key which identifies the client that sent the given request.
+     * That is the value of the configured key header, or the remote address if no header is configured or the request doesn't carry it.
+     * If the header contains a comma-separated list (like {@code X-Forwarded-For}), the entry which has been appended by the first trusted proxy is used.
+     * All entries left of it are sent by the client itself and can therefore be forged.
+     * If there are less entries than trusted proxies, the first entry is used.
+     *
+     * @param request The request whose client key should be returned.
+     * @return The client key.
+     */
+    public String getClientKey(HttpServletRequest request) {
+
+        if (keyHeader != null) {
+            // Proxies might append their entry as a new header line instead of extending the existing one
+            List<String> entries = new ArrayList<>();
+            for (Enumeration<String> values = request.getHeaders(keyHeader); values != null && values.hasMoreElements();) {
+                for (String entry : StringUtils.split(values.nextElement(), ',')) {
+                    entry = entry.trim();
+                    if (!entry.isEmpty()) {
+                        entries.add(entry);
+                    }
+                }
+            }
+
+            if (!entries.isEmpty()) {
+                return entries.get(Math.max(entries.size() - trustedHops, 0));
+            }
+        }
+
+        return request.getRemoteAddr();
+    }
+
+    private RateLimiter createLimiter(Class<? extends Action> actionClass, Context context) {
+
+        if (!prefixLimiters.isEmpty()) {
+            String uri = context.getUri(actionClass);
+            for (PrefixLimiter prefixLimiter : prefixLimiters) {
+                if (uri.startsWith(prefixLimiter.prefix) && (uri.length() == prefixLimiter.prefix.length() || uri.charAt(prefixLimiter.prefix.length()) == '/')) {
+                    return prefixLimiter.limiter;
+                }
+            }
+        }
+
+        RateLimit annotation = actionClass.getAnnotation(RateLimit.class);
+        if (annotation != null) {
+            return new RateLimiter(annotation.value(), annotation.burst(), maxClients);
+        }
+
+        return UNLIMITED;
+    }
+
+    private static class PrefixLimiter {
+
+        private final String      prefix;
+        private final RateLimiter limiter;
+
+        private PrefixLimiter(String prefix, RateLimiter limiter) {
+
+            this.prefix = prefix;
+            this.limiter = limiter;
+        }
+
+    }
+
+}
@@ -0,0 +1,237 @@
+/*
+ * This file is part of FemtoWeb.
+ * Copyright (c) 2015 QuarterCode <http://quartercode.com/>
+ *
+ * FemtoWeb is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * FemtoWeb is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with FemtoWeb. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.femtoweb.impl.response;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * An immutable snapshot of a response which has been recorded by a {@link CapturingResponseWrapper}.
+ * It can be {@link #replay(HttpServletResponse) replayed} to any number of real responses.
+ */
+public class CapturedResponse {
+
+    private final int                       status;
+    private final boolean                   error;
+    private final String                    errorMessage;
+    private final String                    redirectLocation;
+    private final Map<String, List<String>> headers;
+    private final String                    contentType;
+    private final String                    characterEncoding;
+    private final boolean                   cookiesSet;
+    private final byte[]                    body;
+
+    /**
+     * Restores a response which has been serialized with {@link #toBytes()}.
+     *
+     * @param bytes The serialized response.
+     * @return The restored response.
+     * @throws IOException If the bytes don't contain a valid serialized response.
+     */
+    public static CapturedResponse fromBytes(byte[] bytes) throws IOException {
+
+        DataInputStream input = new DataInputStream(new ByteArrayInputStream(bytes));
+
+        int status = input.readInt();
+        boolean error = input.readBoolean();
+        String errorMessage = readNullableString(input);
+        String redirectLocation = readNullableString(input);
+
+        Map<String, List<String>> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        for (int headerCount = input.readInt(); headerCount > 0; headerCount--) {
+            String name = input.readUTF();
+            List<String> values = new ArrayList<>();
+            for (int valueCount = input.readInt(); valueCount > 0; valueCount--) {
+                values.add(input.readUTF());
+            }
+            headers.put(name, Collections.unmodifiableList(values));
+        }
+
+        String contentType = readNullableString(input);
+        String characterEncoding = input.readUTF();
+        boolean cookiesSet = input.readBoolean();
+        byte[] body = new byte[input.readInt()];
+        input.readFully(body);
+
+        return new CapturedResponse(status, error, errorMessage, redirectLocation, Collections.unmodifiableMap(headers), contentType, characterEncoding, cookiesSet, body);
+    }
+
+    private static String readNullableString(DataInputStream input) throws IOException {
+
+        return input.readBoolean() ? input.readUTF() : null;
+    }
+
+    CapturedResponse(int status, boolean error, String errorMessage, String redirectLocation, Map<String, List<String>> headers, String contentType, String characterEncoding,
+            boolean cookiesSet, byte[] body) {
+
+        this.status = status;
+        this.error = error;
+        this.errorMessage = errorMessage;
+        this.redirectLocation = redirectLocation;
+        this.headers = headers;
+        this.contentType = contentType;
+        this.characterEncoding = characterEncoding;
+        this.cookiesSet = cookiesSet;
+        this.body = body;
+    }
+
+    /**
+     * Returns the recorded HTTP status code.
+     *
+     * @return The status code.
+     */
+    public int getStatus() {
+
+        return status;
+    }
+
+    /**
+     * Returns whether the recorded response added any cookies.
+     * Such responses are usually specific to one user and should not be replayed to other users.
+     *
+     * @return Whether cookies have been set.
+     */
+    public boolean isCookiesSet() {
+
+        return cookiesSet;
+    }
+
+    /**
+     * Returns the recorded content type, including any charset parameter.
+     *
+     * @return The content type, or {@code null} if none has been set.
+     */
+    public String getContentType() {
+
+        return contentType;
+    }
+
+    /**
+     * Returns the recorded body.
+     * Note that the returned array must not be modified.
+     *
+     * @return The recorded body bytes.
+     */
+    public byte[] getBody() {
+
+        return body;
+    }
+
+    /**
+     * Returns the recorded body decoded with the recorded character encoding.
+     *
+     * @return The recorded body as a string.
+     * @throws IOException If the recorded character encoding is not supported.
+     */
+    public String getBodyAsString() throws IOException {
+
+        return new String(body, characterEncoding);
+    }
+
+    /**
+     * Serializes this response into a byte array, so that it can be stored outside of the heap, e.g. in a shared cache.
+     * The response can be restored with {@link #fromBytes(byte[])}.
+     *
+     * @return The serialized response.
+     */
+    public byte[] toBytes() {
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(body.length + 256);
+        DataOutputStream output = new DataOutputStream(bytes);
+
+        try {
+            output.writeInt(status);
+            output.writeBoolean(error);
+            writeNullableString(output, errorMessage);
+            writeNullableString(output, redirectLocation);
+
+            output.writeInt(headers.size());
+            for (Entry<String, List<String>> header : headers.entrySet()) {
+                output.writeUTF(header.getKey());
+                output.writeInt(header.getValue().size());
+                for (String value : header.getValue()) {
+                    output.writeUTF(value);
+                }
+            }
+
+            writeNullableString(output, contentType);
+            output.writeUTF(characterEncoding);
+            output.writeBoolean(cookiesSet);
+            output.writeInt(body.length);
+            output.write(body);
+        } catch (IOException e) {
+            // Cannot happen since the data is written into memory
+            throw new IllegalStateException(e);
+        }
+
+        return bytes.toByteArray();
+    }
+
+    private static void writeNullableString(DataOutputStream output, String value) throws IOException {
+
+        output.writeBoolean(value != null);
+        if (value != null) {
+            output.writeUTF(value);
+        }
+    }
+
+    /**
+     * Applies the recorded status, headers and body to the given response.
+     * Errors and redirects are replayed through {@link HttpServletResponse#sendError(int, String)} and {@link HttpServletResponse#sendRedirect(String)}.
+     *
+     * @param response The response the recording should be applied to.
+     * @throws IOException If the body cannot be written to the response.
+     */
+    public void replay(HttpServletResponse response) throws IOException {
+
+        for (Entry<String, List<String>> header : headers.entrySet()) {
+            for (String value : header.getValue()) {
+                response.addHeader(header.getKey(), value);
+            }
+        }
+
+        if (redirectLocation != null) {
+            response.sendRedirect(redirectLocation);
+        } else if (error) {
+            response.sendError(status, errorMessage);
+        } else {
+            response.setStatus(status);
+            if (contentType != null) {
+                response.setContentType(contentType);
+            }
+            response.setCharacterEncoding(characterEncoding);
+            response.setContentLength(body.length);
+
+            if (body.length != 0) {
+                response.getOutputStream().write(body);
+            }
+        }
+    }
+
+}
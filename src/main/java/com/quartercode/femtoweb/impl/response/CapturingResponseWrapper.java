@@ -0,0 +1,395 @@
+/*
+ * This file is part of FemtoWeb.
+ * Copyright (c) 2015 QuarterCode <http://quartercode.com/>
+ *
+ * FemtoWeb is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * FemtoWeb is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with FemtoWeb. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.femtoweb.impl.response;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.TreeMap;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.time.FastDateFormat;
+
+/**
+ * A response wrapper which records the status, headers and body of a response instead of sending them to the wrapped response.
+ * The wrapped response is only used for the URL encoding methods and is never modified.
+ * After the response has been produced, the recording can be retrieved as a {@link CapturedResponse} through {@link #toCapturedResponse()}.
+ * It can then be replayed to one or more real responses, or assembled into a larger page.
+ */
+public class CapturingResponseWrapper extends HttpServletResponseWrapper {
+
+    private static final String             DEFAULT_CHARACTER_ENCODING = "ISO-8859-1";
+    private static final FastDateFormat     DATE_FORMAT                = FastDateFormat.getInstance("EEE, dd MMM yyyy HH:mm:ss zzz", TimeZone.getTimeZone("GMT"), Locale.US);
+
+    private final ByteArrayOutputStream     body                       = new ByteArrayOutputStream(4096);
+    private final Map<String, List<String>> headers                    = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+
+    private ServletOutputStream             outputStream;
+    private PrintWriter                     writer;
+
+    private int                             status                     = SC_OK;
+    private boolean                         error;
+    private String                          errorMessage;
+    private String                          redirectLocation;
+    private String                          contentType;
+    private String                          characterEncoding;
+    private Locale                          locale;
+    private boolean                         cookiesSet;
+    private boolean                         committed;
+
+    /**
+     * Creates a new capturing response wrapper.
+     *
+     * @param response The response whose URL encoding methods should be used. It is never modified.
+     */
+    public CapturingResponseWrapper(HttpServletResponse response) {
+
+        super(response);
+    }
+
+    /**
+     * Returns a snapshot of everything that has been recorded so far.
+     *
+     * @return The recorded response.
+     */
+    public CapturedResponse toCapturedResponse() {
+
+        if (writer != null) {
+            writer.flush();
+        }
+
+        Map<String, List<String>> headersCopy = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        for (Map.Entry<String, List<String>> header : headers.entrySet()) {
+            headersCopy.put(header.getKey(), Collections.unmodifiableList(new ArrayList<>(header.getValue())));
+        }
+
+        return new CapturedResponse(status, error, errorMessage, redirectLocation, Collections.unmodifiableMap(headersCopy), contentType, getCharacterEncoding(), cookiesSet,
+                body.toByteArray());
+    }
+
+    // ----- Body -----
+
+    @Override
+    public ServletOutputStream getOutputStream() {
+
+        if (writer != null) {
+            throw new IllegalStateException("getWriter() has already been called on this response");
+        }
+
+        if (outputStream == null) {
+            outputStream = new CapturingOutputStream();
+        }
+        return outputStream;
+    }
+
+    @Override
+    public PrintWriter getWriter() throws IOException {
+
+        if (writer == null) {
+            if (outputStream != null) {
+                throw new IllegalStateException("getOutputStream() has already been called on this response");
+            }
+
+            outputStream = new CapturingOutputStream();
+            writer = new PrintWriter(new OutputStreamWriter(outputStream, getCharacterEncoding()));
+        }
+        return writer;
+    }
+
+    @Override
+    public void setContentLength(int len) {
+
+        // The length is derived from the recorded body
+    }
+
+    @Override
+    public void setContentLengthLong(long len) {
+
+        // The length is derived from the recorded body
+    }
+
+    @Override
+    public void flushBuffer() {
+
+        if (writer != null) {
+            writer.flush();
+        }
+    }
+
+    @Override
+    public void resetBuffer() {
+
+        if (writer != null) {
+            writer.flush();
+        }
+        body.reset();
+    }
+
+    @Override
+    public void reset() {
+
+        resetBuffer();
+        headers.clear();
+        status = SC_OK;
+        contentType = null;
+        characterEncoding = null;
+        cookiesSet = false;
+    }
+
+    @Override
+    public boolean isCommitted() {
+
+        return committed;
+    }
+
+    @Override
+    public int getBufferSize() {
+
+        return Integer.MAX_VALUE;
+    }
+
+    @Override
+    public void setBufferSize(int size) {
+
+        // The whole body is always buffered
+    }
+
+    // ----- Status -----
+
+    @Override
+    public void setStatus(int sc) {
+
+        status = sc;
+    }
+
+    @Override
+    @Deprecated
+    public void setStatus(int sc, String sm) {
+
+        status = sc;
+    }
+
+    @Override
+    public int getStatus() {
+
+        return status;
+    }
+
+    @Override
+    public void sendError(int sc) {
+
+        sendError(sc, null);
+    }
+
+    @Override
+    public void sendError(int sc, String msg) {
+
+        resetBuffer();
+        status = sc;
+        error = true;
+        errorMessage = msg;
+        committed = true;
+    }
+
+    @Override
+    public void sendRedirect(String location) {
+
+        resetBuffer();
+        status = SC_FOUND;
+        redirectLocation = location;
+        committed = true;
+    }
+
+    // ----- Headers -----
+
+    @Override
+    public void setHeader(String name, String value) {
+
+        if ("Content-Type".equalsIgnoreCase(name)) {
+            setContentType(value);
+        } else if (!"Content-Length".equalsIgnoreCase(name)) {
+            List<String> values = new ArrayList<>(1);
+            values.add(value);
+            headers.put(name, values);
+        }
+    }
+
+    @Override
+    public void addHeader(String name, String value) {
+
+        if ("Content-Type".equalsIgnoreCase(name)) {
+            setContentType(value);
+        } else if (!"Content-Length".equalsIgnoreCase(name)) {
+            List<String> values = headers.get(name);
+            if (values == null) {
+                values = new ArrayList<>(1);
+                headers.put(name, values);
+            }
+            values.add(value);
+        }
+    }
+
+    @Override
+    public void setIntHeader(String name, int value) {
+
+        setHeader(name, String.valueOf(value));
+    }
+
+    @Override
+    public void addIntHeader(String name, int value) {
+
+        addHeader(name, String.valueOf(value));
+    }
+
+    @Override
+    public void setDateHeader(String name, long date) {
+
+        setHeader(name, DATE_FORMAT.format(date));
+    }
+
+    @Override
+    public void addDateHeader(String name, long date) {
+
+        addHeader(name, DATE_FORMAT.format(date));
+    }
+
+    @Override
+    public boolean containsHeader(String name) {
+
+        return headers.containsKey(name);
+    }
+
+    @Override
+    public String getHeader(String name) {
+
+        List<String> values = headers.get(name);
+        return values == null ? null : values.get(0);
+    }
+
+    @Override
+    public Collection<String> getHeaders(String name) {
+
+        List<String> values = headers.get(name);
+        return values == null ? Collections.<String> emptyList() : new ArrayList<>(values);
+    }
+
+    @Override
+    public Collection<String> getHeaderNames() {
+
+        return new ArrayList<>(headers.keySet());
+    }
+
+    @Override
+    public void addCookie(Cookie cookie) {
+
+        // Cookies are not recorded since captured responses are meant to be independent of the user
+        cookiesSet = true;
+    }
+
+    @Override
+    public void setContentType(String type) {
+
+        contentType = type;
+
+        String charset = StringUtils.substringAfter(StringUtils.deleteWhitespace(StringUtils.defaultString(type)).toLowerCase(), "charset=");
+        if (!charset.isEmpty()) {
+            characterEncoding = StringUtils.substringBefore(charset, ";");
+        }
+    }
+
+    @Override
+    public String getContentType() {
+
+        return contentType;
+    }
+
+    @Override
+    public void setCharacterEncoding(String charset) {
+
+        // Like in the servlet specification, the encoding can no longer be changed once the writer has been obtained
+        if (writer == null) {
+            characterEncoding = charset;
+        }
+    }
+
+    @Override
+    public String getCharacterEncoding() {
+
+        return characterEncoding != null ? characterEncoding : DEFAULT_CHARACTER_ENCODING;
+    }
+
+    @Override
+    public void setLocale(Locale locale) {
+
+        this.locale = locale;
+    }
+
+    @Override
+    public Locale getLocale() {
+
+        return locale != null ? locale : super.getLocale();
+    }
+
+    private class CapturingOutputStream extends ServletOutputStream {
+
+        @Override
+        public void write(int b) {
+
+            body.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+
+            body.write(b, off, len);
+        }
+
+        @Override
+        public void close() {
+
+            // The body stays open so the recording can be completed later
+        }
+
+        @Override
+        public boolean isReady() {
+
+            return true;
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+
+            throw new UnsupportedOperationException("Non-blocking IO is not supported by captured responses");
+        }
+
+    }
+
+}
@@ -0,0 +1,83 @@
+/*
+ * This file is part of FemtoWeb.
+ * Copyright (c) 2015 QuarterCode <http://quartercode.com/>
+ *
+ * FemtoWeb is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * FemtoWeb is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with FemtoWeb. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.femtoweb.impl.response;
+
+import java.util.Map.Entry;
+import java.util.TreeMap;
+import javax.servlet.http.HttpServletRequest;
+
+/**
+ * A class which builds the keys that identify identical requests, e.g. for coalescing them or for caching their responses.
+ * Each parameter name and value is prefixed with its length, and each parameter with its amount of values.
+ * Therefore, different parameter combinations never produce the same key, no matter which characters the names and values contain.
+ */
+public class RequestKeys {
+
+    /**
+     * Builds the key of the given request.
+     * If no relevant parameter names are given, all parameters of the request are part of the key, ordered by their names.
+     * Otherwise, only the given parameters are part of the key; missing parameters are distinguished from parameters without values.
+     *
+     * @param prefix The prefix of the key, e.g. the name of the action class which is responsible for the request.
+     * @param request The request whose key should be built.
+     * @param params The names of the relevant parameters, or an empty array if all parameters are relevant.
+     * @return The key of the request.
+     */
+    public static String build(String prefix, HttpServletRequest request, String[] params) {
+
+        StringBuilder key = new StringBuilder(prefix.length() + 64).append(prefix);
+
+        if (params.length == 0) {
+            for (Entry<String, String[]> parameter : new TreeMap<>(request.getParameterMap()).entrySet()) {
+                appendParameter(key, parameter.getKey(), parameter.getValue());
+            }
+        } else {
+            for (String name : params) {
+                appendParameter(key, name, request.getParameterValues(name));
+            }
+        }
+
+        return key.toString();
+    }
+
+    private static void appendParameter(StringBuilder key, String name, String[] values) {
+
+        appendString(key.append('&'), name);
+
+        if (values == null) {
+            key.append('-');
+        } else {
+            key.append(values.length).append('[');
+            for (String value : values) {
+                appendString(key, value);
+            }
+            key.append(']');
+        }
+    }
+
+    private static void appendString(StringBuilder key, String value) {
+
+        key.append(value.length()).append(':').append(value);
+    }
+
+    private RequestKeys() {
+
+    }
+
+}
@@ -0,0 +1,343 @@
+/*
+ * This file is part of FemtoWeb.
+ * Copyright (c) 2015 QuarterCode <http://quartercode.com/>
+ *
+ * FemtoWeb is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * FemtoWeb is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with FemtoWeb. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.femtoweb.impl.scheduling;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.Validate;
+import com.quartercode.femtoweb.api.Action;
+import com.quartercode.femtoweb.api.PriorityClass;
+
+/**
+ * A scheduler which shares a fixed amount of execution slots between the {@link PriorityClass priority classes} of all {@link Action}s.
+ * As long as slots are free and nobody waits, acquiring a slot doesn't block.
+ * Otherwise, the acquiring thread is put into the bounded queue of its priority class.
+ * Each freed slot is handed over directly to the waiting thread with the smallest virtual finish time (weighted fair queuing),
+ * so backlogged classes receive slots in proportion to their weights, and idle classes can't save up credit for later bursts.
+ * If the queue of a class is full, the acquisition fails immediately, so the request can be shed.
+ */
+public class FairScheduler {
+
+    private final int                                                slots;
+    private final int                                                defaultQueueSize;
+    private final long                                               queueTimeout;
+    private final Map<String, int[]>                                 configuredClasses;
+
+    private final ConcurrentMap<Class<? extends Action>, ClassQueue> actionQueues = new ConcurrentHashMap<>();
+    private final Map<String, ClassQueue>                            queues       = new LinkedHashMap<>();
+
+    private final ReentrantLock                                      lock         = new ReentrantLock();
+    private int                                                      freeSlots;
+    private int                                                      waiting;
+    private double                                                   virtualTime;
+
+    /**
+     * Creates a new fair scheduler.
+     *
+     * @param slots The amount of actions which may execute at the same time across all priority classes.
+     * @param configuredClasses A list of priority class definitions in the format {@code name=weight} or {@code name=weight/maxQueued}
+     *        (e.g. {@code interactive=8/200}).
+     *        Configured weights take precedence over the ones declared by {@link PriorityClass} annotations.
+     * @param defaultQueueSize The maximum amount of threads which may wait in the queue of a class which doesn't configure its own queue size.
+     * @param queueTimeout The maximum amount of milliseconds a thread waits for a free slot.
+     */
+    public FairScheduler(int slots, List<String> configuredClasses, int defaultQueueSize, long queueTimeout) {
+
+        Validate.isTrue(slots > 0, "Scheduler slot count must be positive");
+        Validate.isTrue(defaultQueueSize >= 0, "Scheduler queue size cannot be negative");
+        Validate.isTrue(queueTimeout >= 0, "Scheduler queue timeout cannot be negative");
+
+        this.configuredClasses = new HashMap<>();
+        for (String definition : configuredClasses) {
+            String name = StringUtils.substringBefore(definition, "=").trim();
+            String[] values = StringUtils.split(StringUtils.substringAfter(definition, "="), '/');
+            Validate.isTrue(!name.isEmpty() && values.length >= 1 && values.length <= 2, "Invalid priority class definition '%s'; expected 'name=weight[/maxQueued]'",
+                    definition);
+
+            int weight = Integer.parseInt(values[0].trim());
+            int maxQueued = values.length == 2 ? Integer.parseInt(values[1].trim()) : defaultQueueSize;
+            this.configuredClasses.put(name, new int[] { weight, maxQueued });
+        }
+
+        this.slots = slots;
+        this.defaultQueueSize = defaultQueueSize;
+        this.queueTimeout = TimeUnit.MILLISECONDS.toNanos(queueTimeout);
+        freeSlots = slots;
+    }
+
+    /**
+     * Returns the amount of actions which may execute at the same time across all priority classes.
+     *
+     * @return The total slot count.
+     */
+    public int getSlots() {
+
+        return slots;
+    }
+
+    /**
+     * Returns the amount of executions which currently hold a slot.
+     *
+     * @return The current active count.
+     */
+    public int getActiveCount() {
+
+        lock.lock();
+        try {
+            return slots - freeSlots;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the amount of threads which are currently waiting in the queue of each priority class which has been used so far.
+     *
+     * @return The current queue depths, mapped by priority class name.
+     */
+    public Map<String, Integer> getQueueDepths() {
+
+        Map<String, Integer> depths = new LinkedHashMap<>();
+
+        lock.lock();
+        try {
+            for (ClassQueue queue : queues.values()) {
+                depths.put(queue.name, queue.waiters.size());
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        return Collections.unmodifiableMap(depths);
+    }
+
+    /**
+     * Resolves the priority class of the given {@link Action} class in advance, so that the first request doesn't need to do it.
+     *
+     * @param actionClass The action class whose priority class should be resolved.
+     */
+    public void prepare(Class<? extends Action> actionClass) {
+
+        getQueue(actionClass);
+    }
+
+    /**
+     * Tries to acquire a slot for executing the given {@link Action} class.
+     * If no slot is free or other threads are already waiting, the calling thread waits in the queue of the action's priority class
+     * for up to the given time or the set queue timeout, whichever is shorter.
+     * If that queue is full, this method returns {@code false} immediately.
+     * Each successful acquisition must be followed by a {@link #release()} call.
+     *
+     * @param actionClass The action class which should be executed.
+     * @param maxWait The maximum amount of nanoseconds the calling thread may wait in the queue, e.g. until the deadline of its request.
+     * @return Whether a slot has been acquired.
+     * @throws InterruptedException If the thread is interrupted while waiting in the queue.
+     */
+    public boolean acquire(Class<? extends Action> actionClass, long maxWait) throws InterruptedException {
+
+        ClassQueue queue = getQueue(actionClass);
+
+        lock.lockInterruptibly();
+        try {
+            // Nobody may overtake the threads which are already waiting
+            if (freeSlots > 0 && waiting == 0) {
+                freeSlots--;
+                return true;
+            } else if (queue.waiters.size() >= queue.maxQueued) {
+                return false;
+            }
+
+            Waiter waiter = new Waiter(lock.newCondition(), virtualTime);
+            queue.enqueue(waiter);
+            waiting++;
+
+            try {
+                long remaining = Math.min(queueTimeout, maxWait);
+                while (!waiter.granted) {
+                    if (remaining <= 0) {
+                        return false;
+                    }
+                    remaining = waiter.condition.awaitNanos(remaining);
+                }
+                return true;
+            } catch (InterruptedException e) {
+                // If the slot has been handed over right before the interrupt, it must be passed on to the next thread
+                if (waiter.granted) {
+                    handOver();
+                }
+                throw e;
+            } finally {
+                if (!waiter.granted) {
+                    queue.remove(waiter);
+                    waiting--;
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Releases a slot which has previously been {@link #acquire(Class, long) acquired}, so that the next queued thread can take it.
+     */
+    public void release() {
+
+        lock.lock();
+        try {
+            handOver();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void handOver() {
+
+        // Serve the waiting thread with the smallest virtual finish time; the heads of the queues always have the smallest times of their classes
+        Waiter next = null;
+        ClassQueue nextQueue = null;
+        for (ClassQueue queue : queues.values()) {
+            Waiter head = queue.waiters.peek();
+            if (head != null && (next == null || head.finishTag < next.finishTag)) {
+                next = head;
+                nextQueue = queue;
+            }
+        }
+
+        if (next == null) {
+            freeSlots++;
+            return;
+        }
+
+        nextQueue.waiters.poll();
+        waiting--;
+        virtualTime = Math.max(virtualTime, next.startTag);
+        next.granted = true;
+        next.condition.signal();
+    }
+
+    private ClassQueue getQueue(Class<? extends Action> actionClass) {
+
+        ClassQueue queue = actionQueues.get(actionClass);
+
+        if (queue == null) {
+            PriorityClass annotation = actionClass.getAnnotation(PriorityClass.class);
+            String name = annotation == null ? PriorityClass.DEFAULT : annotation.value();
+
+            lock.lock();
+            try {
+                queue = queues.get(name);
+                if (queue == null) {
+                    int[] configuredClass = configuredClasses.get(name);
+                    int weight = configuredClass != null ? configuredClass[0] : annotation == null ? 1 : annotation.weight();
+                    queue = new ClassQueue(name, weight, configuredClass != null ? configuredClass[1] : defaultQueueSize);
+                    queues.put(name, queue);
+                }
+            } finally {
+                lock.unlock();
+            }
+
+            actionQueues.putIfAbsent(actionClass, queue);
+        }
+
+        return queue;
+    }
+
+    private static class ClassQueue {
+
+        private final String             name;
+        private final int                weight;
+        private final int                maxQueued;
+        private final ArrayDeque<Waiter> waiters = new ArrayDeque<>();
+        private double                   lastFinishTag;
+
+        private ClassQueue(String name, int weight, int maxQueued) {
+
+            Validate.isTrue(weight > 0, "Weight of priority class '%s' must be positive", name);
+            Validate.isTrue(maxQueued >= 0, "Queue size of priority class '%s' cannot be negative", name);
+
+            this.name = name;
+            this.weight = weight;
+            this.maxQueued = maxQueued;
+        }
+
+        private void enqueue(Waiter waiter) {
+
+            waiter.schedule(lastFinishTag, weight);
+            lastFinishTag = waiter.finishTag;
+            waiters.add(waiter);
+        }
+
+        private void remove(Waiter waiter) {
+
+            // The tags of all later waiters have been derived from the tag of the removed one; therefore, they must be recomputed without it,
+            // so that an abandoned wait doesn't push the class back
+            double previousFinishTag = waiter.previousFinishTag;
+            boolean found = false;
+            for (Iterator<Waiter> iterator = waiters.iterator(); iterator.hasNext();) {
+                Waiter current = iterator.next();
+                if (current == waiter) {
+                    iterator.remove();
+                    found = true;
+                } else if (found) {
+                    current.schedule(previousFinishTag, weight);
+                    previousFinishTag = current.finishTag;
+                }
+            }
+
+            lastFinishTag = previousFinishTag;
+        }
+
+    }
+
+    private static class Waiter {
+
+        private final Condition condition;
+        private final double    arrivalTime;
+        private double          previousFinishTag;
+        private double          startTag;
+        private double          finishTag;
+        private boolean         granted;
+
+        private Waiter(Condition condition, double arrivalTime) {
+
+            this.condition = condition;
+            this.arrivalTime = arrivalTime;
+        }
+
+        private void schedule(double previousFinishTag, int weight) {
+
+            this.previousFinishTag = previousFinishTag;
+            startTag = Math.max(arrivalTime, previousFinishTag);
+            finishTag = startTag + 1.0 / weight;
+        }
+
+    }
+
+}
@@ -0,0 +1,186 @@
+/*
+ * This file is part of FemtoWeb.
+ * Copyright (c) 2015 QuarterCode <http://quartercode.com/>
+ *
+ * FemtoWeb is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * FemtoWeb is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with FemtoWeb. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.femtoweb.impl.session;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.Map;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.apache.commons.lang3.Validate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import com.quartercode.femtoweb.api.SessionStore;
+import com.quartercode.femtoweb.util.RequestUtils;
+
+/**
+ * An abstract {@link SessionStore} which identifies or transfers sessions through a cookie and doesn't use the container's session management.
+ * The session attributes of a request are {@link #load(HttpServletRequest) loaded} once on first access and then kept in a request attribute.
+ * All changes are applied to that request-scoped copy and only {@link #save(HttpServletRequest, HttpServletResponse, Map) saved}
+ * when the framework {@link #commit(HttpServletRequest, HttpServletResponse) commits} them.
+ * Since the attributes are serialized, all session attribute values must be {@link Serializable}.
+ */
+public abstract class AbstractCookieSessionStore implements SessionStore {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AbstractCookieSessionStore.class);
+
+    private final String        stateAttribute;
+    private final String        cookieName;
+    private final boolean       cookieSecure;
+
+    /**
+     * Creates a new abstract cookie session store.
+     *
+     * @param cookieName The name of the cookie which identifies or transfers sessions.
+     * @param cookieSecure Whether the cookie should only be sent over HTTPS.
+     */
+    protected AbstractCookieSessionStore(String cookieName, boolean cookieSecure) {
+
+        Validate.notBlank(cookieName, "Session cookie name cannot be blank");
+
+        stateAttribute = getClass().getName() + ".state";
+        this.cookieName = cookieName;
+        this.cookieSecure = cookieSecure;
+    }
+
+    @Override
+    public Object getAttribute(HttpServletRequest request, String name) {
+
+        return getState(request).attributes.get(name);
+    }
+
+    @Override
+    public void setAttribute(HttpServletRequest request, HttpServletResponse response, String name, Object value) {
+
+        Validate.isTrue(value == null || value instanceof Serializable, "Session attribute '%s' must be serializable", name);
+
+        SessionState state = getState(request);
+        if (value == null) {
+            state.dirty |= state.attributes.remove(name) != null;
+        } else {
+            state.attributes.put(name, value);
+            state.dirty = true;
+        }
+    }
+
+    @Override
+    public void commit(HttpServletRequest request, HttpServletResponse response) throws IOException {
+
+        SessionState state = (SessionState) request.getAttribute(stateAttribute);
+        if (state == null || !state.dirty) {
+            return;
+        }
+
+        if (response.isCommitted()) {
+            LOGGER.warn("Cannot save session changes of request to '{}' because the response has already been committed", RequestUtils.getRequestUri(request));
+        } else {
+            save(request, response, state.attributes);
+        }
+        state.dirty = false;
+    }
+
+    private SessionState getState(HttpServletRequest request) {
+
+        SessionState state = (SessionState) request.getAttribute(stateAttribute);
+
+        if (state == null) {
+            Map<String, Object> attributes = load(request);
+            state = new SessionState(attributes == null ? new HashMap<String, Object>() : attributes);
+            request.setAttribute(stateAttribute, state);
+        }
+
+        return state;
+    }
+
+    /**
+     * Loads the session attributes which belong to the given request.
+     * This method is called at most once per request.
+     * If no session exists for the request, an empty map or {@code null} should be returned.
+     *
+     * @param request The request whose session attributes should be loaded.
+     * @return A mutable map which contains the session attributes.
+     */
+    protected abstract Map<String, Object> load(HttpServletRequest request);
+
+    /**
+     * Saves the given session attributes, which have been changed during the given request.
+     * If the given map is empty, the session should be removed.
+     *
+     * @param request The request whose session attributes have been changed.
+     * @param response The response to the request, which has not yet been committed.
+     * @param attributes All session attributes, including the unchanged ones.
+     * @throws IOException If the session attributes cannot be saved.
+     */
+    protected abstract void save(HttpServletRequest request, HttpServletResponse response, Map<String, Object> attributes) throws IOException;
+
+    /**
+     * Returns the value of the session cookie which has been sent with the given request.
+     *
+     * @param request The request whose session cookie should be read.
+     * @return The value of the session cookie, or {@code null} if there is no such cookie.
+     */
+    protected String getCookieValue(HttpServletRequest request) {
+
+        Cookie[] cookies = request.getCookies();
+        if (cookies != null) {
+            for (Cookie cookie : cookies) {
+                if (cookieName.equals(cookie.getName())) {
+                    return cookie.getValue();
+                }
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Adds the session cookie with the given value to the given response.
+     * The cookie is bound to the context path of the webapp and not accessible from scripts.
+     *
+     * @param request The request whose context path should be used as the cookie path.
+     * @param response The response the cookie should be added to.
+     * @param value The new value of the session cookie.
+     * @param maxAge The maximum age of the cookie in seconds.
+     *        A negative value means that the cookie is discarded when the browser closes, and {@code 0} deletes the cookie.
+     */
+    protected void writeCookie(HttpServletRequest request, HttpServletResponse response, String value, int maxAge) {
+
+        Cookie cookie = new Cookie(cookieName, value);
+        cookie.setPath(request.getContextPath().isEmpty() ? "/" : request.getContextPath());
+        cookie.setHttpOnly(true);
+        cookie.setSecure(cookieSecure);
+        cookie.setMaxAge(maxAge);
+        response.addCookie(cookie);
+    }
+
+    private static class SessionState {
+
+        private final Map<String, Object> attributes;
+        private boolean                   dirty;
+
+        private SessionState(Map<String, Object> attributes) {
+
+            this.attributes = attributes;
+        }
+
+    }
+
+}
@@ -0,0 +1,94 @@
+/*
+ * This file is part of FemtoWeb.
+ * Copyright (c) 2015 QuarterCode <http://quartercode.com/>
+ *
+ * FemtoWeb is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * FemtoWeb is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with FemtoWeb. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.femtoweb.impl.session;
+
+import java.util.Arrays;
+
+/**
+ * An internal class which encodes and decodes the URL-safe Base64 alphabet without padding (RFC 4648, section 5).
+ * The output only contains characters which are allowed in cookie values.
+ */
+class Base64Url {
+
+    private static final char[] ALPHABET = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_".toCharArray();
+    private static final int[]  LOOKUP   = new int[128];
+
+    static {
+        Arrays.fill(LOOKUP, -1);
+        for (int index = 0; index < ALPHABET.length; index++) {
+            LOOKUP[ALPHABET[index]] = index;
+        }
+    }
+
+    static String encode(byte[] data) {
+
+        StringBuilder result = new StringBuilder( (data.length * 4 + 2) / 3);
+
+        int index = 0;
+        for (; index + 2 < data.length; index += 3) {
+            int bits = (data[index] & 0xff) << 16 | (data[index + 1] & 0xff) << 8 | data[index + 2] & 0xff;
+            result.append(ALPHABET[bits >>> 18 & 0x3f]).append(ALPHABET[bits >>> 12 & 0x3f]).append(ALPHABET[bits >>> 6 & 0x3f]).append(ALPHABET[bits & 0x3f]);
+        }
+
+        int remaining = data.length - index;
+        if (remaining == 1) {
+            int bits = (data[index] & 0xff) << 16;
+            result.append(ALPHABET[bits >>> 18 & 0x3f]).append(ALPHABET[bits >>> 12 & 0x3f]);
+        } else if (remaining == 2) {
+            int bits = (data[index] & 0xff) << 16 | (data[index + 1] & 0xff) << 8;
+            result.append(ALPHABET[bits >>> 18 & 0x3f]).append(ALPHABET[bits >>> 12 & 0x3f]).append(ALPHABET[bits >>> 6 & 0x3f]);
+        }
+
+        return result.toString();
+    }
+
+    static byte[] decode(String string) {
+
+        if (string.length() % 4 == 1) {
+            throw new IllegalArgumentException("Invalid Base64 length " + string.length());
+        }
+
+        byte[] result = new byte[string.length() * 3 / 4];
+        int bits = 0;
+        int bitCount = 0;
+        int resultIndex = 0;
+
+        for (int index = 0; index < string.length(); index++) {
+            char c = string.charAt(index);
+            int value = c < LOOKUP.length ? LOOKUP[c] : -1;
+            if (value < 0) {
+                throw new IllegalArgumentException("Invalid Base64 character '" + c + "'");
+            }
+
+            bits = bits << 6 | value;
+            bitCount += 6;
+            if (bitCount >= 8) {
+                bitCount -= 8;
+                result[resultIndex++] = (byte) (bits >>> bitCount);
+            }
+        }
+
+        return result;
+    }
+
+    private Base64Url() {
+
+    }
+
+}
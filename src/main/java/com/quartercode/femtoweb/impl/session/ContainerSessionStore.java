@@ -0,0 +1,59 @@
+/*
+ * This file is part of FemtoWeb.
+ * Copyright (c) 2015 QuarterCode <http://quartercode.com/>
+ *
+ * FemtoWeb is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * FemtoWeb is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with FemtoWeb. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.femtoweb.impl.session;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpSession;
+import com.quartercode.femtoweb.api.SessionStore;
+
+/**
+ * The default {@link SessionStore} which just uses the container's {@link HttpSession}s.
+ * All changes are directly applied to the container session; therefore, {@link #commit(HttpServletRequest, HttpServletResponse)} does nothing.
+ */
+public class ContainerSessionStore implements SessionStore {
+
+    @Override
+    public Object getAttribute(HttpServletRequest request, String name) {
+
+        HttpSession session = request.getSession(false);
+        return session == null ? null : session.getAttribute(name);
+    }
+
+    @Override
+    public void setAttribute(HttpServletRequest request, HttpServletResponse response, String name, Object value) {
+
+        if (value == null) {
+            // Don't create a new session just for removing an attribute
+            HttpSession session = request.getSession(false);
+            if (session != null) {
+                session.removeAttribute(name);
+            }
+        } else {
+            request.getSession().setAttribute(name, value);
+        }
+    }
+
+    @Override
+    public void commit(HttpServletRequest request, HttpServletResponse response) {
+
+        // Changes are directly applied to the container session
+    }
+
+}
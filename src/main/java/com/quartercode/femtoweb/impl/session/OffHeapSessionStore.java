@@ -0,0 +1,365 @@
+/*
+ * This file is part of FemtoWeb.
+ * Copyright (c) 2015 QuarterCode <http://quartercode.com/>
+ *
+ * FemtoWeb is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * FemtoWeb is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with FemtoWeb. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.femtoweb.impl.session;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.security.SecureRandom;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.TimeUnit;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.apache.commons.lang3.Validate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A session store which keeps the serialized attributes of all sessions in a single direct {@link ByteBuffer} outside the Java heap.
+ * Sessions are identified by a random ID which is transferred in a cookie.<br>
+ * <br>
+ * The buffer has the maximum total size and is allocated once when the store is created.
+ * It is split into blocks of {@value #BLOCK_SIZE} bytes, and each session occupies as many blocks as its serialized attributes need.
+ * Freed blocks are put on a free list and reused by later sessions.
+ * Since the buffer is never reallocated, session turnover doesn't leave any direct buffers behind which only a garbage collection could free.
+ * Only the index of session IDs and block numbers lives on the heap.<br>
+ * <br>
+ * The store enforces the following limits:
+ *
+ * <ul>
+ * <li>Sessions which haven't been accessed for the set timeout expire.</li>
+ * <li>A single session cannot grow beyond the set maximum size. Trying to save a larger session results in an {@link IllegalStateException}.</li>
+ * <li>If the maximum session count is exceeded or the buffer has no free blocks left, expired sessions are purged first.
+ * If that isn't enough, the least recently accessed sessions are evicted.</li>
+ * </ul>
+ *
+ * The session index is kept in access order, so purging and evicting only touch the sessions which are actually removed.
+ */
+public class OffHeapSessionStore extends AbstractCookieSessionStore {
+
+    /**
+     * The size of the blocks the session buffer is split into in bytes.
+     */
+    public static final int                   BLOCK_SIZE     = 256;
+
+    private static final long                 MAX_TOTAL_SIZE = Integer.MAX_VALUE / BLOCK_SIZE * BLOCK_SIZE;
+
+    private static final int[]                NO_BLOCKS      = new int[0];
+
+    private static final Logger               LOGGER         = LoggerFactory.getLogger(OffHeapSessionStore.class);
+
+    private static final long                 PURGE_INTERVAL = TimeUnit.SECONDS.toMillis(30);
+
+    private final String                      idAttribute    = OffHeapSessionStore.class.getName() + ".id";
+    private final SecureRandom                random         = new SecureRandom();
+
+    private final long                        timeout;
+    private final int                         maxSessions;
+    private final int                         maxSessionSize;
+
+    /*
+     * All of the following fields are guarded by the lock of the session index.
+     * Since blocks are reused as soon as they are freed, the buffer is only accessed while holding that lock as well.
+     */
+
+    // Access-ordered, so that the least recently accessed session always comes first
+    private final LinkedHashMap<String, Slot> sessions       = new LinkedHashMap<>(16, 0.75f, true);
+    private final ByteBuffer                  buffer;
+    private final int[]                       freeBlocks;
+    private int                               freeBlockCount;
+    private long                              lastPurge      = System.currentTimeMillis();
+
+    /**
+     * Creates a new off-heap session store.
+     * Note that the whole maximum total size is allocated right away.
+     *
+     * @param cookieName The name of the cookie which transfers the session ID.
+     * @param cookieSecure Whether the session cookie should only be sent over HTTPS.
+     * @param timeout The amount of seconds after which a session that hasn't been accessed expires.
+     * @param maxSessions The maximum amount of sessions which are stored at the same time.
+     * @param maxSessionSize The maximum size of a single serialized session in bytes.
+     * @param maxTotalSize The maximum size of all serialized sessions together in bytes.
+     *        It is rounded up to a multiple of the {@link #BLOCK_SIZE block size} and cannot exceed 2 GiB.
+     */
+    public OffHeapSessionStore(String cookieName, boolean cookieSecure, int timeout, int maxSessions, int maxSessionSize, long maxTotalSize) {
+
+        super(cookieName, cookieSecure);
+
+        Validate.isTrue(timeout > 0, "Session timeout must be positive");
+        Validate.isTrue(maxSessions > 0, "Maximum session count must be positive");
+        Validate.isTrue(maxSessionSize > 0, "Maximum session size must be positive");
+        Validate.isTrue(maxTotalSize >= maxSessionSize, "Maximum total session size must not be smaller than the maximum session size");
+        Validate.isTrue(maxTotalSize <= MAX_TOTAL_SIZE, "Maximum total session size cannot exceed %d bytes", MAX_TOTAL_SIZE);
+
+        this.timeout = TimeUnit.SECONDS.toMillis(timeout);
+        this.maxSessions = maxSessions;
+        this.maxSessionSize = maxSessionSize;
+
+        int blockCount = getBlockCount(maxTotalSize);
+        buffer = ByteBuffer.allocateDirect(blockCount * BLOCK_SIZE);
+        freeBlocks = new int[blockCount];
+        for (int block = 0; block < blockCount; block++) {
+            // Hand out the blocks at the start of the buffer first
+            freeBlocks[block] = blockCount - 1 - block;
+        }
+        freeBlockCount = blockCount;
+    }
+
+    private static int getBlockCount(long size) {
+
+        return (int) ( (size + BLOCK_SIZE - 1) / BLOCK_SIZE);
+    }
+
+    /**
+     * Returns the amount of sessions which are currently stored, including expired sessions which haven't been purged yet.
+     *
+     * @return The current session count.
+     */
+    public int getSessionCount() {
+
+        synchronized (sessions) {
+            return sessions.size();
+        }
+    }
+
+    /**
+     * Returns the amount of off-heap memory which is currently occupied by session data in bytes.
+     * Since sessions occupy whole blocks, this is a multiple of the {@link #BLOCK_SIZE block size}.
+     *
+     * @return The current total session size.
+     */
+    public long getTotalSize() {
+
+        synchronized (sessions) {
+            return (long) (freeBlocks.length - freeBlockCount) * BLOCK_SIZE;
+        }
+    }
+
+    @Override
+    protected Map<String, Object> load(HttpServletRequest request) {
+
+        String id = getCookieValue(request);
+        if (id == null) {
+            return null;
+        }
+
+        long now = System.currentTimeMillis();
+        byte[] data;
+        synchronized (sessions) {
+            // Looking up the slot moves it to the end of the access order
+            Slot slot = sessions.get(id);
+            if (slot == null) {
+                return null;
+            } else if (slot.isExpired(now, timeout)) {
+                remove(id);
+                return null;
+            }
+            slot.lastAccess = now;
+            data = read(slot);
+        }
+
+        request.setAttribute(idAttribute, id);
+
+        try {
+            return SessionSerialization.deserialize(data, 0, data.length);
+        } catch (IOException e) {
+            LOGGER.warn("Discarding session which cannot be deserialized", e);
+            return null;
+        }
+    }
+
+    @Override
+    protected void save(HttpServletRequest request, HttpServletResponse response, Map<String, Object> attributes) throws IOException {
+
+        String id = (String) request.getAttribute(idAttribute);
+        long now = System.currentTimeMillis();
+
+        // Remove empty sessions completely
+        if (attributes.isEmpty()) {
+            if (id != null) {
+                synchronized (sessions) {
+                    remove(id);
+                }
+                writeCookie(request, response, "", 0);
+            }
+            return;
+        }
+
+        byte[] data = SessionSerialization.serialize(attributes);
+        if (data.length > maxSessionSize) {
+            throw new IllegalStateException("Serialized session is " + data.length + " bytes large, which exceeds the maximum session size of " + maxSessionSize + " bytes");
+        }
+
+        boolean created = false;
+        synchronized (sessions) {
+            purgeIfDue(now);
+
+            // Unknown or expired session IDs sent by the client are never reused in order to prevent session fixation
+            Slot slot = id == null ? null : sessions.get(id);
+            if (slot == null) {
+                if (sessions.size() >= maxSessions) {
+                    purge(now);
+                    evictLeastRecentlyAccessed(sessions.size() - maxSessions + 1, null);
+                }
+
+                id = generateId();
+                slot = new Slot(now);
+                sessions.put(id, slot);
+                created = true;
+            } else {
+                slot.lastAccess = now;
+            }
+
+            write(id, slot, data, now);
+        }
+
+        if (created) {
+            request.setAttribute(idAttribute, id);
+            writeCookie(request, response, id, -1);
+        }
+    }
+
+    private String generateId() {
+
+        byte[] bytes = new byte[18];
+        random.nextBytes(bytes);
+        return Base64Url.encode(bytes);
+    }
+
+    /*
+     * All of the following methods must be called while holding the lock of the session index.
+     */
+
+    private byte[] read(Slot slot) {
+
+        byte[] data = new byte[slot.length];
+        for (int index = 0; index < slot.blocks.length; index++) {
+            int offset = index * BLOCK_SIZE;
+            buffer.position(slot.blocks[index] * BLOCK_SIZE);
+            buffer.get(data, offset, Math.min(BLOCK_SIZE, data.length - offset));
+        }
+        return data;
+    }
+
+    private void write(String id, Slot slot, byte[] data, long now) {
+
+        // The old blocks are no longer needed and can be reused right away
+        free(slot);
+
+        int blockCount = getBlockCount(data.length);
+        // The buffer can hold the largest session, so evicting all other sessions always frees enough blocks
+        if (freeBlockCount < blockCount) {
+            purge(now);
+            while (freeBlockCount < blockCount && evictLeastRecentlyAccessed(1, id)) {
+                // Continue evicting
+            }
+        }
+
+        slot.blocks = new int[blockCount];
+        slot.length = data.length;
+        for (int index = 0; index < blockCount; index++) {
+            int block = freeBlocks[--freeBlockCount];
+            int offset = index * BLOCK_SIZE;
+            buffer.position(block * BLOCK_SIZE);
+            buffer.put(data, offset, Math.min(BLOCK_SIZE, data.length - offset));
+            slot.blocks[index] = block;
+        }
+    }
+
+    private void free(Slot slot) {
+
+        for (int block : slot.blocks) {
+            freeBlocks[freeBlockCount++] = block;
+        }
+        slot.blocks = NO_BLOCKS;
+        slot.length = 0;
+    }
+
+    private void remove(String id) {
+
+        Slot slot = sessions.remove(id);
+        if (slot != null) {
+            free(slot);
+        }
+    }
+
+    private void purgeIfDue(long now) {
+
+        if (now - lastPurge >= PURGE_INTERVAL) {
+            lastPurge = now;
+            purge(now);
+        }
+    }
+
+    private void purge(long now) {
+
+        // All sessions after the first one which hasn't expired have been accessed even later
+        for (Iterator<Slot> iterator = sessions.values().iterator(); iterator.hasNext();) {
+            Slot slot = iterator.next();
+            if (!slot.isExpired(now, timeout)) {
+                break;
+            }
+
+            iterator.remove();
+            free(slot);
+        }
+    }
+
+    private boolean evictLeastRecentlyAccessed(int count, String excludedId) {
+
+        int evicted = 0;
+
+        for (Iterator<Entry<String, Slot>> iterator = sessions.entrySet().iterator(); evicted < count && iterator.hasNext();) {
+            Entry<String, Slot> session = iterator.next();
+            if (!session.getKey().equals(excludedId)) {
+                LOGGER.debug("Evicting least recently accessed session in order to stay within the session limits");
+                iterator.remove();
+                free(session.getValue());
+                evicted++;
+            }
+        }
+
+        return evicted != 0;
+    }
+
+    /*
+     * A slot references the blocks which hold the serialized attributes of one session, in the order of the data.
+     * All fields are guarded by the lock of the session index.
+     */
+    private static class Slot {
+
+        private int[] blocks = NO_BLOCKS;
+        private int   length;
+        private long  lastAccess;
+
+        private Slot(long now) {
+
+            lastAccess = now;
+        }
+
+        private boolean isExpired(long now, long timeout) {
+
+            return now - lastAccess > timeout;
+        }
+
+    }
+
+}
@@ -0,0 +1,75 @@
+/*
+ * This file is part of FemtoWeb.
+ * Copyright (c) 2015 QuarterCode <http://quartercode.com/>
+ *
+ * FemtoWeb is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * FemtoWeb is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with FemtoWeb. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.femtoweb.impl.session;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * An internal class which converts session attribute maps from and to bytes using Java serialization.
+ */
+class SessionSerialization {
+
+    static byte[] serialize(Map<String, Object> attributes) throws IOException {
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(new HashMap<>(attributes));
+        }
+        return bytes.toByteArray();
+    }
+
+    @SuppressWarnings ("unchecked")
+    static Map<String, Object> deserialize(byte[] data, int offset, int length) throws IOException {
+
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(data, offset, length)) {
+
+            @Override
+            protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+
+                // Session attributes are usually webapp classes, which are not visible to the class loader of the framework in all containers
+                ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+                if (classLoader != null) {
+                    try {
+                        return Class.forName(desc.getName(), false, classLoader);
+                    } catch (ClassNotFoundException e) {
+                        // Fall back to the default resolution
+                    }
+                }
+                return super.resolveClass(desc);
+            }
+
+        }) {
+            return (Map<String, Object>) in.readObject();
+        } catch (ClassNotFoundException | ClassCastException e) {
+            throw new IOException("Cannot deserialize session attributes", e);
+        }
+    }
+
+    private SessionSerialization() {
+
+    }
+
+}
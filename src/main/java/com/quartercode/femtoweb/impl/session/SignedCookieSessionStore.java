@@ -0,0 +1,211 @@
+/*
+ * This file is part of FemtoWeb.
+ * Copyright (c) 2015 QuarterCode <http://quartercode.com/>
+ *
+ * FemtoWeb is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * FemtoWeb is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with FemtoWeb. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.femtoweb.impl.session;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import javax.crypto.Cipher;
+import javax.crypto.Mac;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.Validate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A stateless session store which transfers the serialized session attributes to the client in a cookie.
+ * The cookie is signed with HMAC-SHA256 so clients cannot tamper with it, and its content can optionally be encrypted with AES so clients cannot read it either.
+ * Since the server doesn't keep any session state, requests can be served by any node without sticky sessions.<br>
+ * <br>
+ * Note that the session expires after the set timeout has passed since the <b>last change</b>, not since the last access.
+ * Also note that browsers don't accept cookies larger than about 4 KB; therefore, only small attributes (e.g. user IDs) should be stored.
+ * Trying to save a larger session results in an {@link IllegalStateException}.
+ * All nodes must be configured with the same secret.
+ */
+public class SignedCookieSessionStore extends AbstractCookieSessionStore {
+
+    private static final Logger    LOGGER           = LoggerFactory.getLogger(SignedCookieSessionStore.class);
+
+    private static final int       MIN_SECRET_SIZE  = 32;
+    private static final int       MAX_COOKIE_SIZE  = 4000;
+    private static final int       IV_SIZE          = 16;
+
+    private static final byte      FORMAT_PLAIN     = 1;
+    private static final byte      FORMAT_ENCRYPTED = 2;
+
+    private final SecureRandom     random           = new SecureRandom();
+
+    private final int              timeout;
+    private final boolean          encrypt;
+    private final SecretKeySpec    macKey;
+    private final SecretKeySpec    encryptionKey;
+
+    private final ThreadLocal<Mac> macs;
+
+    /**
+     * Creates a new signed cookie session store.
+     *
+     * @param cookieName The name of the cookie which transfers the session data.
+     * @param cookieSecure Whether the session cookie should only be sent over HTTPS.
+     * @param timeout The amount of seconds after which a session that hasn't been changed expires.
+     * @param secret The secret the signing and encryption keys are derived from. It must be at least 32 characters long and be the same on all nodes.
+     * @param encrypt Whether the session data should be encrypted in addition to being signed.
+     */
+    public SignedCookieSessionStore(String cookieName, boolean cookieSecure, int timeout, String secret, boolean encrypt) {
+
+        super(cookieName, cookieSecure);
+
+        Validate.isTrue(timeout > 0, "Session timeout must be positive");
+        Validate.isTrue(secret != null && secret.length() >= MIN_SECRET_SIZE, "Session secret must be at least %d characters long", MIN_SECRET_SIZE);
+
+        this.timeout = timeout;
+        this.encrypt = encrypt;
+
+        // Derive separate keys for signing and encryption from the secret
+        byte[] secretBytes = secret.getBytes(StandardCharsets.UTF_8);
+        macKey = new SecretKeySpec(hmac(secretBytes, "femtoweb-session-mac"), "HmacSHA256");
+        encryptionKey = new SecretKeySpec(Arrays.copyOf(hmac(secretBytes, "femtoweb-session-encryption"), 16), "AES");
+
+        macs = new ThreadLocal<Mac>() {
+
+            @Override
+            protected Mac initialValue() {
+
+                try {
+                    Mac mac = Mac.getInstance("HmacSHA256");
+                    mac.init(macKey);
+                    return mac;
+                } catch (GeneralSecurityException e) {
+                    throw new IllegalStateException("HMAC-SHA256 is not available", e);
+                }
+            }
+
+        };
+    }
+
+    private static byte[] hmac(byte[] key, String label) {
+
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(key, "HmacSHA256"));
+            return mac.doFinal(label.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HMAC-SHA256 is not available", e);
+        }
+    }
+
+    @Override
+    protected Map<String, Object> load(HttpServletRequest request) {
+
+        String value = getCookieValue(request);
+        if (StringUtils.isEmpty(value)) {
+            return null;
+        }
+
+        try {
+            byte[] body = verify(value);
+            if (body == null) {
+                LOGGER.debug("Discarding session cookie with invalid signature");
+                return null;
+            }
+
+            // Body format: format byte, expiry timestamp, (optionally encrypted) serialized attributes
+            ByteBuffer buffer = ByteBuffer.wrap(body);
+            byte format = buffer.get();
+            long expiry = buffer.getLong();
+            if (format != (encrypt ? FORMAT_ENCRYPTED : FORMAT_PLAIN) || expiry < System.currentTimeMillis()) {
+                return null;
+            }
+
+            byte[] data = Arrays.copyOfRange(body, buffer.position(), body.length);
+            if (encrypt) {
+                data = crypt(Cipher.DECRYPT_MODE, Arrays.copyOf(data, IV_SIZE), Arrays.copyOfRange(data, IV_SIZE, data.length));
+            }
+
+            return SessionSerialization.deserialize(data, 0, data.length);
+        } catch (IOException | GeneralSecurityException | RuntimeException e) {
+            LOGGER.debug("Discarding malformed session cookie", e);
+            return null;
+        }
+    }
+
+    private byte[] verify(String value) {
+
+        int separator = value.indexOf('.');
+        if (separator < 0) {
+            return null;
+        }
+
+        byte[] body = Base64Url.decode(value.substring(0, separator));
+        byte[] signature = Base64Url.decode(value.substring(separator + 1));
+
+        // Constant-time comparison
+        return MessageDigest.isEqual(signature, macs.get().doFinal(body)) ? body : null;
+    }
+
+    @Override
+    protected void save(HttpServletRequest request, HttpServletResponse response, Map<String, Object> attributes) throws IOException {
+
+        // Remove empty sessions completely
+        if (attributes.isEmpty()) {
+            writeCookie(request, response, "", 0);
+            return;
+        }
+
+        byte[] data = SessionSerialization.serialize(attributes);
+        if (encrypt) {
+            byte[] iv = new byte[IV_SIZE];
+            random.nextBytes(iv);
+            try {
+                byte[] encrypted = crypt(Cipher.ENCRYPT_MODE, iv, data);
+                data = ByteBuffer.allocate(iv.length + encrypted.length).put(iv).put(encrypted).array();
+            } catch (GeneralSecurityException e) {
+                throw new IOException("Cannot encrypt session data", e);
+            }
+        }
+
+        long expiry = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(timeout);
+        byte[] body = ByteBuffer.allocate(1 + 8 + data.length).put(encrypt ? FORMAT_ENCRYPTED : FORMAT_PLAIN).putLong(expiry).put(data).array();
+
+        String value = Base64Url.encode(body) + "." + Base64Url.encode(macs.get().doFinal(body));
+        if (value.length() > MAX_COOKIE_SIZE) {
+            throw new IllegalStateException("Session cookie would be " + value.length() + " bytes large, which exceeds the maximum cookie size of " + MAX_COOKIE_SIZE + " bytes");
+        }
+
+        writeCookie(request, response, value, timeout);
+    }
+
+    private byte[] crypt(int mode, byte[] iv, byte[] data) throws GeneralSecurityException {
+
+        Cipher cipher = Cipher.getInstance("AES/CBC/PKCS5Padding");
+        cipher.init(mode, encryptionKey, new IvParameterSpec(iv));
+        return cipher.doFinal(data);
+    }
+
+}
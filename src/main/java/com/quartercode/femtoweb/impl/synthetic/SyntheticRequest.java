@@ -0,0 +1,708 @@
+/*
+ * This file is part of FemtoWeb.
+ * Copyright (c) 2015 QuarterCode <http://quartercode.com/>
+ *
+ * FemtoWeb is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * FemtoWeb is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with FemtoWeb. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.femtoweb.impl.synthetic;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.security.Principal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import javax.servlet.AsyncContext;
+import javax.servlet.DispatcherType;
+import javax.servlet.ReadListener;
+import javax.servlet.RequestDispatcher;
+import javax.servlet.ServletContext;
+import javax.servlet.ServletException;
+import javax.servlet.ServletInputStream;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpSession;
+import javax.servlet.http.HttpUpgradeHandler;
+import javax.servlet.http.Part;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.Validate;
+
+/**
+ * A self-contained {@link HttpServletRequest} implementation which doesn't need a servlet container.
+ * It is used for sending synthetic requests through the framework, e.g. for warming up the dispatch path before real traffic arrives.<br>
+ * <br>
+ * All values which are not explicitly set have harmless defaults (e.g. the request comes from {@code 127.0.0.1} over plain HTTP).
+ * Forwards through {@link #getRequestDispatcher(String)} are recorded and passed to {@link #forward(String, ServletRequest, ServletResponse)},
+ * which does nothing by default and can be overridden in order to simulate the forwarding target.
+ * Instances are not thread-safe and should only be used for a single request.
+ */
+public class SyntheticRequest implements HttpServletRequest {
+
+    private final ServletContext            servletContext;
+    private final String                    method;
+    private final String                    contextPath;
+    private final String                    requestUri;
+    private final String                    queryString;
+
+    private final Map<String, List<String>> headers    = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+    private final Map<String, List<String>> parameters = new LinkedHashMap<>();
+    private final Map<String, Object>       attributes = new HashMap<>();
+    private final List<Cookie>              cookies    = new ArrayList<>();
+
+    private String                          remoteAddr = "127.0.0.1";
+    private String                          characterEncoding;
+    private byte[]                          body       = new byte[0];
+    private SyntheticSession                session;
+    private String                          forwardPath;
+
+    /**
+     * Creates a new synthetic request.
+     * Any query string in the given URI is parsed into request parameters.
+     *
+     * @param servletContext The servlet context the request belongs to. May be {@code null} if no code asks for it.
+     * @param method The HTTP method of the request (e.g. {@code GET}).
+     * @param contextPath The context path of the webapp (e.g. an empty string for the root context).
+     * @param uri The URI of the request, which is relative to the context path and might contain a query string (e.g. {@code /some/test?param=value}).
+     */
+    public SyntheticRequest(ServletContext servletContext, String method, String contextPath, String uri) {
+
+        Validate.notBlank(method, "Synthetic request method cannot be blank");
+        Validate.notNull(contextPath, "Synthetic request context path cannot be null");
+        Validate.isTrue(uri != null && uri.startsWith("/"), "Synthetic request URI must start with '/'");
+
+        this.servletContext = servletContext;
+        this.method = method;
+        this.contextPath = contextPath;
+        requestUri = contextPath + StringUtils.substringBefore(uri, "?");
+        queryString = uri.contains("?") ? StringUtils.substringAfter(uri, "?") : null;
+
+        if (queryString != null) {
+            for (String pair : StringUtils.split(queryString, '&')) {
+                addParameter(decode(StringUtils.substringBefore(pair, "=")), decode(StringUtils.substringAfter(pair, "=")));
+            }
+        }
+    }
+
+    private static String decode(String value) {
+
+        try {
+            return URLDecoder.decode(value, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException("UTF-8 is not supported", e);
+        }
+    }
+
+    /**
+     * Adds a value to the header with the given name.
+     *
+     * @param name The name of the header.
+     * @param value The header value which should be added.
+     * @return This request.
+     */
+    public SyntheticRequest addHeader(String name, String value) {
+
+        List<String> values = headers.get(name);
+        if (values == null) {
+            values = new ArrayList<>(1);
+            headers.put(name, values);
+        }
+        values.add(value);
+        return this;
+    }
+
+    /**
+     * Adds a value to the request parameter with the given name.
+     *
+     * @param name The name of the parameter.
+     * @param value The parameter value which should be added.
+     * @return This request.
+     */
+    public SyntheticRequest addParameter(String name, String value) {
+
+        List<String> values = parameters.get(name);
+        if (values == null) {
+            values = new ArrayList<>(1);
+            parameters.put(name, values);
+        }
+        values.add(value);
+        return this;
+    }
+
+    /**
+     * Adds a cookie to the request.
+     *
+     * @param cookie The cookie which should be sent with the request.
+     * @return This request.
+     */
+    public SyntheticRequest addCookie(Cookie cookie) {
+
+        cookies.add(cookie);
+        return this;
+    }
+
+    /**
+     * Sets the IP address of the simulated client.
+     *
+     * @param remoteAddr The client address.
+     * @return This request.
+     */
+    public SyntheticRequest setRemoteAddr(String remoteAddr) {
+
+        this.remoteAddr = remoteAddr;
+        return this;
+    }
+
+    /**
+     * Sets the raw request body.
+     *
+     * @param body The request body bytes.
+     * @return This request.
+     */
+    public SyntheticRequest setBody(byte[] body) {
+
+        this.body = body.clone();
+        return this;
+    }
+
+    /**
+     * Returns the path the request has been forwarded to through a {@link RequestDispatcher}.
+     *
+     * @return The forward path, or {@code null} if the request hasn't been forwarded.
+     */
+    public String getForwardPath() {
+
+        return forwardPath;
+    }
+
+    /**
+     * Simulates the target of a forward.
+     * This method is called whenever a {@link RequestDispatcher} obtained from this request forwards or includes.
+     * By default, it does nothing, which means that forwarding targets produce no output.
+     *
+     * @param path The path the request is forwarded to.
+     * @param request The request which is forwarded.
+     * @param response The response which is forwarded.
+     * @throws ServletException If the simulated target fails.
+     * @throws IOException If the simulated target cannot write its output.
+     */
+    protected void forward(String path, ServletRequest request, ServletResponse response) throws ServletException, IOException {
+
+        // Forwarding targets produce no output by default
+    }
+
+    // ----- Request line -----
+
+    @Override
+    public String getMethod() {
+
+        return method;
+    }
+
+    @Override
+    public String getContextPath() {
+
+        return contextPath;
+    }
+
+    @Override
+    public String getRequestURI() {
+
+        return requestUri;
+    }
+
+    @Override
+    public StringBuffer getRequestURL() {
+
+        return new StringBuffer("http://localhost").append(requestUri);
+    }
+
+    @Override
+    public String getQueryString() {
+
+        return queryString;
+    }
+
+    @Override
+    public String getServletPath() {
+
+        return requestUri.substring(contextPath.length());
+    }
+
+    @Override
+    public String getPathInfo() {
+
+        return null;
+    }
+
+    @Override
+    public String getPathTranslated() {
+
+        return null;
+    }
+
+    @Override
+    public String getProtocol() {
+
+        return "HTTP/1.1";
+    }
+
+    @Override
+    public String getScheme() {
+
+        return "http";
+    }
+
+    @Override
+    public boolean isSecure() {
+
+        return false;
+    }
+
+    @Override
+    public String getServerName() {
+
+        return "localhost";
+    }
+
+    @Override
+    public int getServerPort() {
+
+        return 80;
+    }
+
+    @Override
+    public String getLocalName() {
+
+        return "localhost";
+    }
+
+    @Override
+    public String getLocalAddr() {
+
+        return "127.0.0.1";
+    }
+
+    @Override
+    public int getLocalPort() {
+
+        return 80;
+    }
+
+    @Override
+    public String getRemoteAddr() {
+
+        return remoteAddr;
+    }
+
+    @Override
+    public String getRemoteHost() {
+
+        return remoteAddr;
+    }
+
+    @Override
+    public int getRemotePort() {
+
+        return 49152;
+    }
+
+    // ----- Headers -----
+
+    @Override
+    public String getHeader(String name) {
+
+        List<String> values = headers.get(name);
+        return values == null ? null : values.get(0);
+    }
+
+    @Override
+    public Enumeration<String> getHeaders(String name) {
+
+        List<String> values = headers.get(name);
+        return Collections.enumeration(values == null ? Collections.<String> emptyList() : values);
+    }
+
+    @Override
+    public Enumeration<String> getHeaderNames() {
+
+        return Collections.enumeration(headers.keySet());
+    }
+
+    @Override
+    public int getIntHeader(String name) {
+
+        String value = getHeader(name);
+        return value == null ? -1 : Integer.parseInt(value);
+    }
+
+    @Override
+    public long getDateHeader(String name) {
+
+        return getHeader(name) == null ? -1 : 0;
+    }
+
+    @Override
+    public Cookie[] getCookies() {
+
+        return cookies.isEmpty() ? null : cookies.toArray(new Cookie[cookies.size()]);
+    }
+
+    @Override
+    public Locale getLocale() {
+
+        return Locale.getDefault();
+    }
+
+    @Override
+    public Enumeration<Locale> getLocales() {
+
+        return Collections.enumeration(Collections.singletonList(getLocale()));
+    }
+
+    // ----- Parameters -----
+
+    @Override
+    public String getParameter(String name) {
+
+        List<String> values = parameters.get(name);
+        return values == null ? null : values.get(0);
+    }
+
+    @Override
+    public String[] getParameterValues(String name) {
+
+        List<String> values = parameters.get(name);
+        return values == null ? null : values.toArray(new String[values.size()]);
+    }
+
+    @Override
+    public Enumeration<String> getParameterNames() {
+
+        return Collections.enumeration(parameters.keySet());
+    }
+
+    @Override
+    public Map<String, String[]> getParameterMap() {
+
+        Map<String, String[]> map = new LinkedHashMap<>();
+        for (String name : parameters.keySet()) {
+            map.put(name, getParameterValues(name));
+        }
+        return Collections.unmodifiableMap(map);
+    }
+
+    // ----- Attributes -----
+
+    @Override
+    public Object getAttribute(String name) {
+
+        return attributes.get(name);
+    }
+
+    @Override
+    public Enumeration<String> getAttributeNames() {
+
+        return Collections.enumeration(new ArrayList<>(attributes.keySet()));
+    }
+
+    @Override
+    public void setAttribute(String name, Object o) {
+
+        if (o == null) {
+            attributes.remove(name);
+        } else {
+            attributes.put(name, o);
+        }
+    }
+
+    @Override
+    public void removeAttribute(String name) {
+
+        attributes.remove(name);
+    }
+
+    // ----- Body -----
+
+    @Override
+    public String getCharacterEncoding() {
+
+        return characterEncoding;
+    }
+
+    @Override
+    public void setCharacterEncoding(String env) throws UnsupportedEncodingException {
+
+        characterEncoding = env;
+    }
+
+    @Override
+    public int getContentLength() {
+
+        return body.length;
+    }
+
+    @Override
+    public long getContentLengthLong() {
+
+        return body.length;
+    }
+
+    @Override
+    public String getContentType() {
+
+        return getHeader("Content-Type");
+    }
+
+    @Override
+    public ServletInputStream getInputStream() {
+
+        final ByteArrayInputStream in = new ByteArrayInputStream(body);
+        return new ServletInputStream() {
+
+            @Override
+            public int read() {
+
+                return in.read();
+            }
+
+            @Override
+            public boolean isFinished() {
+
+                return in.available() == 0;
+            }
+
+            @Override
+            public boolean isReady() {
+
+                return true;
+            }
+
+            @Override
+            public void setReadListener(ReadListener readListener) {
+
+                throw new UnsupportedOperationException("Non-blocking IO is not supported by synthetic requests");
+            }
+
+        };
+    }
+
+    @Override
+    public BufferedReader getReader() throws UnsupportedEncodingException {
+
+        return new BufferedReader(new InputStreamReader(getInputStream(), characterEncoding != null ? characterEncoding : "ISO-8859-1"));
+    }
+
+    @Override
+    public Collection<Part> getParts() {
+
+        return Collections.emptyList();
+    }
+
+    @Override
+    public Part getPart(String name) {
+
+        return null;
+    }
+
+    // ----- Session and security -----
+
+    @Override
+    public HttpSession getSession(boolean create) {
+
+        if (session == null && create) {
+            session = new SyntheticSession(servletContext);
+        }
+        return session;
+    }
+
+    @Override
+    public HttpSession getSession() {
+
+        return getSession(true);
+    }
+
+    @Override
+    public String changeSessionId() {
+
+        Validate.validState(session != null, "Cannot change session ID without a session");
+        return session.getId();
+    }
+
+    @Override
+    public String getRequestedSessionId() {
+
+        return null;
+    }
+
+    @Override
+    public boolean isRequestedSessionIdValid() {
+
+        return false;
+    }
+
+    @Override
+    public boolean isRequestedSessionIdFromCookie() {
+
+        return false;
+    }
+
+    @Override
+    public boolean isRequestedSessionIdFromURL() {
+
+        return false;
+    }
+
+    @Override
+    @Deprecated
+    public boolean isRequestedSessionIdFromUrl() {
+
+        return false;
+    }
+
+    @Override
+    public String getAuthType() {
+
+        return null;
+    }
+
+    @Override
+    public String getRemoteUser() {
+
+        return null;
+    }
+
+    @Override
+    public Principal getUserPrincipal() {
+
+        return null;
+    }
+
+    @Override
+    public boolean isUserInRole(String role) {
+
+        return false;
+    }
+
+    @Override
+    public boolean authenticate(HttpServletResponse response) {
+
+        return false;
+    }
+
+    @Override
+    public void login(String username, String password) throws ServletException {
+
+        throw new ServletException("Synthetic requests don't support authentication");
+    }
+
+    @Override
+    public void logout() {
+
+        // Synthetic requests are never authenticated
+    }
+
+    // ----- Dispatching -----
+
+    @Override
+    public RequestDispatcher getRequestDispatcher(final String path) {
+
+        return new RequestDispatcher() {
+
+            @Override
+            public void forward(ServletRequest request, ServletResponse response) throws ServletException, IOException {
+
+                forwardPath = path;
+                SyntheticRequest.this.forward(path, request, response);
+            }
+
+            @Override
+            public void include(ServletRequest request, ServletResponse response) throws ServletException, IOException {
+
+                SyntheticRequest.this.forward(path, request, response);
+            }
+
+        };
+    }
+
+    @Override
+    @Deprecated
+    public String getRealPath(String path) {
+
+        return null;
+    }
+
+    @Override
+    public ServletContext getServletContext() {
+
+        return servletContext;
+    }
+
+    @Override
+    public DispatcherType getDispatcherType() {
+
+        return DispatcherType.REQUEST;
+    }
+
+    @Override
+    public boolean isAsyncStarted() {
+
+        return false;
+    }
+
+    @Override
+    public boolean isAsyncSupported() {
+
+        return false;
+    }
+
+    @Override
+    public AsyncContext startAsync() {
+
+        throw new IllegalStateException("Synthetic requests don't support async processing");
+    }
+
+    @Override
+    public AsyncContext startAsync(ServletRequest servletRequest, ServletResponse servletResponse) {
+
+        throw new IllegalStateException("Synthetic requests don't support async processing");
+    }
+
+    @Override
+    public AsyncContext getAsyncContext() {
+
+        throw new IllegalStateException("Synthetic requests don't support async processing");
+    }
+
+    @Override
+    public <T extends HttpUpgradeHandler> T upgrade(Class<T> handlerClass) throws ServletException {
+
+        throw new ServletException("Synthetic requests don't support protocol upgrades");
+    }
+
+}
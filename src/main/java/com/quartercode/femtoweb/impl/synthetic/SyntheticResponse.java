@@ -0,0 +1,463 @@
+/*
+ * This file is part of FemtoWeb.
+ * Copyright (c) 2015 QuarterCode <http://quartercode.com/>
+ *
+ * FemtoWeb is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * FemtoWeb is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with FemtoWeb. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.femtoweb.impl.synthetic;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletResponse;
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * A self-contained {@link HttpServletResponse} implementation which doesn't need a servlet container.
+ * It records the status, headers, cookies and body which are sent by the framework in response to a {@link SyntheticRequest}.
+ * Instances are not thread-safe and should only be used for a single request.
+ */
+public class SyntheticResponse implements HttpServletResponse {
+
+    private final ByteArrayOutputStream     body          = new ByteArrayOutputStream();
+    private final Map<String, List<String>> headers       = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+    private final List<Cookie>              cookies       = new ArrayList<>();
+
+    private ServletOutputStream             outputStream;
+    private PrintWriter                     writer;
+
+    private int                             status        = SC_OK;
+    private String                          errorMessage;
+    private String                          redirectLocation;
+    private String                          contentType;
+    private String                          characterEncoding;
+    private long                            contentLength = -1;
+    private Locale                          locale        = Locale.getDefault();
+    private int                             bufferSize    = 8192;
+    private boolean                         committed;
+
+    /**
+     * Returns the recorded body bytes.
+     *
+     * @return A copy of the body.
+     */
+    public byte[] getBody() {
+
+        flushWriter();
+        return body.toByteArray();
+    }
+
+    /**
+     * Returns the recorded body decoded with the response's character encoding.
+     *
+     * @return The body as a string.
+     * @throws UnsupportedEncodingException If the character encoding is not supported.
+     */
+    public String getBodyAsString() throws UnsupportedEncodingException {
+
+        return new String(getBody(), getCharacterEncoding());
+    }
+
+    /**
+     * Returns the amount of body bytes which have been written so far.
+     *
+     * @return The body size.
+     */
+    public int getBodySize() {
+
+        flushWriter();
+        return body.size();
+    }
+
+    /**
+     * Returns the content length which has been explicitly set.
+     *
+     * @return The set content length, or {@code -1} if none has been set.
+     */
+    public long getContentLength() {
+
+        return contentLength;
+    }
+
+    /**
+     * Returns the message which has been passed to {@link #sendError(int, String)}.
+     *
+     * @return The error message, or {@code null} if no error with a message has been sent.
+     */
+    public String getErrorMessage() {
+
+        return errorMessage;
+    }
+
+    /**
+     * Returns the location which has been passed to {@link #sendRedirect(String)}.
+     *
+     * @return The redirect location, or {@code null} if no redirect has been sent.
+     */
+    public String getRedirectLocation() {
+
+        return redirectLocation;
+    }
+
+    /**
+     * Returns all cookies which have been added to the response.
+     *
+     * @return The added cookies.
+     */
+    public List<Cookie> getCookies() {
+
+        return Collections.unmodifiableList(cookies);
+    }
+
+    private void flushWriter() {
+
+        // Push any chars which are still buffered by the writer into the body without committing the response
+        if (writer != null) {
+            boolean wasCommitted = committed;
+            writer.flush();
+            committed = wasCommitted;
+        }
+    }
+
+    // ----- Body -----
+
+    @Override
+    public ServletOutputStream getOutputStream() {
+
+        if (writer != null) {
+            throw new IllegalStateException("getWriter() has already been called on this response");
+        }
+
+        if (outputStream == null) {
+            outputStream = new SyntheticOutputStream();
+        }
+        return outputStream;
+    }
+
+    @Override
+    public PrintWriter getWriter() throws UnsupportedEncodingException {
+
+        if (writer == null) {
+            if (outputStream != null) {
+                throw new IllegalStateException("getOutputStream() has already been called on this response");
+            }
+
+            outputStream = new SyntheticOutputStream();
+            writer = new PrintWriter(new OutputStreamWriter(outputStream, getCharacterEncoding()));
+        }
+        return writer;
+    }
+
+    @Override
+    public void setContentLength(int len) {
+
+        contentLength = len;
+    }
+
+    @Override
+    public void setContentLengthLong(long len) {
+
+        contentLength = len;
+    }
+
+    @Override
+    public void setBufferSize(int size) {
+
+        bufferSize = size;
+    }
+
+    @Override
+    public int getBufferSize() {
+
+        return bufferSize;
+    }
+
+    @Override
+    public void flushBuffer() {
+
+        if (writer != null) {
+            writer.flush();
+        }
+        committed = true;
+    }
+
+    @Override
+    public void resetBuffer() {
+
+        if (committed) {
+            throw new IllegalStateException("Cannot reset buffer of committed response");
+        }
+
+        flushWriter();
+        body.reset();
+    }
+
+    @Override
+    public void reset() {
+
+        resetBuffer();
+        headers.clear();
+        cookies.clear();
+        status = SC_OK;
+        contentType = null;
+        contentLength = -1;
+    }
+
+    @Override
+    public boolean isCommitted() {
+
+        return committed;
+    }
+
+    // ----- Status -----
+
+    @Override
+    public void setStatus(int sc) {
+
+        status = sc;
+    }
+
+    @Override
+    @Deprecated
+    public void setStatus(int sc, String sm) {
+
+        status = sc;
+    }
+
+    @Override
+    public int getStatus() {
+
+        return status;
+    }
+
+    @Override
+    public void sendError(int sc) {
+
+        sendError(sc, null);
+    }
+
+    @Override
+    public void sendError(int sc, String msg) {
+
+        resetBuffer();
+        status = sc;
+        errorMessage = msg;
+        committed = true;
+    }
+
+    @Override
+    public void sendRedirect(String location) {
+
+        resetBuffer();
+        status = SC_FOUND;
+        redirectLocation = location;
+        setHeader("Location", location);
+        committed = true;
+    }
+
+    // ----- Headers -----
+
+    @Override
+    public void setHeader(String name, String value) {
+
+        List<String> values = new ArrayList<>(1);
+        values.add(value);
+        headers.put(name, values);
+    }
+
+    @Override
+    public void addHeader(String name, String value) {
+
+        List<String> values = headers.get(name);
+        if (values == null) {
+            values = new ArrayList<>(1);
+            headers.put(name, values);
+        }
+        values.add(value);
+    }
+
+    @Override
+    public void setIntHeader(String name, int value) {
+
+        setHeader(name, String.valueOf(value));
+    }
+
+    @Override
+    public void addIntHeader(String name, int value) {
+
+        addHeader(name, String.valueOf(value));
+    }
+
+    @Override
+    public void setDateHeader(String name, long date) {
+
+        setHeader(name, String.valueOf(date));
+    }
+
+    @Override
+    public void addDateHeader(String name, long date) {
+
+        addHeader(name, String.valueOf(date));
+    }
+
+    @Override
+    public boolean containsHeader(String name) {
+
+        return headers.containsKey(name);
+    }
+
+    @Override
+    public String getHeader(String name) {
+
+        List<String> values = headers.get(name);
+        return values == null ? null : values.get(0);
+    }
+
+    @Override
+    public Collection<String> getHeaders(String name) {
+
+        List<String> values = headers.get(name);
+        return values == null ? Collections.<String> emptyList() : new ArrayList<>(values);
+    }
+
+    @Override
+    public Collection<String> getHeaderNames() {
+
+        return new ArrayList<>(headers.keySet());
+    }
+
+    @Override
+    public void addCookie(Cookie cookie) {
+
+        cookies.add(cookie);
+    }
+
+    @Override
+    public void setContentType(String type) {
+
+        contentType = type;
+
+        String charset = StringUtils.substringAfter(StringUtils.deleteWhitespace(StringUtils.defaultString(type)).toLowerCase(), "charset=");
+        if (!charset.isEmpty()) {
+            characterEncoding = StringUtils.substringBefore(charset, ";");
+        }
+    }
+
+    @Override
+    public String getContentType() {
+
+        return contentType;
+    }
+
+    @Override
+    public void setCharacterEncoding(String charset) {
+
+        if (writer == null) {
+            characterEncoding = charset;
+        }
+    }
+
+    @Override
+    public String getCharacterEncoding() {
+
+        return characterEncoding != null ? characterEncoding : "ISO-8859-1";
+    }
+
+    @Override
+    public void setLocale(Locale locale) {
+
+        this.locale = locale;
+    }
+
+    @Override
+    public Locale getLocale() {
+
+        return locale;
+    }
+
+    // ----- URL encoding -----
+
+    @Override
+    public String encodeURL(String url) {
+
+        return url;
+    }
+
+    @Override
+    public String encodeRedirectURL(String url) {
+
+        return url;
+    }
+
+    @Override
+    @Deprecated
+    public String encodeUrl(String url) {
+
+        return url;
+    }
+
+    @Override
+    @Deprecated
+    public String encodeRedirectUrl(String url) {
+
+        return url;
+    }
+
+    private class SyntheticOutputStream extends ServletOutputStream {
+
+        @Override
+        public void write(int b) {
+
+            body.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+
+            body.write(b, off, len);
+        }
+
+        @Override
+        public void flush() {
+
+            committed = true;
+        }
+
+        @Override
+        public boolean isReady() {
+
+            return true;
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+
+            throw new UnsupportedOperationException("Non-blocking IO is not supported by synthetic responses");
+        }
+
+    }
+
+}
@@ -0,0 +1,159 @@
+/*
+ * This file is part of FemtoWeb.
+ * Copyright (c) 2015 QuarterCode <http://quartercode.com/>
+ *
+ * FemtoWeb is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * FemtoWeb is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with FemtoWeb. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.femtoweb.impl.synthetic;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.servlet.ServletContext;
+import javax.servlet.http.HttpSession;
+
+/**
+ * A simple map-based {@link HttpSession} which is used by {@link SyntheticRequest}s.
+ */
+class SyntheticSession implements HttpSession {
+
+    private final ServletContext      servletContext;
+    private final String              id           = UUID.randomUUID().toString();
+    private final long                creationTime = System.currentTimeMillis();
+    private final Map<String, Object> attributes   = new ConcurrentHashMap<>();
+
+    private int                       maxInactiveInterval;
+
+    SyntheticSession(ServletContext servletContext) {
+
+        this.servletContext = servletContext;
+    }
+
+    @Override
+    public String getId() {
+
+        return id;
+    }
+
+    @Override
+    public long getCreationTime() {
+
+        return creationTime;
+    }
+
+    @Override
+    public long getLastAccessedTime() {
+
+        return creationTime;
+    }
+
+    @Override
+    public ServletContext getServletContext() {
+
+        return servletContext;
+    }
+
+    @Override
+    public void setMaxInactiveInterval(int interval) {
+
+        maxInactiveInterval = interval;
+    }
+
+    @Override
+    public int getMaxInactiveInterval() {
+
+        return maxInactiveInterval;
+    }
+
+    @Override
+    @Deprecated
+    @SuppressWarnings ("deprecation")
+    public javax.servlet.http.HttpSessionContext getSessionContext() {
+
+        return null;
+    }
+
+    @Override
+    public Object getAttribute(String name) {
+
+        return attributes.get(name);
+    }
+
+    @Override
+    @Deprecated
+    public Object getValue(String name) {
+
+        return getAttribute(name);
+    }
+
+    @Override
+    public Enumeration<String> getAttributeNames() {
+
+        return Collections.enumeration(new ArrayList<>(attributes.keySet()));
+    }
+
+    @Override
+    @Deprecated
+    public String[] getValueNames() {
+
+        return attributes.keySet().toArray(new String[0]);
+    }
+
+    @Override
+    public void setAttribute(String name, Object value) {
+
+        if (value == null) {
+            attributes.remove(name);
+        } else {
+            attributes.put(name, value);
+        }
+    }
+
+    @Override
+    @Deprecated
+    public void putValue(String name, Object value) {
+
+        setAttribute(name, value);
+    }
+
+    @Override
+    public void removeAttribute(String name) {
+
+        attributes.remove(name);
+    }
+
+    @Override
+    @Deprecated
+    public void removeValue(String name) {
+
+        removeAttribute(name);
+    }
+
+    @Override
+    public void invalidate() {
+
+        attributes.clear();
+    }
+
+    @Override
+    public boolean isNew() {
+
+        return true;
+    }
+
+}
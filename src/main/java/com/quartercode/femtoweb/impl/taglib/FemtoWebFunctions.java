@@ -0,0 +1,87 @@
+/*
+ * This file is part of FemtoWeb.
+ * Copyright (c) 2015 QuarterCode <http://quartercode.com/>
+ *
+ * FemtoWeb is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * FemtoWeb is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with FemtoWeb. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.femtoweb.impl.taglib;
+
+/**
+ * The EL functions of the FemtoWeb tag library, which is available under the URI {@code http://www.quartercode.com/femtoweb}:
+ *
+ * <pre>
+ * &lt;%@ taglib prefix="fw" uri="http://www.quartercode.com/femtoweb" %&gt;
+ *
+ * &lt;a href="${fw:url('shop.ItemAction')}"&gt;Items&lt;/a&gt;
+ * &lt;a href="${fw:urlParam('shop.ItemAction', 'id', item.id)}"&gt;${item.name}&lt;/a&gt;
+ * &lt;link rel="stylesheet" href="${fw:asset('css/main.css')}" /&gt;
+ * </pre>
+ *
+ * All URLs are looked up in the {@link UrlTable} of the filter and already contain the context path.
+ */
+public class FemtoWebFunctions {
+
+    /**
+     * Returns the context-path-prefixed URL of the given action.
+     *
+     * @param action The action class, or the fully qualified or relative name of the action class.
+     * @return The URL of the action.
+     */
+    public static String url(Object action) {
+
+        return UrlTable.getCurrent().getActionUrl(action);
+    }
+
+    /**
+     * Returns the context-path-prefixed URL of the given action with a single URL-encoded query parameter.
+     *
+     * @param action The action class, or the fully qualified or relative name of the action class.
+     * @param name The name of the query parameter.
+     * @param value The value of the query parameter.
+     * @return The URL of the action with the query parameter.
+     */
+    public static String urlParam(Object action, String name, Object value) {
+
+        String url = UrlTable.getCurrent().getActionUrl(action);
+        return UrlTable.appendParameter(new StringBuilder(url.length() + 32).append(url), name, value).toString();
+    }
+
+    /**
+     * Returns the context-path-prefixed and possibly fingerprinted URL of the given static asset.
+     *
+     * @param asset The logical name of the asset, relative to the static asset path (e.g. {@code css/main.css}).
+     * @return The URL of the asset.
+     */
+    public static String asset(String asset) {
+
+        return UrlTable.getCurrent().getAssetUrl(asset);
+    }
+
+    /**
+     * URL-encodes the given value for the use in a query string.
+     *
+     * @param value The value which should be encoded.
+     * @return The encoded value.
+     */
+    public static String encode(String value) {
+
+        return value == null ? "" : UrlTable.encode(value);
+    }
+
+    private FemtoWebFunctions() {
+
+    }
+
+}
@@ -0,0 +1,63 @@
+/*
+ * This file is part of FemtoWeb.
+ * Copyright (c) 2015 QuarterCode <http://quartercode.com/>
+ *
+ * FemtoWeb is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * FemtoWeb is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with FemtoWeb. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.femtoweb.impl.taglib;
+
+import javax.servlet.jsp.JspException;
+import javax.servlet.jsp.tagext.SimpleTagSupport;
+
+/**
+ * The {@code fw:param} tag, which adds a URL-encoded query parameter to the URL of the enclosing {@code fw:url} tag ({@link UrlTag}).
+ */
+public class ParamTag extends SimpleTagSupport {
+
+    private String name;
+    private Object value;
+
+    /**
+     * Sets the name of the query parameter.
+     *
+     * @param name The parameter name.
+     */
+    public void setName(String name) {
+
+        this.name = name;
+    }
+
+    /**
+     * Sets the value of the query parameter.
+     *
+     * @param value The parameter value; {@code null} results in an empty value.
+     */
+    public void setValue(Object value) {
+
+        this.value = value;
+    }
+
+    @Override
+    public void doTag() throws JspException {
+
+        UrlTag urlTag = (UrlTag) findAncestorWithClass(this, UrlTag.class);
+        if (urlTag == null) {
+            throw new JspException("The fw:param tag must be nested inside a fw:url tag");
+        }
+
+        urlTag.addParameter(name, value);
+    }
+
+}
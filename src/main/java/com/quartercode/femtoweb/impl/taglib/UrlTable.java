@@ -0,0 +1,197 @@
+/*
+ * This file is part of FemtoWeb.
+ * Copyright (c) 2015 QuarterCode <http://quartercode.com/>
+ *
+ * FemtoWeb is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * FemtoWeb is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with FemtoWeb. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.femtoweb.impl.taglib;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import com.quartercode.femtoweb.api.Action;
+import com.quartercode.femtoweb.api.Context;
+import com.quartercode.femtoweb.util.UrlUtils;
+
+/**
+ * A table of context-path-prefixed URLs of {@link Action}s and static assets, which backs the FemtoWeb tag library and EL functions.
+ * Each URL is resolved through the {@link Context} only once and then served from the table.
+ * The table of the filter is bound to the request thread while a request is processed, so that the static EL functions can {@link #getCurrent() access} it.<br>
+ * <br>
+ * Actions can be referenced by their {@link Class} objects, by their fully qualified class names, or by their class names relative to the action base package
+ * (e.g. {@code sub.SomeAction}).
+ */
+public class UrlTable {
+
+    private static final ThreadLocal<UrlTable>  CURRENT    = new ThreadLocal<>();
+
+    private final Context                       context;
+    private final String                        actionBasePackage;
+    private final String                        contextPath;
+
+    private final ConcurrentMap<Object, String> actionUrls = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, String> assetUrls  = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the URL table which is bound to the current thread.
+     *
+     * @return The current URL table.
+     * @throws IllegalStateException If no URL table is bound, i.e. the current thread doesn't process a request which passed the FemtoWeb filter.
+     */
+    public static UrlTable getCurrent() {
+
+        UrlTable table = CURRENT.get();
+        if (table == null) {
+            throw new IllegalStateException("No FemtoWeb URL table is bound to the current thread; is the request processed by the FemtoWeb filter?");
+        }
+        return table;
+    }
+
+    /**
+     * Returns the URL table which is bound to the current thread, or {@code null} if there is none.
+     *
+     * @return The current URL table or {@code null}.
+     */
+    public static UrlTable getCurrentOrNull() {
+
+        return CURRENT.get();
+    }
+
+    /**
+     * Binds the given URL table to the current thread.
+     * The returned previous table should be restored with {@link #restore(UrlTable)} once the request has been processed.
+     *
+     * @param table The URL table which should be bound.
+     * @return The previously bound URL table, or {@code null} if there was none.
+     */
+    public static UrlTable bind(UrlTable table) {
+
+        UrlTable previous = CURRENT.get();
+        CURRENT.set(table);
+        return previous;
+    }
+
+    /**
+     * Restores the URL table which was bound to the current thread before {@link #bind(UrlTable)} was called.
+     *
+     * @param previous The previously bound URL table, as returned by {@link #bind(UrlTable)}.
+     */
+    public static void restore(UrlTable previous) {
+
+        if (previous == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(previous);
+        }
+    }
+
+    /**
+     * Creates a new empty URL table.
+     *
+     * @param context The context which is used for resolving URIs.
+     * @param actionBasePackage The package which contains all actions; relative action names are resolved against it.
+     * @param contextPath The context path which is put in front of each URI.
+     */
+    public UrlTable(Context context, String actionBasePackage, String contextPath) {
+
+        this.context = context;
+        this.actionBasePackage = actionBasePackage;
+        this.contextPath = contextPath;
+    }
+
+    /**
+     * Returns the context-path-prefixed URL of the given action.
+     *
+     * @param action The action {@link Class}, or the fully qualified or relative name of the action class.
+     * @return The URL of the action.
+     * @throws IllegalArgumentException If the given object doesn't reference an action class.
+     */
+    public String getActionUrl(Object action) {
+
+        String url = actionUrls.get(action);
+        if (url == null) {
+            url = contextPath + context.getUri(resolveAction(action));
+            actionUrls.putIfAbsent(action, url);
+        }
+        return url;
+    }
+
+    private Class<? extends Action> resolveAction(Object action) {
+
+        if (action instanceof Class && Action.class.isAssignableFrom((Class<?>) action)) {
+            return ((Class<?>) action).asSubclass(Action.class);
+        } else if (action instanceof String) {
+            String name = (String) action;
+            try {
+                return Class.forName(actionBasePackage + "." + name).asSubclass(Action.class);
+            } catch (ClassNotFoundException | ClassCastException e) {
+                try {
+                    return Class.forName(name).asSubclass(Action.class);
+                } catch (ClassNotFoundException | ClassCastException e2) {
+                    throw new IllegalArgumentException("Cannot find action class '" + name + "' (relative to '" + actionBasePackage + "' or fully qualified)", e2);
+                }
+            }
+        } else {
+            throw new IllegalArgumentException("Cannot resolve action from " + action);
+        }
+    }
+
+    /**
+     * Returns the context-path-prefixed URL of the given static asset.
+     * If the static assets have been fingerprinted, the URL contains the fingerprinted name (see {@link Context#getAssetUri(String)}).
+     *
+     * @param asset The logical name of the asset, relative to the static asset path (e.g. {@code css/main.css}).
+     * @return The URL of the asset.
+     */
+    public String getAssetUrl(String asset) {
+
+        String url = assetUrls.get(asset);
+        if (url == null) {
+            url = contextPath + context.getAssetUri(asset);
+            assetUrls.putIfAbsent(asset, url);
+        }
+        return url;
+    }
+
+    /**
+     * Appends the given query parameter to the given URL, which may or may not already contain a query string.
+     * Both the name and the value are URL-encoded.
+     *
+     * @param url The URL the parameter should be appended to.
+     * @param name The name of the parameter.
+     * @param value The value of the parameter; {@code null} is appended as an empty value.
+     * @return The given URL builder.
+     */
+    public static StringBuilder appendParameter(StringBuilder url, String name, Object value) {
+
+        url.append(url.indexOf("?") < 0 ? '?' : '&');
+        UrlUtils.appendEncoded(url, name).append('=');
+        if (value != null) {
+            UrlUtils.appendEncoded(url, String.valueOf(value));
+        }
+        return url;
+    }
+
+    /**
+     * URL-encodes the given value for the use in a query string.
+     *
+     * @param value The value which should be encoded.
+     * @return The encoded value.
+     */
+    public static String encode(String value) {
+
+        return UrlUtils.encode(value);
+    }
+
+}
@@ -0,0 +1,91 @@
+/*
+ * This file is part of FemtoWeb.
+ * Copyright (c) 2015 QuarterCode <http://quartercode.com/>
+ *
+ * FemtoWeb is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * FemtoWeb is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with FemtoWeb. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.femtoweb.impl.taglib;
+
+import java.io.IOException;
+import javax.servlet.jsp.JspException;
+import javax.servlet.jsp.tagext.JspFragment;
+import javax.servlet.jsp.tagext.SimpleTagSupport;
+
+/**
+ * The {@code fw:url} tag, which writes the context-path-prefixed URL of an action or stores it in a page variable.
+ * Query parameters can be added through nested {@code fw:param} tags ({@link ParamTag}); their names and values are URL-encoded.
+ *
+ * <pre>
+ * &lt;fw:url action="shop.SearchAction" var="searchUrl"&gt;
+ *     &lt;fw:param name="query" value="${query}" /&gt;
+ * &lt;/fw:url&gt;
+ * </pre>
+ */
+public class UrlTag extends SimpleTagSupport {
+
+    private Object        action;
+    private String        var;
+    private StringBuilder url;
+
+    /**
+     * Sets the action whose URL should be generated.
+     *
+     * @param action The action class, or the fully qualified or relative name of the action class.
+     */
+    public void setAction(Object action) {
+
+        this.action = action;
+    }
+
+    /**
+     * Sets the name of the page variable the URL should be stored in.
+     * If no variable is set, the URL is written to the page.
+     *
+     * @param var The name of the page variable.
+     */
+    public void setVar(String var) {
+
+        this.var = var;
+    }
+
+    void addParameter(String name, Object value) {
+
+        UrlTable.appendParameter(url, name, value);
+    }
+
+    @Override
+    public void doTag() throws JspException, IOException {
+
+        String actionUrl;
+        try {
+            actionUrl = UrlTable.getCurrent().getActionUrl(action);
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            throw new JspException("Cannot generate URL of action '" + action + "'", e);
+        }
+
+        url = new StringBuilder(actionUrl.length() + 64).append(actionUrl);
+        JspFragment body = getJspBody();
+        if (body != null) {
+            body.invoke(null);
+        }
+
+        if (var != null) {
+            getJspContext().setAttribute(var, url.toString());
+        } else {
+            getJspContext().getOut().write(url.toString());
+        }
+    }
+
+}
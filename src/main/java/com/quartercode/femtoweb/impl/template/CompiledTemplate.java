@@ -0,0 +1,260 @@
+/*
+ * This file is part of FemtoWeb.
+ * Copyright (c) 2015 QuarterCode <http://quartercode.com/>
+ *
+ * FemtoWeb is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * FemtoWeb is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with FemtoWeb. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.femtoweb.impl.template;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import org.apache.commons.lang3.StringUtils;
+import com.quartercode.femtoweb.api.Model;
+import com.quartercode.femtoweb.api.ModelLayout;
+import com.quartercode.femtoweb.api.TemplateRenderer;
+
+/**
+ * A template which has been compiled into a sequence of segments.
+ * Static text is stored as chunks which are already encoded as UTF-8, so rendering it is a plain memory copy.
+ * Each placeholder is split into its attribute name and its properties in advance, and each property remembers how it was resolved last
+ * (e.g. the slot of a {@link Model} with a certain {@link ModelLayout} or the getter of a certain bean class),
+ * so that rendering a template over and over again doesn't need any hashing or reflective lookups.
+ * See {@link TemplateRenderer} for the template syntax.
+ */
+public class CompiledTemplate {
+
+    private final Object[] segments;
+
+    /**
+     * Compiles the given template source.
+     *
+     * @param source The source of the template.
+     * @return The compiled template.
+     * @throws IllegalArgumentException If a placeholder is not closed or contains an empty name.
+     */
+    public static CompiledTemplate compile(String source) {
+
+        List<Object> segments = new ArrayList<>();
+        ByteArrayOutputStream staticText = new ByteArrayOutputStream();
+
+        int position = 0;
+        int dollar;
+        while ( (dollar = source.indexOf('$', position)) >= 0) {
+            boolean raw = source.startsWith("!{", dollar + 1);
+            if (!raw && !source.startsWith("{", dollar + 1)) {
+                // A dollar sign which doesn't start a placeholder is just text
+                appendText(staticText, source.substring(position, dollar + 1));
+                position = dollar + 1;
+                continue;
+            }
+
+            int start = dollar + (raw ? 3 : 2);
+            int end = source.indexOf('}', start);
+            if (end < 0) {
+                throw new IllegalArgumentException("Unclosed template placeholder at offset " + dollar);
+            }
+
+            appendText(staticText, source.substring(position, dollar));
+            if (staticText.size() > 0) {
+                segments.add(staticText.toByteArray());
+                staticText.reset();
+            }
+
+            segments.add(new Placeholder(source.substring(start, end), !raw));
+            position = end + 1;
+        }
+
+        appendText(staticText, source.substring(position));
+        if (staticText.size() > 0) {
+            segments.add(staticText.toByteArray());
+        }
+
+        return new CompiledTemplate(segments.toArray());
+    }
+
+    private static void appendText(ByteArrayOutputStream staticText, String text) {
+
+        byte[] encoded = text.getBytes(StandardCharsets.UTF_8);
+        staticText.write(encoded, 0, encoded.length);
+    }
+
+    private CompiledTemplate(Object[] segments) {
+
+        this.segments = segments;
+    }
+
+    /**
+     * Renders the template to the given output stream.
+     * The placeholders are filled with the attributes of the given request.
+     *
+     * @param request The request whose attributes are used as the values of the placeholders.
+     * @param output The output stream the rendered template should be written to.
+     * @param buffer A buffer which is used for collecting the output before it is written to the stream.
+     *        It should have a size of at least a few kilobytes.
+     * @throws IOException If the output stream cannot be written.
+     * @throws ServletException If a property of a bean cannot be read.
+     */
+    public void render(ServletRequest request, OutputStream output, byte[] buffer) throws IOException, ServletException {
+
+        TemplateWriter writer = new TemplateWriter(output, buffer);
+
+        for (Object segment : segments) {
+            if (segment instanceof byte[]) {
+                writer.writeChunk((byte[]) segment);
+            } else {
+                Placeholder placeholder = (Placeholder) segment;
+                Object value = placeholder.resolve(request);
+                if (value != null) {
+                    writer.writeValue(value instanceof String ? (String) value : value.toString(), placeholder.escape);
+                }
+            }
+        }
+
+        writer.flush();
+    }
+
+    private static class Placeholder {
+
+        private final String     attribute;
+        private final Property[] properties;
+        private final boolean    escape;
+
+        private Placeholder(String expression, boolean escape) {
+
+            String[] names = StringUtils.splitPreserveAllTokens(expression.trim(), '.');
+            for (String name : names) {
+                if (name.isEmpty()) {
+                    throw new IllegalArgumentException("Template placeholder '" + expression + "' contains an empty name");
+                }
+            }
+
+            attribute = names[0];
+            properties = new Property[names.length - 1];
+            for (int index = 1; index < names.length; index++) {
+                properties[index - 1] = new Property(names[index]);
+            }
+            this.escape = escape;
+        }
+
+        private Object resolve(ServletRequest request) throws ServletException {
+
+            Object value = request.getAttribute(attribute);
+            for (int index = 0; index < properties.length && value != null; index++) {
+                value = properties[index].get(value);
+            }
+            return value;
+        }
+
+    }
+
+    private static class Property {
+
+        private final String        name;
+
+        private volatile ModelSlot  modelSlot;
+        private volatile BeanGetter beanGetter;
+
+        private Property(String name) {
+
+            this.name = name;
+        }
+
+        private Object get(Object target) throws ServletException {
+
+            if (target instanceof Model) {
+                Model model = (Model) target;
+                ModelSlot cached = modelSlot;
+                if (cached == null || cached.layout != model.getLayout()) {
+                    cached = new ModelSlot(model.getLayout(), model.getLayout().getSlot(name));
+                    modelSlot = cached;
+                }
+                return cached.slot < 0 ? null : model.get(cached.slot);
+            } else if (target instanceof Map) {
+                return ((Map<?, ?>) target).get(name);
+            }
+
+            BeanGetter cached = beanGetter;
+            if (cached == null || cached.type != target.getClass()) {
+                cached = new BeanGetter(target.getClass(), findGetter(target.getClass()));
+                beanGetter = cached;
+            }
+            if (cached.getter == null) {
+                return null;
+            }
+
+            try {
+                return cached.getter.invoke(target);
+            } catch (IllegalAccessException | InvocationTargetException e) {
+                throw new ServletException("Cannot read property '" + name + "' of template value of type '" + target.getClass().getName() + "'", e);
+            }
+        }
+
+        private Method findGetter(Class<?> type) {
+
+            String capitalizedName = StringUtils.capitalize(name);
+            for (String getterName : new String[] { "get" + capitalizedName, "is" + capitalizedName }) {
+                try {
+                    Method getter = type.getMethod(getterName);
+                    if (getter.getReturnType() != void.class && !Modifier.isStatic(getter.getModifiers())) {
+                        // Public getters of non-public classes can't be invoked without this
+                        getter.setAccessible(true);
+                        return getter;
+                    }
+                } catch (NoSuchMethodException e) {
+                    // Try the next name
+                }
+            }
+            return null;
+        }
+
+    }
+
+    private static class ModelSlot {
+
+        private final ModelLayout layout;
+        private final int         slot;
+
+        private ModelSlot(ModelLayout layout, int slot) {
+
+            this.layout = layout;
+            this.slot = slot;
+        }
+
+    }
+
+    private static class BeanGetter {
+
+        private final Class<?> type;
+        private final Method   getter;
+
+        private BeanGetter(Class<?> type, Method getter) {
+
+            this.type = type;
+            this.getter = getter;
+        }
+
+    }
+
+}
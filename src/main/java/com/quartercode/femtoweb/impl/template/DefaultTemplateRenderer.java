@@ -0,0 +1,99 @@
+/*
+ * This file is part of FemtoWeb.
+ * Copyright (c) 2015 QuarterCode <http://quartercode.com/>
+ *
+ * FemtoWeb is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * FemtoWeb is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with FemtoWeb. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.femtoweb.impl.template;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import javax.servlet.ServletContext;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import com.quartercode.femtoweb.api.TemplateRenderer;
+
+/**
+ * The default {@link TemplateRenderer}, which loads templates from the webapp through {@link ServletContext#getResourceAsStream(String)}.
+ * Each template is {@link CompiledTemplate compiled} on first use and then kept for the lifetime of the renderer.
+ * The output is collected in a buffer which is reused by all renders on the same thread.
+ */
+public class DefaultTemplateRenderer implements TemplateRenderer {
+
+    private static final int                              BUFFER_SIZE = 8192;
+    private static final ThreadLocal<byte[]>              BUFFER      = new ThreadLocal<>();
+
+    private final ConcurrentMap<String, CompiledTemplate> templates   = new ConcurrentHashMap<>();
+
+    @Override
+    public void render(HttpServletRequest request, HttpServletResponse response, String path) throws IOException, ServletException {
+
+        CompiledTemplate template = templates.get(path);
+        if (template == null) {
+            template = load(request.getServletContext(), path);
+            CompiledTemplate existing = templates.putIfAbsent(path, template);
+            template = existing != null ? existing : template;
+        }
+
+        if (response.getContentType() == null) {
+            response.setContentType("text/html;charset=UTF-8");
+        }
+
+        // Take the buffer away from the thread while it is used, so that a nested render can't overwrite it
+        byte[] buffer = BUFFER.get();
+        if (buffer == null) {
+            buffer = new byte[BUFFER_SIZE];
+        } else {
+            BUFFER.set(null);
+        }
+
+        try {
+            template.render(request, response.getOutputStream(), buffer);
+        } finally {
+            BUFFER.set(buffer);
+        }
+    }
+
+    private CompiledTemplate load(ServletContext servletContext, String path) throws IOException, ServletException {
+
+        InputStream input = servletContext == null ? null : servletContext.getResourceAsStream(path);
+        if (input == null) {
+            throw new ServletException("Cannot find template '" + path + "'");
+        }
+
+        ByteArrayOutputStream source = new ByteArrayOutputStream();
+        try {
+            byte[] readBuffer = new byte[BUFFER_SIZE];
+            int read;
+            while ( (read = input.read(readBuffer)) >= 0) {
+                source.write(readBuffer, 0, read);
+            }
+        } finally {
+            input.close();
+        }
+
+        try {
+            return CompiledTemplate.compile(new String(source.toByteArray(), StandardCharsets.UTF_8));
+        } catch (IllegalArgumentException e) {
+            throw new ServletException("Cannot compile template '" + path + "'", e);
+        }
+    }
+
+}
@@ -0,0 +1,136 @@
+/*
+ * This file is part of FemtoWeb.
+ * Copyright (c) 2015 QuarterCode <http://quartercode.com/>
+ *
+ * FemtoWeb is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * FemtoWeb is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with FemtoWeb. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.femtoweb.impl.template;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/*
+ * Collects the output of a template render in a byte buffer and writes it to the underlying stream in large blocks.
+ * Static chunks are copied as they are, while dynamic values are HTML-escaped and encoded as UTF-8 directly into the buffer,
+ * so that no intermediate strings or byte arrays are created.
+ */
+class TemplateWriter {
+
+    // The longest sequence a single character can produce is the entity "&quot;"
+    private static final int    MAX_CHAR_BYTES = 6;
+
+    private static final byte[] AMP            = { '&', 'a', 'm', 'p', ';' };
+    private static final byte[] LT             = { '&', 'l', 't', ';' };
+    private static final byte[] GT             = { '&', 'g', 't', ';' };
+    private static final byte[] QUOT           = { '&', 'q', 'u', 'o', 't', ';' };
+    private static final byte[] APOS           = { '&', '#', '3', '9', ';' };
+
+    private final OutputStream  output;
+    private final byte[]        buffer;
+    private int                 position;
+
+    TemplateWriter(OutputStream output, byte[] buffer) {
+
+        this.output = output;
+        this.buffer = buffer;
+    }
+
+    void writeChunk(byte[] chunk) throws IOException {
+
+        if (chunk.length > buffer.length - position) {
+            flush();
+
+            // Large chunks don't need to be copied into the buffer first
+            if (chunk.length >= buffer.length) {
+                output.write(chunk);
+                return;
+            }
+        }
+
+        System.arraycopy(chunk, 0, buffer, position, chunk.length);
+        position += chunk.length;
+    }
+
+    void writeValue(String value, boolean escape) throws IOException {
+
+        int length = value.length();
+        for (int index = 0; index < length; index++) {
+            if (buffer.length - position < MAX_CHAR_BYTES) {
+                flush();
+            }
+
+            char character = value.charAt(index);
+            if (character < 0x80) {
+                if (escape && writeEntity(character)) {
+                    continue;
+                }
+                buffer[position++] = (byte) character;
+            } else if (character < 0x800) {
+                buffer[position++] = (byte) (0xC0 | character >> 6);
+                buffer[position++] = (byte) (0x80 | character & 0x3F);
+            } else if (Character.isHighSurrogate(character) && index + 1 < length && Character.isLowSurrogate(value.charAt(index + 1))) {
+                int codePoint = Character.toCodePoint(character, value.charAt(++index));
+                buffer[position++] = (byte) (0xF0 | codePoint >> 18);
+                buffer[position++] = (byte) (0x80 | codePoint >> 12 & 0x3F);
+                buffer[position++] = (byte) (0x80 | codePoint >> 6 & 0x3F);
+                buffer[position++] = (byte) (0x80 | codePoint & 0x3F);
+            } else if (Character.isSurrogate(character)) {
+                // Unpaired surrogates cannot be encoded
+                buffer[position++] = '?';
+            } else {
+                buffer[position++] = (byte) (0xE0 | character >> 12);
+                buffer[position++] = (byte) (0x80 | character >> 6 & 0x3F);
+                buffer[position++] = (byte) (0x80 | character & 0x3F);
+            }
+        }
+    }
+
+    private boolean writeEntity(char character) {
+
+        byte[] entity;
+        switch (character) {
+            case '&':
+                entity = AMP;
+                break;
+            case '<':
+                entity = LT;
+                break;
+            case '>':
+                entity = GT;
+                break;
+            case '"':
+                entity = QUOT;
+                break;
+            case '\'':
+                entity = APOS;
+                break;
+            default:
+                return false;
+        }
+
+        System.arraycopy(entity, 0, buffer, position, entity.length);
+        position += entity.length;
+        return true;
+    }
+
+    void flush() throws IOException {
+
+        if (position > 0) {
+            output.write(buffer, 0, position);
+            position = 0;
+        }
+    }
+
+}
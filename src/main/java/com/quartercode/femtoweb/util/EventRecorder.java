@@ -0,0 +1,164 @@
+/*
+ * This file is part of FemtoWeb.
+ * Copyright (c) 2015 QuarterCode <http://quartercode.com/>
+ *
+ * FemtoWeb is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * FemtoWeb is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with FemtoWeb. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.femtoweb.util;
+
+import java.lang.reflect.InvocationTargetException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The recorder which emits the JDK Flight Recorder events of FemtoWeb, so that request latency can be analyzed in JDK Mission Control
+ * next to GC and lock events. The events are enabled and disabled through the standard JFR settings; their names all start with
+ * {@code com.quartercode.femtoweb}.<br>
+ * <br>
+ * Each operation is recorded in two steps: The {@code begin} method returns an opaque event handle, or {@code null} if the event isn't enabled
+ * in any running recording. Only if the handle isn't {@code null}, the {@code commit} method has to be called once the operation has finished.
+ * That way, disabled events only cost a single check. On JVMs without the flight recorder (before Java 11), the recorder returned by {@link #get()}
+ * doesn't record anything.
+ */
+public class EventRecorder {
+
+    private static final Logger        LOGGER   = LoggerFactory.getLogger(EventRecorder.class);
+
+    private static final EventRecorder INSTANCE = create();
+
+    /**
+     * Returns the event recorder which is used by all parts of FemtoWeb.
+     *
+     * @return The event recorder.
+     */
+    public static EventRecorder get() {
+
+        return INSTANCE;
+    }
+
+    private static EventRecorder create() {
+
+        try {
+            Class.forName("jdk.jfr.Event");
+        } catch (ClassNotFoundException e) {
+            return new EventRecorder();
+        }
+
+        // The flight recorder implementation is only compiled on Java 11 and newer, so it is loaded by name
+        try {
+            return Class.forName("com.quartercode.femtoweb.impl.jfr.JfrEventRecorder").asSubclass(EventRecorder.class).getDeclaredConstructor().newInstance();
+        } catch (InvocationTargetException e) {
+            LOGGER.warn("Cannot create flight recorder events; they won't be recorded", e.getCause());
+            return new EventRecorder();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            LOGGER.warn("Cannot create flight recorder events; they won't be recorded", e);
+            return new EventRecorder();
+        }
+    }
+
+    /**
+     * Creates a new event recorder which doesn't record anything.
+     * Subclasses override the methods in order to actually record events.
+     */
+    protected EventRecorder() {
+
+    }
+
+    /**
+     * Begins the event of looking up the action which is responsible for a URI.
+     *
+     * @return The event handle, or {@code null} if the event is disabled.
+     */
+    public Object beginRouteLookup() {
+
+        return null;
+    }
+
+    /**
+     * Commits the event of looking up the action which is responsible for a URI.
+     *
+     * @param event The handle returned by {@link #beginRouteLookup()}.
+     * @param uri The URI which has been looked up.
+     * @param actionClass The action class which has been found, or {@code null} if no action is responsible for the URI.
+     * @param result Either {@code hit} if the action was cached, {@code miss} if it had to be resolved, or {@code notFound}.
+     */
+    public void commitRouteLookup(Object event, String uri, Class<?> actionClass, String result) {
+
+    }
+
+    /**
+     * Begins the event of creating a new action instance through the action factory.
+     *
+     * @return The event handle, or {@code null} if the event is disabled.
+     */
+    public Object beginActionInstantiation() {
+
+        return null;
+    }
+
+    /**
+     * Commits the event of creating a new action instance through the action factory.
+     *
+     * @param event The handle returned by {@link #beginActionInstantiation()}.
+     * @param actionClass The action class which has been instantiated.
+     */
+    public void commitActionInstantiation(Object event, Class<?> actionClass) {
+
+    }
+
+    /**
+     * Begins the event of executing a single action of an action chain.
+     *
+     * @return The event handle, or {@code null} if the event is disabled.
+     */
+    public Object beginActionExecution() {
+
+        return null;
+    }
+
+    /**
+     * Commits the event of executing a single action of an action chain.
+     *
+     * @param event The handle returned by {@link #beginActionExecution()}.
+     * @param actionClass The class of the executed action.
+     * @param uri The URI of the request the action has been executed for.
+     * @param chainIndex The position of the action in the chain, starting at {@code 0} for the action which is responsible for the URI.
+     */
+    public void commitActionExecution(Object event, Class<?> actionClass, String uri, int chainIndex) {
+
+    }
+
+    /**
+     * Begins the event of rendering a view or redirecting the client.
+     *
+     * @return The event handle, or {@code null} if the event is disabled.
+     */
+    public Object beginResolution() {
+
+        return null;
+    }
+
+    /**
+     * Commits the event of rendering a view or redirecting the client.
+     *
+     * @param event The handle returned by {@link #beginResolution()}.
+     * @param resolutionClass The class of the resolution action (e.g. a view or a redirect).
+     * @param target The path of the rendered view or the URL the client has been redirected to.
+     */
+    public void commitResolution(Object event, Class<?> resolutionClass, String target) {
+
+    }
+
+}
@@ -0,0 +1,126 @@
+/*
+ * This file is part of FemtoWeb.
+ * Copyright (c) 2015 QuarterCode <http://quartercode.com/>
+ *
+ * FemtoWeb is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * FemtoWeb is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with FemtoWeb. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.femtoweb.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import javax.servlet.FilterConfig;
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * A class which contains some utilities for reading typed {@link FilterConfig#getInitParameter(String) init parameters} from a {@link FilterConfig}.
+ * All methods return the provided default value if the requested parameter is blank or not set at all.
+ */
+public class FilterConfigUtils {
+
+    /**
+     * Returns the value of the init parameter with the given name, or the given default value if the parameter is blank.
+     *
+     * @param filterConfig The filter config which provides the init parameter.
+     * @param name The name of the init parameter whose value should be returned.
+     * @param defaultValue The value which is returned if the parameter is blank.
+     * @return The trimmed parameter value or the default value.
+     */
+    public static String getString(FilterConfig filterConfig, String name, String defaultValue) {
+
+        String value = filterConfig.getInitParameter(name);
+        return StringUtils.isBlank(value) ? defaultValue : value.trim();
+    }
+
+    /**
+     * Returns the value of the init parameter with the given name parsed as a boolean, or the given default value if the parameter is blank.
+     * The values {@code true}, {@code yes} and {@code on} (ignoring case) are treated as {@code true}; all other values are treated as {@code false}.
+     *
+     * @param filterConfig The filter config which provides the init parameter.
+     * @param name The name of the init parameter whose value should be returned.
+     * @param defaultValue The value which is returned if the parameter is blank.
+     * @return The parsed parameter value or the default value.
+     */
+    public static boolean getBoolean(FilterConfig filterConfig, String name, boolean defaultValue) {
+
+        String value = getString(filterConfig, name, null);
+        return value == null ? defaultValue : StringUtils.equalsIgnoreCase(value, "true") || StringUtils.equalsIgnoreCase(value, "yes") || StringUtils.equalsIgnoreCase(value, "on");
+    }
+
+    /**
+     * Returns the value of the init parameter with the given name parsed as an integer, or the given default value if the parameter is blank.
+     *
+     * @param filterConfig The filter config which provides the init parameter.
+     * @param name The name of the init parameter whose value should be returned.
+     * @param defaultValue The value which is returned if the parameter is blank.
+     * @return The parsed parameter value or the default value.
+     * @throws IllegalArgumentException If the parameter is set, but not a valid integer.
+     */
+    public static int getInt(FilterConfig filterConfig, String name, int defaultValue) {
+
+        return (int) getLong(filterConfig, name, defaultValue);
+    }
+
+    /**
+     * Returns the value of the init parameter with the given name parsed as a long, or the given default value if the parameter is blank.
+     *
+     * @param filterConfig The filter config which provides the init parameter.
+     * @param name The name of the init parameter whose value should be returned.
+     * @param defaultValue The value which is returned if the parameter is blank.
+     * @return The parsed parameter value or the default value.
+     * @throws IllegalArgumentException If the parameter is set, but not a valid long.
+     */
+    public static long getLong(FilterConfig filterConfig, String name, long defaultValue) {
+
+        String value = getString(filterConfig, name, null);
+
+        if (value == null) {
+            return defaultValue;
+        }
+
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Init parameter '" + name + "' must be a number, but is '" + value + "'", e);
+        }
+    }
+
+    /**
+     * Returns the value of the init parameter with the given name split at commas, or the given default values if the parameter is blank.
+     * All list items are trimmed, and blank items are removed.
+     *
+     * @param filterConfig The filter config which provides the init parameter.
+     * @param name The name of the init parameter whose values should be returned.
+     * @param defaultValues The values which are returned if the parameter is blank.
+     * @return The split parameter values or the default values.
+     */
+    public static List<String> getList(FilterConfig filterConfig, String name, String... defaultValues) {
+
+        String value = getString(filterConfig, name, null);
+
+        List<String> items = new ArrayList<>();
+        for (String item : value == null ? defaultValues : StringUtils.split(value, ',')) {
+            if (!StringUtils.isBlank(item)) {
+                items.add(item.trim());
+            }
+        }
+
+        return items;
+    }
+
+    private FilterConfigUtils() {
+
+    }
+
+}
@@ -0,0 +1,96 @@
+/*
+ * This file is part of FemtoWeb.
+ * Copyright (c) 2015 QuarterCode <http://quartercode.com/>
+ *
+ * FemtoWeb is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * FemtoWeb is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with FemtoWeb. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.femtoweb.util;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A class which contains some utilities for building URLs.
+ * The encoding methods produce the same output as {@link java.net.URLEncoder} with UTF-8 (the {@code application/x-www-form-urlencoded} format),
+ * but they don't allocate anything for values which don't need to be encoded, and they can append directly to an existing builder.
+ */
+public class UrlUtils {
+
+    private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+
+    /**
+     * URL-encodes the given value for the use in a query string.
+     *
+     * @param value The value which should be encoded.
+     * @return The encoded value. If nothing needs to be encoded, this is the given string itself.
+     */
+    public static String encode(String value) {
+
+        for (int index = 0; index < value.length(); index++) {
+            if (!isUnreserved(value.charAt(index))) {
+                return appendEncoded(new StringBuilder(value.length() + 16), value).toString();
+            }
+        }
+
+        return value;
+    }
+
+    /**
+     * URL-encodes the given value for the use in a query string and appends the result to the given builder.
+     *
+     * @param builder The builder the encoded value should be appended to.
+     * @param value The value which should be encoded.
+     * @return The given builder.
+     */
+    public static StringBuilder appendEncoded(StringBuilder builder, String value) {
+
+        int length = value.length();
+        for (int index = 0; index < length; index++) {
+            char character = value.charAt(index);
+
+            if (isUnreserved(character)) {
+                builder.append(character);
+            } else if (character == ' ') {
+                builder.append('+');
+            } else if (character < 0x80) {
+                appendEscaped(builder, character);
+            } else {
+                // Encode the whole code point, which might consist of a surrogate pair, as UTF-8
+                int end = Character.isHighSurrogate(character) && index + 1 < length && Character.isLowSurrogate(value.charAt(index + 1)) ? index + 2 : index + 1;
+                for (byte encoded : value.substring(index, end).getBytes(StandardCharsets.UTF_8)) {
+                    appendEscaped(builder, encoded & 0xFF);
+                }
+                index = end - 1;
+            }
+        }
+
+        return builder;
+    }
+
+    private static boolean isUnreserved(char character) {
+
+        return character >= 'a' && character <= 'z' || character >= 'A' && character <= 'Z' || character >= '0' && character <= '9' || character == '-'
+                || character == '_' || character == '.' || character == '*';
+    }
+
+    private static void appendEscaped(StringBuilder builder, int value) {
+
+        builder.append('%').append(HEX_DIGITS[value >> 4]).append(HEX_DIGITS[value & 0xF]);
+    }
+
+    private UrlUtils() {
+
+    }
+
+}
@@ -0,0 +1,247 @@
+/*
+ * This file is part of FemtoWeb.
+ * Copyright (c) 2015 QuarterCode <http://quartercode.com/>
+ *
+ * FemtoWeb is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * FemtoWeb is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with FemtoWeb. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.femtoweb.test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletContext;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import com.quartercode.femtoweb.impl.FemtoWebFilter;
+import com.quartercode.femtoweb.impl.synthetic.SyntheticRequest;
+import com.quartercode.femtoweb.impl.synthetic.SyntheticResponse;
+
+/**
+ * A minimal in-process stand-in for a servlet container which hosts a single {@link FemtoWebFilter}.
+ * Requests never leave the JVM: they are created as {@link SyntheticRequest}s and their responses are recorded by {@link SyntheticResponse}s.
+ * Static assets are served by the filter chain from memory, and views are rendered from in-memory templates whose {@code ${name}} placeholders are
+ * replaced by request attributes.
+ */
+public class InProcessContainer {
+
+    private final String                   contextPath;
+    private final Map<String, String>      initParameters;
+    private final Map<String, Object>      servletContextAttributes = new ConcurrentHashMap<>();
+    private final Map<String, StaticAsset> staticAssets             = new ConcurrentHashMap<>();
+    private final Map<String, String>      views                    = new ConcurrentHashMap<>();
+
+    private final ServletContext           servletContext;
+    private final FilterChain              staticAssetChain;
+
+    private FemtoWebFilter                 filter;
+
+    public InProcessContainer(String contextPath, Map<String, String> initParameters) {
+
+        this.contextPath = contextPath;
+        this.initParameters = initParameters;
+
+        servletContext = createServletContext();
+        staticAssetChain = new FilterChain() {
+
+            @Override
+            public void doFilter(ServletRequest request, ServletResponse response) throws IOException {
+
+                serveStaticAsset((HttpServletRequest) request, (HttpServletResponse) response);
+            }
+
+        };
+    }
+
+    public void addStaticAsset(String path, String contentType, byte[] content) {
+
+        staticAssets.put(path, new StaticAsset(contentType, content));
+    }
+
+    public void addView(String path, String template) {
+
+        views.put(path, template);
+    }
+
+    public void start() throws ServletException {
+
+        filter = new FemtoWebFilter();
+        filter.init(createFilterConfig());
+    }
+
+    public void stop() {
+
+        filter.destroy();
+        filter = null;
+    }
+
+    public FemtoWebFilter getFilter() {
+
+        return filter;
+    }
+
+    public SyntheticResponse execute(String method, String uri) throws IOException, ServletException {
+
+        SyntheticResponse response = new SyntheticResponse();
+        execute(createRequest(method, uri), response);
+        return response;
+    }
+
+    public SyntheticRequest createRequest(String method, String uri) {
+
+        return new ContainerRequest(method, uri);
+    }
+
+    public void execute(SyntheticRequest request, SyntheticResponse response) throws IOException, ServletException {
+
+        filter.doFilter(request, response, staticAssetChain);
+    }
+
+    private void serveStaticAsset(HttpServletRequest request, HttpServletResponse response) throws IOException {
+
+        StaticAsset asset = staticAssets.get(request.getRequestURI().substring(contextPath.length()));
+        if (asset == null) {
+            response.sendError(404);
+        } else {
+            response.setContentType(asset.contentType);
+            response.setContentLength(asset.content.length);
+            response.getOutputStream().write(asset.content);
+        }
+    }
+
+    private String render(String template, ServletRequest request) {
+
+        StringBuilder output = new StringBuilder(template.length() + 64);
+        int position = 0;
+        int start;
+        while ( (start = template.indexOf("${", position)) >= 0) {
+            int end = template.indexOf('}', start);
+            output.append(template, position, start);
+            output.append(request.getAttribute(template.substring(start + 2, end)));
+            position = end + 1;
+        }
+        output.append(template, position, template.length());
+        return output.toString();
+    }
+
+    private ServletContext createServletContext() {
+
+        return (ServletContext) Proxy.newProxyInstance(ServletContext.class.getClassLoader(), new Class<?>[] { ServletContext.class }, new InvocationHandler() {
+
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) {
+
+                switch (method.getName()) {
+                    case "getContextPath":
+                        return contextPath;
+                    case "getAttribute":
+                        return servletContextAttributes.get(args[0]);
+                    case "setAttribute":
+                        servletContextAttributes.put((String) args[0], args[1]);
+                        return null;
+                    case "removeAttribute":
+                        servletContextAttributes.remove(args[0]);
+                        return null;
+                    case "getResourceAsStream":
+                        StaticAsset asset = staticAssets.get(args[0]);
+                        return asset == null ? null : new ByteArrayInputStream(asset.content);
+                    case "getResourcePaths":
+                        return Collections.emptySet();
+                    case "toString":
+                        return "InProcessContainer" + contextPath;
+                    default:
+                        throw new UnsupportedOperationException(method.getName());
+                }
+            }
+
+        });
+    }
+
+    private FilterConfig createFilterConfig() {
+
+        return new FilterConfig() {
+
+            @Override
+            public String getFilterName() {
+
+                return "loadTestFilter";
+            }
+
+            @Override
+            public ServletContext getServletContext() {
+
+                return servletContext;
+            }
+
+            @Override
+            public String getInitParameter(String name) {
+
+                return initParameters.get(name);
+            }
+
+            @Override
+            public Enumeration<String> getInitParameterNames() {
+
+                return Collections.enumeration(initParameters.keySet());
+            }
+
+        };
+    }
+
+    private class ContainerRequest extends SyntheticRequest {
+
+        private ContainerRequest(String method, String uri) {
+
+            super(servletContext, method, contextPath, uri);
+        }
+
+        @Override
+        protected void forward(String path, ServletRequest request, ServletResponse response) throws IOException {
+
+            String template = views.get(path);
+            if (template == null) {
+                ((HttpServletResponse) response).sendError(404);
+            } else {
+                response.setContentType("text/html");
+                response.getWriter().write(render(template, request));
+            }
+        }
+
+    }
+
+    private static class StaticAsset {
+
+        private final String contentType;
+        private final byte[] content;
+
+        private StaticAsset(String contentType, byte[] content) {
+
+            this.contentType = contentType;
+            this.content = content;
+        }
+
+    }
+
+}
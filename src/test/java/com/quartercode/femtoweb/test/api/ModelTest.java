@@ -0,0 +1,77 @@
+/*
+ * This file is part of FemtoWeb.
+ * Copyright (c) 2015 QuarterCode <http://quartercode.com/>
+ *
+ * FemtoWeb is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * FemtoWeb is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with FemtoWeb. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.femtoweb.test.api;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.junit.Test;
+import com.quartercode.femtoweb.api.Model;
+import com.quartercode.femtoweb.api.ModelLayout;
+
+public class ModelTest {
+
+    private static final ModelLayout LAYOUT = ModelLayout.of("title", "items", "user");
+    private static final int         TITLE  = LAYOUT.getSlot("title");
+    private static final int         USER   = LAYOUT.getSlot("user");
+
+    @Test
+    public void testSlots() {
+
+        assertEquals("Slot count", 3, LAYOUT.getSize());
+        assertEquals("Slot of 'items'", 1, LAYOUT.getSlot("items"));
+        assertEquals("Slot of unknown name", -1, LAYOUT.getSlot("unknown"));
+        assertEquals("Name of slot 2", "user", LAYOUT.getName(2));
+    }
+
+    @Test
+    public void testMapView() {
+
+        Model model = LAYOUT.newModel().set(TITLE, "Hello").set(USER, "someone");
+
+        assertEquals("Value by slot", "Hello", model.get(TITLE));
+        assertEquals("Value by name", "someone", model.get("user"));
+        assertNull("Unset value", model.get("items"));
+        assertNull("Unknown name", model.get("unknown"));
+        assertFalse("Unset slot contained", model.containsKey("items"));
+        assertTrue("Set slot not contained", model.containsKey("title"));
+
+        Map<String, Object> expected = new LinkedHashMap<>();
+        expected.put("title", "Hello");
+        expected.put("user", "someone");
+        assertEquals("Map view", expected, model);
+        assertEquals("Map size", 2, model.size());
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void testSetUnknownName() {
+
+        LAYOUT.newModel().set("unknown", "value");
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void testDuplicateName() {
+
+        ModelLayout.of("title", "title");
+    }
+
+}
@@ -0,0 +1,113 @@
+/*
+ * This file is part of FemtoWeb.
+ * Copyright (c) 2015 QuarterCode <http://quartercode.com/>
+ *
+ * FemtoWeb is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * FemtoWeb is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with FemtoWeb. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.femtoweb.test.api.methods;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import com.quartercode.femtoweb.api.Action;
+import com.quartercode.femtoweb.api.ActionSupport;
+import com.quartercode.femtoweb.api.methods.Get;
+import com.quartercode.femtoweb.api.methods.MethodDispatchTable;
+import com.quartercode.femtoweb.impl.synthetic.SyntheticResponse;
+import com.quartercode.femtoweb.test.InProcessContainer;
+import com.quartercode.femtoweb.test.api.methods.actions.ItemAction;
+
+public class MethodDispatchTest {
+
+    private InProcessContainer container;
+
+    @Before
+    public void setUp() throws Exception {
+
+        Map<String, String> initParameters = new HashMap<>();
+        initParameters.put("actionBasePackage", ItemAction.class.getPackage().getName());
+
+        container = new InProcessContainer("/app", initParameters);
+        container.start();
+    }
+
+    @After
+    public void tearDown() {
+
+        container.stop();
+    }
+
+    @Test
+    public void testTable() {
+
+        MethodDispatchTable table = MethodDispatchTable.of(ItemAction.class);
+        assertFalse("Table empty", table.isEmpty());
+        assertTrue("HEAD allowed through GET handler", table.isAllowed("HEAD"));
+        assertFalse("PUT allowed", table.isAllowed("PUT"));
+        assertEquals("Allowed methods", "GET, HEAD, POST", table.getAllowedMethods());
+
+        assertTrue("Table of action without handlers not empty", MethodDispatchTable.of(Action.class).isEmpty());
+    }
+
+    @Test
+    public void testDispatch() throws Exception {
+
+        assertEquals("GET response", "show", container.execute("GET", "/item").getBodyAsString());
+        assertEquals("POST response", "update test", container.execute("POST", "/item?name=test").getBodyAsString());
+    }
+
+    @Test
+    public void testRejectBeforeInstantiation() throws Exception {
+
+        int instances = ItemAction.INSTANCES.get();
+        SyntheticResponse response = container.execute("DELETE", "/item");
+
+        assertEquals("Status", 405, response.getStatus());
+        assertEquals("Allow header", "GET, HEAD, POST", response.getHeader("Allow"));
+        assertEquals("Action instances created", instances, ItemAction.INSTANCES.get());
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void testInvalidHandler() {
+
+        MethodDispatchTable.of(InvalidAction.class);
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void testMissingHandler() {
+
+        MethodDispatchTable.of(MissingHandlerAction.class);
+    }
+
+    private static class InvalidAction extends ActionSupport {
+
+        @Get
+        protected Action show(String parameter) {
+
+            return null;
+        }
+
+    }
+
+    private static class MissingHandlerAction extends ActionSupport {
+
+    }
+
+}
@@ -0,0 +1,50 @@
+/*
+ * This file is part of FemtoWeb.
+ * Copyright (c) 2015 QuarterCode <http://quartercode.com/>
+ *
+ * FemtoWeb is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * FemtoWeb is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with FemtoWeb. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.femtoweb.test.api.methods.actions;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import com.quartercode.femtoweb.api.Action;
+import com.quartercode.femtoweb.api.ActionSupport;
+import com.quartercode.femtoweb.api.methods.Get;
+import com.quartercode.femtoweb.api.methods.Post;
+
+public class ItemAction extends ActionSupport {
+
+    public static final AtomicInteger INSTANCES = new AtomicInteger();
+
+    public ItemAction() {
+
+        INSTANCES.incrementAndGet();
+    }
+
+    @Get
+    private Action show() throws Exception {
+
+        response.getWriter().write("show");
+        return null;
+    }
+
+    @Post
+    protected Action update() throws Exception {
+
+        response.getWriter().write("update " + getParam("name"));
+        return null;
+    }
+
+}
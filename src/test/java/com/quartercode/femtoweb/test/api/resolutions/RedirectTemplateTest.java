@@ -0,0 +1,79 @@
+/*
+ * This file is part of FemtoWeb.
+ * Copyright (c) 2015 QuarterCode <http://quartercode.com/>
+ *
+ * FemtoWeb is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * FemtoWeb is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with FemtoWeb. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.femtoweb.test.api.resolutions;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import org.junit.Before;
+import org.junit.Test;
+import com.quartercode.femtoweb.api.Context;
+import com.quartercode.femtoweb.api.resolutions.Redirect;
+import com.quartercode.femtoweb.api.resolutions.RedirectTemplate;
+import com.quartercode.femtoweb.impl.DefaultContext;
+import com.quartercode.femtoweb.impl.synthetic.SyntheticRequest;
+import com.quartercode.femtoweb.impl.synthetic.SyntheticResponse;
+import com.quartercode.femtoweb.test.testactions.SomeRootTestAction;
+import com.quartercode.femtoweb.util.UrlUtils;
+
+public class RedirectTemplateTest {
+
+    private static final RedirectTemplate TEMPLATE = RedirectTemplate.to(SomeRootTestAction.class).variable("q").param("tab", "a b").variable("name&x");
+
+    private Context                       context;
+
+    @Before
+    public void setUp() {
+
+        context = new DefaultContext("com.quartercode.femtoweb.test.testactions", null, null, null);
+    }
+
+    @Test
+    public void testGetUrl() {
+
+        assertEquals("URL", "/app/someRootTest?tab=a+b&q=%C3%A4%F0%9F%98%80%2F&name%26x=", TEMPLATE.getUrl("/app", context, "ä😀/", null));
+        assertEquals("URL with other context path", "/someRootTest?tab=a+b&q=1&name%26x=2", TEMPLATE.getUrl("", context, "1", "2"));
+        assertEquals("URL without parameters", "/app/someRootTest", RedirectTemplate.to(SomeRootTestAction.class).getUrl("/app", context));
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void testWrongValueCount() {
+
+        TEMPLATE.redirect("1");
+    }
+
+    @Test
+    public void testRedirect() throws Exception {
+
+        SyntheticResponse response = new SyntheticResponse();
+        TEMPLATE.redirect("x y", "z").execute(new SyntheticRequest(null, "GET", "/app", "/other"), response, context);
+        assertEquals("Template redirect location", "/app/someRootTest?tab=a+b&q=x+y&name%26x=z", response.getRedirectLocation());
+
+        response = new SyntheticResponse();
+        new Redirect(SomeRootTestAction.class, "näme", "v=1&2").execute(new SyntheticRequest(null, "GET", "/app", "/other"), response, context);
+        assertEquals("Plain redirect location", "/app/someRootTest?n%C3%A4me=v%3D1%262", response.getRedirectLocation());
+    }
+
+    @Test
+    public void testEncodingWithoutChanges() {
+
+        String value = "plain-value_1.*";
+        assertSame("Unchanged value", value, UrlUtils.encode(value));
+    }
+
+}
@@ -0,0 +1,102 @@
+/*
+ * This file is part of FemtoWeb.
+ * Copyright (c) 2015 QuarterCode <http://quartercode.com/>
+ *
+ * FemtoWeb is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * FemtoWeb is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with FemtoWeb. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.femtoweb.test.api.resolutions;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import java.io.IOException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import org.junit.Before;
+import org.junit.Test;
+import com.quartercode.femtoweb.api.Context;
+import com.quartercode.femtoweb.api.Model;
+import com.quartercode.femtoweb.api.ModelLayout;
+import com.quartercode.femtoweb.api.resolutions.Template;
+import com.quartercode.femtoweb.api.resolutions.View;
+import com.quartercode.femtoweb.impl.DefaultContext;
+import com.quartercode.femtoweb.impl.synthetic.SyntheticRequest;
+import com.quartercode.femtoweb.impl.synthetic.SyntheticResponse;
+
+public class ViewTest {
+
+    private static final View        PAGE   = new View("page.jsp");
+    private static final ModelLayout LAYOUT = ModelLayout.of("title");
+
+    private Context                  context;
+
+    @Before
+    public void setUp() {
+
+        context = new DefaultContext("com.quartercode.femtoweb.test.testactions", null, null, null);
+    }
+
+    @Test
+    public void testModelLeavesSharedViewUnchanged() throws Exception {
+
+        Model model = new Model(LAYOUT).set("title", "Private");
+        View modelView = PAGE.model(model);
+        assertNotSame("View with model", PAGE, modelView);
+
+        SyntheticRequest sharedRequest = request();
+        PAGE.execute(sharedRequest, new SyntheticResponse(), context);
+        assertNull("Model of shared view", sharedRequest.getAttribute(Model.ATTRIBUTE));
+
+        SyntheticRequest modelRequest = request();
+        modelView.execute(modelRequest, new SyntheticResponse(), context);
+        assertSame("Model of view with model", model, modelRequest.getAttribute(Model.ATTRIBUTE));
+    }
+
+    @Test
+    public void testPreloadLeavesSharedViewUnchanged() throws Exception {
+
+        View preloadView = PAGE.preload("css/main.css");
+        assertNotSame("View with preloaded assets", PAGE, preloadView);
+
+        SyntheticResponse sharedResponse = new SyntheticResponse();
+        PAGE.execute(request(), sharedResponse, context);
+        assertNull("Link header of shared view", sharedResponse.getHeader("Link"));
+
+        SyntheticResponse preloadResponse = new SyntheticResponse();
+        preloadView.execute(request(), preloadResponse, context);
+        assertEquals("Link header of view with preloaded assets", "</app/static/css/main.css>; rel=preload; as=style", preloadResponse.getHeader("Link"));
+    }
+
+    @Test
+    public void testCopyKeepsClass() {
+
+        assertEquals("Class of copied template", Template.class, new Template("page.html").model(new Model(LAYOUT)).getClass());
+    }
+
+    private SyntheticRequest request() {
+
+        return new SyntheticRequest(null, "GET", "/app", "/app/page") {
+
+            @Override
+            protected void forward(String path, ServletRequest request, ServletResponse response) throws IOException {
+
+                response.getWriter().write("page");
+            }
+
+        };
+    }
+
+}
@@ -0,0 +1,173 @@
+/*
+ * This file is part of FemtoWeb.
+ * Copyright (c) 2015 QuarterCode <http://quartercode.com/>
+ *
+ * FemtoWeb is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * FemtoWeb is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with FemtoWeb. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.femtoweb.test.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import com.sun.management.ThreadMXBean;
+import com.quartercode.femtoweb.impl.synthetic.SyntheticRequest;
+import com.quartercode.femtoweb.impl.synthetic.SyntheticResponse;
+import com.quartercode.femtoweb.test.InProcessContainer;
+
+/**
+ * Measures the bytes which are allocated by a single {@code FemtoWebFilter.doFilter()} call on the common request paths.
+ * Each path must stay within the budget which is configured in {@code allocation-budgets.properties}.
+ * The budgets include the allocations of the in-process container stand-in (e.g. the recorded response body), but not the creation of the request and response objects.
+ * Since the allocations depend on the JDK and the JIT, this test only runs in the {@code load-test} Maven profile.
+ */
+public class AllocationBudgetTest {
+
+    private static final int    WARMUP_ITERATIONS   = 5000;
+    private static final int    MEASURED_ITERATIONS = 1000;
+
+    private static ThreadMXBean threadBean;
+    private static Properties   budgets;
+
+    private InProcessContainer  container;
+
+    @BeforeClass
+    public static void setUpClass() throws IOException {
+
+        // Only the HotSpot variant of the thread bean provides allocation measurement
+        Object bean = ManagementFactory.getThreadMXBean();
+        assumeTrue("Thread allocation measurement is not supported by this JVM", bean instanceof ThreadMXBean);
+
+        threadBean = (ThreadMXBean) bean;
+        assumeTrue("Thread allocation measurement is not supported by this JVM", threadBean.isThreadAllocatedMemorySupported());
+        threadBean.setThreadAllocatedMemoryEnabled(true);
+
+        budgets = new Properties();
+        try (InputStream input = AllocationBudgetTest.class.getResourceAsStream("/allocation-budgets.properties")) {
+            budgets.load(input);
+        }
+    }
+
+    @Before
+    public void setUp() throws Exception {
+
+        Map<String, String> initParameters = new HashMap<>();
+        initParameters.put("actionBasePackage", "com.quartercode.femtoweb.test.load.actions");
+
+        container = new InProcessContainer("/app", initParameters);
+        container.addView("/WEB-INF/dynamic/view.jsp", "<html><head><title>${title}</title></head><body>Hello ${user}!</body></html>");
+        container.addStaticAsset("/WEB-INF/dynamic/view.html", "text/html",
+                "<html><head><title>${title}</title></head><body>Hello ${user}!</body></html>".getBytes(StandardCharsets.UTF_8));
+        container.start();
+    }
+
+    @After
+    public void tearDown() {
+
+        container.stop();
+    }
+
+    private void assertWithinBudget(String path, String uri, int expectedStatus) throws Exception {
+
+        // Let the JIT compile the path and fill all caches
+        for (int iteration = 0; iteration < WARMUP_ITERATIONS; iteration++) {
+            execute(uri, expectedStatus);
+        }
+
+        long bytesPerCall = Long.MAX_VALUE;
+        // Take the best of a few rounds in order to filter out one-time allocations like TLAB refills or lazily initialized JDK internals
+        for (int round = 0; round < 3; round++) {
+            bytesPerCall = Math.min(bytesPerCall, measure(uri, expectedStatus));
+        }
+
+        long budget = Long.parseLong(budgets.getProperty(path));
+        assertTrue(String.format("Path '%s' allocates %d bytes per request, which exceeds its budget of %d bytes", path, bytesPerCall, budget), bytesPerCall <= budget);
+    }
+
+    private long measure(String uri, int expectedStatus) throws Exception {
+
+        long threadId = Thread.currentThread().getId();
+
+        // Measure the overhead of the measurement itself
+        long overhead = -threadBean.getThreadAllocatedBytes(threadId) + threadBean.getThreadAllocatedBytes(threadId);
+
+        SyntheticRequest[] requests = new SyntheticRequest[MEASURED_ITERATIONS];
+        SyntheticResponse[] responses = new SyntheticResponse[MEASURED_ITERATIONS];
+        for (int iteration = 0; iteration < MEASURED_ITERATIONS; iteration++) {
+            requests[iteration] = container.createRequest("GET", uri);
+            responses[iteration] = new SyntheticResponse();
+        }
+
+        long before = threadBean.getThreadAllocatedBytes(threadId);
+        for (int iteration = 0; iteration < MEASURED_ITERATIONS; iteration++) {
+            container.execute(requests[iteration], responses[iteration]);
+        }
+        long allocated = threadBean.getThreadAllocatedBytes(threadId) - before - overhead;
+
+        for (SyntheticResponse response : responses) {
+            assertEquals("Response status for '" + uri + "'", expectedStatus, response.getStatus());
+        }
+
+        return allocated / MEASURED_ITERATIONS;
+    }
+
+    private void execute(String uri, int expectedStatus) throws Exception {
+
+        SyntheticResponse response = new SyntheticResponse();
+        container.execute(container.createRequest("GET", uri), response);
+        assertEquals("Response status for '" + uri + "'", expectedStatus, response.getStatus());
+    }
+
+    @Test
+    public void testActionHit() throws Exception {
+
+        assertWithinBudget("actionHit", "/hit", 200);
+    }
+
+    @Test
+    public void testNotFound() throws Exception {
+
+        assertWithinBudget("notFound", "/missing", 404);
+    }
+
+    @Test
+    public void testRedirect() throws Exception {
+
+        assertWithinBudget("redirect", "/redirect", 302);
+    }
+
+    @Test
+    public void testViewForward() throws Exception {
+
+        assertWithinBudget("viewForward", "/view?user=budget", 200);
+    }
+
+    @Test
+    public void testTemplateRender() throws Exception {
+
+        assertWithinBudget("templateRender", "/template?user=budget", 200);
+    }
+
+}
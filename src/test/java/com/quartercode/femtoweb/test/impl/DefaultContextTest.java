@@ -18,11 +18,23 @@
 
 package com.quartercode.femtoweb.test.impl;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.servlet.RequestDispatcher;
+import javax.servlet.ServletContext;
+import javax.servlet.http.HttpServletRequest;
 import org.junit.Before;
 import org.junit.Test;
 import com.quartercode.femtoweb.api.ActionNotFoundException;
+import com.quartercode.femtoweb.api.CacheBackend;
+import com.quartercode.femtoweb.api.FragmentExecutor;
 import com.quartercode.femtoweb.impl.DefaultContext;
+import com.quartercode.femtoweb.impl.cache.LocalCacheBackend;
 import com.quartercode.femtoweb.test.testactions.SomeRootTestAction;
 import com.quartercode.femtoweb.test.testactions.sub1.sub2.SomeTestAction;
 
@@ -56,4 +68,67 @@ public class DefaultContextTest {
         assertEquals("Returned action for test URI", SomeRootTestAction.class, context.getAction("/someRootTest"));
     }
 
+    @Test
+    public void testGetViewPath() {
+
+        assertEquals("Returned view path for relative path", "/WEB-INF/dynamic/sub1/form.jsp", context.getViewPath("/sub1/form.jsp"));
+        assertEquals("Returned view path for action directory", "/WEB-INF/dynamic/sub1/sub2/form.jsp", context.getViewPath(SomeTestAction.class, "form.jsp"));
+
+        // The second lookup must be served from the cache
+        assertSame("Cached view path", context.getViewPath(SomeTestAction.class, "form.jsp"), context.getViewPath(SomeTestAction.class, "form.jsp"));
+    }
+
+    @Test
+    public void testServiceOwnership() throws Exception {
+
+        LocalCacheBackend cacheBackend = new LocalCacheBackend(10);
+        DefaultContext builtContext = new DefaultContext.Builder("com.quartercode.femtoweb.test.testactions").cacheBackend(cacheBackend).build();
+        assertSame("Passed cache backend", cacheBackend, builtContext.getCacheBackend());
+
+        // Closing the context must leave the passed cache backend alone
+        cacheBackend.put("key", new byte[] { 1 }, 60000);
+        builtContext.close();
+        assertArrayEquals("Entry of passed cache backend after closing the context", new byte[] { 1 }, cacheBackend.get("key"));
+
+        // Default services are created once on first use
+        FragmentExecutor fragmentExecutor = context.getFragmentExecutor();
+        CacheBackend defaultCacheBackend = context.getCacheBackend();
+        assertSame("Default fragment executor on second call", fragmentExecutor, context.getFragmentExecutor());
+        assertSame("Default cache backend on second call", defaultCacheBackend, context.getCacheBackend());
+        context.close();
+    }
+
+    @Test
+    public void testGetViewDispatcherCached() {
+
+        DefaultContext cachingContext = new DefaultContext.Builder("com.quartercode.femtoweb.test.testactions").cacheDispatchers(true).build();
+        final AtomicInteger createdDispatchers = new AtomicInteger();
+
+        final ServletContext servletContext = (ServletContext) Proxy.newProxyInstance(ServletContext.class.getClassLoader(), new Class<?>[] { ServletContext.class },
+                new InvocationHandler() {
+
+                    @Override
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+
+                        createdDispatchers.incrementAndGet();
+                        return Proxy.newProxyInstance(RequestDispatcher.class.getClassLoader(), new Class<?>[] { RequestDispatcher.class }, this);
+                    }
+
+                });
+        HttpServletRequest request = (HttpServletRequest) Proxy.newProxyInstance(HttpServletRequest.class.getClassLoader(), new Class<?>[] { HttpServletRequest.class },
+                new InvocationHandler() {
+
+                    @Override
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+
+                        return servletContext;
+                    }
+
+                });
+
+        RequestDispatcher dispatcher = cachingContext.getViewDispatcher(request, "/WEB-INF/dynamic/form.jsp");
+        assertSame("Reused dispatcher", dispatcher, cachingContext.getViewDispatcher(request, "/WEB-INF/dynamic/form.jsp"));
+        assertEquals("Created dispatchers", 1, createdDispatchers.get());
+    }
+
 }
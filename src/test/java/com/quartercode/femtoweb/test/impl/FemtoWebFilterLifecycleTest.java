@@ -0,0 +1,119 @@
+/*
+ * This file is part of FemtoWeb.
+ * Copyright (c) 2015 QuarterCode <http://quartercode.com/>
+ *
+ * FemtoWeb is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * FemtoWeb is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with FemtoWeb. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.femtoweb.test.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import com.quartercode.femtoweb.impl.FemtoWebFilter;
+import com.quartercode.femtoweb.impl.synthetic.SyntheticResponse;
+import com.quartercode.femtoweb.test.InProcessContainer;
+import com.quartercode.femtoweb.test.impl.lifecycle.BlockingAction;
+
+public class FemtoWebFilterLifecycleTest {
+
+    private InProcessContainer container;
+
+    @Before
+    public void setUp() throws Exception {
+
+        Map<String, String> initParameters = new HashMap<>();
+        initParameters.put("actionBasePackage", BlockingAction.class.getPackage().getName());
+        initParameters.put("drainTimeout", "10000");
+
+        container = new InProcessContainer("/app", initParameters);
+        container.start();
+    }
+
+    @After
+    public void tearDown() {
+
+        if (container.getFilter() != null) {
+            container.stop();
+        }
+    }
+
+    @Test
+    public void testReload() throws Exception {
+
+        assertEquals("Asset URI before reload", "/static/app.css", container.execute("GET", "/asset").getBodyAsString());
+
+        container.addStaticAsset("/WEB-INF/asset-manifest.properties", "text/plain", "app.css=app.0123456789.css".getBytes(StandardCharsets.ISO_8859_1));
+        container.getFilter().reload();
+
+        assertEquals("Asset URI after reload", "/static/app.0123456789.css", container.execute("GET", "/asset").getBodyAsString());
+    }
+
+    @Test
+    public void testDrainOnShutdown() throws Exception {
+
+        final FemtoWebFilter filter = container.getFilter();
+        final SyntheticResponse blockedResponse = new SyntheticResponse();
+        Thread blockedRequest = new Thread() {
+
+            @Override
+            public void run() {
+
+                try {
+                    container.execute(container.createRequest("GET", "/blocking"), blockedResponse);
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            }
+
+        };
+        blockedRequest.start();
+        assertTrue("Blocking action started", BlockingAction.STARTED.await(10, TimeUnit.SECONDS));
+
+        Thread shutdown = new Thread() {
+
+            @Override
+            public void run() {
+
+                container.stop();
+            }
+
+        };
+        shutdown.start();
+
+        // New requests are rejected as soon as the shutdown has begun
+        SyntheticResponse rejectedResponse;
+        do {
+            rejectedResponse = new SyntheticResponse();
+            filter.doFilter(container.createRequest("GET", "/asset"), rejectedResponse, null);
+        } while (rejectedResponse.getStatus() != 503);
+
+        assertTrue("Shutdown waits for in-flight request", shutdown.isAlive());
+        assertEquals("In-flight requests", 1, filter.getInFlightRequests());
+
+        BlockingAction.RELEASE.countDown();
+        shutdown.join();
+        blockedRequest.join();
+
+        assertEquals("Status of drained request", 200, blockedResponse.getStatus());
+        assertEquals("Body of drained request", "done", blockedResponse.getBodyAsString());
+    }
+
+}
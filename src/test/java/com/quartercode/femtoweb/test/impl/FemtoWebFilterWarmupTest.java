@@ -0,0 +1,135 @@
+/*
+ * This file is part of FemtoWeb.
+ * Copyright (c) 2015 QuarterCode <http://quartercode.com/>
+ *
+ * FemtoWeb is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * FemtoWeb is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with FemtoWeb. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.femtoweb.test.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import org.junit.After;
+import org.junit.Test;
+import com.quartercode.femtoweb.impl.FemtoWebFilter;
+import com.quartercode.femtoweb.impl.synthetic.SyntheticRequest;
+import com.quartercode.femtoweb.impl.synthetic.SyntheticResponse;
+
+public class FemtoWebFilterWarmupTest {
+
+    private static final FilterChain NO_OP_CHAIN = new FilterChain() {
+
+        @Override
+        public void doFilter(ServletRequest request, ServletResponse response) {
+
+            // Empty
+        }
+
+    };
+
+    private FemtoWebFilter filter;
+
+    private static FilterConfig filterConfig(final Map<String, String> parameters) {
+
+        return (FilterConfig) Proxy.newProxyInstance(FilterConfig.class.getClassLoader(), new Class<?>[] { FilterConfig.class }, new InvocationHandler() {
+
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) {
+
+                switch (method.getName()) {
+                    case "getFilterName":
+                        return "warmupTestFilter";
+                    case "getInitParameter":
+                        return parameters.get(args[0]);
+                    case "getInitParameterNames":
+                        return Collections.enumeration(parameters.keySet());
+                    case "getServletContext":
+                        return null;
+                    default:
+                        throw new UnsupportedOperationException(method.getName());
+                }
+            }
+
+        });
+    }
+
+    @After
+    public void tearDown() {
+
+        if (filter != null) {
+            filter.destroy();
+        }
+    }
+
+    @Test
+    public void testWarmupAndReadiness() throws Exception {
+
+        Map<String, String> parameters = new HashMap<>();
+        parameters.put("actionBasePackage", "com.quartercode.femtoweb.test.testactions");
+        parameters.put("warmup", "true");
+        parameters.put("warmupIterations", "3");
+        parameters.put("readinessUri", "/ready");
+
+        filter = new FemtoWebFilter();
+        filter.init(filterConfig(parameters));
+        assertTrue("Filter not ready after synchronous warm-up", filter.isReady());
+
+        SyntheticResponse response = new SyntheticResponse();
+        filter.doFilter(new SyntheticRequest(null, "GET", "", "/ready"), response, NO_OP_CHAIN);
+        assertEquals("Readiness status", 200, response.getStatus());
+        assertEquals("Readiness body", "READY", response.getBodyAsString());
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName("com.quartercode.femtoweb:type=FemtoWebFilter,context=\"\",name=\"warmupTestFilter\"");
+        assertEquals("Ready attribute", true, server.getAttribute(name, "Ready"));
+        assertEquals("Preloaded actions", 2, server.getAttribute(name, "WarmupActions"));
+        assertEquals("Sent synthetic requests", 9L, server.getAttribute(name, "WarmupRequests"));
+    }
+
+    @Test
+    public void testWarmupNotRateLimited() throws Exception {
+
+        Map<String, String> parameters = new HashMap<>();
+        parameters.put("actionBasePackage", "com.quartercode.femtoweb.test.testactions");
+        parameters.put("rateLimits", "/someRootTest=0.001/1");
+        parameters.put("warmup", "true");
+        parameters.put("warmupIterations", "3");
+        parameters.put("warmupUris", "/someRootTest");
+
+        filter = new FemtoWebFilter();
+        filter.init(filterConfig(parameters));
+
+        SyntheticResponse response = new SyntheticResponse();
+        filter.doFilter(new SyntheticRequest(null, "GET", "", "/someRootTest"), response, NO_OP_CHAIN);
+        assertEquals("Status of first real request", 200, response.getStatus());
+
+        response = new SyntheticResponse();
+        filter.doFilter(new SyntheticRequest(null, "GET", "", "/someRootTest"), response, NO_OP_CHAIN);
+        assertEquals("Status of second real request", 429, response.getStatus());
+    }
+
+}
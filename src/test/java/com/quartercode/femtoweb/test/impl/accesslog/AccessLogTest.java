@@ -0,0 +1,140 @@
+/*
+ * This file is part of FemtoWeb.
+ * Copyright (c) 2015 QuarterCode <http://quartercode.com/>
+ *
+ * FemtoWeb is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * FemtoWeb is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with FemtoWeb. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.femtoweb.test.impl.accesslog;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import com.quartercode.femtoweb.impl.accesslog.AccessLog;
+import com.quartercode.femtoweb.impl.synthetic.SyntheticRequest;
+import com.quartercode.femtoweb.test.InProcessContainer;
+import com.quartercode.femtoweb.test.impl.accesslog.actions.ChainAction;
+
+public class AccessLogTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testFilterLogging() throws Exception {
+
+        File file = new File(temporaryFolder.getRoot(), "logs/access.log");
+
+        Map<String, String> initParameters = new HashMap<>();
+        initParameters.put("actionBasePackage", ChainAction.class.getPackage().getName());
+        initParameters.put("accessLog", file.getPath());
+        initParameters.put("warmup", "true");
+        initParameters.put("warmupIterations", "3");
+        initParameters.put("warmupUris", "/chain");
+
+        InProcessContainer container = new InProcessContainer("/app", initParameters);
+        container.start();
+        try {
+            container.execute("GET", "/chain");
+            container.execute("GET", "/missing\"\n");
+        } finally {
+            // Closing the log writes all remaining records
+            container.stop();
+        }
+
+        // The synthetic warm-up requests are not logged
+        List<String> lines = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+        assertEquals("Line count", 2, lines.size());
+        assertTrue("Action line: " + lines.get(0),
+                lines.get(0).matches("\\d{4}-\\d{2}-\\d{2}T\\d{2}:\\d{2}:\\d{2}\\.\\d{3}Z \"GET /chain\" 200 " + ChainAction.class.getName().replace(".", "\\.")
+                        + " chainLength=2 total=\\d+ wait=\\d+"));
+        assertTrue("Escaped not found line: " + lines.get(1), lines.get(1).matches(".* \"GET /missing\\\\x22\\\\x0a\" 404 - chainLength=0 total=\\d+ wait=-"));
+    }
+
+    @Test
+    public void testRotation() throws Exception {
+
+        Path file = temporaryFolder.getRoot().toPath().resolve("access.log");
+        AccessLog accessLog = new AccessLog(file, 16, 500, 3);
+        for (int request = 0; request < 100; request++) {
+            log(accessLog, "/page" + request, 200);
+            if (request % 10 == 9) {
+                // Give the writer thread a chance to write the records in several batches
+                Thread.sleep(150);
+            }
+        }
+        accessLog.close();
+
+        assertTrue("Rotated file exists", Files.exists(file.resolveSibling("access.log.2")));
+        assertTrue("No file beyond the maximum file count", !Files.exists(file.resolveSibling("access.log.3")));
+        for (String name : new String[] { "access.log", "access.log.1", "access.log.2" }) {
+            Path rotatedFile = file.resolveSibling(name);
+            assertTrue("Size of '" + name + "' within maximum", Files.size(rotatedFile) <= 500);
+            for (String line : Files.readAllLines(rotatedFile, StandardCharsets.UTF_8)) {
+                assertTrue("Complete line in '" + name + "': " + line, line.endsWith(" wait=-"));
+            }
+        }
+        assertTrue("Latest record in current file", new String(Files.readAllBytes(file), StandardCharsets.UTF_8).contains("/page99\""));
+    }
+
+    @Test
+    public void testFailedRotation() throws Exception {
+
+        // The oldest file cannot be deleted if it is a non-empty directory
+        Path file = temporaryFolder.getRoot().toPath().resolve("access.log");
+        Files.createDirectories(file.resolveSibling("access.log.1").resolve("blocker"));
+
+        AccessLog accessLog = new AccessLog(file, 16, 100, 2);
+        for (int request = 0; request < 10; request++) {
+            log(accessLog, "/page" + request, 200);
+        }
+        accessLog.close();
+
+        // All records are kept in the current file
+        List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        assertEquals("Line count", 10, lines.size());
+        assertTrue("Latest record in current file: " + lines.get(9), lines.get(9).contains("/page9\""));
+    }
+
+    @Test
+    public void testDropWhenFull() throws Exception {
+
+        Path file = temporaryFolder.getRoot().toPath().resolve("access.log");
+        AccessLog accessLog = new AccessLog(file, 4, Long.MAX_VALUE, 1);
+        for (int request = 0; request < 10000; request++) {
+            log(accessLog, "/page", 200);
+        }
+        accessLog.close();
+
+        long written = Files.readAllLines(file, StandardCharsets.UTF_8).size();
+        assertTrue("Records have been dropped", accessLog.getDroppedRecords() > 0);
+        assertEquals("Written and dropped records", 10000, written + accessLog.getDroppedRecords());
+    }
+
+    private void log(AccessLog accessLog, String uri, int status) {
+
+        SyntheticRequest request = new SyntheticRequest(null, "GET", "", uri);
+        accessLog.log(accessLog.begin(request, "GET", uri), status);
+    }
+
+}
@@ -0,0 +1,95 @@
+/*
+ * This file is part of FemtoWeb.
+ * Copyright (c) 2015 QuarterCode <http://quartercode.com/>
+ *
+ * FemtoWeb is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * FemtoWeb is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with FemtoWeb. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.femtoweb.test.impl.buffering;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import java.io.PrintWriter;
+import org.junit.Test;
+import com.quartercode.femtoweb.impl.buffering.BufferPool;
+import com.quartercode.femtoweb.impl.buffering.BufferingResponseWrapper;
+import com.quartercode.femtoweb.impl.synthetic.SyntheticResponse;
+
+public class BufferingResponseWrapperTest {
+
+    private static byte[] data(int length) {
+
+        byte[] data = new byte[length];
+        for (int index = 0; index < length; index++) {
+            data[index] = (byte) index;
+        }
+        return data;
+    }
+
+    @Test
+    public void testExactContentLength() throws Exception {
+
+        BufferPool pool = new BufferPool(16, 8);
+        SyntheticResponse response = new SyntheticResponse();
+        BufferingResponseWrapper wrapper = new BufferingResponseWrapper(response, pool, 1024);
+
+        PrintWriter writer = wrapper.getWriter();
+        for (int piece = 0; piece < 10; piece++) {
+            writer.write("piece" + piece + ";");
+            wrapper.flushBuffer();
+        }
+        assertFalse("Response committed before it was finished", response.isCommitted());
+
+        wrapper.finish();
+        String expected = "piece0;piece1;piece2;piece3;piece4;piece5;piece6;piece7;piece8;piece9;";
+        assertEquals("Body", expected, response.getBodyAsString());
+        assertEquals("Content-Length", expected.length(), response.getContentLength());
+        assertEquals("Chunks returned to pool", 5, pool.getIdleCount());
+    }
+
+    @Test
+    public void testOversizedBodyIsStreamed() throws Exception {
+
+        BufferPool pool = new BufferPool(16, 8);
+        SyntheticResponse response = new SyntheticResponse();
+        BufferingResponseWrapper wrapper = new BufferingResponseWrapper(response, pool, 40);
+
+        byte[] data = data(100);
+        wrapper.getOutputStream().write(data, 0, 30);
+        wrapper.getOutputStream().write(data, 30, 70);
+        wrapper.finish();
+
+        assertArrayEquals("Body", data, response.getBody());
+        assertEquals("Content-Length", -1, response.getContentLength());
+        assertEquals("Chunks returned to pool", 2, pool.getIdleCount());
+    }
+
+    @Test
+    public void testErrorBypassesBuffer() throws Exception {
+
+        BufferPool pool = new BufferPool(16, 8);
+        SyntheticResponse response = new SyntheticResponse();
+        BufferingResponseWrapper wrapper = new BufferingResponseWrapper(response, pool, 1024);
+
+        wrapper.getOutputStream().write(data(20));
+        wrapper.sendError(500);
+        wrapper.finish();
+
+        assertEquals("Status", 500, response.getStatus());
+        assertEquals("Body size", 0, response.getBodySize());
+        assertEquals("Chunks returned to pool", 2, pool.getIdleCount());
+    }
+
+}
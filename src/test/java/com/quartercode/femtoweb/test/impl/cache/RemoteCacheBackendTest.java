@@ -0,0 +1,131 @@
+/*
+ * This file is part of FemtoWeb.
+ * Copyright (c) 2015 QuarterCode <http://quartercode.com/>
+ *
+ * FemtoWeb is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * FemtoWeb is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with FemtoWeb. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.femtoweb.test.impl.cache;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import java.net.InetAddress;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import com.quartercode.femtoweb.impl.cache.CacheDaemon;
+import com.quartercode.femtoweb.impl.cache.RemoteCacheBackend;
+import com.quartercode.femtoweb.test.InProcessContainer;
+import com.quartercode.femtoweb.test.impl.cache.actions.CachedAction;
+
+public class RemoteCacheBackendTest {
+
+    private CacheDaemon        daemon;
+    private RemoteCacheBackend node1;
+    private RemoteCacheBackend node2;
+
+    @Before
+    public void setUp() throws Exception {
+
+        daemon = new CacheDaemon(InetAddress.getLoopbackAddress(), 0, 1000);
+        node1 = new RemoteCacheBackend("127.0.0.1", daemon.getPort(), 1000, 100);
+        node2 = new RemoteCacheBackend("127.0.0.1", daemon.getPort(), 1000, 100);
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (! (node1.isSubscribed() && node2.isSubscribed() && daemon.getSubscriberCount() == 2) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue("Nodes did not subscribe to invalidations", node1.isSubscribed() && node2.isSubscribed());
+    }
+
+    @After
+    public void tearDown() {
+
+        node1.close();
+        node2.close();
+        daemon.close();
+    }
+
+    @Test
+    public void testSharedEntries() throws Exception {
+
+        node1.put("key", new byte[] { 1, 2, 3 }, 60000);
+        assertArrayEquals("Value on other node", new byte[] { 1, 2, 3 }, node2.get("key"));
+        assertNull("Unknown key", node2.get("unknown"));
+    }
+
+    @Test
+    public void testInvalidationBroadcast() throws Exception {
+
+        node1.put("page:1", new byte[] { 1 }, 60000);
+        node1.put("page:2", new byte[] { 2 }, 60000);
+        node1.put("other", new byte[] { 3 }, 60000);
+
+        // Fill the near cache of the second node
+        assertArrayEquals("Value before update", new byte[] { 1 }, node2.get("page:1"));
+        assertArrayEquals("Value before update", new byte[] { 2 }, node2.get("page:2"));
+
+        node1.put("page:1", new byte[] { 4 }, 60000);
+        assertEventually("Updated value on other node", new byte[] { 4 }, "page:1");
+
+        node1.invalidatePrefix("page:");
+        assertEventually("Invalidated value on other node", null, "page:2");
+        assertArrayEquals("Value with other prefix", new byte[] { 3 }, node2.get("other"));
+    }
+
+    private void assertEventually(String message, byte[] expected, String key) throws Exception {
+
+        long deadline = System.currentTimeMillis() + 5000;
+        byte[] value = node2.get(key);
+        while (!Arrays.equals(expected, value) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+            value = node2.get(key);
+        }
+        assertArrayEquals(message, expected, value);
+    }
+
+    @Test
+    public void testResponseCache() throws Exception {
+
+        Map<String, String> initParameters = new HashMap<>();
+        initParameters.put("actionBasePackage", CachedAction.class.getPackage().getName());
+        initParameters.put("cacheBackend", "remote");
+        initParameters.put("cacheHost", "127.0.0.1");
+        initParameters.put("cachePort", String.valueOf(daemon.getPort()));
+
+        InProcessContainer container1 = new InProcessContainer("/app", initParameters);
+        InProcessContainer container2 = new InProcessContainer("/app", initParameters);
+        container1.start();
+        container2.start();
+
+        try {
+            int executions = CachedAction.EXECUTIONS.get();
+            String first = container1.execute("GET", "/cached?id=1&ignored=a").getBodyAsString();
+            assertEquals("Response on other node", first, container2.execute("GET", "/cached?id=1&ignored=b").getBodyAsString());
+            assertEquals("Executions", executions + 1, CachedAction.EXECUTIONS.get());
+
+            container2.execute("GET", "/cached?id=2");
+            assertEquals("Executions with other relevant parameter", executions + 2, CachedAction.EXECUTIONS.get());
+        } finally {
+            container1.stop();
+            container2.stop();
+        }
+    }
+
+}
@@ -0,0 +1,77 @@
+/*
+ * This file is part of FemtoWeb.
+ * Copyright (c) 2015 QuarterCode <http://quartercode.com/>
+ *
+ * FemtoWeb is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * FemtoWeb is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with FemtoWeb. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.femtoweb.test.impl.cache;
+
+import static org.junit.Assert.assertEquals;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletResponse;
+import org.junit.Test;
+import com.quartercode.femtoweb.api.CacheResponse;
+import com.quartercode.femtoweb.impl.cache.LocalCacheBackend;
+import com.quartercode.femtoweb.impl.cache.ResponseCache;
+import com.quartercode.femtoweb.impl.coalescing.RequestCoalescer.Execution;
+import com.quartercode.femtoweb.impl.synthetic.SyntheticRequest;
+import com.quartercode.femtoweb.impl.synthetic.SyntheticResponse;
+import com.quartercode.femtoweb.test.impl.cache.actions.CachedAction;
+
+public class ResponseCacheTest {
+
+    private final LocalCacheBackend backend    = new LocalCacheBackend(100);
+    private final ResponseCache     cache      = new ResponseCache(backend);
+    private final AtomicInteger     executions = new AtomicInteger();
+
+    @Test
+    public void testIdenticalRequestsReplayed() throws Exception {
+
+        assertEquals("First response", "id=1 #1", execute("/cached?id=1&other=x"));
+        assertEquals("Identical response", "id=1 #1", execute("/cached?other=y&id=1"));
+        assertEquals("Cache size", 1, backend.getSize());
+    }
+
+    @Test
+    public void testAmbiguousParametersNotShared() throws Exception {
+
+        assertEquals("Response with comma in value", "id=a, b #1", execute("/cached?id=a,%20b"));
+        assertEquals("Response with two values", "id=a #2", execute("/cached?id=a&id=b"));
+        assertEquals("Response with separators in value", "id=a\0[b] #3", execute("/cached?id=a%00%5Bb%5D"));
+        assertEquals("Cache size", 3, backend.getSize());
+    }
+
+    private String execute(String uri) throws IOException, ServletException {
+
+        final SyntheticRequest request = new SyntheticRequest(null, "GET", "", uri);
+        CacheResponse settings = cache.getSettings(request, CachedAction.class);
+
+        SyntheticResponse response = new SyntheticResponse();
+        cache.execute(request, response, CachedAction.class, settings, new Execution() {
+
+            @Override
+            public void execute(HttpServletResponse executionResponse) throws IOException {
+
+                executionResponse.setContentType("text/plain; charset=UTF-8");
+                executionResponse.getWriter().write("id=" + request.getParameter("id") + " #" + executions.incrementAndGet());
+            }
+
+        });
+        return response.getBodyAsString();
+    }
+
+}
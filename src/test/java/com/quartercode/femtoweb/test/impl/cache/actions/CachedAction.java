@@ -0,0 +1,42 @@
+/*
+ * This file is part of FemtoWeb.
+ * Copyright (c) 2015 QuarterCode <http://quartercode.com/>
+ *
+ * FemtoWeb is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * FemtoWeb is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with FemtoWeb. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.femtoweb.test.impl.cache.actions;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import com.quartercode.femtoweb.api.Action;
+import com.quartercode.femtoweb.api.CacheResponse;
+import com.quartercode.femtoweb.api.Context;
+
+@CacheResponse (params = "id")
+public class CachedAction implements Action {
+
+    public static final AtomicInteger EXECUTIONS = new AtomicInteger();
+
+    @Override
+    public Action execute(HttpServletRequest request, HttpServletResponse response, Context context) throws IOException {
+
+        response.setContentType("text/plain");
+        response.getWriter().write("item " + request.getParameter("id") + " #" + EXECUTIONS.incrementAndGet());
+        return null;
+    }
+
+}
@@ -0,0 +1,187 @@
+/*
+ * This file is part of FemtoWeb.
+ * Copyright (c) 2015 QuarterCode <http://quartercode.com/>
+ *
+ * FemtoWeb is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * FemtoWeb is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with FemtoWeb. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.femtoweb.test.impl.coalescing;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.servlet.ServletException;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletResponse;
+import org.junit.Test;
+import com.quartercode.femtoweb.api.Coalesce;
+import com.quartercode.femtoweb.api.Deadline;
+import com.quartercode.femtoweb.impl.coalescing.RequestCoalescer;
+import com.quartercode.femtoweb.impl.coalescing.RequestCoalescer.Execution;
+import com.quartercode.femtoweb.impl.synthetic.SyntheticRequest;
+import com.quartercode.femtoweb.impl.synthetic.SyntheticResponse;
+import com.quartercode.femtoweb.test.impl.coalescing.actions.CoalescedAction;
+
+public class RequestCoalescerTest {
+
+    private final RequestCoalescer coalescer  = new RequestCoalescer();
+    private final AtomicInteger    executions = new AtomicInteger();
+    private final CountDownLatch   started    = new CountDownLatch(1);
+    private final CountDownLatch   release    = new CountDownLatch(1);
+
+    @Test
+    public void testSettings() {
+
+        assertEquals("Relevant parameters", "q", coalescer.getSettings(request("/coalesced"), CoalescedAction.class).params()[0]);
+        assertEquals("Settings of POST request", null, coalescer.getSettings(new SyntheticRequest(null, "POST", "", "/coalesced"), CoalescedAction.class));
+    }
+
+    @Test
+    public void testFollowerReplaysLeader() throws Exception {
+
+        Thread leader = execute("/coalesced?q=1", false, new SyntheticResponse());
+        assertTrue("Leader started", started.await(10, TimeUnit.SECONDS));
+
+        // The irrelevant parameter doesn't prevent coalescing
+        SyntheticResponse followerResponse = new SyntheticResponse();
+        Thread follower = execute("/coalesced?q=1&tracking=2", false, followerResponse);
+        waitForFollower(follower);
+
+        release.countDown();
+        leader.join();
+        follower.join();
+
+        assertEquals("Executions", 1, executions.get());
+        assertEquals("Replayed body", "result 1", followerResponse.getBodyAsString());
+        assertEquals("Replayed header", "value", followerResponse.getHeader("X-Test"));
+        assertEquals("In-flight executions", 0, coalescer.getInFlightCount());
+    }
+
+    @Test
+    public void testFollowerExecutesUserSpecificResponse() throws Exception {
+
+        Thread leader = execute("/coalesced?q=1", true, new SyntheticResponse());
+        assertTrue("Leader started", started.await(10, TimeUnit.SECONDS));
+
+        SyntheticResponse followerResponse = new SyntheticResponse();
+        Thread follower = execute("/coalesced?q=1", true, followerResponse);
+        waitForFollower(follower);
+
+        release.countDown();
+        leader.join();
+        follower.join();
+
+        assertEquals("Executions", 2, executions.get());
+        assertEquals("Body of own execution", "result 2", followerResponse.getBodyAsString());
+    }
+
+    @Test
+    public void testFollowerEndedAtDeadline() throws Exception {
+
+        Thread leader = execute("/coalesced?q=1", false, new SyntheticResponse());
+        assertTrue("Leader started", started.await(10, TimeUnit.SECONDS));
+
+        // The follower must neither wait for the leader nor execute the action itself once its deadline has passed
+        SyntheticRequest followerRequest = request("/coalesced?q=1");
+        followerRequest.setAttribute(Deadline.ATTRIBUTE, Deadline.after(50));
+        SyntheticResponse followerResponse = new SyntheticResponse();
+        Thread follower = execute(followerRequest, false, followerResponse);
+        follower.join(TimeUnit.SECONDS.toMillis(10));
+
+        assertFalse("Follower still waiting", follower.isAlive());
+        assertEquals("Follower status", 503, followerResponse.getStatus());
+
+        release.countDown();
+        leader.join();
+        assertEquals("Executions", 1, executions.get());
+    }
+
+    @Test
+    public void testDifferentParametersNotCoalesced() throws Exception {
+
+        Thread first = execute("/coalesced?q=1", false, new SyntheticResponse());
+        assertTrue("First request started", started.await(10, TimeUnit.SECONDS));
+
+        release.countDown();
+        SyntheticResponse secondResponse = new SyntheticResponse();
+        execute("/coalesced?q=2", false, secondResponse).join();
+        first.join();
+
+        assertEquals("Executions", 2, executions.get());
+    }
+
+    private Thread execute(String uri, boolean setCookie, SyntheticResponse response) {
+
+        return execute(request(uri), setCookie, response);
+    }
+
+    private Thread execute(final SyntheticRequest request, final boolean setCookie, final SyntheticResponse response) {
+
+        final Coalesce coalesce = coalescer.getSettings(request, CoalescedAction.class);
+
+        Thread thread = new Thread() {
+
+            @Override
+            public void run() {
+
+                try {
+                    coalescer.execute(request, response, CoalescedAction.class, coalesce, new Execution() {
+
+                        @Override
+                        public void execute(HttpServletResponse executionResponse) throws IOException, ServletException {
+
+                            int execution = executions.incrementAndGet();
+                            started.countDown();
+                            try {
+                                release.await(10, TimeUnit.SECONDS);
+                            } catch (InterruptedException e) {
+                                throw new ServletException(e);
+                            }
+
+                            if (setCookie) {
+                                executionResponse.addCookie(new Cookie("user", String.valueOf(execution)));
+                            }
+                            executionResponse.setHeader("X-Test", "value");
+                            executionResponse.getWriter().write("result " + execution);
+                        }
+
+                    });
+                } catch (IOException | ServletException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+
+        };
+        thread.start();
+        return thread;
+    }
+
+    private void waitForFollower(Thread follower) throws InterruptedException {
+
+        // While the leader holds the flight, the only place a follower can wait with a timeout is the flight itself
+        while (follower.getState() != Thread.State.TIMED_WAITING) {
+            Thread.sleep(1);
+        }
+    }
+
+    private SyntheticRequest request(String uri) {
+
+        return new SyntheticRequest(null, "GET", "", uri);
+    }
+
+}
@@ -0,0 +1,203 @@
+/*
+ * This file is part of FemtoWeb.
+ * Copyright (c) 2015 QuarterCode <http://quartercode.com/>
+ *
+ * FemtoWeb is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * FemtoWeb is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with FemtoWeb. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.femtoweb.test.impl.compression;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+import org.apache.commons.lang3.StringUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import com.quartercode.femtoweb.impl.compression.CompressingResponseWrapper;
+import com.quartercode.femtoweb.impl.compression.ResponseCompressor;
+import com.quartercode.femtoweb.impl.synthetic.SyntheticRequest;
+import com.quartercode.femtoweb.impl.synthetic.SyntheticResponse;
+
+public class CompressingResponseWrapperTest {
+
+    private static final String LARGE_BODY = StringUtils.repeat("<p>Compressible content</p>", 500);
+
+    private ResponseCompressor  compressor;
+    private SyntheticResponse   response;
+
+    @Before
+    public void setUp() {
+
+        compressor = new ResponseCompressor(1024, Arrays.asList("text/html"), Deflater.DEFAULT_COMPRESSION, 2);
+        response = new SyntheticResponse();
+    }
+
+    @After
+    public void tearDown() {
+
+        compressor.close();
+    }
+
+    @Test
+    public void testGzipRoundTrip() throws Exception {
+
+        CompressingResponseWrapper wrapper = wrap("gzip");
+        wrapper.setContentType("text/html; charset=UTF-8");
+        wrapper.setContentLength(LARGE_BODY.length());
+        wrapper.getWriter().write(LARGE_BODY);
+        wrapper.finish();
+
+        assertTrue("Compressing", wrapper.isCompressing());
+        assertEquals("Content encoding", "gzip", response.getHeader("Content-Encoding"));
+        assertEquals("Vary", "Accept-Encoding", response.getHeader("Vary"));
+        assertEquals("Content length of compressed body", -1, response.getContentLength());
+        assertTrue("Body is smaller", response.getBodySize() < LARGE_BODY.length());
+        assertEquals("Decompressed body", LARGE_BODY, decompress(new GZIPInputStream(new ByteArrayInputStream(response.getBody()))));
+    }
+
+    @Test
+    public void testDeflateRoundTrip() throws Exception {
+
+        CompressingResponseWrapper wrapper = wrap("deflate");
+        wrapper.setContentType("text/html");
+        wrapper.getOutputStream().write(LARGE_BODY.getBytes(StandardCharsets.ISO_8859_1));
+        wrapper.finish();
+
+        assertEquals("Content encoding", "deflate", response.getHeader("Content-Encoding"));
+        assertEquals("Decompressed body", LARGE_BODY, decompress(new InflaterInputStream(new ByteArrayInputStream(response.getBody()))));
+    }
+
+    @Test
+    public void testBelowThreshold() throws Exception {
+
+        CompressingResponseWrapper wrapper = wrap("gzip");
+        wrapper.setContentType("text/html");
+        wrapper.getWriter().write("small");
+        wrapper.finish();
+
+        assertFalse("Compressing", wrapper.isCompressing());
+        assertNull("Content encoding", response.getHeader("Content-Encoding"));
+        assertEquals("Exact content length", 5, response.getContentLength());
+        assertEquals("Body", "small", response.getBodyAsString());
+    }
+
+    @Test
+    public void testIncompressibleType() throws Exception {
+
+        CompressingResponseWrapper wrapper = wrap("gzip");
+        wrapper.setContentType("image/png");
+        wrapper.setContentLength(LARGE_BODY.length());
+        wrapper.getOutputStream().write(LARGE_BODY.getBytes(StandardCharsets.ISO_8859_1));
+        wrapper.finish();
+
+        assertNull("Content encoding", response.getHeader("Content-Encoding"));
+        assertNull("Vary", response.getHeader("Vary"));
+        assertEquals("Passed content length", LARGE_BODY.length(), response.getContentLength());
+        assertEquals("Body size", LARGE_BODY.length(), response.getBodySize());
+    }
+
+    @Test
+    public void testResetBufferAfterCompressionStarted() throws Exception {
+
+        CompressingResponseWrapper wrapper = wrap("gzip");
+        wrapper.setContentType("text/html");
+        wrapper.getWriter().write(LARGE_BODY);
+        wrapper.getWriter().write("pending chars");
+        wrapper.resetBuffer();
+
+        // The new body is small, but the encoding header has already been announced
+        wrapper.getWriter().write("replacement");
+        wrapper.finish();
+
+        assertEquals("Content encoding", "gzip", response.getHeader("Content-Encoding"));
+        assertEquals("Vary headers", 1, response.getHeaders("Vary").size());
+        assertEquals("Decompressed body", "replacement", decompress(new GZIPInputStream(new ByteArrayInputStream(response.getBody()))));
+    }
+
+    @Test
+    public void testResetBufferAndRestartCompression() throws Exception {
+
+        CompressingResponseWrapper wrapper = wrap("gzip");
+        wrapper.setContentType("text/html");
+        wrapper.getWriter().write(LARGE_BODY);
+        wrapper.resetBuffer();
+        wrapper.getWriter().write(LARGE_BODY);
+        wrapper.finish();
+
+        assertEquals("Vary headers", 1, response.getHeaders("Vary").size());
+        assertEquals("Decompressed body", LARGE_BODY, decompress(new GZIPInputStream(new ByteArrayInputStream(response.getBody()))));
+    }
+
+    @Test
+    public void testReset() throws Exception {
+
+        CompressingResponseWrapper wrapper = wrap("gzip");
+        wrapper.setContentType("text/html");
+        wrapper.getWriter().write(LARGE_BODY);
+        wrapper.reset();
+
+        wrapper.setContentType("text/plain");
+        wrapper.getWriter().write("plain");
+        wrapper.finish();
+
+        assertNull("Content encoding", response.getHeader("Content-Encoding"));
+        assertNull("Vary", response.getHeader("Vary"));
+        assertEquals("Body", "plain", response.getBodyAsString());
+        assertEquals("Exact content length", 5, response.getContentLength());
+    }
+
+    @Test
+    public void testDiscard() throws Exception {
+
+        CompressingResponseWrapper wrapper = wrap("gzip");
+        wrapper.setContentType("text/html");
+        wrapper.getWriter().write("partial");
+        wrapper.discard();
+        wrapper.finish();
+
+        assertFalse("Committed", response.isCommitted());
+        assertNull("Content encoding", response.getHeader("Content-Encoding"));
+        assertEquals("Body size", 0, response.getBodySize());
+    }
+
+    private CompressingResponseWrapper wrap(String encoding) {
+
+        SyntheticRequest request = new SyntheticRequest(null, "GET", "", "/page").addHeader("Accept-Encoding", encoding);
+        return compressor.wrap(request, response);
+    }
+
+    private String decompress(InputStream in) throws IOException {
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int read;
+        while ( (read = in.read(buffer)) >= 0) {
+            out.write(buffer, 0, read);
+        }
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+}
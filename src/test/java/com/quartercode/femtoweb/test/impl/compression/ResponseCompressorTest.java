@@ -0,0 +1,86 @@
+/*
+ * This file is part of FemtoWeb.
+ * Copyright (c) 2015 QuarterCode <http://quartercode.com/>
+ *
+ * FemtoWeb is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * FemtoWeb is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with FemtoWeb. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.femtoweb.test.impl.compression;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import java.util.Arrays;
+import java.util.zip.Deflater;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import com.quartercode.femtoweb.impl.compression.DeflaterPool;
+import com.quartercode.femtoweb.impl.compression.ResponseCompressor;
+
+public class ResponseCompressorTest {
+
+    private ResponseCompressor compressor;
+
+    @Before
+    public void setUp() {
+
+        compressor = new ResponseCompressor(1024, Arrays.asList("text/html", "application/*"), Deflater.DEFAULT_COMPRESSION, 2);
+    }
+
+    @After
+    public void tearDown() {
+
+        compressor.close();
+    }
+
+    @Test
+    public void testNegotiateEncoding() {
+
+        assertNull("Negotiated encoding without header", ResponseCompressor.negotiateEncoding(null));
+        assertNull("Negotiated encoding for identity only", ResponseCompressor.negotiateEncoding("identity"));
+        assertEquals("Negotiated encoding", "gzip", ResponseCompressor.negotiateEncoding("gzip, deflate, br"));
+        assertEquals("Negotiated encoding", "deflate", ResponseCompressor.negotiateEncoding("deflate"));
+        assertEquals("Negotiated encoding", "deflate", ResponseCompressor.negotiateEncoding("gzip;q=0.5, deflate"));
+        assertEquals("Negotiated encoding", "gzip", ResponseCompressor.negotiateEncoding("*"));
+        assertNull("Negotiated encoding with rejected codings", ResponseCompressor.negotiateEncoding("gzip;q=0, deflate; q=0"));
+    }
+
+    @Test
+    public void testIsCompressible() {
+
+        assertTrue("HTML is compressible", compressor.isCompressible("text/html; charset=UTF-8"));
+        assertTrue("JSON is compressible through wildcard", compressor.isCompressible("application/json"));
+        assertFalse("Plain text is not compressible", compressor.isCompressible("text/plain"));
+        assertFalse("Missing content type is not compressible", compressor.isCompressible(null));
+    }
+
+    @Test
+    public void testDeflaterPool() {
+
+        DeflaterPool pool = new DeflaterPool(Deflater.BEST_SPEED, true, 1);
+
+        Deflater deflater1 = pool.borrow();
+        Deflater deflater2 = pool.borrow();
+        pool.release(deflater1);
+        pool.release(deflater2);
+        assertEquals("Idle deflaters after releasing more than the pool size", 1, pool.getIdleCount());
+        assertTrue("Pooled deflater is reused", pool.borrow() == deflater1);
+
+        pool.close();
+        assertEquals("Idle deflaters after closing", 0, pool.getIdleCount());
+    }
+
+}
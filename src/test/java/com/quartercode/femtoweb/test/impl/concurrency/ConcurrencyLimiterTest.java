@@ -0,0 +1,100 @@
+/*
+ * This file is part of FemtoWeb.
+ * Copyright (c) 2015 QuarterCode <http://quartercode.com/>
+ *
+ * FemtoWeb is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * FemtoWeb is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with FemtoWeb. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.femtoweb.test.impl.concurrency;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+import com.quartercode.femtoweb.impl.concurrency.ConcurrencyLimiter;
+
+public class ConcurrencyLimiterTest {
+
+    @Test
+    public void testRejectWithoutQueue() throws InterruptedException {
+
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(2, 0, 1000, false);
+
+        assertTrue("First acquisition succeeds", limiter.acquire());
+        assertTrue("Second acquisition succeeds", limiter.acquire());
+        assertFalse("Third acquisition is rejected", limiter.acquire());
+
+        limiter.release(0);
+        assertTrue("Acquisition after release succeeds", limiter.acquire());
+        assertEquals("In-flight executions", 2, limiter.getInFlight());
+    }
+
+    @Test
+    public void testQueueTimeout() throws InterruptedException {
+
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(1, 1, 10, false);
+
+        assertTrue("First acquisition succeeds", limiter.acquire());
+        assertFalse("Queued acquisition times out", limiter.acquire());
+        assertEquals("Queued threads after timeout", 0, limiter.getQueued());
+    }
+
+    @Test
+    public void testQueuedAcquisition() throws InterruptedException {
+
+        final ConcurrencyLimiter limiter = new ConcurrencyLimiter(1, 1, TimeUnit.SECONDS.toMillis(10), false);
+        assertTrue("First acquisition succeeds", limiter.acquire());
+
+        Thread releaser = new Thread() {
+
+            @Override
+            public void run() {
+
+                try {
+                    while (limiter.getQueued() == 0) {
+                        Thread.sleep(1);
+                    }
+                } catch (InterruptedException e) {
+                    return;
+                }
+                limiter.release(0);
+            }
+
+        };
+        releaser.start();
+
+        assertTrue("Queued acquisition succeeds after release", limiter.acquire());
+        releaser.join();
+    }
+
+    @Test
+    public void testAdaptiveLimitShrinks() {
+
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(100, 0, 0, true);
+
+        for (int iteration = 0; iteration < 1000; iteration++) {
+            limiter.release(TimeUnit.MILLISECONDS.toNanos(10));
+        }
+        int steadyLimit = limiter.getLimit();
+
+        for (int iteration = 0; iteration < 100; iteration++) {
+            limiter.release(TimeUnit.MILLISECONDS.toNanos(200));
+        }
+
+        assertEquals("Steady limit", 100, steadyLimit);
+        assertTrue("Limit shrinks when latency rises", limiter.getLimit() < steadyLimit / 2);
+    }
+
+}
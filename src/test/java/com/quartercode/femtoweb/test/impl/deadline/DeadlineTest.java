@@ -0,0 +1,80 @@
+/*
+ * This file is part of FemtoWeb.
+ * Copyright (c) 2015 QuarterCode <http://quartercode.com/>
+ *
+ * FemtoWeb is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * FemtoWeb is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with FemtoWeb. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.femtoweb.test.impl.deadline;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import com.quartercode.femtoweb.impl.synthetic.SyntheticResponse;
+import com.quartercode.femtoweb.test.InProcessContainer;
+import com.quartercode.femtoweb.test.impl.deadline.actions.SlowAction;
+
+public class DeadlineTest {
+
+    private InProcessContainer container;
+
+    @Before
+    public void setUp() throws Exception {
+
+        Map<String, String> initParameters = new HashMap<>();
+        initParameters.put("actionBasePackage", SlowAction.class.getPackage().getName());
+        initParameters.put("requestTimeout", "10000");
+        initParameters.put("deadlineHeader", "X-Request-Timeout");
+
+        container = new InProcessContainer("/app", initParameters);
+        container.start();
+    }
+
+    @After
+    public void tearDown() {
+
+        container.stop();
+    }
+
+    @Test
+    public void testDefaultTimeout() throws Exception {
+
+        String body = container.execute("GET", "/fast").getBodyAsString();
+        assertTrue("Deadline of default timeout: " + body, body.startsWith("remaining ") && Long.parseLong(body.substring(10)) > 9000);
+    }
+
+    @Test
+    public void testChainStoppedAfterDeadline() throws Exception {
+
+        int followingExecutions = SlowAction.FOLLOWING_EXECUTIONS.get();
+        SyntheticResponse response = container.execute("GET", "/slow");
+
+        assertEquals("Status", 504, response.getStatus());
+        assertEquals("Following action executions", followingExecutions, SlowAction.FOLLOWING_EXECUTIONS.get());
+    }
+
+    @Test
+    public void testExpiredHeaderDeadline() throws Exception {
+
+        SyntheticResponse response = new SyntheticResponse();
+        container.execute(container.createRequest("GET", "/fast").addHeader("X-Request-Timeout", "0"), response);
+
+        assertEquals("Status", 503, response.getStatus());
+    }
+
+}
@@ -0,0 +1,33 @@
+/*
+ * This file is part of FemtoWeb.
+ * Copyright (c) 2015 QuarterCode <http://quartercode.com/>
+ *
+ * FemtoWeb is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * FemtoWeb is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with FemtoWeb. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.femtoweb.test.impl.deadline.actions;
+
+import com.quartercode.femtoweb.api.Action;
+import com.quartercode.femtoweb.api.ActionSupport;
+
+public class FastAction extends ActionSupport {
+
+    @Override
+    protected Action doExecute() throws Exception {
+
+        response.getWriter().write(getDeadline() == null ? "none" : "remaining " + getDeadline().getRemainingMillis());
+        return null;
+    }
+
+}
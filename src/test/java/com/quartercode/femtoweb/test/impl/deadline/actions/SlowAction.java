@@ -0,0 +1,49 @@
+/*
+ * This file is part of FemtoWeb.
+ * Copyright (c) 2015 QuarterCode <http://quartercode.com/>
+ *
+ * FemtoWeb is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * FemtoWeb is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with FemtoWeb. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.femtoweb.test.impl.deadline.actions;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import com.quartercode.femtoweb.api.Action;
+import com.quartercode.femtoweb.api.ActionSupport;
+import com.quartercode.femtoweb.api.RequestTimeout;
+
+@RequestTimeout (50)
+public class SlowAction extends ActionSupport {
+
+    public static final AtomicInteger FOLLOWING_EXECUTIONS = new AtomicInteger();
+
+    @Override
+    protected Action doExecute() throws Exception {
+
+        Thread.sleep(Math.min(getDeadline().getRemainingMillis() + 20, 1000));
+
+        return new ActionSupport() {
+
+            @Override
+            protected Action doExecute() throws Exception {
+
+                FOLLOWING_EXECUTIONS.incrementAndGet();
+                response.getWriter().write("too late");
+                return null;
+            }
+
+        };
+    }
+
+}
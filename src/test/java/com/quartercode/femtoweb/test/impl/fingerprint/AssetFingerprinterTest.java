@@ -0,0 +1,106 @@
+/*
+ * This file is part of FemtoWeb.
+ * Copyright (c) 2015 QuarterCode <http://quartercode.com/>
+ *
+ * FemtoWeb is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * FemtoWeb is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with FemtoWeb. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.femtoweb.test.impl.fingerprint;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import com.quartercode.femtoweb.impl.fingerprint.AssetFingerprinter;
+import com.quartercode.femtoweb.impl.fingerprint.AssetManifest;
+import com.quartercode.femtoweb.impl.synthetic.SyntheticResponse;
+import com.quartercode.femtoweb.test.InProcessContainer;
+
+public class AssetFingerprinterTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testFingerprintedName() {
+
+        assertEquals("With extension", "css/main.0123456789.css", AssetFingerprinter.getFingerprintedName("css/main.css", "0123456789"));
+        assertEquals("Without extension", "img.d/logo.0123456789", AssetFingerprinter.getFingerprintedName("img.d/logo", "0123456789"));
+    }
+
+    @Test
+    public void testFingerprint() throws Exception {
+
+        Path directory = temporaryFolder.newFolder("static").toPath();
+        Path manifestFile = temporaryFolder.getRoot().toPath().resolve("asset-manifest.properties");
+        Files.createDirectories(directory.resolve("css"));
+        Files.write(directory.resolve("css/main.css"), "body {}".getBytes(StandardCharsets.UTF_8));
+
+        AssetManifest manifest = AssetFingerprinter.fingerprint(directory, manifestFile);
+        String fingerprinted = manifest.getFingerprintedPath("css/main.css");
+        assertTrue("Fingerprinted name " + fingerprinted, fingerprinted.matches("css/main\\.[0-9a-f]{10}\\.css"));
+        assertArrayEquals("Fingerprinted copy", Files.readAllBytes(directory.resolve("css/main.css")), Files.readAllBytes(directory.resolve(fingerprinted)));
+
+        try (InputStream input = Files.newInputStream(manifestFile)) {
+            assertEquals("Read manifest", manifest.getFingerprints(), AssetManifest.read(input).getFingerprints());
+        }
+
+        // A changed asset gets a new name and the stale copy is removed
+        Files.write(directory.resolve("css/main.css"), "body { margin: 0; }".getBytes(StandardCharsets.UTF_8));
+        String refingerprinted = AssetFingerprinter.fingerprint(directory, manifestFile).getFingerprintedPath("css/main.css");
+        assertNotEquals("Name after content change", fingerprinted, refingerprinted);
+        assertFalse("Stale copy still exists", Files.exists(directory.resolve(fingerprinted)));
+        assertEquals("Asset count", 2, directory.resolve("css").toFile().list().length);
+    }
+
+    @Test
+    public void testImmutableCaching() throws Exception {
+
+        Map<String, String> fingerprints = new HashMap<>();
+        fingerprints.put("css/main.css", "css/main.0123456789.css");
+        ByteArrayOutputStream manifest = new ByteArrayOutputStream();
+        new AssetManifest(fingerprints).write(manifest);
+
+        Map<String, String> initParameters = new HashMap<>();
+        initParameters.put("actionBasePackage", "com.quartercode.femtoweb.test.load.actions");
+
+        InProcessContainer container = new InProcessContainer("/app", initParameters);
+        container.addStaticAsset("/WEB-INF/asset-manifest.properties", "text/plain", manifest.toByteArray());
+        container.addStaticAsset("/static/css/main.css", "text/css", new byte[] { 'a' });
+        container.addStaticAsset("/static/css/main.0123456789.css", "text/css", new byte[] { 'a' });
+        container.start();
+
+        try {
+            SyntheticResponse fingerprintedResponse = container.execute("GET", "/static/css/main.0123456789.css");
+            assertEquals("Fingerprinted status", 200, fingerprintedResponse.getStatus());
+            assertEquals("Fingerprinted Cache-Control", "public, max-age=31536000, immutable", fingerprintedResponse.getHeader("Cache-Control"));
+            assertNull("Logical name Cache-Control", container.execute("GET", "/static/css/main.css").getHeader("Cache-Control"));
+        } finally {
+            container.stop();
+        }
+    }
+
+}
@@ -0,0 +1,210 @@
+/*
+ * This file is part of FemtoWeb.
+ * Copyright (c) 2015 QuarterCode <http://quartercode.com/>
+ *
+ * FemtoWeb is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * FemtoWeb is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with FemtoWeb. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.femtoweb.test.impl.fragment;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import com.quartercode.femtoweb.api.Action;
+import com.quartercode.femtoweb.api.Context;
+import com.quartercode.femtoweb.api.resolutions.CompositeView;
+import com.quartercode.femtoweb.api.resolutions.View;
+import com.quartercode.femtoweb.impl.DefaultContext;
+import com.quartercode.femtoweb.impl.fragment.DefaultFragmentExecutor;
+import com.quartercode.femtoweb.impl.injection.InjectingActionFactory;
+import com.quartercode.femtoweb.impl.injection.ServiceRegistry;
+import com.quartercode.femtoweb.impl.response.CapturingResponseWrapper;
+import com.quartercode.femtoweb.impl.synthetic.SyntheticRequest;
+import com.quartercode.femtoweb.impl.synthetic.SyntheticResponse;
+
+public class CompositeViewTest {
+
+    private DefaultFragmentExecutor executor;
+    private Context                 context;
+
+    @Before
+    public void setUp() {
+
+        executor = new DefaultFragmentExecutor(new InjectingActionFactory(new ServiceRegistry()), 4, 16);
+        context = new DefaultContext.Builder("com.quartercode.femtoweb.test.testactions").fragmentExecutor(executor).build();
+
+        // Initialize the response capturing classes beforehand since that might take longer than the fragment timeouts
+        new CapturingResponseWrapper(new SyntheticResponse()).toCapturedResponse();
+    }
+
+    @After
+    public void tearDown() {
+
+        executor.close();
+    }
+
+    @Test
+    public void testFragmentsAndFallbacks() throws Exception {
+
+        Action layout = new LayoutAction();
+        CompositeView view = new CompositeView(layout).timeout(300).fallback("n/a");
+        view.fragment("first", SlowFragmentAction.class).fragment("second", SlowFragmentAction.class);
+        view.fragment("failing", FailingFragmentAction.class, -1, "failed");
+        view.fragment("hanging", HangingFragmentAction.class, 100, null);
+
+        SyntheticRequest request = new SyntheticRequest(null, "GET", "", "/dashboard");
+        request.setAttribute("greeting", "Hello");
+
+        long startTime = System.currentTimeMillis();
+        assertSame("Returned layout action", layout, view.execute(request, new SyntheticResponse(), context));
+        long duration = System.currentTimeMillis() - startTime;
+
+        assertEquals("First fragment", "Hello from fragment", request.getAttribute("first"));
+        assertEquals("Second fragment", "Hello from fragment", request.getAttribute("second"));
+        assertEquals("Failing fragment", "failed", request.getAttribute("failing"));
+        assertEquals("Hanging fragment", "n/a", request.getAttribute("hanging"));
+        assertEquals("Fragment attribute leaked into original request", null, request.getAttribute("fragmentLocal"));
+        assertTrue("Fragments weren't rendered concurrently (took " + duration + " ms)", duration < 280);
+    }
+
+    @Test
+    public void testViewsRenderedOnRequestingThread() throws Exception {
+
+        CompositeView view = new CompositeView(new LayoutAction());
+        view.fragment("first", ViewFragmentAction.class).fragment("second", ViewFragmentAction.class);
+
+        final Thread requestingThread = Thread.currentThread();
+        SyntheticRequest request = new SyntheticRequest(null, "GET", "", "/dashboard") {
+
+            @Override
+            protected void forward(String path, ServletRequest request, ServletResponse response) throws IOException {
+
+                String renderer = Thread.currentThread() == requestingThread ? "requesting thread" : "pool thread";
+                response.getWriter().write(request.getAttribute("actionThread") + " -> " + path + " on " + renderer);
+            }
+
+        };
+
+        view.execute(request, new SyntheticResponse(), context);
+
+        assertEquals("First fragment", "pool thread -> /WEB-INF/dynamic/fragment.jsp on requesting thread", request.getAttribute("first"));
+        assertEquals("Second fragment", "pool thread -> /WEB-INF/dynamic/fragment.jsp on requesting thread", request.getAttribute("second"));
+    }
+
+    @Test
+    public void testParametersAndSessionShared() throws Exception {
+
+        CompositeView view = new CompositeView(new LayoutAction());
+        view.fragment("first", SessionFragmentAction.class).fragment("second", SessionFragmentAction.class);
+
+        final Set<String> parsingThreads = Collections.synchronizedSet(new HashSet<String>());
+        SyntheticRequest request = new SyntheticRequest(null, "GET", "", "/dashboard") {
+
+            @Override
+            public Map<String, String[]> getParameterMap() {
+
+                parsingThreads.add(Thread.currentThread().getName());
+                return super.getParameterMap();
+            }
+
+        };
+        request.addParameter("user", "alice");
+
+        view.execute(request, new SyntheticResponse(), context);
+
+        String sessionId = request.getSession().getId();
+        assertEquals("First fragment", "alice in " + sessionId, request.getAttribute("first"));
+        assertEquals("Second fragment", "alice in " + sessionId, request.getAttribute("second"));
+        assertEquals("Threads which read the parameters", Collections.singleton(Thread.currentThread().getName()), parsingThreads);
+    }
+
+    public static class LayoutAction implements Action {
+
+        @Override
+        public Action execute(HttpServletRequest request, HttpServletResponse response, Context context) {
+
+            return null;
+        }
+
+    }
+
+    public static class SlowFragmentAction implements Action {
+
+        @Override
+        public Action execute(HttpServletRequest request, HttpServletResponse response, Context context) throws Exception {
+
+            Thread.sleep(100);
+            request.setAttribute("fragmentLocal", true);
+            response.getWriter().write(request.getAttribute("greeting") + " from fragment");
+            return null;
+        }
+
+    }
+
+    public static class ViewFragmentAction implements Action {
+
+        @Override
+        public Action execute(HttpServletRequest request, HttpServletResponse response, Context context) {
+
+            request.setAttribute("actionThread", Thread.currentThread().getName().startsWith("FemtoWeb fragment") ? "pool thread" : "requesting thread");
+            return new View("/fragment.jsp");
+        }
+
+    }
+
+    public static class SessionFragmentAction implements Action {
+
+        @Override
+        public Action execute(HttpServletRequest request, HttpServletResponse response, Context context) throws Exception {
+
+            response.getWriter().write(request.getParameter("user") + " in " + request.getSession().getId());
+            return null;
+        }
+
+    }
+
+    public static class FailingFragmentAction implements Action {
+
+        @Override
+        public Action execute(HttpServletRequest request, HttpServletResponse response, Context context) {
+
+            throw new IllegalStateException("Fragment failure for testing purposes");
+        }
+
+    }
+
+    public static class HangingFragmentAction implements Action {
+
+        @Override
+        public Action execute(HttpServletRequest request, HttpServletResponse response, Context context) throws Exception {
+
+            Thread.sleep(10000);
+            return null;
+        }
+
+    }
+
+}
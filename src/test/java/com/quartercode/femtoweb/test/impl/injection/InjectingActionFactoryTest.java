@@ -0,0 +1,131 @@
+/*
+ * This file is part of FemtoWeb.
+ * Copyright (c) 2015 QuarterCode <http://quartercode.com/>
+ *
+ * FemtoWeb is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * FemtoWeb is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with FemtoWeb. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.femtoweb.test.impl.injection;
+
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.junit.Before;
+import org.junit.Test;
+import com.quartercode.femtoweb.api.Action;
+import com.quartercode.femtoweb.api.Context;
+import com.quartercode.femtoweb.api.Inject;
+import com.quartercode.femtoweb.impl.DefaultContext;
+import com.quartercode.femtoweb.impl.injection.InjectingActionFactory;
+import com.quartercode.femtoweb.impl.injection.ServiceRegistry;
+
+public class InjectingActionFactoryTest {
+
+    private final Context          context = new DefaultContext("com.quartercode.femtoweb.test.testactions", null, null, null);
+    private ServiceRegistry        registry;
+    private InjectingActionFactory factory;
+
+    @Before
+    public void setUp() {
+
+        registry = new ServiceRegistry();
+        factory = new InjectingActionFactory(registry);
+    }
+
+    @Test
+    public void testConstructorAndFieldInjection() throws Exception {
+
+        Service service = new Service();
+        registry.register(Service.class, service);
+
+        InjectedAction action = (InjectedAction) factory.createAction(InjectedAction.class, context);
+        assertSame("Constructor-injected service", service, action.constructorService);
+        assertSame("Field-injected service", service, action.fieldService);
+        assertSame("Field-injected context", context, action.context);
+
+        assertNotSame("Second action instance", action, factory.createAction(InjectedAction.class, context));
+    }
+
+    @Test
+    public void testNoArgConstructor() throws Exception {
+
+        factory.prepare(PlainAction.class);
+        factory.createAction(PlainAction.class, context);
+    }
+
+    @Test (expected = IllegalStateException.class)
+    public void testMissingService() throws Exception {
+
+        factory.createAction(InjectedAction.class, context);
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void testNoUsableConstructor() throws Exception {
+
+        factory.prepare(UnconstructibleAction.class);
+    }
+
+    public static class Service {
+
+    }
+
+    public static class InjectedAction implements Action {
+
+        private final Service constructorService;
+        @Inject
+        private Service       fieldService;
+        @Inject
+        private Context       context;
+
+        @Inject
+        public InjectedAction(Service constructorService) {
+
+            this.constructorService = constructorService;
+        }
+
+        @Override
+        public Action execute(HttpServletRequest request, HttpServletResponse response, Context context) {
+
+            return null;
+        }
+
+    }
+
+    public static class PlainAction implements Action {
+
+        @Override
+        public Action execute(HttpServletRequest request, HttpServletResponse response, Context context) {
+
+            return null;
+        }
+
+    }
+
+    public static class UnconstructibleAction implements Action {
+
+        public UnconstructibleAction(String parameter) {
+
+            // Empty
+        }
+
+        @Override
+        public Action execute(HttpServletRequest request, HttpServletResponse response, Context context) {
+
+            return null;
+        }
+
+    }
+
+}
@@ -0,0 +1,97 @@
+/*
+ * This file is part of FemtoWeb.
+ * Copyright (c) 2015 QuarterCode <http://quartercode.com/>
+ *
+ * FemtoWeb is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * FemtoWeb is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with FemtoWeb. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.femtoweb.test.impl.jfr;
+
+import static org.junit.Assert.assertEquals;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import com.quartercode.femtoweb.api.resolutions.Redirect;
+import com.quartercode.femtoweb.test.InProcessContainer;
+import com.quartercode.femtoweb.test.impl.jfr.actions.RedirectingAction;
+
+public class FlightRecorderEventsTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testEvents() throws Exception {
+
+        Map<String, String> initParameters = new HashMap<>();
+        initParameters.put("actionBasePackage", RedirectingAction.class.getPackage().getName());
+        InProcessContainer container = new InProcessContainer("/app", initParameters);
+        container.start();
+
+        Path file = temporaryFolder.getRoot().toPath().resolve("recording.jfr");
+        try (Recording recording = new Recording()) {
+            for (String event : new String[] { "RouteLookup", "ActionInstantiation", "ActionExecution", "Resolution" }) {
+                recording.enable("com.quartercode.femtoweb." + event);
+            }
+            recording.start();
+
+            container.execute("GET", "/redirecting");
+            container.execute("GET", "/redirecting");
+            container.execute("GET", "/missing");
+
+            recording.stop();
+            recording.dump(file);
+        } finally {
+            container.stop();
+        }
+
+        List<String> lookups = new ArrayList<>();
+        List<String> executions = new ArrayList<>();
+        List<String> resolutions = new ArrayList<>();
+        int instantiations = 0;
+        for (RecordedEvent event : RecordingFile.readAllEvents(file)) {
+            switch (event.getEventType().getName()) {
+                case "com.quartercode.femtoweb.RouteLookup":
+                    lookups.add(event.getString("uri") + " " + event.getString("result"));
+                    break;
+                case "com.quartercode.femtoweb.ActionInstantiation":
+                    assertEquals("Instantiated action class", RedirectingAction.class.getName(), event.getClass("actionClass").getName());
+                    instantiations++;
+                    break;
+                case "com.quartercode.femtoweb.ActionExecution":
+                    executions.add(event.getInt("chainIndex") + " " + event.getClass("actionClass").getName());
+                    break;
+                case "com.quartercode.femtoweb.Resolution":
+                    resolutions.add(event.getClass("resolutionClass").getName() + " " + event.getString("target"));
+                    break;
+            }
+        }
+
+        assertEquals("Route lookups", "[/redirecting miss, /redirecting hit, /missing notFound]", lookups.toString());
+        assertEquals("Action instantiations", 2, instantiations);
+        String chain = "0 " + RedirectingAction.class.getName() + ", 1 " + Redirect.class.getName();
+        assertEquals("Action executions", "[" + chain + ", " + chain + "]", executions.toString());
+        String resolution = Redirect.class.getName() + " http://example.com/target";
+        assertEquals("Resolutions", "[" + resolution + ", " + resolution + "]", resolutions.toString());
+    }
+
+}
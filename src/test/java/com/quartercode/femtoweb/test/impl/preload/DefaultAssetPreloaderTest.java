@@ -0,0 +1,86 @@
+/*
+ * This file is part of FemtoWeb.
+ * Copyright (c) 2015 QuarterCode <http://quartercode.com/>
+ *
+ * FemtoWeb is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * FemtoWeb is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with FemtoWeb. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.femtoweb.test.impl.preload;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashSet;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import org.junit.Test;
+import com.quartercode.femtoweb.api.Context;
+import com.quartercode.femtoweb.api.resolutions.View;
+import com.quartercode.femtoweb.impl.DefaultContext;
+import com.quartercode.femtoweb.impl.preload.DefaultAssetPreloader;
+import com.quartercode.femtoweb.impl.synthetic.SyntheticRequest;
+import com.quartercode.femtoweb.impl.synthetic.SyntheticResponse;
+
+public class DefaultAssetPreloaderTest {
+
+    private static final String PAGE = "<html><head><link rel=\"stylesheet\" href=\"/app/static/css/main.css\"><script src='/app/static/js/app.js'></script></head>"
+            + "<body><img src=\"/app/static/img/logo.png\"><a href=\"/app/other\">Other</a></body></html>";
+
+    private static SyntheticRequest request() {
+
+        return new SyntheticRequest(null, "GET", "/app", "/app/page") {
+
+            @Override
+            protected void forward(String path, ServletRequest request, ServletResponse response) throws IOException {
+
+                response.getWriter().write(PAGE);
+                response.getWriter().flush();
+            }
+
+        };
+    }
+
+    @Test
+    public void testDeclaredAssets() throws Exception {
+
+        Context context = new DefaultContext.Builder("com.quartercode.femtoweb.test.testactions").assetPreloader(new DefaultAssetPreloader(false, false, false)).build();
+
+        SyntheticResponse response = new SyntheticResponse();
+        new View("page.jsp").preload("css/main.css", "/fonts/text.woff2", "data/unknown.bin").execute(request(), response, context);
+
+        assertEquals("Link header", "</app/static/css/main.css>; rel=preload; as=style, </app/static/fonts/text.woff2>; rel=preload; as=font; crossorigin",
+                response.getHeader("Link"));
+    }
+
+    @Test
+    public void testLearnedAssets() throws Exception {
+
+        DefaultAssetPreloader preloader = new DefaultAssetPreloader(true, false, false);
+        Context context = new DefaultContext.Builder("com.quartercode.femtoweb.test.testactions").assetPreloader(preloader).build();
+
+        SyntheticResponse firstResponse = new SyntheticResponse();
+        new View("page.jsp").execute(request(), firstResponse, context);
+        assertNull("Link header of first response", firstResponse.getHeader("Link"));
+        assertEquals("Unchanged body of first response", PAGE, firstResponse.getBodyAsString());
+        assertEquals("Learned assets", new HashSet<>(Arrays.asList("/app/static/css/main.css", "/app/static/js/app.js", "/app/static/img/logo.png")),
+                preloader.getLearnedAssets("/WEB-INF/dynamic/page.jsp"));
+
+        SyntheticResponse secondResponse = new SyntheticResponse();
+        new View("page.jsp").execute(request(), secondResponse, context);
+        String link = secondResponse.getHeader("Link");
+        assertEquals("Announced assets of second response", 3, link.split(", ").length);
+    }
+
+}
@@ -0,0 +1,134 @@
+/*
+ * This file is part of FemtoWeb.
+ * Copyright (c) 2015 QuarterCode <http://quartercode.com/>
+ *
+ * FemtoWeb is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * FemtoWeb is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with FemtoWeb. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.femtoweb.test.impl.ratelimit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import com.quartercode.femtoweb.impl.ratelimit.RateLimiter;
+import com.quartercode.femtoweb.impl.ratelimit.RateLimiterRegistry;
+import com.quartercode.femtoweb.impl.synthetic.SyntheticRequest;
+import com.quartercode.femtoweb.impl.synthetic.SyntheticResponse;
+import com.quartercode.femtoweb.test.InProcessContainer;
+import com.quartercode.femtoweb.test.impl.ratelimit.actions.LimitedAction;
+
+public class RateLimiterTest {
+
+    private InProcessContainer container;
+
+    @Before
+    public void setUp() throws Exception {
+
+        Map<String, String> initParameters = new HashMap<>();
+        initParameters.put("actionBasePackage", LimitedAction.class.getPackage().getName());
+        initParameters.put("rateLimits", "export/=0.1/1");
+        initParameters.put("rateLimitHeader", "X-Forwarded-For");
+        initParameters.put("rateLimitTrustedHops", "2");
+
+        container = new InProcessContainer("/app", initParameters);
+        container.start();
+    }
+
+    @After
+    public void tearDown() {
+
+        container.stop();
+    }
+
+    @Test
+    public void testBurst() {
+
+        RateLimiter limiter = new RateLimiter(1, 3, 100);
+
+        for (int request = 0; request < 3; request++) {
+            assertEquals("Wait time of request " + request + " within burst", 0, limiter.acquire("client"));
+        }
+
+        long wait = limiter.acquire("client");
+        assertTrue("Request beyond burst rejected with wait time of at most one second (" + wait + " ns)", wait > 0 && wait <= 1000000000L);
+        assertEquals("Wait time of other client", 0, limiter.acquire("other"));
+    }
+
+    @Test
+    public void testBoundedClients() {
+
+        RateLimiter limiter = new RateLimiter(0.001, 1, 64);
+
+        int rejected = 0;
+        for (int client = 0; client < 10000; client++) {
+            if (limiter.acquire("client" + client) > 0) {
+                rejected++;
+            }
+        }
+
+        // Clients which don't fit anymore share the overflow buckets of the stripes, which are exhausted right away
+        assertTrue("Client count is bounded (" + limiter.getClientCount() + ")", limiter.getClientCount() <= 64);
+        assertTrue("Overflowing clients are limited (" + rejected + " rejected)", rejected > 9000);
+    }
+
+    @Test
+    public void testClientKey() {
+
+        RateLimiterRegistry registry = new RateLimiterRegistry(Collections.<String> emptyList(), "X-Forwarded-For", 1, 100);
+
+        assertEquals("Key without header", "127.0.0.1", registry.getClientKey(new SyntheticRequest(null, "GET", "", "/")));
+        assertEquals("Key of single entry", "10.0.0.1", registry.getClientKey(new SyntheticRequest(null, "GET", "", "/").addHeader("X-Forwarded-For", "10.0.0.1")));
+        assertEquals("Key of forged list", "10.0.0.1",
+                registry.getClientKey(new SyntheticRequest(null, "GET", "", "/").addHeader("X-Forwarded-For", "1.2.3.4, 5.6.7.8,10.0.0.1")));
+        assertEquals("Key of multiple header lines", "10.0.0.1",
+                registry.getClientKey(new SyntheticRequest(null, "GET", "", "/").addHeader("X-Forwarded-For", "1.2.3.4").addHeader("X-Forwarded-For", "10.0.0.1")));
+    }
+
+    @Test
+    public void testAnnotatedLimit() throws Exception {
+
+        // The first of the two trusted proxies appends the client address, and the second one appends the address of the first one
+        assertEquals("Status of first request", 200, execute("/limited", "10.0.0.1").getStatus());
+        assertEquals("Status of second request", 200, execute("/limited", "10.0.0.1, 192.168.0.1").getStatus());
+
+        SyntheticResponse rejected = execute("/limited", "10.0.0.2, 10.0.0.1, 192.168.0.1");
+        assertEquals("Status of request beyond burst", 429, rejected.getStatus());
+        assertEquals("Retry-After header", "1", rejected.getHeader("Retry-After"));
+
+        assertEquals("Status of request from other client", 200, execute("/limited", "10.0.0.1, 10.0.0.2, 192.168.0.1").getStatus());
+    }
+
+    @Test
+    public void testConfiguredPrefixLimit() throws Exception {
+
+        assertEquals("Status of first request", 200, execute("/export/report", "10.0.0.1").getStatus());
+
+        SyntheticResponse rejected = execute("/export/report", "10.0.0.1");
+        assertEquals("Status of request beyond burst", 429, rejected.getStatus());
+        assertEquals("Retry-After header", "10", rejected.getHeader("Retry-After"));
+    }
+
+    private SyntheticResponse execute(String uri, String client) throws Exception {
+
+        SyntheticResponse response = new SyntheticResponse();
+        container.execute(container.createRequest("GET", uri).addHeader("X-Forwarded-For", client), response);
+        return response;
+    }
+
+}
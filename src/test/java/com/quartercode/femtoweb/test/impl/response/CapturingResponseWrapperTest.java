@@ -0,0 +1,124 @@
+/*
+ * This file is part of FemtoWeb.
+ * Copyright (c) 2015 QuarterCode <http://quartercode.com/>
+ *
+ * FemtoWeb is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * FemtoWeb is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with FemtoWeb. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.femtoweb.test.impl.response;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import java.nio.charset.StandardCharsets;
+import javax.servlet.http.Cookie;
+import org.junit.Test;
+import com.quartercode.femtoweb.impl.response.CapturedResponse;
+import com.quartercode.femtoweb.impl.response.CapturingResponseWrapper;
+import com.quartercode.femtoweb.impl.synthetic.SyntheticResponse;
+
+public class CapturingResponseWrapperTest {
+
+    @Test
+    public void testCaptureAndReplay() throws Exception {
+
+        SyntheticResponse wrapped = new SyntheticResponse();
+        CapturingResponseWrapper wrapper = new CapturingResponseWrapper(wrapped);
+        wrapper.setStatus(201);
+        wrapper.setContentType("text/plain; charset=UTF-8");
+        wrapper.setHeader("Content-Length", "1");
+        wrapper.addHeader("X-Test", "a");
+        wrapper.addHeader("x-test", "b");
+        wrapper.getWriter().write("Grüße");
+
+        assertFalse("Committed", wrapper.isCommitted());
+        assertEquals("Status of wrapped response", 200, wrapped.getStatus());
+        assertEquals("Body of wrapped response", 0, wrapped.getBodySize());
+
+        CapturedResponse captured = wrapper.toCapturedResponse();
+        assertEquals("Captured status", 201, captured.getStatus());
+        assertEquals("Captured body", "Grüße", captured.getBodyAsString());
+        assertFalse("Cookies set", captured.isCookiesSet());
+
+        SyntheticResponse replayed = new SyntheticResponse();
+        captured.replay(replayed);
+        assertEquals("Replayed status", 201, replayed.getStatus());
+        assertArrayEquals("Replayed body", "Grüße".getBytes(StandardCharsets.UTF_8), replayed.getBody());
+        assertEquals("Replayed content length", "Grüße".getBytes(StandardCharsets.UTF_8).length, replayed.getContentLength());
+        assertEquals("Replayed headers", "[a, b]", replayed.getHeaders("X-Test").toString());
+    }
+
+    @Test
+    public void testSerialization() throws Exception {
+
+        CapturingResponseWrapper wrapper = new CapturingResponseWrapper(new SyntheticResponse());
+        wrapper.setContentType("application/json");
+        wrapper.setHeader("Cache-Control", "no-transform");
+        wrapper.getOutputStream().write(new byte[] { 1, 2, 3 });
+
+        CapturedResponse copy = CapturedResponse.fromBytes(wrapper.toCapturedResponse().toBytes());
+        assertEquals("Status", 200, copy.getStatus());
+        assertEquals("Content type", "application/json", copy.getContentType());
+        assertArrayEquals("Body", new byte[] { 1, 2, 3 }, copy.getBody());
+
+        SyntheticResponse replayed = new SyntheticResponse();
+        copy.replay(replayed);
+        assertEquals("Header", "no-transform", replayed.getHeader("Cache-Control"));
+    }
+
+    @Test
+    public void testErrorAndRedirect() throws Exception {
+
+        CapturingResponseWrapper errorWrapper = new CapturingResponseWrapper(new SyntheticResponse());
+        errorWrapper.getWriter().write("partial");
+        errorWrapper.sendError(404, "Missing");
+        assertTrue("Committed after error", errorWrapper.isCommitted());
+
+        SyntheticResponse errorResponse = new SyntheticResponse();
+        errorWrapper.toCapturedResponse().replay(errorResponse);
+        assertEquals("Error status", 404, errorResponse.getStatus());
+        assertEquals("Error message", "Missing", errorResponse.getErrorMessage());
+        assertEquals("Discarded body", 0, errorResponse.getBodySize());
+
+        CapturingResponseWrapper redirectWrapper = new CapturingResponseWrapper(new SyntheticResponse());
+        redirectWrapper.sendRedirect("/app/other");
+        SyntheticResponse redirectResponse = new SyntheticResponse();
+        redirectWrapper.toCapturedResponse().replay(redirectResponse);
+        assertEquals("Redirect location", "/app/other", redirectResponse.getRedirectLocation());
+    }
+
+    @Test
+    public void testResetAndCookies() throws Exception {
+
+        CapturingResponseWrapper wrapper = new CapturingResponseWrapper(new SyntheticResponse());
+        wrapper.setStatus(500);
+        wrapper.setHeader("X-Test", "value");
+        wrapper.addCookie(new Cookie("user", "1"));
+        wrapper.getWriter().write("discarded");
+        wrapper.reset();
+        wrapper.getWriter().write("kept");
+
+        CapturedResponse captured = wrapper.toCapturedResponse();
+        assertEquals("Status after reset", 200, captured.getStatus());
+        assertEquals("Body after reset", "kept", captured.getBodyAsString());
+        assertFalse("Cookies set after reset", captured.isCookiesSet());
+        assertNull("Header after reset", wrapper.getHeader("X-Test"));
+
+        wrapper.addCookie(new Cookie("user", "2"));
+        assertTrue("Cookies set", wrapper.toCapturedResponse().isCookiesSet());
+    }
+
+}
@@ -0,0 +1,52 @@
+/*
+ * This file is part of FemtoWeb.
+ * Copyright (c) 2015 QuarterCode <http://quartercode.com/>
+ *
+ * FemtoWeb is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * FemtoWeb is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with FemtoWeb. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.femtoweb.test.impl.response;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import org.junit.Test;
+import com.quartercode.femtoweb.impl.response.RequestKeys;
+import com.quartercode.femtoweb.impl.synthetic.SyntheticRequest;
+
+public class RequestKeysTest {
+
+    private static final String[] ALL_PARAMS = {};
+
+    @Test
+    public void testAmbiguousParameters() {
+
+        assertNotEquals("Comma in value vs. two values", key("/page?q=a,%20b", ALL_PARAMS), key("/page?q=a&q=b", ALL_PARAMS));
+        assertNotEquals("Separators in value vs. two parameters", key("/page?a=1%5D%00b%00%5B2", ALL_PARAMS), key("/page?a=1&b=2", ALL_PARAMS));
+        assertNotEquals("Length prefix in value vs. two values", key("/page?q=1:a", ALL_PARAMS), key("/page?q=a&q=", ALL_PARAMS));
+        assertNotEquals("Missing vs. empty relevant parameter", key("/page", new String[] { "q" }), key("/page?q=", new String[] { "q" }));
+    }
+
+    @Test
+    public void testIrrelevantParameters() {
+
+        assertEquals("Only relevant parameters", key("/page?q=a&tracking=1", new String[] { "q" }), key("/page?tracking=2&q=a", new String[] { "q" }));
+        assertEquals("Parameter order", key("/page?a=1&b=2", ALL_PARAMS), key("/page?b=2&a=1", ALL_PARAMS));
+    }
+
+    private String key(String uri, String[] params) {
+
+        return RequestKeys.build("Action", new SyntheticRequest(null, "GET", "", uri), params);
+    }
+
+}
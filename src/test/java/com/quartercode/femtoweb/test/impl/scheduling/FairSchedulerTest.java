@@ -0,0 +1,140 @@
+/*
+ * This file is part of FemtoWeb.
+ * Copyright (c) 2015 QuarterCode <http://quartercode.com/>
+ *
+ * FemtoWeb is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * FemtoWeb is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with FemtoWeb. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.femtoweb.test.impl.scheduling;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+import com.quartercode.femtoweb.api.Action;
+import com.quartercode.femtoweb.api.PriorityClass;
+import com.quartercode.femtoweb.impl.scheduling.FairScheduler;
+import com.quartercode.femtoweb.test.impl.scheduling.actions.ExportAction;
+import com.quartercode.femtoweb.test.impl.scheduling.actions.InteractiveAction;
+
+public class FairSchedulerTest {
+
+    private static final long TIMEOUT = TimeUnit.SECONDS.toNanos(10);
+
+    @Test
+    public void testWeightedOrder() throws Exception {
+
+        FairScheduler scheduler = new FairScheduler(1, Arrays.asList("default=3", "export=1"), 10, 10000);
+        assertTrue("Free slot acquired", scheduler.acquire(InteractiveAction.class, TIMEOUT));
+
+        List<String> grants = Collections.synchronizedList(new ArrayList<String>());
+        List<Thread> threads = new ArrayList<>();
+        for (int index = 0; index < 4; index++) {
+            threads.add(enqueue(scheduler, ExportAction.class, "export", grants));
+            threads.add(enqueue(scheduler, InteractiveAction.class, PriorityClass.DEFAULT, grants));
+        }
+        assertEquals("Queue depth of export class", 4, (int) scheduler.getQueueDepths().get("export"));
+
+        // Each thread releases its slot right away, so the slot travels through the queues in the scheduled order
+        scheduler.release();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals("Grant count", 8, grants.size());
+        assertEquals("First grants", Arrays.asList(PriorityClass.DEFAULT, PriorityClass.DEFAULT), grants.subList(0, 2));
+        assertEquals("Last grants", Arrays.asList("export", "export", "export"), grants.subList(5, 8));
+        assertEquals("Active count", 0, scheduler.getActiveCount());
+    }
+
+    @Test
+    public void testFullQueueRejected() throws Exception {
+
+        FairScheduler scheduler = new FairScheduler(1, Arrays.asList("export=1/1"), 10, 10000);
+        assertTrue("Free slot acquired", scheduler.acquire(InteractiveAction.class, TIMEOUT));
+
+        List<String> grants = Collections.synchronizedList(new ArrayList<String>());
+        Thread waiter = enqueue(scheduler, ExportAction.class, "export", grants);
+        assertFalse("Acquired despite full queue", scheduler.acquire(ExportAction.class, TIMEOUT));
+        assertFalse("Acquired despite exceeded wait", scheduler.acquire(InteractiveAction.class, 0));
+
+        scheduler.release();
+        waiter.join();
+        assertEquals("Grants", Arrays.asList("export"), grants);
+    }
+
+    @Test
+    public void testAbandonedWaitsNotCharged() throws Exception {
+
+        FairScheduler scheduler = new FairScheduler(1, Arrays.asList("default=1", "export=2"), 10, 10000);
+        assertTrue("Free slot acquired", scheduler.acquire(InteractiveAction.class, TIMEOUT));
+
+        // Waits which time out right away must not push the export class behind the default class
+        for (int index = 0; index < 10; index++) {
+            assertFalse("Acquired despite exceeded wait", scheduler.acquire(ExportAction.class, 0));
+        }
+
+        List<String> grants = Collections.synchronizedList(new ArrayList<String>());
+        Thread interactive = enqueue(scheduler, InteractiveAction.class, PriorityClass.DEFAULT, grants);
+        Thread export = enqueue(scheduler, ExportAction.class, "export", grants);
+
+        scheduler.release();
+        interactive.join();
+        export.join();
+        assertEquals("Grants", Arrays.asList("export", PriorityClass.DEFAULT), grants);
+    }
+
+    private Thread enqueue(final FairScheduler scheduler, final Class<? extends Action> actionClass, final String priorityClass, final List<String> grants)
+            throws InterruptedException {
+
+        int depth = getQueueDepth(scheduler, priorityClass);
+
+        Thread thread = new Thread() {
+
+            @Override
+            public void run() {
+
+                try {
+                    if (scheduler.acquire(actionClass, TIMEOUT)) {
+                        grants.add(priorityClass);
+                        scheduler.release();
+                    }
+                } catch (InterruptedException e) {
+                    // Stop
+                }
+            }
+
+        };
+        thread.start();
+
+        // Wait until the thread has entered the queue, so that the queue order is deterministic
+        while (getQueueDepth(scheduler, priorityClass) == depth) {
+            Thread.sleep(1);
+        }
+
+        return thread;
+    }
+
+    private int getQueueDepth(FairScheduler scheduler, String priorityClass) {
+
+        Integer depth = scheduler.getQueueDepths().get(priorityClass);
+        return depth == null ? 0 : depth;
+    }
+
+}
@@ -0,0 +1,170 @@
+/*
+ * This file is part of FemtoWeb.
+ * Copyright (c) 2015 QuarterCode <http://quartercode.com/>
+ *
+ * FemtoWeb is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * FemtoWeb is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with FemtoWeb. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.femtoweb.test.impl.session;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import java.io.IOException;
+import javax.servlet.http.Cookie;
+import org.junit.Test;
+import com.quartercode.femtoweb.impl.session.OffHeapSessionStore;
+import com.quartercode.femtoweb.impl.synthetic.SyntheticRequest;
+import com.quartercode.femtoweb.impl.synthetic.SyntheticResponse;
+
+public class OffHeapSessionStoreTest {
+
+    private static final String COOKIE_NAME = "FWSESSION";
+
+    @Test
+    public void testSaveAndLoad() throws Exception {
+
+        OffHeapSessionStore store = new OffHeapSessionStore(COOKIE_NAME, false, 60, 10, 1024, 4096);
+
+        String id = save(store, null, "user", "alice");
+        assertNotNull("Session cookie", id);
+        assertEquals("Session count", 1, store.getSessionCount());
+        assertTrue("Reserved off-heap memory", store.getTotalSize() > 0);
+
+        assertEquals("Loaded attribute", "alice", load(store, id, "user"));
+        assertNull("Attribute with forged session ID", load(store, id + "x", "user"));
+
+        // Changing an existing session keeps its ID
+        assertNull("New cookie after changing existing session", save(store, id, "user", "bob"));
+        assertEquals("Changed attribute", "bob", load(store, id, "user"));
+    }
+
+    @Test
+    public void testRemoveEmptySession() throws Exception {
+
+        OffHeapSessionStore store = new OffHeapSessionStore(COOKIE_NAME, false, 60, 10, 1024, 4096);
+        String id = save(store, null, "user", "alice");
+
+        SyntheticRequest request = request(id);
+        SyntheticResponse response = new SyntheticResponse();
+        store.setAttribute(request, response, "user", null);
+        store.commit(request, response);
+
+        assertEquals("Deleting cookie max age", 0, response.getCookies().get(0).getMaxAge());
+        assertEquals("Session count", 0, store.getSessionCount());
+        assertEquals("Reserved off-heap memory after removal", 0, store.getTotalSize());
+    }
+
+    @Test
+    public void testExpiry() throws Exception {
+
+        OffHeapSessionStore store = new OffHeapSessionStore(COOKIE_NAME, false, 1, 10, 1024, 4096);
+        String id = save(store, null, "user", "alice");
+
+        Thread.sleep(1100);
+
+        assertNull("Attribute of expired session", load(store, id, "user"));
+        assertEquals("Session count", 0, store.getSessionCount());
+        assertEquals("Reserved off-heap memory after expiry", 0, store.getTotalSize());
+
+        // The expired ID is never reused
+        String newId = save(store, id, "user", "alice");
+        assertNotNull("New session cookie", newId);
+        assertNotEquals("New session ID", id, newId);
+    }
+
+    @Test
+    public void testSessionCountEviction() throws Exception {
+
+        OffHeapSessionStore store = new OffHeapSessionStore(COOKIE_NAME, false, 60, 3, 1024, 4096);
+        String first = save(store, null, "user", "first");
+        String second = save(store, null, "user", "second");
+        String third = save(store, null, "user", "third");
+
+        // Accessing the first session makes the second one the least recently accessed
+        load(store, first, "user");
+        String fourth = save(store, null, "user", "fourth");
+
+        assertEquals("Session count", 3, store.getSessionCount());
+        assertNull("Evicted session", load(store, second, "user"));
+        assertEquals("First session", "first", load(store, first, "user"));
+        assertEquals("Third session", "third", load(store, third, "user"));
+        assertEquals("Fourth session", "fourth", load(store, fourth, "user"));
+    }
+
+    @Test
+    public void testTotalSizeEviction() throws Exception {
+
+        OffHeapSessionStore store = new OffHeapSessionStore(COOKIE_NAME, false, 60, 100, 1024, 2048);
+        String first = save(store, null, "data", new byte[500]);
+        long sessionSize = store.getTotalSize();
+        for (int session = 0; session < 3; session++) {
+            save(store, null, "data", new byte[500]);
+        }
+
+        assertEquals("Session count", 2048 / sessionSize, store.getSessionCount());
+        assertEquals("Reserved off-heap memory", store.getSessionCount() * sessionSize, store.getTotalSize());
+        assertNull("Evicted oldest session", load(store, first, "data"));
+    }
+
+    @Test
+    public void testFreedBlocksReused() throws Exception {
+
+        OffHeapSessionStore store = new OffHeapSessionStore(COOKIE_NAME, false, 60, 100, 1024, 6 * OffHeapSessionStore.BLOCK_SIZE);
+        String first = save(store, null, "data", new byte[300]);
+        String second = save(store, null, "data", new byte[300]);
+
+        // The new session occupies the blocks of the removed first session and the remaining free blocks, which aren't adjacent
+        save(store, first, "data", null);
+        byte[] data = new byte[700];
+        for (int index = 0; index < data.length; index++) {
+            data[index] = (byte) index;
+        }
+        String third = save(store, null, "data", data);
+
+        assertEquals("Session count", 2, store.getSessionCount());
+        assertArrayEquals("Data spread over reused blocks", data, (byte[]) load(store, third, "data"));
+        assertArrayEquals("Data of untouched session", new byte[300], (byte[]) load(store, second, "data"));
+    }
+
+    private SyntheticRequest request(String id) {
+
+        SyntheticRequest request = new SyntheticRequest(null, "GET", "", "/");
+        if (id != null) {
+            request.addCookie(new Cookie(COOKIE_NAME, id));
+        }
+        return request;
+    }
+
+    private Object load(OffHeapSessionStore store, String id, String name) {
+
+        return store.getAttribute(request(id), name);
+    }
+
+    /*
+     * Returns the value of the session cookie which has been set by the store, or null if no cookie has been set.
+     */
+    private String save(OffHeapSessionStore store, String id, String name, Object value) throws IOException {
+
+        SyntheticRequest request = request(id);
+        SyntheticResponse response = new SyntheticResponse();
+        store.setAttribute(request, response, name, value);
+        store.commit(request, response);
+        return response.getCookies().isEmpty() ? null : response.getCookies().get(0).getValue();
+    }
+
+}
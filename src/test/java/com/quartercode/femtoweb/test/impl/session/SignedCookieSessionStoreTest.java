@@ -0,0 +1,140 @@
+/*
+ * This file is part of FemtoWeb.
+ * Copyright (c) 2015 QuarterCode <http://quartercode.com/>
+ *
+ * FemtoWeb is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * FemtoWeb is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with FemtoWeb. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.femtoweb.test.impl.session;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.junit.Test;
+import com.quartercode.femtoweb.impl.session.SignedCookieSessionStore;
+
+public class SignedCookieSessionStoreTest {
+
+    private static final String SECRET = "0123456789abcdef0123456789abcdef";
+
+    private static HttpServletRequest request(final Cookie... cookies) {
+
+        final Map<String, Object> attributes = new HashMap<>();
+        return (HttpServletRequest) Proxy.newProxyInstance(HttpServletRequest.class.getClassLoader(), new Class<?>[] { HttpServletRequest.class }, new InvocationHandler() {
+
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) {
+
+                switch (method.getName()) {
+                    case "getCookies":
+                        return cookies;
+                    case "getContextPath":
+                        return "";
+                    case "getAttribute":
+                        return attributes.get(args[0]);
+                    case "setAttribute":
+                        attributes.put((String) args[0], args[1]);
+                        return null;
+                    default:
+                        throw new UnsupportedOperationException(method.getName());
+                }
+            }
+
+        });
+    }
+
+    private static HttpServletResponse response(final List<Cookie> addedCookies) {
+
+        return (HttpServletResponse) Proxy.newProxyInstance(HttpServletResponse.class.getClassLoader(), new Class<?>[] { HttpServletResponse.class }, new InvocationHandler() {
+
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) {
+
+                switch (method.getName()) {
+                    case "isCommitted":
+                        return false;
+                    case "addCookie":
+                        addedCookies.add((Cookie) args[0]);
+                        return null;
+                    default:
+                        throw new UnsupportedOperationException(method.getName());
+                }
+            }
+
+        });
+    }
+
+    private static Cookie storeAndCommit(SignedCookieSessionStore store, String name, Object value) throws Exception {
+
+        List<Cookie> cookies = new ArrayList<>();
+        HttpServletRequest request = request();
+        HttpServletResponse response = response(cookies);
+
+        store.setAttribute(request, response, name, value);
+        store.commit(request, response);
+
+        assertEquals("Amount of written session cookies", 1, cookies.size());
+        return cookies.get(0);
+    }
+
+    @Test
+    public void testRoundTrip() throws Exception {
+
+        SignedCookieSessionStore store = new SignedCookieSessionStore("FWSESSION", false, 60, SECRET, false);
+        Cookie cookie = storeAndCommit(store, "user", "alice");
+
+        assertEquals("Session attribute read from cookie", "alice", store.getAttribute(request(cookie), "user"));
+    }
+
+    @Test
+    public void testRoundTripEncrypted() throws Exception {
+
+        SignedCookieSessionStore store = new SignedCookieSessionStore("FWSESSION", false, 60, SECRET, true);
+        Cookie cookie = storeAndCommit(store, "userId", 42);
+
+        assertEquals("Session attribute read from encrypted cookie", 42, store.getAttribute(request(cookie), "userId"));
+    }
+
+    @Test
+    public void testTamperedCookie() throws Exception {
+
+        SignedCookieSessionStore store = new SignedCookieSessionStore("FWSESSION", false, 60, SECRET, false);
+        Cookie cookie = storeAndCommit(store, "role", "user");
+
+        char[] value = cookie.getValue().toCharArray();
+        value[5] = value[5] == 'A' ? 'B' : 'A';
+        Cookie tampered = new Cookie(cookie.getName(), new String(value));
+
+        assertNull("Session attribute read from tampered cookie", store.getAttribute(request(tampered), "role"));
+    }
+
+    @Test
+    public void testForeignSecret() throws Exception {
+
+        Cookie cookie = storeAndCommit(new SignedCookieSessionStore("FWSESSION", false, 60, SECRET, false), "role", "admin");
+        SignedCookieSessionStore otherStore = new SignedCookieSessionStore("FWSESSION", false, 60, SECRET.toUpperCase(), false);
+
+        assertNull("Session attribute read with different secret", otherStore.getAttribute(request(cookie), "role"));
+    }
+
+}
@@ -0,0 +1,78 @@
+/*
+ * This file is part of FemtoWeb.
+ * Copyright (c) 2015 QuarterCode <http://quartercode.com/>
+ *
+ * FemtoWeb is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * FemtoWeb is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with FemtoWeb. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.femtoweb.test.impl.taglib;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import com.quartercode.femtoweb.impl.DefaultContext;
+import com.quartercode.femtoweb.impl.taglib.FemtoWebFunctions;
+import com.quartercode.femtoweb.impl.taglib.UrlTable;
+import com.quartercode.femtoweb.test.testactions.SomeRootTestAction;
+import com.quartercode.femtoweb.test.testactions.sub1.sub2.SomeTestAction;
+
+public class FemtoWebFunctionsTest {
+
+    private static final String BASE_PACKAGE = "com.quartercode.femtoweb.test.testactions";
+
+    private UrlTable            previousUrlTable;
+
+    @Before
+    public void setUp() {
+
+        previousUrlTable = UrlTable.bind(new UrlTable(new DefaultContext(BASE_PACKAGE, null, null, null), BASE_PACKAGE, "/app"));
+    }
+
+    @After
+    public void tearDown() {
+
+        UrlTable.restore(previousUrlTable);
+    }
+
+    @Test
+    public void testActionUrl() {
+
+        assertEquals("URL of class", "/app/sub1/sub2/someTest", FemtoWebFunctions.url(SomeTestAction.class));
+        assertEquals("URL of relative name", "/app/sub1/sub2/someTest", FemtoWebFunctions.url("sub1.sub2.SomeTestAction"));
+        assertEquals("URL of fully qualified name", "/app/someRootTest", FemtoWebFunctions.url(SomeRootTestAction.class.getName()));
+        assertSame("Cached URL", FemtoWebFunctions.url("sub1.sub2.SomeTestAction"), FemtoWebFunctions.url("sub1.sub2.SomeTestAction"));
+    }
+
+    @Test
+    public void testUrlParam() {
+
+        assertEquals("URL with encoded parameter", "/app/someRootTest?q=a+%26+b%3D%C3%A4", FemtoWebFunctions.urlParam("SomeRootTestAction", "q", "a & b=\u00e4"));
+        assertEquals("URL with null parameter", "/app/someRootTest?page=", FemtoWebFunctions.urlParam("SomeRootTestAction", "page", null));
+    }
+
+    @Test
+    public void testAsset() {
+
+        assertEquals("Asset URL", "/app/static/css/main.css", FemtoWebFunctions.asset("/css/main.css"));
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void testUnknownAction() {
+
+        FemtoWebFunctions.url("UnknownAction");
+    }
+
+}
@@ -0,0 +1,76 @@
+/*
+ * This file is part of FemtoWeb.
+ * Copyright (c) 2015 QuarterCode <http://quartercode.com/>
+ *
+ * FemtoWeb is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * FemtoWeb is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with FemtoWeb. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.femtoweb.test.impl.template;
+
+import static org.junit.Assert.assertEquals;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import com.quartercode.femtoweb.impl.synthetic.SyntheticResponse;
+import com.quartercode.femtoweb.impl.template.CompiledTemplate;
+import com.quartercode.femtoweb.test.InProcessContainer;
+import com.quartercode.femtoweb.test.impl.template.actions.PageAction;
+
+public class TemplateTest {
+
+    private static final String TEMPLATE = "<h1>${model.title}</h1><p>${user.name} ${ user.admin } ${model.count} ${model.unknown}${missing.value}</p>$!{fragment} costs $5 {}";
+
+    private InProcessContainer  container;
+
+    @Before
+    public void setUp() throws Exception {
+
+        Map<String, String> initParameters = new HashMap<>();
+        initParameters.put("actionBasePackage", PageAction.class.getPackage().getName());
+
+        container = new InProcessContainer("/app", initParameters);
+        container.addStaticAsset("/WEB-INF/dynamic/page.html", "text/html", TEMPLATE.getBytes(StandardCharsets.UTF_8));
+        container.start();
+    }
+
+    @After
+    public void tearDown() {
+
+        container.stop();
+    }
+
+    @Test
+    public void testRender() throws Exception {
+
+        String expected = "<h1>Tom &amp; &quot;Jerry&quot; 😀</h1><p>Jörg &lt;admin&gt; true 3 </p><b>bold</b> costs $5 {}";
+
+        // Render twice in order to test the cached template and property lookups
+        for (int iteration = 0; iteration < 2; iteration++) {
+            SyntheticResponse response = container.execute("GET", "/page");
+            assertEquals("Status", 200, response.getStatus());
+            assertEquals("Content type", "text/html;charset=UTF-8", response.getContentType());
+            assertEquals("Rendered template", expected, new String(response.getBody(), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void testUnclosedPlaceholder() {
+
+        CompiledTemplate.compile("<p>${name</p>");
+    }
+
+}
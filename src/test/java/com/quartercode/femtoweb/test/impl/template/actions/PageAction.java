@@ -0,0 +1,63 @@
+/*
+ * This file is part of FemtoWeb.
+ * Copyright (c) 2015 QuarterCode <http://quartercode.com/>
+ *
+ * FemtoWeb is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * FemtoWeb is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with FemtoWeb. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.femtoweb.test.impl.template.actions;
+
+import com.quartercode.femtoweb.api.Action;
+import com.quartercode.femtoweb.api.ActionSupport;
+import com.quartercode.femtoweb.api.ModelLayout;
+import com.quartercode.femtoweb.api.resolutions.Template;
+
+public class PageAction extends ActionSupport {
+
+    private static final ModelLayout LAYOUT = ModelLayout.of("title", "count");
+    private static final int         TITLE  = LAYOUT.getSlot("title");
+    private static final int         COUNT  = LAYOUT.getSlot("count");
+
+    @Override
+    protected Action doExecute() throws Exception {
+
+        push("user", new User("Jörg <admin>"));
+        push("fragment", "<b>bold</b>");
+        pushModel(LAYOUT).set(TITLE, "Tom & \"Jerry\" 😀").set(COUNT, 3);
+
+        return new Template(PageAction.class, "page.html");
+    }
+
+    public static class User {
+
+        private final String name;
+
+        private User(String name) {
+
+            this.name = name;
+        }
+
+        public String getName() {
+
+            return name;
+        }
+
+        public boolean isAdmin() {
+
+            return true;
+        }
+
+    }
+
+}
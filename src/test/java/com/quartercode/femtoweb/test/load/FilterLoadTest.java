@@ -0,0 +1,113 @@
+/*
+ * This file is part of FemtoWeb.
+ * Copyright (c) 2015 QuarterCode <http://quartercode.com/>
+ *
+ * FemtoWeb is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * FemtoWeb is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with FemtoWeb. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.femtoweb.test.load;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import com.quartercode.femtoweb.test.InProcessContainer;
+
+/**
+ * Drives the {@link InProcessContainer} with a mixed workload and compares the results against a saved baseline.
+ * This test only runs in the {@code load-test} Maven profile.
+ * All settings can be changed through system properties:
+ *
+ * <ul>
+ * <li>{@code femtoweb.load.concurrency}: The amount of load worker threads (default: twice the amount of processors).</li>
+ * <li>{@code femtoweb.load.warmup}: The warm-up time in milliseconds (default: {@code 3000}).</li>
+ * <li>{@code femtoweb.load.duration}: The measured time in milliseconds (default: {@code 10000}).</li>
+ * <li>{@code femtoweb.load.baseline}: The baseline file (default: {@code src/test/load/baseline.properties}).
+ * If it doesn't exist, the results of the current run are saved as the new baseline.</li>
+ * <li>{@code femtoweb.load.saveBaseline}: Whether the results should replace the existing baseline (default: {@code false}).</li>
+ * <li>{@code femtoweb.load.report}: The file the human-readable report is written to (default: {@code target/load-report.txt}).</li>
+ * <li>{@code femtoweb.load.tolerance}: The relative deviation from the baseline which is not yet a regression (default: {@code 0.2}).</li>
+ * <li>Any property starting with {@code femtoweb.load.filter.} is passed to the filter as an init parameter (e.g. {@code femtoweb.load.filter.compression}).</li>
+ * </ul>
+ */
+public class FilterLoadTest {
+
+    private static final String FILTER_PARAMETER_PREFIX = "femtoweb.load.filter.";
+
+    private InProcessContainer  container;
+
+    @Before
+    public void setUp() throws Exception {
+
+        Map<String, String> initParameters = new HashMap<>();
+        initParameters.put("actionBasePackage", "com.quartercode.femtoweb.test.load.actions");
+        for (String name : System.getProperties().stringPropertyNames()) {
+            if (name.startsWith(FILTER_PARAMETER_PREFIX)) {
+                initParameters.put(name.substring(FILTER_PARAMETER_PREFIX.length()), System.getProperty(name));
+            }
+        }
+
+        container = new InProcessContainer("/app", initParameters);
+        container.addStaticAsset("/static/css/main.css", "text/css", "body { margin: 0; }\n".getBytes(StandardCharsets.UTF_8));
+        container.addView("/WEB-INF/dynamic/view.jsp", "<!DOCTYPE html>\n<html><head><title>${title}</title><link rel=\"stylesheet\" href=\"/app/static/css/main.css\">"
+                + "</head><body><h1>${title}</h1><p>Hello ${user}!</p></body></html>\n");
+        container.start();
+    }
+
+    @After
+    public void tearDown() {
+
+        container.stop();
+    }
+
+    @Test
+    public void testMixedWorkload() throws Exception {
+
+        int concurrency = Integer.getInteger("femtoweb.load.concurrency", Runtime.getRuntime().availableProcessors() * 2);
+        long warmup = Long.getLong("femtoweb.load.warmup", 3000);
+        long duration = Long.getLong("femtoweb.load.duration", 10000);
+        File baselineFile = new File(System.getProperty("femtoweb.load.baseline", "src/test/load/baseline.properties"));
+        boolean saveBaseline = Boolean.getBoolean("femtoweb.load.saveBaseline");
+        double tolerance = Double.parseDouble(System.getProperty("femtoweb.load.tolerance", "0.2"));
+        File reportFile = new File(System.getProperty("femtoweb.load.report", "target/load-report.txt"));
+
+        LoadGenerator generator = new LoadGenerator(container);
+        generator.addWorkload("hit", 40, "GET", "/hit", 200);
+        generator.addWorkload("notFound", 10, "GET", "/missing", 404);
+        generator.addWorkload("redirect", 10, "GET", "/redirect", 302);
+        generator.addWorkload("static", 20, "GET", "/static/css/main.css", 200);
+        generator.addWorkload("view", 20, "GET", "/view?user=load", 200);
+
+        LoadReport report = generator.run(concurrency, warmup, duration);
+        reportFile.getAbsoluteFile().getParentFile().mkdirs();
+        Files.write(reportFile.toPath(), report.toString().getBytes(StandardCharsets.UTF_8));
+
+        assertEquals("Requests with unexpected status (see " + reportFile + ")", 0, report.getErrors());
+
+        if (saveBaseline || !baselineFile.exists()) {
+            report.save(baselineFile);
+        } else {
+            List<String> regressions = report.compareToBaseline(baselineFile, tolerance);
+            assertTrue("Performance regressions against " + baselineFile + ": " + regressions + "\n" + report, regressions.isEmpty());
+        }
+    }
+
+}
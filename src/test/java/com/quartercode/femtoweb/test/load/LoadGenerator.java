@@ -0,0 +1,186 @@
+/*
+ * This file is part of FemtoWeb.
+ * Copyright (c) 2015 QuarterCode <http://quartercode.com/>
+ *
+ * FemtoWeb is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * FemtoWeb is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with FemtoWeb. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.femtoweb.test.load;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import com.quartercode.femtoweb.impl.synthetic.SyntheticResponse;
+import com.quartercode.femtoweb.test.InProcessContainer;
+
+/**
+ * A closed-loop load generator which drives an {@link InProcessContainer} with a weighted mix of requests.
+ * Each of the configured worker threads sends its next request as soon as the previous one has been answered.
+ * Therefore, the concurrency stays constant and the throughput reflects how fast the filter actually is.
+ */
+public class LoadGenerator {
+
+    private final InProcessContainer container;
+    private final List<Workload>     workloads = new ArrayList<>();
+    private int                      totalWeight;
+
+    public LoadGenerator(InProcessContainer container) {
+
+        this.container = container;
+    }
+
+    public LoadGenerator addWorkload(String name, int weight, String method, String uri, int expectedStatus) {
+
+        workloads.add(new Workload(name, weight, method, uri, expectedStatus));
+        totalWeight += weight;
+        return this;
+    }
+
+    public LoadReport run(int concurrency, long warmupMillis, long durationMillis) throws InterruptedException {
+
+        // Warm-up results are thrown away
+        runPhase(concurrency, warmupMillis);
+
+        long startTime = System.nanoTime();
+        Worker[] workers = runPhase(concurrency, durationMillis);
+        long elapsedNanos = System.nanoTime() - startTime;
+
+        long[][] latencies = new long[workloads.size()][];
+        long[] errors = new long[workloads.size()];
+        for (int workload = 0; workload < workloads.size(); workload++) {
+            int count = 0;
+            for (Worker worker : workers) {
+                count += worker.latencyCounts[workload];
+                errors[workload] += worker.errors[workload];
+            }
+
+            latencies[workload] = new long[count];
+            int offset = 0;
+            for (Worker worker : workers) {
+                System.arraycopy(worker.latencies[workload], 0, latencies[workload], offset, worker.latencyCounts[workload]);
+                offset += worker.latencyCounts[workload];
+            }
+        }
+
+        List<String> names = new ArrayList<>();
+        for (Workload workload : workloads) {
+            names.add(workload.name);
+        }
+        return new LoadReport(concurrency, elapsedNanos, names, latencies, errors);
+    }
+
+    private Worker[] runPhase(int concurrency, long durationMillis) throws InterruptedException {
+
+        final long                       endTime     = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(durationMillis);
+        final CountDownLatch             startSignal = new CountDownLatch(1);
+        final AtomicReference<Throwable> failure     = new AtomicReference<>();
+
+        Worker[] workers = new Worker[concurrency];
+        Thread[] threads = new Thread[concurrency];
+        for (int index = 0; index < concurrency; index++) {
+            final Worker worker = new Worker();
+            workers[index] = worker;
+            threads[index] = new Thread(new Runnable() {
+
+                @Override
+                public void run() {
+
+                    try {
+                        startSignal.await();
+                        worker.run(endTime);
+                    } catch (Throwable t) {
+                        failure.compareAndSet(null, t);
+                    }
+                }
+
+            }, "Load worker " + index);
+            threads[index].start();
+        }
+
+        startSignal.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        if (failure.get() != null) {
+            throw new IllegalStateException("Load worker failed", failure.get());
+        }
+        return workers;
+    }
+
+    private Workload pickWorkload() {
+
+        int value = ThreadLocalRandom.current().nextInt(totalWeight);
+        for (Workload workload : workloads) {
+            value -= workload.weight;
+            if (value < 0) {
+                return workload;
+            }
+        }
+        throw new IllegalStateException("No workloads configured");
+    }
+
+    private class Worker {
+
+        private final long[][] latencies     = new long[workloads.size()][1024];
+        private final int[]    latencyCounts = new int[workloads.size()];
+        private final long[]   errors        = new long[workloads.size()];
+
+        private void run(long endTime) throws Exception {
+
+            while (System.nanoTime() < endTime) {
+                Workload workload = pickWorkload();
+                int index = workloads.indexOf(workload);
+
+                long startTime = System.nanoTime();
+                SyntheticResponse response = container.execute(workload.method, workload.uri);
+                long latency = System.nanoTime() - startTime;
+
+                if (response.getStatus() != workload.expectedStatus) {
+                    errors[index]++;
+                }
+
+                if (latencyCounts[index] == latencies[index].length) {
+                    latencies[index] = Arrays.copyOf(latencies[index], latencies[index].length * 2);
+                }
+                latencies[index][latencyCounts[index]++] = latency;
+            }
+        }
+
+    }
+
+    private static class Workload {
+
+        private final String name;
+        private final int    weight;
+        private final String method;
+        private final String uri;
+        private final int    expectedStatus;
+
+        private Workload(String name, int weight, String method, String uri, int expectedStatus) {
+
+            this.name = name;
+            this.weight = weight;
+            this.method = method;
+            this.uri = uri;
+            this.expectedStatus = expectedStatus;
+        }
+
+    }
+
+}
@@ -0,0 +1,174 @@
+/*
+ * This file is part of FemtoWeb.
+ * Copyright (c) 2015 QuarterCode <http://quartercode.com/>
+ *
+ * FemtoWeb is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * FemtoWeb is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with FemtoWeb. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.quartercode.femtoweb.test.load;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The result of a {@link LoadGenerator} run.
+ * It contains the overall throughput as well as latency percentiles for each workload and for all requests together.
+ * Reports can be saved as baselines and later runs can be compared against such a baseline.
+ */
+public class LoadReport {
+
+    private static final String TOTAL = "total";
+
+    private final int           concurrency;
+    private final double        seconds;
+    private final List<String>  names;
+    private final long[][]      latencies;
+    private final long[]        errors;
+    private final long[]        totalLatencies;
+
+    LoadReport(int concurrency, long elapsedNanos, List<String> names, long[][] latencies, long[] errors) {
+
+        this.concurrency = concurrency;
+        seconds = elapsedNanos / (double) TimeUnit.SECONDS.toNanos(1);
+        this.names = names;
+        this.latencies = latencies;
+        this.errors = errors;
+
+        int totalCount = 0;
+        for (long[] workloadLatencies : latencies) {
+            Arrays.sort(workloadLatencies);
+            totalCount += workloadLatencies.length;
+        }
+
+        totalLatencies = new long[totalCount];
+        int offset = 0;
+        for (long[] workloadLatencies : latencies) {
+            System.arraycopy(workloadLatencies, 0, totalLatencies, offset, workloadLatencies.length);
+            offset += workloadLatencies.length;
+        }
+        Arrays.sort(totalLatencies);
+    }
+
+    public double getThroughput() {
+
+        return totalLatencies.length / seconds;
+    }
+
+    public long getErrors() {
+
+        long sum = 0;
+        for (long workloadErrors : errors) {
+            sum += workloadErrors;
+        }
+        return sum;
+    }
+
+    /**
+     * Returns the given latency percentile of all requests in microseconds.
+     *
+     * @param percentile The percentile between 0 and 100 (e.g. 99.9).
+     * @return The latency percentile in microseconds.
+     */
+    public double getLatency(double percentile) {
+
+        return percentile(totalLatencies, percentile);
+    }
+
+    private static double percentile(long[] sortedLatencies, double percentile) {
+
+        if (sortedLatencies.length == 0) {
+            return 0;
+        }
+
+        int index = (int) Math.ceil(percentile / 100 * sortedLatencies.length) - 1;
+        return sortedLatencies[Math.max(0, Math.min(index, sortedLatencies.length - 1))] / 1000d;
+    }
+
+    public void save(File file) throws IOException {
+
+        Properties properties = new Properties();
+        properties.setProperty("concurrency", String.valueOf(concurrency));
+        properties.setProperty("throughput", String.format(Locale.ROOT, "%.1f", getThroughput()));
+        properties.setProperty("p50", String.format(Locale.ROOT, "%.1f", getLatency(50)));
+        properties.setProperty("p99", String.format(Locale.ROOT, "%.1f", getLatency(99)));
+        properties.setProperty("p999", String.format(Locale.ROOT, "%.1f", getLatency(99.9)));
+
+        file.getAbsoluteFile().getParentFile().mkdirs();
+        try (OutputStream output = new FileOutputStream(file)) {
+            properties.store(output, "FemtoWeb load test baseline (latencies in microseconds)");
+        }
+    }
+
+    /**
+     * Compares this report against the baseline which is stored in the given file.
+     * Throughput may drop and the p99 latency may rise by the given tolerance before a regression is reported.
+     * The p50 and p999 latencies are reported, but too noisy on shared machines to fail a build.
+     *
+     * @param baselineFile The file the baseline has been {@link #save(File) saved} to.
+     * @param tolerance The allowed relative deviation (e.g. 0.2 for 20%).
+     * @return All found regressions; empty if there are none.
+     * @throws IOException If the baseline cannot be read.
+     */
+    public List<String> compareToBaseline(File baselineFile, double tolerance) throws IOException {
+
+        Properties baseline = new Properties();
+        try (InputStream input = new FileInputStream(baselineFile)) {
+            baseline.load(input);
+        }
+
+        List<String> regressions = new ArrayList<>();
+
+        double baselineThroughput = Double.parseDouble(baseline.getProperty("throughput"));
+        if (getThroughput() < baselineThroughput * (1 - tolerance)) {
+            regressions.add(String.format(Locale.ROOT, "Throughput dropped from %.1f to %.1f requests/s", baselineThroughput, getThroughput()));
+        }
+
+        double baselineP99 = Double.parseDouble(baseline.getProperty("p99"));
+        if (getLatency(99) > baselineP99 * (1 + tolerance)) {
+            regressions.add(String.format(Locale.ROOT, "p99 latency rose from %.1f to %.1f us", baselineP99, getLatency(99)));
+        }
+
+        return regressions;
+    }
+
+    @Override
+    public String toString() {
+
+        StringBuilder report = new StringBuilder();
+        report.append(String.format(Locale.ROOT, "%d workers, %.1f s, %.1f requests/s, %d errors%n", concurrency, seconds, getThroughput(), getErrors()));
+        report.append(String.format(Locale.ROOT, "%-12s %10s %10s %10s %10s %8s%n", "workload", "requests", "p50 us", "p99 us", "p999 us", "errors"));
+        for (int index = 0; index < names.size(); index++) {
+            appendLine(report, names.get(index), latencies[index], errors[index]);
+        }
+        appendLine(report, TOTAL, totalLatencies, getErrors());
+        return report.toString();
+    }
+
+    private void appendLine(StringBuilder report, String name, long[] sortedLatencies, long errorCount) {
+
+        report.append(String.format(Locale.ROOT, "%-12s %10d %10.1f %10.1f %10.1f %8d%n", name, sortedLatencies.length, percentile(sortedLatencies, 50),
+                percentile(sortedLatencies, 99), percentile(sortedLatencies, 99.9), errorCount));
+    }
+
+}